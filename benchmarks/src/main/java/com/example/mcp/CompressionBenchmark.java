@@ -0,0 +1,136 @@
+package com.example.mcp;
+
+import com.google.gson.Gson;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Cost of compressing JSON-RPC responses of a given size, to find the size
+ * from which compressing pays off. The setup prints the compressed size of
+ * each payload; dividing the bytes saved by the link's bandwidth gives the
+ * time saved on the wire, to compare with the time per operation here.
+ *
+ * <p>{@code pooled} is the server's path, a gzip stream over a pooled
+ * deflater at {@link ContentCoding#LEVEL}, whatever the {@code level}
+ * parameter. {@code level} compares deflate levels on a reused deflater,
+ * and {@code newDeflater} shows what a deflater per response would cost.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressionBenchmark {
+    /** Size of the uncompressed response in bytes. */
+    @Param({"256", "1024", "4096", "16384", "65536"})
+    public int size;
+
+    /** Payload: search results or a month report. */
+    @Param({"search", "month"})
+    public String payload;
+
+    @Param({"1", "6"})
+    public int level;
+
+    private byte[] json;
+    private final byte[] output = new byte[128 * 1024];
+    private Deflater deflater;
+
+    @Setup
+    public void setUp() throws IOException {
+        Gson gson = new Gson();
+        String encoded = payload.equals("search")
+                ? gson.toJson(new JsonRpcResponse(Corpus.documents(size / 100 + 1), 1))
+                : gson.toJson(new JsonRpcResponse(Corpus.store(size / 30 + 1, 1).month(2020, 1), 1));
+        json = Arrays.copyOf(encoded.getBytes(StandardCharsets.UTF_8), size);
+        deflater = new Deflater(level, true);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream out = ContentCoding.GZIP.open(compressed)) {
+            out.write(json);
+        }
+        System.out.printf("%n%s, %d bytes: %d bytes gzip at level %d, %d at level %d%n", payload, size,
+                compressed.size(), ContentCoding.LEVEL, deflate() + 18, level);
+    }
+
+    @TearDown
+    public void tearDown() {
+        deflater.end();
+    }
+
+    @Benchmark
+    public void pooled(Blackhole blackhole) throws IOException {
+        try (OutputStream out = ContentCoding.GZIP.open(new BlackholeOutputStream(blackhole))) {
+            out.write(json);
+        }
+    }
+
+    @Benchmark
+    public int level() {
+        return deflate();
+    }
+
+    @Benchmark
+    public int newDeflater() {
+        Deflater fresh = new Deflater(level, true);
+        try {
+            fresh.setInput(json);
+            fresh.finish();
+            int n = 0;
+            while (!fresh.finished()) {
+                n += fresh.deflate(output);
+            }
+            return n;
+        } finally {
+            fresh.end();
+        }
+    }
+
+    private int deflate() {
+        deflater.reset();
+        deflater.setInput(json);
+        deflater.finish();
+        int n = 0;
+        while (!deflater.finished()) {
+            n += deflater.deflate(output);
+        }
+        return n;
+    }
+
+    /** Consumes the bytes like a socket would, without keeping them. */
+    private static final class BlackholeOutputStream extends OutputStream {
+        private final Blackhole blackhole;
+
+        BlackholeOutputStream(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void write(int b) {
+            blackhole.consume(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            blackhole.consume(b);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.mcp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic data sets for the benchmarks. Everything is generated from fixed
+ * seeds, so runs with the same parameters see the same data.
+ */
+final class Corpus {
+    private static final String[] VOCABULARY = vocabulary(20_000);
+
+    private Corpus() {
+    }
+
+    /**
+     * Returns documents whose words follow a skewed distribution, so a few
+     * terms are in most documents and most terms in only a few, as in text.
+     */
+    static List<SearchResult> documents(int count) {
+        Random random = new Random(count);
+        List<SearchResult> documents = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            documents.add(new SearchResult(Integer.toString(i), text(random, 6), text(random, 80),
+                    "https://example.com/doc/" + i));
+        }
+        return documents;
+    }
+
+    /** Returns a query of the given number of words drawn like the documents' words. */
+    static String query(Random random, int words) {
+        return text(random, words);
+    }
+
+    /**
+     * Returns a store with hours for the given number of signatures in each
+     * of the given number of months, starting January 2020.
+     */
+    static TimeReportStore store(int signatures, int months) {
+        Random random = new Random(signatures);
+        TimeReportStore store = new TimeReportStore();
+        for (int m = 0; m < months; m++) {
+            TimeReportStore.Batch batch = new TimeReportStore.Batch();
+            for (int s = 0; s < signatures; s++) {
+                batch.add(signature(s), 2020 + m / 12, m % 12 + 1, 120 + random.nextInt(60));
+            }
+            store.addAll(batch);
+        }
+        return store;
+    }
+
+    static String signature(int i) {
+        return "EMP" + i;
+    }
+
+    private static String text(Random random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            double u = random.nextDouble();
+            text.append(VOCABULARY[(int) (u * u * u * VOCABULARY.length)]);
+        }
+        return text.toString();
+    }
+
+    private static String[] vocabulary(int size) {
+        Random random = new Random(7);
+        String[] words = new String[size];
+        for (int i = 0; i < size; i++) {
+            char[] word = new char[3 + random.nextInt(8)];
+            for (int c = 0; c < word.length; c++) {
+                word[c] = (char) ('a' + random.nextInt(26));
+            }
+            words[i] = new String(word);
+        }
+        return words;
+    }
+}
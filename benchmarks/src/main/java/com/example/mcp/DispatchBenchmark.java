@@ -0,0 +1,47 @@
+package com.example.mcp;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Dispatching already parsed requests to their methods and collecting the
+ * responses. The methods run against small data sets, so the time is
+ * mostly the dispatcher's own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+    /** Number of requests in the body; 1 is a single request, more a batch. */
+    @Param({"1", "16", "256"})
+    public int requests;
+
+    private JsonRpcDispatcher dispatcher;
+    private JsonRpcMessage message;
+
+    @Setup
+    public void setUp() throws RequestTooLargeException {
+        dispatcher = new JsonRpcDispatcher(Requests.registry(Corpus.store(10, 12), 100).snapshot(), null);
+        message = dispatcher.parse(new ByteArrayInputStream(Requests.body(requests).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Benchmark
+    public Object dispatch() {
+        return dispatcher.dispatch(message, null);
+    }
+}
@@ -0,0 +1,324 @@
+package com.example.mcp;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load generator for the JSON-RPC endpoint.
+ *
+ * <p>Requests are scheduled at a fixed arrival rate, independent of how fast
+ * the server answers, and sent by a fixed number of connections. Latency is
+ * measured from when a request was scheduled, not from when a connection
+ * became free to send it, so time spent queued behind a slow response
+ * counts. A generator that only sends when the previous response has
+ * arrived stops sending exactly while the server stalls and hides those
+ * stalls from its percentiles (coordinated omission). The service time,
+ * from sending to the response, is reported next to it for comparison.</p>
+ *
+ * <p>Without {@code --url} a server is started in this process over
+ * generated data, so runs are repeatable offline:</p>
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.example.mcp.LoadGenerator \
+ *     --rates=500,1000,2000 --concurrency=16 --duration=30 \
+ *     --mix=getTimeReportStats:60,searchContent:30,recordTimeEntry:10
+ * </pre>
+ */
+public class LoadGenerator {
+    static final String DEFAULT_MIX = "getTimeReportStats:50,getTimeReportTotals:10,searchContent:25,fetchContent:10,recordTimeEntry:5";
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final URI uri;
+    private final Mix mix;
+    private final int signatures;
+    private final int documents;
+
+    LoadGenerator(URI uri, Mix mix, int signatures, int documents) {
+        this.uri = uri;
+        this.mix = mix;
+        this.signatures = signatures;
+        this.documents = documents;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String url = null;
+        List<Integer> rates = List.of(1000);
+        List<Integer> concurrencies = List.of(16);
+        int duration = 30;
+        int warmup = 5;
+        String mix = DEFAULT_MIX;
+        int signatures = 10_000;
+        int documents = 10_000;
+        TransportMode transport = TransportMode.JDK;
+        ExecutionMode executor = ExecutionMode.defaultMode();
+        int poolSize = ExecutionMode.defaultPoolSize();
+        for (String arg : args) {
+            if (arg.startsWith("--url=")) {
+                url = arg.substring("--url=".length());
+            } else if (arg.startsWith("--rates=")) {
+                rates = integers(arg.substring("--rates=".length()));
+            } else if (arg.startsWith("--concurrency=")) {
+                concurrencies = integers(arg.substring("--concurrency=".length()));
+            } else if (arg.startsWith("--duration=")) {
+                duration = Integer.parseInt(arg.substring("--duration=".length()));
+            } else if (arg.startsWith("--warmup=")) {
+                warmup = Integer.parseInt(arg.substring("--warmup=".length()));
+            } else if (arg.startsWith("--mix=")) {
+                mix = arg.substring("--mix=".length());
+            } else if (arg.startsWith("--signatures=")) {
+                signatures = Integer.parseInt(arg.substring("--signatures=".length()));
+            } else if (arg.startsWith("--documents=")) {
+                documents = Integer.parseInt(arg.substring("--documents=".length()));
+            } else if (arg.startsWith("--transport=")) {
+                transport = TransportMode.parse(arg.substring("--transport=".length()));
+            } else if (arg.startsWith("--executor=")) {
+                executor = ExecutionMode.parse(arg.substring("--executor=".length()));
+            } else if (arg.startsWith("--pool-size=")) {
+                poolSize = Integer.parseInt(arg.substring("--pool-size=".length()));
+            } else {
+                System.err.println("Unknown argument: " + arg);
+                System.exit(2);
+            }
+        }
+
+        TimeReportMCPServer server = null;
+        if (url == null) {
+            long start = System.nanoTime();
+            server = new TimeReportMCPServer(new TimeReportMCP(Corpus.store(signatures, 12)),
+                    new SearchMCP(Corpus.documents(documents)), 0,
+                    executor, poolSize, transport);
+            server.start();
+            url = "http://localhost:" + server.getPort() + "/sse";
+            System.err.printf("Started a %s server (%s) with %d signatures and %d documents in %d ms%n",
+                    transport, executor, signatures, documents, (System.nanoTime() - start) / 1_000_000);
+        }
+        LoadGenerator generator = new LoadGenerator(URI.create(url), Mix.parse(mix), signatures, documents);
+        System.out.println("Mix: " + mix);
+        System.out.println(Result.HEADER);
+        for (int concurrency : concurrencies) {
+            for (int rate : rates) {
+                System.out.println(generator.run(rate, concurrency, warmup, duration));
+            }
+        }
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Sends requests at the rate for the warmup and measured durations, in
+     * seconds, and returns the measurements of the second part.
+     */
+    Result run(int rate, int concurrency, int warmupSeconds, int durationSeconds) throws InterruptedException {
+        long interval = 1_000_000_000L / rate;
+        long start = System.nanoTime() + 10_000_000;
+        long measureFrom = start + warmupSeconds * 1_000_000_000L;
+        long end = measureFrom + durationSeconds * 1_000_000_000L;
+        AtomicLong tickets = new AtomicLong();
+        Result result = new Result(rate, concurrency, durationSeconds);
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            Random random = new Random(i);
+            Thread worker = new Thread(() -> {
+                while (true) {
+                    long scheduled = start + tickets.getAndIncrement() * interval;
+                    if (scheduled >= end) {
+                        return;
+                    }
+                    String body = mix.next(random).body(random, signatures, documents);
+                    long now;
+                    while ((now = System.nanoTime()) < scheduled) {
+                        LockSupport.parkNanos(scheduled - now);
+                    }
+                    boolean measured = scheduled >= measureFrom;
+                    if (now >= end) {
+                        // Still queued when the run ends: it would have waited at least this long
+                        if (measured) {
+                            result.backlog(now - scheduled);
+                        }
+                        continue;
+                    }
+                    boolean ok = send(body);
+                    long done = System.nanoTime();
+                    if (measured) {
+                        result.record(ok, done - scheduled, done - now);
+                    }
+                }
+            }, "load-" + i);
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return result;
+    }
+
+    /** Sends one request; returns whether it got a JSON-RPC result. */
+    private boolean send(String body) {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        try {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            return response.statusCode() == 200 && !response.body().startsWith("{\"jsonrpc\":\"2.0\",\"error\"");
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static List<Integer> integers(String list) {
+        List<Integer> values = new ArrayList<>();
+        for (String value : list.split(",")) {
+            values.add(Integer.parseInt(value.trim()));
+        }
+        return values;
+    }
+
+    /** JSON-RPC methods the generator can call, each with randomized parameters. */
+    enum Method {
+        getTimeReportStats {
+            @Override
+            String params(Random random, int signatures, int documents) {
+                return "{\"year\":" + (2020 + random.nextInt(2)) + ",\"month\":" + (1 + random.nextInt(12)) + "}";
+            }
+        },
+        getTimeReportTotals {
+            @Override
+            String params(Random random, int signatures, int documents) {
+                return "{\"fromYear\":2020,\"fromMonth\":1,\"toYear\":2020,\"toMonth\":12,\"signatures\":\""
+                        + Corpus.signature(random.nextInt(signatures)) + "\",\"groupBy\":\"quarter\"}";
+            }
+        },
+        searchContent {
+            @Override
+            String params(Random random, int signatures, int documents) {
+                return "{\"query\":\"" + Corpus.query(random, 1 + random.nextInt(2)) + "\",\"limit\":10}";
+            }
+        },
+        fetchContent {
+            @Override
+            String params(Random random, int signatures, int documents) {
+                return "{\"id\":\"" + random.nextInt(documents) + "\"}";
+            }
+        },
+        recordTimeEntry {
+            @Override
+            String params(Random random, int signatures, int documents) {
+                return "{\"signature\":\"" + Corpus.signature(random.nextInt(signatures))
+                        + "\",\"year\":2020,\"month\":" + (1 + random.nextInt(12)) + ",\"hours\":" + (1 + random.nextInt(8)) + "}";
+            }
+        };
+
+        abstract String params(Random random, int signatures, int documents);
+
+        String body(Random random, int signatures, int documents) {
+            return "{\"jsonrpc\":\"2.0\",\"method\":\"" + name() + "\",\"params\":"
+                    + params(random, signatures, documents) + ",\"id\":" + random.nextInt(1_000_000) + "}";
+        }
+    }
+
+    /** Weighted choice of methods, parsed from {@code method:weight,...}. */
+    static final class Mix {
+        private final Method[] methods;
+        private final int[] cumulative;
+
+        private Mix(Map<Method, Integer> weights) {
+            methods = weights.keySet().toArray(new Method[0]);
+            cumulative = new int[methods.length];
+            int sum = 0;
+            for (int i = 0; i < methods.length; i++) {
+                sum += weights.get(methods[i]);
+                cumulative[i] = sum;
+            }
+        }
+
+        static Mix parse(String mix) {
+            Map<Method, Integer> weights = new LinkedHashMap<>();
+            for (String item : mix.split(",")) {
+                String[] parts = item.trim().split(":");
+                int weight = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1;
+                if (weight < 0) {
+                    throw new IllegalArgumentException("Negative weight for " + parts[0]);
+                }
+                weights.merge(Method.valueOf(parts[0].trim()), weight, Integer::sum);
+            }
+            Mix parsed = new Mix(weights);
+            if (parsed.cumulative.length == 0 || parsed.cumulative[parsed.cumulative.length - 1] == 0) {
+                throw new IllegalArgumentException("The mix has no weight: " + mix);
+            }
+            return parsed;
+        }
+
+        Method next(Random random) {
+            int pick = random.nextInt(cumulative[cumulative.length - 1]);
+            for (int i = 0; ; i++) {
+                if (pick < cumulative[i]) {
+                    return methods[i];
+                }
+            }
+        }
+    }
+
+    /** Measurements of one run; recorded into concurrently by the workers. */
+    static final class Result {
+        static final String HEADER = String.format("%8s %5s %9s %7s %7s %9s | %9s %9s %9s %9s | %9s %9s %9s",
+                "rate/s", "conns", "requests", "errors", "backlog", "done/s",
+                "p50 ms", "p99 ms", "p99.9 ms", "max ms", "svc p50", "svc p99", "svc p99.9");
+
+        private final int rate;
+        private final int concurrency;
+        private final int durationSeconds;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LatencyHistogram service = new LatencyHistogram();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong backlog = new AtomicLong();
+
+        Result(int rate, int concurrency, int durationSeconds) {
+            this.rate = rate;
+            this.concurrency = concurrency;
+            this.durationSeconds = durationSeconds;
+        }
+
+        void record(boolean ok, long latencyNanos, long serviceNanos) {
+            latency.record(latencyNanos);
+            service.record(serviceNanos);
+            if (!ok) {
+                errors.incrementAndGet();
+            }
+        }
+
+        void backlog(long waitedNanos) {
+            latency.record(waitedNanos);
+            backlog.incrementAndGet();
+        }
+
+        @Override
+        public String toString() {
+            long completed = service.count();
+            return String.format("%8d %5d %9d %7d %7d %9.0f | %9.2f %9.2f %9.2f %9.2f | %9.2f %9.2f %9.2f",
+                    rate, concurrency, completed, errors.get(), backlog.get(), completed / (double) durationSeconds,
+                    latency.percentileMillis(50), latency.percentileMillis(99), latency.percentileMillis(99.9),
+                    latency.max() / 1e6,
+                    service.percentileMillis(50), service.percentileMillis(99), service.percentileMillis(99.9));
+        }
+    }
+}
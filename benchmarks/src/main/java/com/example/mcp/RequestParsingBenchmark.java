@@ -0,0 +1,46 @@
+package com.example.mcp;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing a request body into bound requests, the first thing
+ * {@code MainSsePostHandler} does with a POST.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestParsingBenchmark {
+    /** Number of requests in the body; 1 is a single request, more a batch. */
+    @Param({"1", "16", "256"})
+    public int requests;
+
+    private JsonRpcDispatcher dispatcher;
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        dispatcher = new JsonRpcDispatcher(Requests.registry(Corpus.store(10, 1), 100).snapshot(), null);
+        body = Requests.body(requests).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public JsonRpcMessage parse() throws RequestTooLargeException {
+        return dispatcher.parse(new ByteArrayInputStream(body));
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.mcp;
+
+/** JSON-RPC request bodies and the tools to run them against. */
+final class Requests {
+    private static final String[] REQUESTS = {
+        "{\"jsonrpc\":\"2.0\",\"method\":\"getTimeReportStats\",\"params\":{\"year\":2020,\"month\":1},\"id\":%1$d}",
+        "{\"jsonrpc\":\"2.0\",\"method\":\"getTimeReportTotals\",\"params\":{\"fromYear\":2020,\"fromMonth\":1,\"toYear\":2020,\"toMonth\":12,\"groupBy\":\"quarter\"},\"id\":%1$d}",
+        "{\"jsonrpc\":\"2.0\",\"method\":\"fetchContent\",\"params\":{\"id\":\"%1$d\"},\"id\":%1$d}",
+        "{\"jsonrpc\":\"2.0\",\"method\":\"searchContent\",\"params\":{\"query\":\"report overview\",\"limit\":10},\"id\":\"req-%1$d\"}",
+    };
+
+    private Requests() {
+    }
+
+    /** Returns the methods of a time report MCP over the store and a search MCP over a generated corpus. */
+    static ToolRegistry registry(TimeReportStore store, int documents) {
+        return new ToolRegistry()
+                .register(new TimeReportMCP(store))
+                .register(new SearchMCP(Corpus.documents(documents)));
+    }
+
+    /**
+     * Returns a body of the given number of requests, cycling through a mix
+     * of methods; a single request is sent on its own rather than as a batch.
+     */
+    static String body(int requests) {
+        if (requests == 1) {
+            return String.format(REQUESTS[0], 1);
+        }
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i < requests; i++) {
+            if (i > 0) {
+                body.append(',');
+            }
+            body.append(String.format(REQUESTS[i % REQUESTS.length], i));
+        }
+        return body.append(']').toString();
+    }
+}
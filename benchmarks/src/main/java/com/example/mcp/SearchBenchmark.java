@@ -0,0 +1,97 @@
+package com.example.mcp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link SearchMCP#search(String, int)} and {@link SearchMCP#fetch} over
+ * generated corpora. The Java methods bypass the result cache, so every
+ * search is ranked. {@link #search} runs queries of one to three words,
+ * {@link #searchFrequentTerm} single terms found in 5 to 15% of the
+ * documents.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SearchBenchmark {
+    private static final int QUERIES = 1024;
+
+    /** Number of documents in the index. */
+    @Param({"1000", "10000", "100000"})
+    public int documents;
+
+    private SearchMCP search;
+    private String[] queries;
+    private String[] frequentTerms;
+    private String[] ids;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<SearchResult> corpus = Corpus.documents(documents);
+        search = new SearchMCP(corpus);
+        Random random = new Random(42);
+        queries = new String[QUERIES];
+        ids = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = Corpus.query(random, 1 + random.nextInt(3));
+            ids[i] = Integer.toString(random.nextInt(documents));
+        }
+        Map<String, Integer> docFreqs = new HashMap<>();
+        for (SearchResult document : corpus) {
+            Set<String> terms = new HashSet<>(Tokenizer.tokenize(document.getTitle()));
+            terms.addAll(Tokenizer.tokenize(document.getText()));
+            for (String term : terms) {
+                docFreqs.merge(term, 1, Integer::sum);
+            }
+        }
+        List<String> frequent = new ArrayList<>();
+        for (Map.Entry<String, Integer> e : docFreqs.entrySet()) {
+            if (e.getValue() >= documents / 20 && e.getValue() <= documents * 3 / 20) {
+                frequent.add(e.getKey());
+            }
+        }
+        Collections.sort(frequent);
+        frequentTerms = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            frequentTerms[i] = frequent.get(random.nextInt(frequent.size()));
+        }
+    }
+
+    @Benchmark
+    public List<SearchResult> search() {
+        return search.search(queries[next++ & (QUERIES - 1)], SearchMCP.DEFAULT_LIMIT);
+    }
+
+    @Benchmark
+    public List<SearchResult> searchFrequentTerm() {
+        return search.search(frequentTerms[next++ & (QUERIES - 1)], SearchMCP.DEFAULT_LIMIT);
+    }
+
+    @Benchmark
+    public SearchResult fetch() {
+        return search.fetch(ids[next++ & (QUERIES - 1)]);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.mcp;
+
+import com.google.gson.Gson;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Gson serialization of {@link JsonRpcResponse}s holding a month report or
+ * search results, both into a {@code String} and streamed the way the
+ * server writes responses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+    /** Number of entries of the month report and results in the search response. */
+    @Param({"10", "1000", "100000"})
+    public int entries;
+
+    private final Gson gson = new Gson();
+    private JsonRpcResponse month;
+    private JsonRpcResponse search;
+
+    @Setup
+    public void setUp() {
+        month = new JsonRpcResponse(Corpus.store(entries, 1).month(2020, 1), 1);
+        List<SearchResult> results = Corpus.documents(entries);
+        search = new JsonRpcResponse(results, "search-1");
+    }
+
+    @Benchmark
+    public String monthToString() {
+        return gson.toJson(month);
+    }
+
+    @Benchmark
+    public void monthStreamed(Blackhole blackhole) throws IOException {
+        stream(month, blackhole);
+    }
+
+    @Benchmark
+    public String searchToString() {
+        return gson.toJson(search);
+    }
+
+    @Benchmark
+    public void searchStreamed(Blackhole blackhole) throws IOException {
+        stream(search, blackhole);
+    }
+
+    private void stream(JsonRpcResponse response, Blackhole blackhole) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(new BlackholeOutputStream(blackhole), StandardCharsets.UTF_8));
+        gson.toJson(response, writer);
+        writer.flush();
+    }
+
+    /** Consumes the bytes like a socket would, without keeping them. */
+    private static final class BlackholeOutputStream extends OutputStream {
+        private final Blackhole blackhole;
+
+        BlackholeOutputStream(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void write(int b) {
+            blackhole.consume(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            blackhole.consume(b);
+        }
+    }
+}
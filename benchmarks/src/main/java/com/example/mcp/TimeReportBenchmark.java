@@ -0,0 +1,51 @@
+package com.example.mcp;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading a month of time reports: {@link TimeReportMCP#getTimeReportStats}
+ * builds a list of entries, while the JSON-RPC method returns a copy of the
+ * store's columns.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimeReportBenchmark {
+    /** Number of signatures with hours in every month. */
+    @Param({"100", "10000", "100000"})
+    public int signatures;
+
+    private TimeReportStore store;
+    private TimeReportMCP mcp;
+
+    @Setup
+    public void setUp() {
+        store = Corpus.store(signatures, 12);
+        mcp = new TimeReportMCP(store);
+    }
+
+    @Benchmark
+    public List<TimeReportEntry> getTimeReportStats() {
+        return mcp.getTimeReportStats(2020, 6);
+    }
+
+    @Benchmark
+    public TimeReportStore.MonthReport month() {
+        return store.month(2020, 6);
+    }
+}
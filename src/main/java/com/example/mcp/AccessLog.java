@@ -0,0 +1,299 @@
+package com.example.mcp;
+
+import com.google.gson.stream.JsonWriter;
+import com.sun.net.httpserver.HttpExchange;
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Structured access log, one JSON object per line:
+ *
+ * <pre>
+ * {"time":"2025-05-01T12:00:00.123Z","remote":"/127.0.0.1:52814","method":"POST","path":"/sse","status":200,"requestBytes":87,"responseBytes":412,"durationMs":0.84}
+ * {"time":"2025-05-01T12:00:01.007Z","message":"Internal server error","error":"java.lang.IllegalStateException: ...","stackTrace":"..."}
+ * </pre>
+ *
+ * <p>Request threads never wait for the log. They put entries into a
+ * bounded lock-free ring buffer; a background thread formats them and
+ * writes them out in batches, flushing when the buffer runs empty. When the
+ * buffer is full, entries are dropped, and the writer reports how many with
+ * a {@code "dropped"} line. Requests are sampled at a configurable rate;
+ * failed requests (status 5xx or an exception) and errors are always
+ * logged.</p>
+ */
+class AccessLog implements AutoCloseable {
+    static final int DEFAULT_CAPACITY = 8192;
+    /** How long the writer sleeps when there is nothing to write. */
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final Writer out;
+    private final double sampleRate;
+    private final AtomicReferenceArray<Entry> ring;
+    private final int mask;
+    /** Next slot to fill; claimed by producers. */
+    private final AtomicLong tail = new AtomicLong();
+    /** Next slot to drain; only advanced by the writer. */
+    private volatile long head;
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder unreported = new LongAdder();
+    private final Thread writer;
+    private volatile boolean closed;
+    private boolean failed;
+
+    /**
+     * Creates a log writing to standard output, which stays open when the
+     * log is closed.
+     */
+    static AccessLog stdout(double sampleRate) {
+        return unclosed(System.out, sampleRate);
+    }
+
+    /**
+     * Creates a log writing to standard error, which stays open when the
+     * log is closed.
+     */
+    static AccessLog stderr(double sampleRate) {
+        return unclosed(System.err, sampleRate);
+    }
+
+    /**
+     * Returns the log errors go to when nothing else is set up: standard
+     * error, without successful requests. It is shared and must not be
+     * closed.
+     */
+    static AccessLog standardError() {
+        return StandardError.LOG;
+    }
+
+    private static AccessLog unclosed(PrintStream stream, double sampleRate) {
+        OutputStream unclosed = new FilterOutputStream(stream) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+        return new AccessLog(new OutputStreamWriter(unclosed, StandardCharsets.UTF_8), sampleRate);
+    }
+
+    /** Creates a log appending to a file. */
+    static AccessLog open(Path file, double sampleRate) throws IOException {
+        return new AccessLog(Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE), sampleRate);
+    }
+
+    AccessLog(Writer out, double sampleRate) {
+        this(out, sampleRate, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param out        receives the lines; closed with the log
+     * @param sampleRate fraction of successful requests to log, {@code 0} to {@code 1}
+     * @param capacity   number of entries the buffer holds, rounded up to a power of two
+     */
+    AccessLog(Writer out, double sampleRate, int capacity) {
+        if (sampleRate < 0 || sampleRate > 1) {
+            throw new IllegalArgumentException("Sample rate must be between 0 and 1: " + sampleRate);
+        }
+        int size = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+        this.out = out instanceof BufferedWriter ? out : new BufferedWriter(out);
+        this.sampleRate = sampleRate;
+        this.ring = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.writer = new ExecutionMode.NamedThreadFactory("access-log-").newThread(this::run);
+        writer.start();
+    }
+
+    /**
+     * Logs a handled request, subject to sampling.
+     *
+     * @param start nanoTime when the request arrived
+     * @param error exception the handler failed with, or {@code null}
+     */
+    void request(HttpExchange exchange, long start, long requestBytes, long responseBytes, Throwable error) {
+        int status = exchange.getResponseCode();
+        boolean failure = error != null || status >= 500;
+        if (!failure && !sampled()) {
+            return;
+        }
+        Entry entry = new Entry(null, error);
+        entry.remote = exchange.getRemoteAddress();
+        entry.method = exchange.getRequestMethod();
+        entry.uri = exchange.getRequestURI();
+        entry.status = status;
+        entry.requestBytes = requestBytes;
+        entry.responseBytes = responseBytes;
+        entry.durationNanos = System.nanoTime() - start;
+        offer(entry);
+    }
+
+    /** Logs an error; errors are not sampled. */
+    void error(String message, Throwable error) {
+        offer(new Entry(message, error));
+    }
+
+    /** Returns the number of entries dropped because the buffer was full. */
+    long dropped() {
+        return dropped.sum();
+    }
+
+    /** Writes the entries logged so far, stops the writer and closes the output. */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        out.close();
+    }
+
+    private boolean sampled() {
+        return sampleRate >= 1 || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    private void offer(Entry entry) {
+        if (closed) {
+            return;
+        }
+        long slot;
+        do {
+            slot = tail.get();
+            if (slot - head > mask) {
+                dropped.increment();
+                unreported.increment();
+                return;
+            }
+        } while (!tail.compareAndSet(slot, slot + 1));
+        ring.set((int) slot & mask, entry);
+    }
+
+    private void run() {
+        while (true) {
+            // Read before draining, so whatever was logged before close() is still written
+            boolean closing = closed;
+            int written = 0;
+            long slot = head;
+            Entry entry;
+            while ((entry = ring.get((int) slot & mask)) != null) {
+                ring.set((int) slot & mask, null);
+                head = ++slot;
+                write(entry);
+                written++;
+            }
+            if (written == 0) {
+                long lost = unreported.sumThenReset();
+                if (lost > 0) {
+                    Entry report = new Entry(null, null);
+                    report.dropped = lost;
+                    write(report);
+                }
+                try {
+                    out.flush();
+                } catch (IOException e) {
+                    failed(e);
+                }
+                if (closing && tail.get() == head) {
+                    return;
+                }
+                LockSupport.parkNanos(IDLE_NANOS);
+            }
+        }
+    }
+
+    private void write(Entry entry) {
+        try {
+            JsonWriter json = new JsonWriter(out);
+            json.beginObject();
+            json.name("time").value(Instant.ofEpochMilli(entry.time).toString());
+            if (entry.method != null) {
+                json.name("remote").value(String.valueOf(entry.remote));
+                json.name("method").value(entry.method);
+                json.name("path").value(String.valueOf(entry.uri));
+                json.name("status").value(entry.status);
+                json.name("requestBytes").value(entry.requestBytes);
+                json.name("responseBytes").value(entry.responseBytes);
+                json.name("durationMs").value(entry.durationNanos / 1e6);
+            }
+            if (entry.message != null) {
+                json.name("message").value(entry.message);
+            }
+            if (entry.error != null) {
+                StringWriter trace = new StringWriter();
+                entry.error.printStackTrace(new PrintWriter(trace));
+                json.name("error").value(entry.error.toString());
+                json.name("stackTrace").value(trace.toString());
+            }
+            if (entry.dropped > 0) {
+                json.name("dropped").value(entry.dropped);
+            }
+            json.endObject();
+            json.flush();
+            out.write('\n');
+        } catch (IOException e) {
+            failed(e);
+        }
+    }
+
+    /** Reports the first write failure; the log keeps draining so requests never notice. */
+    private void failed(IOException e) {
+        if (!failed) {
+            failed = true;
+            System.err.println("Writing the access log failed, entries are discarded: " + e.getMessage());
+        }
+    }
+
+    /** Holds the shared standard error log, created with the first error logged to it. */
+    private static final class StandardError {
+        static final AccessLog LOG = stderr(0);
+    }
+
+    /** One log line. Only captured on the request thread; formatted by the writer. */
+    private static final class Entry {
+        final long time = System.currentTimeMillis();
+        final String message;
+        final Throwable error;
+        InetSocketAddress remote;
+        String method;
+        URI uri;
+        int status;
+        long requestBytes;
+        long responseBytes;
+        long durationNanos;
+        long dropped;
+
+        Entry(String message, Throwable error) {
+            this.message = message;
+            this.error = error;
+        }
+    }
+}
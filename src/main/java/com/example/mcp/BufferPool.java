@@ -0,0 +1,56 @@
+package com.example.mcp;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pool of direct buffers of one size. Direct buffers are expensive to
+ * allocate and are only freed by the garbage collector, but sockets read
+ * into and write from them without an extra copy, so connections borrow
+ * them for as long as they hold data and return them right after.
+ */
+class BufferPool {
+    static final int DEFAULT_BUFFER_SIZE = 16 * 1024;
+
+    private final int bufferSize;
+    private final int maxPooled;
+    private final ConcurrentLinkedQueue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    /**
+     * @param bufferSize capacity of every buffer
+     * @param maxPooled  number of returned buffers kept for reuse; further ones are left to the collector
+     */
+    BufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    int bufferSize() {
+        return bufferSize;
+    }
+
+    /** Returns a cleared buffer, reused if one is free. */
+    ByteBuffer acquire() {
+        ByteBuffer buffer = free.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        pooled.decrementAndGet();
+        return buffer;
+    }
+
+    /** Returns a buffer to the pool; buffers not acquired from it are ignored. */
+    void release(ByteBuffer buffer) {
+        if (!buffer.isDirect() || buffer.capacity() != bufferSize || buffer.isReadOnly()) {
+            return;
+        }
+        if (pooled.incrementAndGet() > maxPooled) {
+            pooled.decrementAndGet();
+            return;
+        }
+        buffer.clear();
+        free.offer(buffer);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.mcp;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
+/**
+ * Pool of {@link Deflater}s of one configuration. A deflater allocates about
+ * 256 KiB of native memory for its window and hash tables, which costs more
+ * than compressing a small response, so responses borrow one and return it
+ * reset instead of creating their own.
+ */
+class DeflaterPool {
+    private final int level;
+    private final boolean nowrap;
+    private final int maxPooled;
+    private final ConcurrentLinkedQueue<Deflater> free = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    /**
+     * @param level     compression level, {@code 1} to {@code 9}
+     * @param nowrap    whether to leave out the zlib header and checksum, as gzip does
+     * @param maxPooled number of returned deflaters kept for reuse; further ones are ended
+     */
+    DeflaterPool(int level, boolean nowrap, int maxPooled) {
+        this.level = level;
+        this.nowrap = nowrap;
+        this.maxPooled = maxPooled;
+    }
+
+    /** Returns a deflater ready for new input, reused if one is free. */
+    Deflater acquire() {
+        Deflater deflater = free.poll();
+        if (deflater == null) {
+            return new Deflater(level, nowrap);
+        }
+        pooled.decrementAndGet();
+        return deflater;
+    }
+
+    /** Returns a deflater to the pool, or frees its memory if the pool is full. */
+    void release(Deflater deflater) {
+        if (pooled.incrementAndGet() > maxPooled) {
+            pooled.decrementAndGet();
+            deflater.end();
+            return;
+        }
+        deflater.reset();
+        free.offer(deflater);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.mcp;
+
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A method result that is already encoded as UTF-8 JSON. Gson writes it
+ * verbatim, and a single response is sent without serializing the result at
+ * all by writing the bytes inside the envelope with {@link #writeEnvelope}.
+ * Reading one back re-encodes the value compactly.
+ */
+@JsonAdapter(EncodedJson.Adapter.class)
+final class EncodedJson {
+    private static final byte[] PREFIX = "{\"jsonrpc\":\"2.0\",\"result\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ID = ",\"id\":".getBytes(StandardCharsets.UTF_8);
+
+    private final byte[] bytes;
+
+    EncodedJson(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    /** Returns the encoded JSON. The array must not be modified. */
+    byte[] bytes() {
+        return bytes;
+    }
+
+    /**
+     * Writes a complete JSON-RPC response for this result, matching what
+     * Gson produces for a {@link JsonRpcResponse}.
+     *
+     * @param idJson the request id, already encoded as JSON
+     */
+    void writeEnvelope(OutputStream out, String idJson) throws IOException {
+        out.write(PREFIX);
+        out.write(bytes);
+        out.write(ID);
+        out.write(idJson.getBytes(StandardCharsets.UTF_8));
+        out.write('}');
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static final class Adapter extends TypeAdapter<EncodedJson> {
+        @Override
+        public void write(JsonWriter out, EncodedJson value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+            } else {
+                out.jsonValue(value.toString());
+            }
+        }
+
+        @Override
+        public EncodedJson read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            return new EncodedJson(JsonParser.parseReader(in).toString().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
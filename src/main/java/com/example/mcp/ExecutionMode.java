@@ -0,0 +1,103 @@
+package com.example.mcp;
+
+import java.lang.reflect.Method;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Execution model used by {@link TimeReportMCPServer} to run request handlers.
+ */
+public enum ExecutionMode {
+    /** One virtual thread per request. Requires JDK 21 or newer. */
+    VIRTUAL,
+    /** A bounded pool of platform threads. */
+    POOLED,
+    /** The legacy behaviour: every request runs on the HTTP dispatcher thread. */
+    SINGLE;
+
+    private static final Method NEW_VIRTUAL_EXECUTOR = lookupVirtualExecutorFactory();
+
+    /**
+     * Returns {@link #VIRTUAL} when the running JDK supports virtual threads,
+     * otherwise {@link #POOLED}.
+     */
+    public static ExecutionMode defaultMode() {
+        return virtualThreadsSupported() ? VIRTUAL : POOLED;
+    }
+
+    /** Returns whether {@code Executors.newVirtualThreadPerTaskExecutor()} is available. */
+    public static boolean virtualThreadsSupported() {
+        return NEW_VIRTUAL_EXECUTOR != null;
+    }
+
+    /** Default size of the {@link #POOLED} executor. */
+    public static int defaultPoolSize() {
+        return Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * Parses a mode name such as {@code "virtual"}, {@code "pooled"} or {@code "single"}.
+     *
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    public static ExecutionMode parse(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Creates the executor for this mode.
+     *
+     * @param poolSize number of threads for {@link #POOLED}; ignored otherwise
+     * @return the executor, or {@code null} for {@link #SINGLE}
+     */
+    ExecutorService newExecutor(int poolSize) {
+        switch (this) {
+            case VIRTUAL:
+                if (NEW_VIRTUAL_EXECUTOR == null) {
+                    System.err.println("Virtual threads are not supported by this JDK, falling back to a pooled executor");
+                    return POOLED.newExecutor(poolSize);
+                }
+                try {
+                    return (ExecutorService) NEW_VIRTUAL_EXECUTOR.invoke(null);
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException("Unable to create virtual thread executor", e);
+                }
+            case POOLED:
+                if (poolSize <= 0) {
+                    throw new IllegalArgumentException("poolSize must be positive: " + poolSize);
+                }
+                return Executors.newFixedThreadPool(poolSize, new NamedThreadFactory("mcp-worker-"));
+            case SINGLE:
+            default:
+                return null;
+        }
+    }
+
+    private static Method lookupVirtualExecutorFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /** Creates daemon threads with a common name prefix. */
+    static class NamedThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        NamedThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, prefix + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
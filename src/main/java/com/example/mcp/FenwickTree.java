@@ -0,0 +1,77 @@
+package com.example.mcp;
+
+/**
+ * Binary indexed tree of {@code long} sums over a range of positions that
+ * grows as values are added outside of it. Adding to a position and
+ * summing a range both take {@code O(log n)}, where {@code n} is the width
+ * of the covered range.
+ */
+class FenwickTree {
+    /** One-based tree; {@code tree[i]} sums the {@code i & -i} positions ending at {@code first + i - 1}. */
+    private long[] tree = new long[1];
+    private int first;
+
+    /** Adds a value at the position. */
+    void add(int position, long delta) {
+        if (tree.length == 1) {
+            tree = new long[9];
+            first = position;
+        } else if (position < first || position >= first + tree.length - 1) {
+            grow(position);
+        }
+        for (int i = position - first + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /** Returns the sum of the positions {@code from} to {@code to}, both inclusive. */
+    long sum(int from, int to) {
+        from = Math.max(from, first);
+        to = Math.min(to, first + tree.length - 2);
+        if (from > to) {
+            return 0;
+        }
+        return prefix(to - first + 1) - prefix(from - first);
+    }
+
+    private long prefix(int count) {
+        long sum = 0;
+        for (int i = count; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Widens the covered range to include the position, with room to spare
+     * in the direction of growth, and rebuilds the tree in linear time.
+     */
+    private void grow(int position) {
+        int n = tree.length - 1;
+        // Turn the tree back into the plain values
+        for (int i = n; i > 0; i--) {
+            int parent = i + (i & -i);
+            if (parent <= n) {
+                tree[parent] -= tree[i];
+            }
+        }
+        int newFirst = first;
+        int newSize;
+        if (position < first) {
+            newFirst = position - n / 2;
+            newSize = first + n - newFirst;
+        } else {
+            newSize = Math.max(position - first + 1 + n / 2, n);
+        }
+        long[] grown = new long[newSize + 1];
+        System.arraycopy(tree, 1, grown, first - newFirst + 1, n);
+        for (int i = 1; i <= newSize; i++) {
+            int parent = i + (i & -i);
+            if (parent <= newSize) {
+                grown[parent] += grown[i];
+            }
+        }
+        tree = grown;
+        first = newFirst;
+    }
+}
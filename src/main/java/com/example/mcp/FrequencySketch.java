@@ -0,0 +1,79 @@
+package com.example.mcp;
+
+/**
+ * Count-min sketch estimating how often keys were seen recently, the
+ * popularity measure of TinyLFU. Four rows of 4-bit counters are packed
+ * sixteen to a {@code long}; an estimate is the smallest of a key's four
+ * counters. After {@code 10 * width} increments every counter is halved, so
+ * the sketch forgets old popularity and follows changes in the workload.
+ */
+class FrequencySketch {
+    private static final long[] SEEDS = {
+        0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L
+    };
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+    private final int rowMask;
+    private final int sampleSize;
+    private int size;
+
+    /** Creates a sketch sized for about {@code expectedEntries} distinct keys. */
+    FrequencySketch(int expectedEntries) {
+        int width = Integer.highestOneBit(Math.max(64, expectedEntries - 1) << 1);
+        // Each row has width counters, sixteen per long
+        this.table = new long[4 * (width >>> 4)];
+        this.rowMask = (width >>> 4) - 1;
+        this.sampleSize = 10 * width;
+    }
+
+    /** Returns the estimated recent frequency of the key, at most 15. */
+    int frequency(int hash) {
+        int min = 15;
+        for (int row = 0; row < 4; row++) {
+            min = Math.min(min, counter(row, hash));
+        }
+        return min;
+    }
+
+    /** Records an occurrence of the key. */
+    void increment(int hash) {
+        boolean added = false;
+        for (int row = 0; row < 4; row++) {
+            int index = index(row, hash);
+            int shift = shift(row, hash);
+            if (((table[index] >>> shift) & 0xF) < 15) {
+                table[index] += 1L << shift;
+                added = true;
+            }
+        }
+        if (added && ++size >= sampleSize) {
+            reset();
+        }
+    }
+
+    /** Halves every counter. */
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size /= 2;
+    }
+
+    private int counter(int row, int hash) {
+        return (int) ((table[index(row, hash)] >>> shift(row, hash)) & 0xF);
+    }
+
+    private long mix(int row, int hash) {
+        long h = (hash + SEEDS[row]) * SEEDS[(row + 1) & 3];
+        return h ^ (h >>> 29);
+    }
+
+    private int index(int row, int hash) {
+        return row * (rowMask + 1) + (int) (mix(row, hash) & rowMask);
+    }
+
+    private int shift(int row, int hash) {
+        return (int) ((mix(row, hash) >>> 40) & 0xF) << 2;
+    }
+}
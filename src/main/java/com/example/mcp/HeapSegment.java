@@ -0,0 +1,71 @@
+package com.example.mcp;
+
+import java.nio.FloatBuffer;
+import java.util.Map;
+
+/**
+ * A {@link Segment} held entirely on the heap, as produced by
+ * {@link InvertedIndex.Builder}.
+ */
+class HeapSegment implements Segment {
+    private final SearchResult[] docs;
+    private final Map<String, Integer> docsById;
+    private final Map<String, Postings> postings;
+    private final FloatBuffer lengthNorms;
+    private volatile TermDictionary terms;
+
+    HeapSegment(SearchResult[] docs, Map<String, Integer> docsById, Map<String, Postings> postings, float[] lengthNorms) {
+        this.docs = docs;
+        this.docsById = docsById;
+        this.postings = postings;
+        this.lengthNorms = FloatBuffer.wrap(lengthNorms).asReadOnlyBuffer();
+    }
+
+    @Override
+    public int size() {
+        return docs.length;
+    }
+
+    @Override
+    public SearchResult document(int doc) {
+        return docs[doc];
+    }
+
+    @Override
+    public int find(String id) {
+        Integer doc = docsById.get(id);
+        return doc == null ? -1 : doc;
+    }
+
+    @Override
+    public Postings postings(String term) {
+        return postings.get(term);
+    }
+
+    @Override
+    public FloatBuffer lengthNorms() {
+        return lengthNorms;
+    }
+
+    @Override
+    public TermDictionary terms() {
+        TermDictionary dictionary = terms;
+        if (dictionary == null) {
+            synchronized (this) {
+                dictionary = terms;
+                if (dictionary == null) {
+                    String[] words = new String[postings.size()];
+                    int[] docFreqs = new int[words.length];
+                    int i = 0;
+                    for (Map.Entry<String, Postings> e : postings.entrySet()) {
+                        words[i] = e.getKey();
+                        docFreqs[i++] = e.getValue().size;
+                    }
+                    dictionary = TermDictionary.build(words, docFreqs);
+                    terms = dictionary;
+                }
+            }
+        }
+        return dictionary;
+    }
+}
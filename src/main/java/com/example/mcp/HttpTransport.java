@@ -0,0 +1,38 @@
+package com.example.mcp;
+
+import com.sun.net.httpserver.HttpHandler;
+import java.net.InetSocketAddress;
+
+/**
+ * HTTP server the MCP endpoints are served by. Handlers are written against
+ * {@code com.sun.net.httpserver}, and every transport hands them an
+ * {@link com.sun.net.httpserver.HttpExchange}, so the same handlers run on
+ * any of them.
+ *
+ * @see TransportMode
+ */
+interface HttpTransport {
+
+    /**
+     * Routes requests to a handler. A request goes to the context with the
+     * longest path that its path starts with.
+     */
+    void createContext(String path, HttpHandler handler);
+
+    void start();
+
+    /** Stops accepting requests and closes the connections, waiting up to the delay in seconds for exchanges in progress. */
+    void stop(int delay);
+
+    /** Returns the address the transport is bound to. */
+    InetSocketAddress getAddress();
+
+    /**
+     * Sets the maximum size of a request body for transports that read the
+     * body before calling the handler; larger requests are rejected with
+     * {@code 413 Payload Too Large}. Does nothing for transports that stream
+     * the body to the handler.
+     */
+    default void setMaxRequestBytes(long maxRequestBytes) {
+    }
+}
@@ -0,0 +1,279 @@
+package com.example.mcp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Applies content updates to an {@link InvertedIndex} by publishing new
+ * immutable snapshots. Readers take the current {@link #snapshot()} with a
+ * single volatile read and never lock; a query keeps using the snapshot it
+ * started on while updates continue.
+ *
+ * <p>Added documents are inverted into a new small {@link HeapSegment}
+ * before the writer lock is taken. Replaced and deleted documents are masked
+ * in copy-on-write bitsets, so an update never touches existing segments.
+ * Small heap segments of similar size are merged on a background thread,
+ * {@value #MERGE_FACTOR} at a time, which keeps the number of segments
+ * logarithmic in the number of updates. Segments opened from segment files
+ * are never merged.</p>
+ */
+class IndexWriter {
+    /** Number of heap segments of one size class that triggers a merge. */
+    static final int MERGE_FACTOR = 8;
+
+    private final ExecutorService merger = Executors.newSingleThreadExecutor(
+            new ExecutionMode.NamedThreadFactory("search-merge-"));
+    private volatile InvertedIndex snapshot;
+    private boolean mergeScheduled;
+
+    IndexWriter(InvertedIndex initial) {
+        this.snapshot = initial;
+    }
+
+    /** Returns the current snapshot. */
+    InvertedIndex snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Adds documents, replacing live documents with the same id. Within the
+     * given documents the last one with an id wins. The documents are
+     * searchable when this method returns.
+     *
+     * @return the number of documents that were replaced
+     */
+    int add(Collection<SearchResult> documents) {
+        Map<String, SearchResult> unique = new LinkedHashMap<>();
+        for (SearchResult document : documents) {
+            unique.remove(document.getId());
+            unique.put(document.getId(), document);
+        }
+        InvertedIndex.Builder builder = new InvertedIndex.Builder();
+        for (SearchResult document : unique.values()) {
+            builder.add(document);
+        }
+        HeapSegment segment = builder.buildSegment();
+
+        synchronized (this) {
+            InvertedIndex current = snapshot;
+            Segment[] segments = current.segments();
+            long[][] deleted = copyDeletions(current);
+            int replaced = 0;
+            for (String id : unique.keySet()) {
+                replaced += delete(current, deleted, id);
+            }
+            Segment[] next = Arrays.copyOf(segments, segments.length + 1);
+            next[segments.length] = segment;
+            publish(next, Arrays.copyOf(deleted, next.length));
+            return replaced;
+        }
+    }
+
+    /**
+     * Deletes the live documents with the given ids.
+     *
+     * @return the number of documents that were deleted
+     */
+    synchronized int delete(Collection<String> ids) {
+        InvertedIndex current = snapshot;
+        long[][] deleted = copyDeletions(current);
+        int count = 0;
+        for (String id : ids) {
+            count += delete(current, deleted, id);
+        }
+        if (count > 0) {
+            publish(current.segments(), deleted);
+        }
+        return count;
+    }
+
+    /** Stops merging. Pending merges are abandoned; the index stays searchable. */
+    void close() {
+        merger.shutdownNow();
+    }
+
+    /**
+     * Marks the live document with the given id deleted. A bitset still shared
+     * with the published snapshot is copied before the first write.
+     */
+    private static int delete(InvertedIndex current, long[][] deleted, String id) {
+        Segment[] segments = current.segments();
+        for (int i = segments.length - 1; i >= 0; i--) {
+            int doc = segments[i].find(id);
+            if (doc >= 0 && !InvertedIndex.isDeleted(deleted[i], doc)) {
+                if (deleted[i] == null) {
+                    deleted[i] = new long[(segments[i].size() + 63) >>> 6];
+                } else if (deleted[i] == current.deleted(i)) {
+                    deleted[i] = deleted[i].clone();
+                }
+                deleted[i][doc >>> 6] |= 1L << doc;
+                return 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the deletion bitsets of a snapshot for modification. Only the
+     * outer array is copied; {@link #delete(InvertedIndex, long[][], String)}
+     * copies a bitset when it first changes it.
+     */
+    private static long[][] copyDeletions(InvertedIndex index) {
+        long[][] deleted = new long[index.segments().length][];
+        for (int i = 0; i < deleted.length; i++) {
+            deleted[i] = index.deleted(i);
+        }
+        return deleted;
+    }
+
+    /** Publishes a snapshot without fully deleted segments and schedules merges. Holds the lock. */
+    private void publish(Segment[] segments, long[][] deleted) {
+        List<Segment> keptSegments = new ArrayList<>(segments.length);
+        List<long[]> keptDeletions = new ArrayList<>(segments.length);
+        for (int i = 0; i < segments.length; i++) {
+            int deletions = 0;
+            if (deleted[i] != null) {
+                for (long word : deleted[i]) {
+                    deletions += Long.bitCount(word);
+                }
+            }
+            if (deletions < segments[i].size()) {
+                keptSegments.add(segments[i]);
+                keptDeletions.add(deleted[i]);
+            }
+        }
+        snapshot = new InvertedIndex(keptSegments.toArray(new Segment[0]), keptDeletions.toArray(new long[0][]),
+                snapshot.generation() + 1);
+        if (!mergeScheduled && findMerge(snapshot) != null) {
+            mergeScheduled = true;
+            merger.execute(this::runMerges);
+        }
+    }
+
+    /**
+     * Picks the heap segments to merge: all segments of the smallest size
+     * class, counted in powers of {@value #MERGE_FACTOR} live documents, that
+     * has at least {@value #MERGE_FACTOR} members. Returns {@code null} if
+     * nothing needs merging.
+     */
+    static List<Segment> findMerge(InvertedIndex index) {
+        Map<Integer, List<Segment>> levels = new LinkedHashMap<>();
+        Segment[] segments = index.segments();
+        for (int i = 0; i < segments.length; i++) {
+            if (segments[i] instanceof HeapSegment) {
+                int level = 0;
+                for (int live = index.liveCount(i); live >= MERGE_FACTOR; live /= MERGE_FACTOR) {
+                    level++;
+                }
+                levels.computeIfAbsent(level, l -> new ArrayList<>()).add(segments[i]);
+            }
+        }
+        List<Segment> merge = null;
+        int mergeLevel = Integer.MAX_VALUE;
+        for (Map.Entry<Integer, List<Segment>> e : levels.entrySet()) {
+            if (e.getValue().size() >= MERGE_FACTOR && e.getKey() < mergeLevel) {
+                merge = e.getValue();
+                mergeLevel = e.getKey();
+            }
+        }
+        return merge;
+    }
+
+    private void runMerges() {
+        try {
+            while (true) {
+                InvertedIndex base;
+                List<Segment> sources;
+                synchronized (this) {
+                    base = snapshot;
+                    sources = findMerge(base);
+                    if (sources == null || Thread.currentThread().isInterrupted()) {
+                        mergeScheduled = false;
+                        return;
+                    }
+                }
+                merge(base, sources);
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Merging search segments failed: " + e);
+            synchronized (this) {
+                mergeScheduled = false;
+            }
+        }
+    }
+
+    /**
+     * Merges the live documents of the source segments as of {@code base}
+     * into one segment without holding the lock, then swaps it in, applying
+     * deletions that happened in the meantime.
+     */
+    private void merge(InvertedIndex base, List<Segment> sources) {
+        InvertedIndex.Builder builder = new InvertedIndex.Builder();
+        Segment[] baseSegments = base.segments();
+        for (int i = 0; i < baseSegments.length; i++) {
+            if (sources.contains(baseSegments[i])) {
+                long[] deleted = base.deleted(i);
+                for (int doc = 0; doc < baseSegments[i].size(); doc++) {
+                    if (!InvertedIndex.isDeleted(deleted, doc)) {
+                        builder.add(baseSegments[i].document(doc));
+                    }
+                }
+            }
+        }
+        HeapSegment merged = builder.buildSegment();
+
+        synchronized (this) {
+            InvertedIndex current = snapshot;
+            List<Segment> currentSegments = Arrays.asList(current.segments());
+            // Documents deleted since the merge started are deleted in the merged segment too;
+            // a source that is gone entirely was dropped because all its documents were deleted
+            long[] mergedDeleted = null;
+            boolean anySourceLeft = false;
+            for (int i = 0; i < baseSegments.length; i++) {
+                if (!sources.contains(baseSegments[i])) {
+                    continue;
+                }
+                int now = currentSegments.indexOf(baseSegments[i]);
+                anySourceLeft |= now >= 0;
+                long[] deletedBefore = base.deleted(i);
+                long[] deletedNow = now < 0 ? null : current.deleted(now);
+                for (int doc = 0; doc < baseSegments[i].size(); doc++) {
+                    if (!InvertedIndex.isDeleted(deletedBefore, doc)
+                            && (now < 0 || InvertedIndex.isDeleted(deletedNow, doc))) {
+                        int target = merged.find(baseSegments[i].document(doc).getId());
+                        if (target >= 0) {
+                            if (mergedDeleted == null) {
+                                mergedDeleted = new long[(merged.size() + 63) >>> 6];
+                            }
+                            mergedDeleted[target >>> 6] |= 1L << target;
+                        }
+                    }
+                }
+            }
+            if (!anySourceLeft) {
+                return;
+            }
+            List<Segment> next = new ArrayList<>(currentSegments.size());
+            List<long[]> nextDeleted = new ArrayList<>(currentSegments.size());
+            boolean inserted = false;
+            for (int i = 0; i < currentSegments.size(); i++) {
+                Segment segment = currentSegments.get(i);
+                if (!sources.contains(segment)) {
+                    next.add(segment);
+                    nextDeleted.add(current.deleted(i));
+                } else if (!inserted) {
+                    next.add(merged);
+                    nextDeleted.add(mergedDeleted);
+                    inserted = true;
+                }
+            }
+            publish(next.toArray(new Segment[0]), nextDeleted.toArray(new long[0][]));
+        }
+    }
+}
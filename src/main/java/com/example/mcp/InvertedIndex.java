@@ -0,0 +1,605 @@
+package com.example.mcp;
+
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of an inverted index over the title and text of
+ * {@link SearchResult}s, ranked with Okapi BM25.
+ *
+ * <p>Every term maps to a postings list of ascending document numbers and
+ * the term frequency in each document. Queries are evaluated
+ * document-at-a-time over the postings of their terms and the best {@code k}
+ * documents are kept in a bounded {@link TopKHeap}, so a query costs time
+ * proportional to the postings it touches and memory proportional to
+ * {@code k}, independently of the corpus size.</p>
+ *
+ * <p>Top-{@code k} queries skip postings that cannot make it into the heap
+ * (block-max MaxScore). Each term's score is bounded by its weight times
+ * the largest {@code tf / (tf + norm)} of its postings, and of every block
+ * of {@link Segment.Postings#BLOCK} postings. Once the heap is full, terms
+ * whose bounds together stay below its threshold only score documents
+ * found through the other terms, and blocks whose bounds stay below it are
+ * skipped whole. Scores are summed in the same order as when every match
+ * is scored, so both find the same documents with the same scores.</p>
+ *
+ * <p>The postings and documents live in one or more {@link Segment}s, on the
+ * heap or memory-mapped from a segment file. Deleted documents are masked by
+ * a bitset per segment; segments are never modified. Document numbers are
+ * global to the snapshot: the documents of each segment follow those of the
+ * previous one. Inverse document frequencies are computed over all
+ * segments, length normalization is per segment. {@link IndexWriter}
+ * publishes new snapshots as content is added, deleted and merged.</p>
+ */
+class InvertedIndex {
+    /** BM25 term frequency saturation. */
+    static final float K1 = 1.2f;
+    /** BM25 document length normalization. */
+    static final float B = 0.75f;
+    /** Title terms are counted this many times, ranking title matches higher. */
+    static final int TITLE_BOOST = 2;
+    /** Sums of score bounds are raised by this factor, as scores add the same terms in another order. */
+    private static final float BOUND_MARGIN = 1.0001f;
+
+    private final Segment[] segments;
+    /** Deleted documents of each segment as a bitset, or {@code null} if none are deleted. */
+    private final long[][] deleted;
+    private final int[] liveCounts;
+    private final int[] docBases;
+    private final int maxDoc;
+    private final int numDocs;
+    private final long generation;
+
+    /** Receives every matching document with its score. */
+    interface HitCollector {
+        void collect(int doc, float score);
+    }
+
+    /** Ranked documents of a query, best first. */
+    static class Hits {
+        final int[] docs;
+        final float[] scores;
+        final int size;
+
+        Hits(int[] docs, float[] scores, int size) {
+            this.docs = docs;
+            this.scores = scores;
+            this.size = size;
+        }
+    }
+
+    InvertedIndex(Segment segment) {
+        this(new Segment[] {segment}, new long[1][], 0);
+    }
+
+    /**
+     * Creates a snapshot over the given segments. The deletion bitsets are
+     * taken over and must not be modified afterwards.
+     */
+    InvertedIndex(Segment[] segments, long[][] deleted, long generation) {
+        this.segments = segments;
+        this.deleted = deleted;
+        this.generation = generation;
+        this.liveCounts = new int[segments.length];
+        this.docBases = new int[segments.length];
+        int base = 0;
+        int live = 0;
+        for (int i = 0; i < segments.length; i++) {
+            docBases[i] = base;
+            int size = segments[i].size();
+            int deletions = 0;
+            if (deleted[i] != null) {
+                for (long word : deleted[i]) {
+                    deletions += Long.bitCount(word);
+                }
+            }
+            liveCounts[i] = size - deletions;
+            base += size;
+            live += liveCounts[i];
+        }
+        this.maxDoc = base;
+        this.numDocs = live;
+    }
+
+    /** Builds an in-memory index over the given documents. */
+    static InvertedIndex build(List<SearchResult> documents) {
+        Builder builder = new Builder();
+        for (SearchResult document : documents) {
+            builder.add(document);
+        }
+        return builder.build();
+    }
+
+    /** Opens a segment file written by {@link SegmentWriter}. */
+    static InvertedIndex open(Path segmentFile) throws IOException {
+        return new InvertedIndex(MappedSegment.open(segmentFile));
+    }
+
+    /** Returns the {@link #K1}, {@link #B} length normalization of the given document lengths. */
+    static float[] lengthNorms(int[] lengths, int count) {
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            total += lengths[i];
+        }
+        float avgLength = count == 0 ? 1f : Math.max(1f, (float) total / count);
+        float[] norms = new float[count];
+        for (int i = 0; i < count; i++) {
+            norms[i] = K1 * (1 - B + B * lengths[i] / avgLength);
+        }
+        return norms;
+    }
+
+    /** Returns the number of live documents. */
+    int size() {
+        return numDocs;
+    }
+
+    /** Returns the number of document numbers, including deleted documents. */
+    int maxDoc() {
+        return maxDoc;
+    }
+
+    /** Returns the sequence number of this snapshot; every change publishes a higher one. */
+    long generation() {
+        return generation;
+    }
+
+    Segment[] segments() {
+        return segments;
+    }
+
+    /** Returns the deletion bitset of a segment, or {@code null}. The array must not be modified. */
+    long[] deleted(int segment) {
+        return deleted[segment];
+    }
+
+    /** Returns the number of live documents in a segment. */
+    int liveCount(int segment) {
+        return liveCounts[segment];
+    }
+
+    static boolean isDeleted(long[] deleted, int doc) {
+        return deleted != null && (deleted[doc >>> 6] & (1L << doc)) != 0;
+    }
+
+    /** Returns the stored document with the given number. */
+    SearchResult document(int doc) {
+        int segment = Arrays.binarySearch(docBases, doc);
+        if (segment < 0) {
+            segment = -segment - 2;
+        }
+        // Empty segments share their base with the next one
+        while (segment + 1 < docBases.length && docBases[segment + 1] == doc) {
+            segment++;
+        }
+        return segments[segment].document(doc - docBases[segment]);
+    }
+
+    /** Returns the live document with the given id, or {@code null}. */
+    SearchResult get(String id) {
+        for (int i = segments.length - 1; i >= 0; i--) {
+            int doc = segments[i].find(id);
+            if (doc >= 0 && !isDeleted(deleted[i], doc)) {
+                return segments[i].document(doc);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the {@code k} best matching documents for the query. A document
+     * matches if it contains any of the query terms.
+     */
+    Hits search(String query, int k) {
+        return search(query, k, false);
+    }
+
+    /**
+     * Returns the {@code k} best matching documents for the query. With
+     * {@code fuzzy} set, every query term also matches the terms within
+     * {@link TermDictionary#maxEdits} edits of it, scored lower the more
+     * edits they need.
+     */
+    Hits search(String query, int k, boolean fuzzy) {
+        TopKHeap heap = new TopKHeap(Math.max(0, k));
+        if (k > 0) {
+            search(query, fuzzy, heap::offer, heap);
+        }
+        int[] hitDocs = new int[heap.size()];
+        float[] hitScores = new float[heap.size()];
+        int n = heap.drainDescending(hitDocs, hitScores);
+        return new Hits(hitDocs, hitScores, n);
+    }
+
+    /**
+     * Returns every document matching the query, ranked lazily so that
+     * results can be paged through without re-running the query.
+     */
+    RankedHits rank(String query, boolean fuzzy) {
+        RankedHits hits = new RankedHits();
+        search(query, fuzzy, hits, null);
+        return hits;
+    }
+
+    /**
+     * Returns up to {@code k} terms starting with {@code prefix}, most
+     * frequent first. Document frequencies are summed over the segments from
+     * each segment's {@code k} most frequent completions.
+     */
+    List<TermDictionary.Term> complete(String prefix, int k) {
+        Map<String, TermDictionary.Term> merged = new HashMap<>();
+        for (Segment segment : segments) {
+            for (TermDictionary.Term term : segment.terms().complete(prefix, k)) {
+                merged.merge(term.text, term, (a, b) -> new TermDictionary.Term(a.text, a.docFreq + b.docFreq, 0));
+            }
+        }
+        return top(merged, k);
+    }
+
+    /**
+     * Returns the terms within {@link TermDictionary#maxEdits} edits of
+     * {@code term} in any segment, closest and then most frequent first.
+     */
+    List<TermDictionary.Term> fuzzy(String term) {
+        int maxEdits = TermDictionary.maxEdits(term.length());
+        Map<String, TermDictionary.Term> merged = new HashMap<>();
+        for (Segment segment : segments) {
+            for (TermDictionary.Term match : segment.terms().fuzzy(term, maxEdits)) {
+                merged.merge(match.text, match, (a, b) -> new TermDictionary.Term(a.text, a.docFreq + b.docFreq, a.edits));
+            }
+        }
+        return top(merged, TermDictionary.MAX_EXPANSIONS);
+    }
+
+    private static List<TermDictionary.Term> top(Map<String, TermDictionary.Term> terms, int k) {
+        List<TermDictionary.Term> sorted = new ArrayList<>(terms.values());
+        sorted.sort((a, b) -> a.edits != b.edits ? Integer.compare(a.edits, b.edits)
+                : a.docFreq != b.docFreq ? Integer.compare(b.docFreq, a.docFreq) : a.text.compareTo(b.text));
+        return sorted.size() > k ? new ArrayList<>(sorted.subList(0, k)) : sorted;
+    }
+
+    /**
+     * Returns the terms to search for with their boost: the query terms
+     * themselves and, if {@code fuzzy}, their fuzzy matches weighted by
+     * {@code 1 - edits / length}.
+     */
+    private Map<String, Float> expand(String query, boolean fuzzy) {
+        Map<String, Float> boosts = new LinkedHashMap<>();
+        for (String token : new LinkedHashSet<>(Tokenizer.tokenize(query))) {
+            boosts.merge(token, 1f, Math::max);
+            if (fuzzy && TermDictionary.maxEdits(token.length()) > 0) {
+                for (TermDictionary.Term match : fuzzy(token)) {
+                    boosts.merge(match.text, 1f - (float) match.edits / token.length(), Math::max);
+                }
+            }
+        }
+        return boosts;
+    }
+
+    /**
+     * Scores every live document containing any of the query terms or, given
+     * the heap the collector fills, only those that can still enter it.
+     */
+    private void search(String query, boolean fuzzy, HitCollector collector, TopKHeap heap) {
+        Map<String, Float> boosts = expand(query, fuzzy);
+        List<String> terms = new ArrayList<>(boosts.keySet());
+        if (terms.isEmpty()) {
+            return;
+        }
+        Segment.Postings[][] postings = new Segment.Postings[segments.length][terms.size()];
+        int[] docFreqs = new int[terms.size()];
+        for (int s = 0; s < segments.length; s++) {
+            for (int t = 0; t < terms.size(); t++) {
+                Segment.Postings p = segments[s].postings(terms.get(t));
+                postings[s][t] = p;
+                if (p != null) {
+                    docFreqs[t] += p.size;
+                }
+            }
+        }
+        float[] weights = new float[terms.size()];
+        for (int t = 0; t < terms.size(); t++) {
+            weights[t] = idf(docFreqs[t]) * (K1 + 1) * boosts.get(terms.get(t));
+        }
+        List<Segment.Postings> lists = new ArrayList<>(terms.size());
+        List<Float> listWeights = new ArrayList<>(terms.size());
+        for (int s = 0; s < segments.length; s++) {
+            lists.clear();
+            listWeights.clear();
+            for (int t = 0; t < terms.size(); t++) {
+                if (postings[s][t] != null) {
+                    lists.add(postings[s][t]);
+                    listWeights.add(weights[t]);
+                }
+            }
+            if (!lists.isEmpty() && liveCounts[s] > 0) {
+                if (heap != null) {
+                    collectTop(s, lists, listWeights, heap);
+                } else {
+                    collect(s, lists, listWeights, collector);
+                }
+            }
+        }
+    }
+
+    /** Document-at-a-time union of the postings lists of one segment. */
+    private void collect(int segment, List<Segment.Postings> lists, List<Float> listWeights, HitCollector collector) {
+        int n = lists.size();
+        Segment.Postings[] terms = lists.toArray(new Segment.Postings[0]);
+        FloatBuffer lengthNorms = segments[segment].lengthNorms();
+        long[] deletedDocs = deleted[segment];
+        int base = docBases[segment];
+        float[] weights = new float[n];
+        int[] positions = new int[n];
+        for (int i = 0; i < n; i++) {
+            weights[i] = listWeights.get(i);
+        }
+        while (true) {
+            int doc = Integer.MAX_VALUE;
+            for (int i = 0; i < n; i++) {
+                if (positions[i] < terms[i].size) {
+                    doc = Math.min(doc, terms[i].doc(positions[i]));
+                }
+            }
+            if (doc == Integer.MAX_VALUE) {
+                return;
+            }
+            float score = 0;
+            float norm = lengthNorms.get(doc);
+            for (int i = 0; i < n; i++) {
+                int pos = positions[i];
+                if (pos < terms[i].size && terms[i].doc(pos) == doc) {
+                    int tf = terms[i].freq(pos);
+                    score += weights[i] * (tf / (tf + norm));
+                    positions[i] = pos + 1;
+                }
+            }
+            if (!isDeleted(deletedDocs, doc)) {
+                collector.collect(base + doc, score);
+            }
+        }
+    }
+
+    /**
+     * Document-at-a-time union of the postings lists of one segment, offering
+     * to the heap only the documents whose score bound beats its threshold.
+     */
+    private void collectTop(int segment, List<Segment.Postings> lists, List<Float> listWeights, TopKHeap heap) {
+        int n = lists.size();
+        Segment.Postings[] terms = lists.toArray(new Segment.Postings[0]);
+        FloatBuffer lengthNorms = segments[segment].lengthNorms();
+        long[] deletedDocs = deleted[segment];
+        int base = docBases[segment];
+        float[] weights = new float[n];
+        float[][] blockMaxima = new float[n][];
+        float[] bounds = new float[n];
+        Integer[] sorted = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            weights[i] = listWeights.get(i);
+            blockMaxima[i] = terms[i].blockMaxima(lengthNorms);
+            float max = 0;
+            for (float blockMax : blockMaxima[i]) {
+                max = Math.max(max, blockMax);
+            }
+            bounds[i] = weights[i] * max;
+            sorted[i] = i;
+        }
+        // Terms by ascending bound; the first ones are non-essential while
+        // their bounds together cannot beat the threshold
+        Arrays.sort(sorted, (a, b) -> Float.compare(bounds[a], bounds[b]));
+        int[] byBound = new int[n];
+        float[] below = new float[n + 1];
+        for (int j = 0; j < n; j++) {
+            byBound[j] = sorted[j];
+            below[j + 1] = below[j] + bounds[byBound[j]];
+        }
+        // A single term's bounds are exact: its score is computed like them
+        float margin = n == 1 ? 1f : BOUND_MARGIN;
+        int essential = 0;
+        int[] positions = new int[n];
+        float[] contributions = new float[n];
+        int checkedUpTo = -1;
+        while (true) {
+            float threshold = heap.threshold();
+            while (essential < n && below[essential + 1] * margin <= threshold) {
+                essential++;
+            }
+            int doc = Integer.MAX_VALUE;
+            for (int j = essential; j < n; j++) {
+                int i = byBound[j];
+                if (positions[i] < terms[i].size) {
+                    doc = Math.min(doc, terms[i].doc(positions[i]));
+                }
+            }
+            if (doc == Integer.MAX_VALUE) {
+                return;
+            }
+            if (threshold > Float.NEGATIVE_INFINITY && doc > checkedUpTo) {
+                // Up to the end of the first current block, the blocks bound every score
+                int upTo = Integer.MAX_VALUE;
+                float blockBound = below[essential];
+                for (int j = essential; j < n; j++) {
+                    int i = byBound[j];
+                    int pos = positions[i];
+                    if (pos < terms[i].size) {
+                        int block = pos / Segment.Postings.BLOCK;
+                        upTo = Math.min(upTo, terms[i].doc(Math.min(terms[i].size, (block + 1) * Segment.Postings.BLOCK) - 1));
+                        blockBound += weights[i] * blockMaxima[i][block];
+                    }
+                }
+                if (blockBound * margin <= threshold) {
+                    for (int j = essential; j < n; j++) {
+                        int i = byBound[j];
+                        positions[i] = terms[i].advance(positions[i], upTo + 1);
+                    }
+                    continue;
+                }
+                checkedUpTo = upTo;
+            }
+            float norm = lengthNorms.get(doc);
+            float bound = 0;
+            for (int j = essential; j < n; j++) {
+                int i = byBound[j];
+                int pos = positions[i];
+                if (pos < terms[i].size && terms[i].doc(pos) == doc) {
+                    int tf = terms[i].freq(pos);
+                    contributions[i] = weights[i] * (tf / (tf + norm));
+                    bound += contributions[i];
+                    positions[i] = pos + 1;
+                } else {
+                    contributions[i] = 0;
+                }
+            }
+            if (isDeleted(deletedDocs, doc)) {
+                continue;
+            }
+            boolean competitive = true;
+            for (int j = essential - 1; j >= 0; j--) {
+                if ((bound + below[j + 1]) * margin <= threshold) {
+                    competitive = false;
+                    break;
+                }
+                int i = byBound[j];
+                int pos = terms[i].advance(positions[i], doc);
+                positions[i] = pos;
+                if (pos < terms[i].size && terms[i].doc(pos) == doc) {
+                    int tf = terms[i].freq(pos);
+                    contributions[i] = weights[i] * (tf / (tf + norm));
+                    bound += contributions[i];
+                } else {
+                    contributions[i] = 0;
+                }
+            }
+            if (competitive) {
+                float score = 0;
+                for (int i = 0; i < n; i++) {
+                    score += contributions[i];
+                }
+                heap.offer(base + doc, score);
+            }
+        }
+    }
+
+    private float idf(int docFreq) {
+        return (float) Math.log(1 + (maxDoc - docFreq + 0.5) / (docFreq + 0.5));
+    }
+
+    /**
+     * Accumulates documents and produces an in-memory {@link InvertedIndex}.
+     * {@link SegmentWriter} uses {@link #invert} alone and stores the
+     * documents itself.
+     */
+    static class Builder {
+        private final List<SearchResult> docs = new ArrayList<>();
+        private final Map<String, Integer> docsById = new HashMap<>();
+        private final Map<String, PostingsBuilder> postings = new HashMap<>();
+        private int[] lengths = new int[16];
+        private int size;
+
+        /**
+         * Adds a document. A later document with the same id replaces the
+         * stored copy but both remain searchable, so ids should be unique.
+         */
+        Builder add(SearchResult document) {
+            int doc = invert(document);
+            docs.add(document);
+            docsById.put(document.getId(), doc);
+            return this;
+        }
+
+        /** Adds the terms of a document to the postings and returns its number. */
+        int invert(SearchResult document) {
+            int doc = size++;
+            Map<String, Integer> freqs = new HashMap<>();
+            int length = 0;
+            for (String term : Tokenizer.tokenize(document.getTitle())) {
+                freqs.merge(term, TITLE_BOOST, Integer::sum);
+                length += TITLE_BOOST;
+            }
+            for (String term : Tokenizer.tokenize(document.getText())) {
+                freqs.merge(term, 1, Integer::sum);
+                length++;
+            }
+            for (Map.Entry<String, Integer> e : freqs.entrySet()) {
+                postings.computeIfAbsent(e.getKey(), t -> new PostingsBuilder()).add(doc, e.getValue());
+            }
+            if (doc == lengths.length) {
+                lengths = Arrays.copyOf(lengths, doc * 2);
+            }
+            lengths[doc] = length;
+            return doc;
+        }
+
+        /** Returns the number of inverted documents. */
+        int size() {
+            return size;
+        }
+
+        /** Returns the postings accumulated so far, by term. */
+        Map<String, PostingsBuilder> postings() {
+            return postings;
+        }
+
+        float[] lengthNorms() {
+            return InvertedIndex.lengthNorms(lengths, size);
+        }
+
+        InvertedIndex build() {
+            return new InvertedIndex(buildSegment());
+        }
+
+        HeapSegment buildSegment() {
+            Map<String, Segment.Postings> frozen = new HashMap<>(postings.size() * 4 / 3 + 1);
+            for (Map.Entry<String, PostingsBuilder> e : postings.entrySet()) {
+                frozen.put(e.getKey(), e.getValue().build());
+            }
+            return new HeapSegment(docs.toArray(new SearchResult[0]), new HashMap<>(docsById), frozen, lengthNorms());
+        }
+    }
+
+    /** Growable postings list; documents are added in ascending order. */
+    static class PostingsBuilder {
+        private int[] docs = new int[4];
+        private int[] freqs = new int[4];
+        private int size;
+
+        void add(int doc, int freq) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = doc;
+            freqs[size] = freq;
+            size++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        int doc(int i) {
+            return docs[i];
+        }
+
+        int freq(int i) {
+            return freqs[i];
+        }
+
+        /** Packs documents and frequencies into one array. */
+        Segment.Postings build() {
+            int[] data = new int[size * 2];
+            System.arraycopy(docs, 0, data, 0, size);
+            System.arraycopy(freqs, 0, data, size, size);
+            return new Segment.Postings(IntBuffer.wrap(data), 0, size, size);
+        }
+    }
+}
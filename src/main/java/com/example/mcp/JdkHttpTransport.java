@@ -0,0 +1,42 @@
+package com.example.mcp;
+
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executor;
+
+/**
+ * Transport on the JDK's built-in {@link HttpServer}.
+ */
+class JdkHttpTransport implements HttpTransport {
+    private final HttpServer server;
+
+    /**
+     * @param executor runs the handlers, or {@code null} to run them on the server's dispatcher thread
+     */
+    JdkHttpTransport(InetSocketAddress address, Executor executor) throws IOException {
+        server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+    }
+
+    @Override
+    public void createContext(String path, HttpHandler handler) {
+        server.createContext(path, handler);
+    }
+
+    @Override
+    public void start() {
+        server.start();
+    }
+
+    @Override
+    public void stop(int delay) {
+        server.stop(delay);
+    }
+
+    @Override
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+}
@@ -0,0 +1,236 @@
+package com.example.mcp;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+/**
+ * Dispatches JSON-RPC 2.0 messages to the MCP implementations. The dispatcher
+ * is transport independent: it consumes request bodies and produces
+ * {@link JsonRpcResponse} objects which the caller serializes.
+ */
+class JsonRpcDispatcher {
+    private final Map<String, MethodSpec<?>> methods;
+    private final Executor executor;
+    private final JsonRpcRequestParser parser;
+    private final ServerMetrics metrics;
+    private volatile AccessLog accessLog;
+
+    /**
+     * @param methods  the dispatch table, keyed by method name
+     * @param executor executor used to run the calls of a batch concurrently,
+     *                 or {@code null} to run them sequentially on the caller thread
+     */
+    JsonRpcDispatcher(Map<String, MethodSpec<?>> methods, Executor executor) {
+        this(methods, executor, new ServerMetrics());
+    }
+
+    /**
+     * @param metrics receives the latency and outcome of every call
+     */
+    JsonRpcDispatcher(Map<String, MethodSpec<?>> methods, Executor executor, ServerMetrics metrics) {
+        this.methods = methods;
+        this.executor = executor;
+        this.parser = new JsonRpcRequestParser(methods, JsonRpcRequestParser.DEFAULT_MAX_REQUEST_BYTES);
+        this.metrics = metrics;
+    }
+
+    /** Returns the metrics the calls are recorded in. */
+    ServerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /** Returns the log errors are written to, {@link AccessLog#standardError()} unless one was set. */
+    AccessLog getAccessLog() {
+        AccessLog log = accessLog;
+        return log != null ? log : AccessLog.standardError();
+    }
+
+    /** Sets the log errors are written to, or {@code null} for standard error. */
+    void setAccessLog(AccessLog accessLog) {
+        this.accessLog = accessLog;
+    }
+
+    /** Returns the dispatch table. */
+    Map<String, MethodSpec<?>> getMethods() {
+        return methods;
+    }
+
+    /** Returns the maximum accepted size of a request body in bytes. */
+    long getMaxRequestBytes() {
+        return parser.getMaxRequestBytes();
+    }
+
+    /** Sets the maximum accepted size of a request body in bytes. */
+    void setMaxRequestBytes(long maxRequestBytes) {
+        parser.setMaxRequestBytes(maxRequestBytes);
+    }
+
+    /**
+     * Parses a request body holding either a single message or a batch.
+     *
+     * @throws RequestTooLargeException if the body exceeds the maximum size
+     */
+    JsonRpcMessage parse(InputStream body) throws RequestTooLargeException {
+        return parser.parse(body);
+    }
+
+    /**
+     * Parses and dispatches a request body.
+     *
+     * @see #dispatch(JsonRpcMessage)
+     */
+    Object handle(InputStream body) throws RequestTooLargeException {
+        return dispatch(parse(body), null);
+    }
+
+    /**
+     * Dispatches a parsed request body.
+     *
+     * @param notifier receives notifications (such as progress) produced while
+     *                 the calls run, or {@code null} if the transport cannot deliver them
+     * @return the {@link JsonRpcResponse} or list of responses to send back, or
+     *         {@code null} if the body only contained notifications
+     */
+    Object dispatch(JsonRpcMessage message, Consumer<JsonRpcNotification> notifier) {
+        if (message.getError() != null) {
+            metrics.error(message.getError().getCode());
+            return new JsonRpcResponse(message.getError(), null);
+        }
+        if (message.isBatch()) {
+            List<JsonRpcResponse> responses = dispatchBatch(message.getRequests(), notifier);
+            return responses.isEmpty() ? null : responses;
+        }
+        return dispatch(message.getRequests().get(0), notifier);
+    }
+
+    /**
+     * Dispatches every request of a batch. Calls are independent and run
+     * concurrently when an executor is available; the responses are returned
+     * in request order with notifications omitted.
+     */
+    List<JsonRpcResponse> dispatchBatch(List<JsonRpcRequest> batch, Consumer<JsonRpcNotification> notifier) {
+        List<JsonRpcResponse> responses = new ArrayList<>(batch.size());
+        if (executor == null || batch.size() == 1) {
+            for (JsonRpcRequest request : batch) {
+                addIfPresent(responses, dispatch(request, notifier));
+            }
+            return responses;
+        }
+
+        List<FutureTask<JsonRpcResponse>> tasks = new ArrayList<>(batch.size());
+        for (JsonRpcRequest request : batch) {
+            FutureTask<JsonRpcResponse> task = new FutureTask<>(() -> dispatch(request, notifier));
+            tasks.add(task);
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                // Run it on the caller thread below
+            }
+        }
+        for (FutureTask<JsonRpcResponse> task : tasks) {
+            // Runs the call inline if no worker has picked it up yet, so a
+            // saturated pool can never deadlock waiting on its own batch.
+            task.run();
+            try {
+                addIfPresent(responses, task.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                responses.add(new JsonRpcResponse(new JsonRpcErrorObject(JsonRpcErrorCodes.INTERNAL_ERROR, "Interrupted while processing batch."), null));
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                responses.add(new JsonRpcResponse(new JsonRpcErrorObject(JsonRpcErrorCodes.INTERNAL_ERROR, "Internal server error: " + cause.getMessage(), cause.getClass().getName()), null));
+            }
+        }
+        return responses;
+    }
+
+    /**
+     * Dispatches a single parsed request.
+     *
+     * @return the response, or {@code null} if the request was a notification
+     */
+    JsonRpcResponse dispatch(JsonRpcRequest request, Consumer<JsonRpcNotification> notifier) {
+        String method = request.getMethod();
+        ServerMetrics.MethodStats stats = metrics.method(method != null && methods.containsKey(method) ? method : null);
+        long start = stats.start();
+        boolean failed = true; // until the call returns
+        try {
+            JsonRpcResponse response = call(request, notifier);
+            JsonRpcErrorObject error = response == null ? null : response.getError();
+            if (error != null) {
+                metrics.error(error.getCode());
+            }
+            failed = error != null;
+            return response;
+        } finally {
+            stats.stop(start, failed);
+        }
+    }
+
+    private JsonRpcResponse call(JsonRpcRequest request, Consumer<JsonRpcNotification> notifier) {
+        Object requestId = request.getId();
+        JsonRpcErrorObject parseError = request.getError();
+        if (parseError != null && parseError.getCode() == JsonRpcErrorCodes.INVALID_REQUEST) {
+            // Reported even for notifications, since the id itself may be what is broken
+            return new JsonRpcResponse(parseError, requestId);
+        }
+
+        if (request.getJsonrpc() == null || !request.getJsonrpc().equals("2.0")) {
+            return error(JsonRpcErrorCodes.INVALID_REQUEST, "'jsonrpc' version must be '2.0'.", request.getJsonrpc(), requestId);
+        }
+
+        String methodName = request.getMethod();
+        if (methodName == null || methodName.trim().isEmpty()) {
+            return error(JsonRpcErrorCodes.INVALID_REQUEST, "'method' must be provided.", methodName, requestId);
+        }
+
+        boolean notification = request.isNotification();
+        MethodSpec<?> method = methods.get(methodName);
+        if (method == null) {
+            return reply(notification, error(JsonRpcErrorCodes.METHOD_NOT_FOUND, "Method not found: " + methodName, methodName, requestId));
+        }
+        if (parseError != null) {
+            return reply(notification, new JsonRpcResponse(parseError, requestId));
+        }
+
+        RequestContext context = request.getProgressToken() == null || notifier == null
+                ? RequestContext.NONE
+                : new RequestContext(request.getProgressToken(), notifier);
+        try {
+            Object resultPayload = method.invoke(request.getParams(), context);
+            return reply(notification, new JsonRpcResponse(resultPayload, requestId));
+        } catch (JsonRpcException e) {
+            return reply(notification, error(e.getCode(), e.getMessage(), e.getData(), requestId));
+        } catch (Exception e) {
+            logError("Internal server error in " + methodName, e);
+            return reply(notification, error(JsonRpcErrorCodes.INTERNAL_ERROR, "Internal server error: " + e.getMessage(), e.getClass().getName(), requestId));
+        }
+    }
+
+    /** Logs an exception that the client only sees as an internal error. */
+    private void logError(String message, Throwable e) {
+        getAccessLog().error(message, e);
+    }
+
+    /** Notifications never produce a response, not even an error. */
+    private static JsonRpcResponse reply(boolean notification, JsonRpcResponse response) {
+        return notification ? null : response;
+    }
+
+    private static JsonRpcResponse error(int code, String message, Object data, Object id) {
+        return new JsonRpcResponse(new JsonRpcErrorObject(code, message, data), id);
+    }
+
+    private static void addIfPresent(List<JsonRpcResponse> responses, JsonRpcResponse response) {
+        if (response != null) {
+            responses.add(response);
+        }
+    }
+}
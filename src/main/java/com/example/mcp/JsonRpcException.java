@@ -0,0 +1,28 @@
+package com.example.mcp;
+
+/**
+ * Thrown by a {@link MethodHandler} to answer a call with a specific JSON-RPC
+ * error instead of a result.
+ */
+public class JsonRpcException extends Exception {
+    private final int code;
+    private final Object data;
+
+    public JsonRpcException(int code, String message, Object data) {
+        super(message);
+        this.code = code;
+        this.data = data;
+    }
+
+    public JsonRpcException(int code, String message) {
+        this(code, message, null);
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public Object getData() {
+        return data;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.mcp;
+
+import java.util.List;
+
+/**
+ * A parsed request body: either a single request, a batch of requests, or an
+ * error that applies to the body as a whole (such as malformed JSON).
+ */
+class JsonRpcMessage {
+    private final List<JsonRpcRequest> requests;
+    private final boolean batch;
+    private final JsonRpcErrorObject error;
+
+    private JsonRpcMessage(List<JsonRpcRequest> requests, boolean batch, JsonRpcErrorObject error) {
+        this.requests = requests;
+        this.batch = batch;
+        this.error = error;
+    }
+
+    static JsonRpcMessage single(JsonRpcRequest request) {
+        return new JsonRpcMessage(List.of(request), false, null);
+    }
+
+    static JsonRpcMessage batch(List<JsonRpcRequest> requests) {
+        return new JsonRpcMessage(requests, true, null);
+    }
+
+    static JsonRpcMessage error(int code, String message) {
+        return new JsonRpcMessage(List.of(), false, new JsonRpcErrorObject(code, message));
+    }
+
+    List<JsonRpcRequest> getRequests() {
+        return requests;
+    }
+
+    boolean isBatch() {
+        return batch;
+    }
+
+    /** Returns the body-level error, or {@code null} if the body was parsed. */
+    JsonRpcErrorObject getError() {
+        return error;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.mcp;
+
+/**
+ * A server-to-client JSON-RPC notification, such as {@code notifications/progress}.
+ */
+public class JsonRpcNotification {
+    private final String jsonrpc = "2.0";
+    private final String method;
+    private final Object params;
+
+    public JsonRpcNotification(String method, Object params) {
+        this.method = method;
+        this.params = params;
+    }
+
+    // Getters
+    public String getJsonrpc() { return jsonrpc; }
+    public String getMethod() { return method; }
+    public Object getParams() { return params; }
+}
@@ -1,19 +1,31 @@
 package com.example.mcp;
 
 // Using Object for params and id to be flexible as per JSON-RPC spec
-// (params can be array or object, id can be string, number, or null)
+// (id can be string, number, or null; params holds the typed parameter
+// object bound by JsonRpcRequestParser for the requested method)
 
 public class JsonRpcRequest {
     private String jsonrpc;
     private String method;
-    private Object params; // Can be Map<String, Object> for named params or List<Object> for positional
+    private Object params; // Typed parameter object, see MethodSpec
     private Object id;     // Can be String, Number, or null
 
+    // Filled in by JsonRpcRequestParser; not part of the wire format
+    private transient boolean notification;
+    private transient JsonRpcErrorObject error;
+    private transient Object progressToken;
+
     // Getters are needed for access; setters might be useful for construction or testing
     public String getJsonrpc() { return jsonrpc; }
     public String getMethod() { return method; }
     public Object getParams() { return params; }
     public Object getId() { return id; }
+    /** Returns whether the request had no {@code id} member. */
+    public boolean isNotification() { return notification; }
+    /** Returns the problem found while parsing the request, or {@code null} if it is well-formed. */
+    public JsonRpcErrorObject getError() { return error; }
+    /** Returns {@code params._meta.progressToken}, or {@code null} if progress was not requested. */
+    public Object getProgressToken() { return progressToken; }
 
     // Gson can typically set private fields, but setters can be added if there are issues
     // or for manual object construction in tests.
@@ -21,4 +33,7 @@ public class JsonRpcRequest {
     public void setMethod(String method) { this.method = method; }
     public void setParams(Object params) { this.params = params; }
     public void setId(Object id) { this.id = id; }
+    public void setNotification(boolean notification) { this.notification = notification; }
+    public void setError(JsonRpcErrorObject error) { this.error = error; }
+    public void setProgressToken(Object progressToken) { this.progressToken = progressToken; }
 }
@@ -0,0 +1,224 @@
+package com.example.mcp;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streaming parser for JSON-RPC 2.0 request bodies. The body is read once,
+ * token by token, straight from the input stream; {@code params} are bound
+ * to the typed parameter object of the requested method (see
+ * {@link MethodSpec}) without building an intermediate tree or map.
+ *
+ * <p>Only when {@code params} precedes {@code method} in an object are the
+ * params buffered, since the schema to bind them with is not yet known.</p>
+ */
+class JsonRpcRequestParser {
+    /** Default upper bound for a request body, 1 MiB. */
+    static final long DEFAULT_MAX_REQUEST_BYTES = 1 << 20;
+
+    private final Map<String, MethodSpec<?>> methods;
+    private volatile long maxRequestBytes;
+
+    JsonRpcRequestParser(Map<String, MethodSpec<?>> methods, long maxRequestBytes) {
+        this.methods = methods;
+        this.maxRequestBytes = maxRequestBytes;
+    }
+
+    long getMaxRequestBytes() {
+        return maxRequestBytes;
+    }
+
+    void setMaxRequestBytes(long maxRequestBytes) {
+        if (maxRequestBytes <= 0) {
+            throw new IllegalArgumentException("maxRequestBytes must be positive: " + maxRequestBytes);
+        }
+        this.maxRequestBytes = maxRequestBytes;
+    }
+
+    /**
+     * Parses a request body holding a single request or a batch.
+     *
+     * @throws RequestTooLargeException if the body exceeds the configured maximum size
+     */
+    JsonRpcMessage parse(InputStream body) throws RequestTooLargeException {
+        JsonReader reader = new JsonReader(new InputStreamReader(new LimitedInputStream(body, maxRequestBytes), StandardCharsets.UTF_8));
+        try {
+            JsonToken token;
+            try {
+                token = reader.peek();
+            } catch (EOFException e) {
+                return JsonRpcMessage.error(JsonRpcErrorCodes.INVALID_REQUEST, "Request body is empty.");
+            }
+
+            JsonRpcMessage message;
+            switch (token) {
+                case BEGIN_ARRAY:
+                    reader.beginArray();
+                    if (!reader.hasNext()) {
+                        reader.endArray();
+                        message = JsonRpcMessage.error(JsonRpcErrorCodes.INVALID_REQUEST, "Invalid Request: batch must not be empty.");
+                        break;
+                    }
+                    List<JsonRpcRequest> requests = new ArrayList<>();
+                    while (reader.hasNext()) {
+                        requests.add(parseElement(reader));
+                    }
+                    reader.endArray();
+                    message = JsonRpcMessage.batch(requests);
+                    break;
+                case NULL:
+                    reader.nextNull();
+                    message = JsonRpcMessage.error(JsonRpcErrorCodes.PARSE_ERROR, "Parse error: Malformed JSON or input was 'null'.");
+                    break;
+                default:
+                    message = JsonRpcMessage.single(parseElement(reader));
+                    break;
+            }
+
+            if (reader.peek() != JsonToken.END_DOCUMENT) {
+                return JsonRpcMessage.error(JsonRpcErrorCodes.PARSE_ERROR, "Parse error: unexpected data after the request.");
+            }
+            return message;
+        } catch (RequestTooLargeException e) {
+            throw e;
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            return JsonRpcMessage.error(JsonRpcErrorCodes.PARSE_ERROR, "Parse error: " + e.getMessage());
+        }
+    }
+
+    private JsonRpcRequest parseElement(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            reader.skipValue();
+            JsonRpcRequest invalid = new JsonRpcRequest();
+            invalid.setError(new JsonRpcErrorObject(JsonRpcErrorCodes.INVALID_REQUEST, "Invalid Request: expected a JSON object."));
+            return invalid;
+        }
+        return parseRequest(reader);
+    }
+
+    private JsonRpcRequest parseRequest(JsonReader reader) throws IOException {
+        JsonRpcRequest request = new JsonRpcRequest();
+        boolean hasId = false;
+        boolean paramsSeen = false;
+        MethodSpec<?> spec = null;
+        JsonElement bufferedParams = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            switch (name) {
+                case "jsonrpc":
+                    request.setJsonrpc(readString(reader, request, "jsonrpc"));
+                    break;
+                case "method":
+                    request.setMethod(readString(reader, request, "method"));
+                    spec = request.getMethod() == null ? null : methods.get(request.getMethod());
+                    break;
+                case "id":
+                    hasId = true;
+                    request.setId(readId(reader, request));
+                    break;
+                case "params":
+                    paramsSeen = true;
+                    JsonToken token = reader.peek();
+                    if (token == JsonToken.NULL) {
+                        reader.nextNull();
+                        paramsSeen = false;
+                    } else if (token != JsonToken.BEGIN_OBJECT) {
+                        reader.skipValue();
+                        fail(request, JsonRpcErrorCodes.INVALID_PARAMS, "Invalid params: Parameters must be a JSON object or null.");
+                    } else if (request.getMethod() != null) {
+                        if (spec != null) {
+                            bind(request, spec, reader);
+                        } else {
+                            reader.skipValue(); // Unknown method, reported by the dispatcher
+                        }
+                    } else {
+                        bufferedParams = JsonParser.parseReader(reader);
+                    }
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        if (spec != null) {
+            if (bufferedParams != null) {
+                bind(request, spec, new JsonReader(new StringReader(bufferedParams.toString())));
+            } else if (!paramsSeen) {
+                bindValues(request, spec, spec.getSchema().empty());
+            }
+        }
+        request.setNotification(!hasId);
+        return request;
+    }
+
+    private static void bind(JsonRpcRequest request, MethodSpec<?> spec, JsonReader reader) throws IOException {
+        bindValues(request, spec, spec.getSchema().read(reader));
+    }
+
+    private static void bindValues(JsonRpcRequest request, MethodSpec<?> spec, ParamValues values) {
+        if (values.getError() != null) {
+            fail(request, JsonRpcErrorCodes.INVALID_PARAMS, "Invalid params for " + spec.getName() + ": " + values.getError());
+        } else {
+            request.setParams(spec.bind(values));
+            request.setProgressToken(values.getProgressToken());
+        }
+    }
+
+    private static String readString(JsonReader reader, JsonRpcRequest request, String member) throws IOException {
+        if (reader.peek() == JsonToken.STRING) {
+            return reader.nextString();
+        }
+        reader.skipValue();
+        fail(request, JsonRpcErrorCodes.INVALID_REQUEST, "Invalid Request: '" + member + "' must be a string.");
+        return null;
+    }
+
+    private static Object readId(JsonReader reader, JsonRpcRequest request) throws IOException {
+        switch (reader.peek()) {
+            case STRING:
+                return reader.nextString();
+            case NUMBER:
+                return parseNumber(reader.nextString());
+            case NULL:
+                reader.nextNull();
+                return null;
+            default:
+                reader.skipValue();
+                fail(request, JsonRpcErrorCodes.INVALID_REQUEST, "Invalid Request: 'id' must be a string, number or null.");
+                return null;
+        }
+    }
+
+    /** Keeps integral ids and progress tokens integral so they are echoed back unchanged. */
+    static Number parseNumber(String literal) {
+        boolean integral = literal.length() <= 18;
+        for (int i = 0; i < literal.length() && integral; i++) {
+            char c = literal.charAt(i);
+            integral = (c >= '0' && c <= '9') || (i == 0 && c == '-' && literal.length() > 1);
+        }
+        return integral ? (Number) Long.parseLong(literal) : (Number) Double.parseDouble(literal);
+    }
+
+    /** Records an error; an invalid request takes precedence over invalid params. */
+    private static void fail(JsonRpcRequest request, int code, String message) {
+        JsonRpcErrorObject existing = request.getError();
+        if (existing == null || (existing.getCode() == JsonRpcErrorCodes.INVALID_PARAMS && code == JsonRpcErrorCodes.INVALID_REQUEST)) {
+            request.setError(new JsonRpcErrorObject(code, message));
+        }
+    }
+}
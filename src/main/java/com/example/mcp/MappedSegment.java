@@ -0,0 +1,274 @@
+package com.example.mcp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link Segment} read from a segment file through
+ * {@link FileChannel#map}. Opening a segment only reads the header and maps
+ * its sections; postings and documents are paged in by the operating system
+ * on first access and shared through the page cache by every process that
+ * maps the same file. Nothing is copied to the heap except the documents
+ * that are actually returned.
+ *
+ * <p>All numbers are little endian and every section starts on an 8 byte
+ * boundary:</p>
+ * <pre>
+ * header     magic "MCPSEG01", version, docCount, idCount, termCount,
+ *            then the offset of each section and the file length
+ * norms      float[docCount]           BM25 length normalization
+ * terms      int[termCount][4]         termBytes start, length, docFreq, postings start
+ * termBytes  UTF-8 terms in unsigned byte order
+ * postings   per term: int[docFreq] documents, then int[docFreq] frequencies
+ * docIndex   int[docCount + 1]         start of each document in docData
+ * idIndex    int[idCount]              document numbers in unsigned byte order of their id
+ * docData    per document: id, title, text, url as length-prefixed UTF-8
+ *            (length -1 for null), then the metadata entry count (-1 for
+ *            null) and as many key/value strings
+ * </pre>
+ * <p>A single mapping is limited to 2 GiB, so each section is mapped on its
+ * own and must stay below that size.</p>
+ */
+final class MappedSegment implements Segment {
+    /** "MCPSEG01" read as a little endian long. */
+    static final long MAGIC = 0x313047455350434DL;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 88;
+
+    private final Path path;
+    private final int docCount;
+    private final int idCount;
+    private final int termCount;
+    private final FloatBuffer norms;
+    private final IntBuffer terms;
+    private final ByteBuffer termBytes;
+    private final IntBuffer postings;
+    private final IntBuffer docIndex;
+    private final IntBuffer idIndex;
+    private final ByteBuffer docData;
+    private final Map<String, Postings> postingsByTerm = new ConcurrentHashMap<>();
+    private volatile TermDictionary dictionary;
+
+    private MappedSegment(Path path, FileChannel channel, ByteBuffer header) throws IOException {
+        this.path = path;
+        this.docCount = header.getInt(12);
+        this.idCount = header.getInt(16);
+        this.termCount = header.getInt(20);
+        long[] offsets = new long[8];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = header.getLong(24 + 8 * i);
+        }
+        if (docCount < 0 || idCount < 0 || idCount > docCount || termCount < 0
+                || offsets[0] < HEADER_BYTES || offsets[7] != channel.size()) {
+            throw new IOException("Corrupt segment header: " + path);
+        }
+        for (int i = 1; i < offsets.length; i++) {
+            if (offsets[i] < offsets[i - 1]) {
+                throw new IOException("Corrupt segment header: " + path);
+            }
+        }
+        this.norms = map(channel, offsets[0], offsets[1], 4L * docCount).asFloatBuffer();
+        this.terms = map(channel, offsets[1], offsets[2], 16L * termCount).asIntBuffer();
+        this.termBytes = map(channel, offsets[2], offsets[3], 0);
+        this.postings = map(channel, offsets[3], offsets[4], 0).asIntBuffer();
+        this.docIndex = map(channel, offsets[4], offsets[5], 4L * (docCount + 1)).asIntBuffer();
+        this.idIndex = map(channel, offsets[5], offsets[6], 4L * idCount).asIntBuffer();
+        this.docData = map(channel, offsets[6], offsets[7], 0);
+    }
+
+    /**
+     * Opens and maps a segment file.
+     *
+     * @throws IOException if the file cannot be read or is not a segment
+     */
+    static MappedSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+                // keep reading until the header is complete or the file ends
+            }
+            if (header.hasRemaining() || header.getLong(0) != MAGIC) {
+                throw new IOException("Not a search segment: " + path);
+            }
+            if (header.getInt(8) != VERSION) {
+                throw new IOException("Unsupported segment version " + header.getInt(8) + ": " + path);
+            }
+            // The mappings stay valid after the channel is closed
+            return new MappedSegment(path, channel, header);
+        }
+    }
+
+    private ByteBuffer map(FileChannel channel, long start, long end, long minimum) throws IOException {
+        long length = end - start;
+        if (length < minimum || length > Integer.MAX_VALUE) {
+            throw new IOException("Corrupt segment section at " + start + ": " + path);
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, start, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Override
+    public int size() {
+        return docCount;
+    }
+
+    @Override
+    public SearchResult document(int doc) {
+        Record record = new Record(docData, docIndex.get(doc));
+        String id = record.string();
+        String title = record.string();
+        String text = record.string();
+        String url = record.string();
+        int entries = record.nextInt();
+        Map<String, String> metadata = null;
+        if (entries >= 0) {
+            metadata = new LinkedHashMap<>();
+            for (int i = 0; i < entries; i++) {
+                metadata.put(record.string(), record.string());
+            }
+        }
+        return new SearchResult(id, title, text, url, metadata);
+    }
+
+    @Override
+    public int find(String id) {
+        byte[] key = id.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = idCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int doc = idIndex.get(mid);
+            int start = docIndex.get(doc);
+            int cmp = compare(docData, start + 4, docData.getInt(start), key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return doc;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the postings of a term. Lists that were looked up are kept, so
+     * that their {@link Postings#blockMaxima block maxima} are only computed
+     * once.
+     */
+    @Override
+    public Postings postings(String term) {
+        Postings cached = postingsByTerm.get(term);
+        if (cached == null) {
+            cached = lookup(term);
+            if (cached != null) {
+                Postings raced = postingsByTerm.putIfAbsent(term, cached);
+                cached = raced != null ? raced : cached;
+            }
+        }
+        return cached;
+    }
+
+    private Postings lookup(String term) {
+        byte[] key = term.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = termCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int entry = mid * 4;
+            int cmp = compare(termBytes, terms.get(entry), terms.get(entry + 1), key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                int docFreq = terms.get(entry + 2);
+                int start = terms.get(entry + 3);
+                return new Postings(postings, start, start + docFreq, docFreq);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public FloatBuffer lengthNorms() {
+        return norms;
+    }
+
+    /**
+     * Returns the term dictionary. It is decoded from the term table on
+     * first use rather than when the segment is opened, which keeps opening
+     * independent of the vocabulary size.
+     */
+    @Override
+    public TermDictionary terms() {
+        TermDictionary result = dictionary;
+        if (result == null) {
+            synchronized (this) {
+                result = dictionary;
+                if (result == null) {
+                    String[] words = new String[termCount];
+                    int[] docFreqs = new int[termCount];
+                    for (int i = 0; i < termCount; i++) {
+                        byte[] bytes = new byte[terms.get(4 * i + 1)];
+                        termBytes.get(terms.get(4 * i), bytes);
+                        words[i] = new String(bytes, StandardCharsets.UTF_8);
+                        docFreqs[i] = terms.get(4 * i + 2);
+                    }
+                    result = TermDictionary.build(words, docFreqs);
+                    dictionary = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Compares stored UTF-8 bytes with a key in unsigned byte order. */
+    private static int compare(ByteBuffer buffer, int offset, int length, byte[] key) {
+        int n = Math.min(length, key.length);
+        for (int i = 0; i < n; i++) {
+            int cmp = Byte.compareUnsigned(buffer.get(offset + i), key[i]);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return length - key.length;
+    }
+
+    /** Sequential reader over a stored document, using absolute reads only. */
+    private static final class Record {
+        private final ByteBuffer buffer;
+        private int position;
+
+        Record(ByteBuffer buffer, int position) {
+            this.buffer = buffer;
+            this.position = position;
+        }
+
+        int nextInt() {
+            int value = buffer.getInt(position);
+            position += 4;
+            return value;
+        }
+
+        String string() {
+            int length = nextInt();
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(position, bytes);
+            position += length;
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
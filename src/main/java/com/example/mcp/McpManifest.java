@@ -0,0 +1,160 @@
+package com.example.mcp;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The MCP service manifest served at {@code /.well-known/mcp.json}. It is
+ * generated once from the registered {@link MethodSpec}s, so it cannot drift
+ * from what the dispatcher actually accepts, and kept as pre-encoded plain
+ * and gzip bytes, each with a strong entity tag of its own.
+ */
+class McpManifest {
+    static final String VERSION = "1.2";
+
+    private final byte[] json;
+    private final byte[] gzip;
+    private final String etag;
+    private final String gzipEtag;
+
+    private McpManifest(byte[] json) {
+        this.json = json;
+        this.gzip = gzip(json);
+        String digest = digest(json);
+        this.etag = "\"" + digest + "\"";
+        // A strong tag promises identical bytes, which the two encodings are not
+        this.gzipEtag = "\"" + digest + "-gzip\"";
+    }
+
+    /**
+     * Builds the manifest for the given methods.
+     *
+     * @param basePath    path of the JSON-RPC endpoint
+     * @param messagePath path of the SSE message endpoint
+     */
+    static McpManifest build(Collection<MethodSpec<?>> methods, String basePath, String messagePath) {
+        JsonObject manifest = new JsonObject();
+        manifest.addProperty("version", VERSION);
+        manifest.addProperty("description", "MCP service manifest defining JSON-RPC 2.0 methods.");
+
+        JsonObject serviceEndpoint = new JsonObject();
+        serviceEndpoint.addProperty("path", basePath);
+        serviceEndpoint.addProperty("protocol", "json-rpc-2.0");
+        serviceEndpoint.addProperty("http_method", "POST");
+        manifest.add("service_endpoint", serviceEndpoint);
+
+        JsonObject sseEndpoint = new JsonObject();
+        sseEndpoint.addProperty("path", basePath);
+        sseEndpoint.addProperty("http_method", "GET");
+        sseEndpoint.addProperty("message_path", messagePath);
+        manifest.add("sse_endpoint", sseEndpoint);
+
+        JsonArray methodArray = new JsonArray();
+        for (MethodSpec<?> method : methods) {
+            JsonObject entry = new JsonObject();
+            entry.addProperty("name", method.getName());
+            entry.addProperty("description", method.getDescription());
+            entry.add("params_schema", paramsSchema(method.getSchema()));
+            methodArray.add(entry);
+        }
+        manifest.add("methods", methodArray);
+
+        return new McpManifest(new Gson().toJson(manifest).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static JsonObject paramsSchema(ParamSchema schema) {
+        JsonObject properties = new JsonObject();
+        JsonArray required = new JsonArray();
+        for (ParamSpec param : schema.getParams()) {
+            JsonObject property = new JsonObject();
+            property.addProperty("type", param.getType().getJsonName());
+            property.addProperty("description", param.getDescription());
+            if (param.getType() == ParamSpec.Type.INTEGER) {
+                property.addProperty("minimum", param.getMin());
+                property.addProperty("maximum", param.getMax());
+            } else if (param.getType() == ParamSpec.Type.ARRAY) {
+                property.add("items", paramsSchema(param.getItems()));
+                property.addProperty("maxItems", param.getMax());
+            }
+            properties.add(param.getName(), property);
+            if (param.isRequired()) {
+                required.add(param.getName());
+            }
+        }
+        JsonObject paramsSchema = new JsonObject();
+        paramsSchema.addProperty("type", "object");
+        paramsSchema.add("properties", properties);
+        paramsSchema.add("required", required);
+        return paramsSchema;
+    }
+
+    /** Returns the UTF-8 encoded manifest. The array must not be modified. */
+    byte[] getJson() {
+        return json;
+    }
+
+    /** Returns the gzip compressed manifest. The array must not be modified. */
+    byte[] getGzip() {
+        return gzip;
+    }
+
+    /** Returns the quoted strong entity tag of the manifest. */
+    String getEtag() {
+        return etag;
+    }
+
+    /** Returns the quoted strong entity tag of the gzip compressed manifest. */
+    String getGzipEtag() {
+        return gzipEtag;
+    }
+
+    /**
+     * Returns whether an {@code If-None-Match} header value matches the tag
+     * of either encoding of this manifest, in which case a
+     * {@code 304 Not Modified} can be sent.
+     */
+    boolean matches(String ifNoneMatch) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            String candidate = tag.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2); // weak comparison is fine for GET
+            }
+            if (candidate.equals("*") || candidate.equals(etag) || candidate.equals(gzipEtag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 32);
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static String digest(byte[] data) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(data);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(hash).substring(0, 22);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.mcp;
+
+/**
+ * A tool exposing JSON-RPC methods through the server. Implementations
+ * declare their methods once, when the server builds its dispatch table.
+ */
+public interface McpTool {
+    /** Registers the methods of this tool. */
+    void registerMethods(ToolRegistry registry);
+}
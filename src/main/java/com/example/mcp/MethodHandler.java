@@ -0,0 +1,16 @@
+package com.example.mcp;
+
+/**
+ * Implementation of a JSON-RPC method.
+ *
+ * @param <P> the typed parameter object of the method
+ */
+@FunctionalInterface
+public interface MethodHandler<P> {
+    /**
+     * Handles a call with already validated parameters.
+     *
+     * @return the result payload, serialized as the {@code result} member
+     */
+    Object handle(P params, RequestContext context) throws Exception;
+}
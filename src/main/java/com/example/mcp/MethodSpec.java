@@ -0,0 +1,52 @@
+package com.example.mcp;
+
+import java.util.function.Function;
+
+/**
+ * Declaration of a JSON-RPC method: its name, its {@link ParamSchema}, the
+ * function creating the typed parameter object from validated
+ * {@link ParamValues}, and the {@link MethodHandler} implementing it. All
+ * parts are plain objects prepared at registration time, so dispatching a
+ * call involves neither reflection nor exceptions.
+ *
+ * @param <P> the typed parameter object of the method
+ */
+public class MethodSpec<P> {
+    private final String name;
+    private final String description;
+    private final ParamSchema schema;
+    private final Function<ParamValues, P> binder;
+    private final MethodHandler<P> handler;
+
+    public MethodSpec(String name, String description, ParamSchema schema,
+                      Function<ParamValues, P> binder, MethodHandler<P> handler) {
+        this.name = name;
+        this.description = description;
+        this.schema = schema;
+        this.binder = binder;
+        this.handler = handler;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public ParamSchema getSchema() {
+        return schema;
+    }
+
+    /** Creates the typed parameters; only called for values without an error. */
+    P bind(ParamValues values) {
+        return binder.apply(values);
+    }
+
+    /** Invokes the handler with parameters previously produced by {@link #bind}. */
+    @SuppressWarnings("unchecked")
+    Object invoke(Object params, RequestContext context) throws Exception {
+        return handler.handle((P) params, context);
+    }
+}
@@ -0,0 +1,403 @@
+package com.example.mcp;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link HttpExchange} of the {@link NioHttpTransport}, so handlers written
+ * for the JDK server run on it unchanged. The request body has been read
+ * when the handler is called. The response follows the JDK server's rules:
+ * a positive length is sent with a {@code Content-Length}, {@code 0} as
+ * chunked, and {@code -1} without a body.
+ */
+class NioHttpExchange extends HttpExchange {
+    /** Room left in front of chunk data for the size line, up to {@code "3ff0\r\n"}. */
+    private static final int CHUNK_HEADER = 8;
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] LAST_CHUNK = {'0', '\r', '\n', '\r', '\n'};
+    /** Room left behind chunk data for its line break and the last chunk. */
+    private static final int CHUNK_TRAILER = CRLF.length + LAST_CHUNK.length;
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.RFC_1123_DATE_TIME;
+    private static volatile CachedDate date = new CachedDate(0, "");
+
+    private final NioHttpTransport.Connection connection;
+    private final HttpContext context;
+    private final String method;
+    private final URI uri;
+    private final String protocol;
+    private final Headers requestHeaders;
+    private final Headers responseHeaders = new Headers();
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+    private final ResponseStream response = new ResponseStream();
+    private boolean closeAfterResponse;
+    private InputStream requestBody;
+    private OutputStream responseBody = response;
+    private volatile int responseCode = -1;
+
+    NioHttpExchange(NioHttpTransport.Connection connection, HttpContext context, String method, URI uri,
+                    String protocol, Headers requestHeaders, byte[] body, boolean closeAfterResponse) {
+        this.connection = connection;
+        this.context = context;
+        this.method = method;
+        this.uri = uri;
+        this.protocol = protocol;
+        this.requestHeaders = requestHeaders;
+        this.requestBody = new ByteArrayInputStream(body);
+        this.closeAfterResponse = closeAfterResponse;
+    }
+
+    @Override
+    public Headers getRequestHeaders() {
+        return requestHeaders;
+    }
+
+    @Override
+    public Headers getResponseHeaders() {
+        return responseHeaders;
+    }
+
+    @Override
+    public URI getRequestURI() {
+        return uri;
+    }
+
+    @Override
+    public String getRequestMethod() {
+        return method;
+    }
+
+    @Override
+    public HttpContext getHttpContext() {
+        return context;
+    }
+
+    /** Ends the response, or closes the connection if no headers were sent. */
+    @Override
+    public void close() {
+        try {
+            requestBody.close();
+        } catch (IOException e) {
+            // A byte array
+        }
+        if (responseCode == -1) {
+            connection.abort();
+            return;
+        }
+        try {
+            responseBody.close();
+        } catch (IOException e) {
+            // The connection is closed already
+        }
+    }
+
+    @Override
+    public InputStream getRequestBody() {
+        return requestBody;
+    }
+
+    @Override
+    public OutputStream getResponseBody() {
+        return responseBody;
+    }
+
+    @Override
+    public synchronized void sendResponseHeaders(int rCode, long responseLength) throws IOException {
+        if (responseCode != -1) {
+            throw new IOException("Headers already sent");
+        }
+        boolean bodyless = method.equalsIgnoreCase("HEAD") || rCode == 204 || rCode == 304 || rCode < 200;
+        boolean chunked = false;
+        if (bodyless || responseLength < 0) {
+            if (!bodyless && !responseHeaders.containsKey("Content-Length")) {
+                responseHeaders.set("Content-Length", "0");
+            }
+            responseLength = -1;
+        } else if (responseLength == 0) {
+            if (protocol.equals("HTTP/1.0")) {
+                closeAfterResponse = true; // The body ends when the connection does
+            } else {
+                chunked = true;
+                responseHeaders.set("Transfer-Encoding", "chunked");
+            }
+        } else {
+            responseHeaders.set("Content-Length", Long.toString(responseLength));
+        }
+        if (closeAfterResponse) {
+            responseHeaders.set("Connection", "close");
+        }
+        responseHeaders.set("Date", httpDate());
+
+        StringBuilder head = new StringBuilder(256);
+        head.append("HTTP/1.1 ").append(rCode).append(' ').append(reason(rCode)).append("\r\n");
+        for (Map.Entry<String, List<String>> header : responseHeaders.entrySet()) {
+            for (String value : header.getValue()) {
+                head.append(header.getKey()).append(": ").append(value).append("\r\n");
+            }
+        }
+        head.append("\r\n");
+        responseCode = rCode;
+        response.start(head.toString().getBytes(StandardCharsets.ISO_8859_1), responseLength, chunked);
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return connection.remoteAddress();
+    }
+
+    @Override
+    public int getResponseCode() {
+        return responseCode;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return connection.localAddress();
+    }
+
+    @Override
+    public String getProtocol() {
+        return protocol;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (value == null) {
+            attributes.remove(name);
+        } else {
+            attributes.put(name, value);
+        }
+    }
+
+    @Override
+    public void setStreams(InputStream i, OutputStream o) {
+        if (i != null) {
+            requestBody = i;
+        }
+        if (o != null) {
+            responseBody = o;
+        }
+    }
+
+    @Override
+    public HttpPrincipal getPrincipal() {
+        return null;
+    }
+
+    private static String httpDate() {
+        long second = System.currentTimeMillis() / 1000;
+        CachedDate cached = date;
+        if (cached.second != second) {
+            cached = new CachedDate(second, HTTP_DATE.format(ZonedDateTime.now(ZoneOffset.UTC)));
+            date = cached;
+        }
+        return cached.value;
+    }
+
+    private static String reason(int status) {
+        switch (status) {
+            case 100: return "Continue";
+            case 200: return "OK";
+            case 202: return "Accepted";
+            case 204: return "No Content";
+            case 304: return "Not Modified";
+            case 400: return "Bad Request";
+            case 404: return "Not Found";
+            case 405: return "Method Not Allowed";
+            case 413: return "Payload Too Large";
+            case 500: return "Internal Server Error";
+            case 503: return "Service Unavailable";
+            default: return "Status";
+        }
+    }
+
+    private static final class CachedDate {
+        final long second;
+        final String value;
+
+        CachedDate(long second, String value) {
+            this.second = second;
+            this.value = value;
+        }
+    }
+
+    /**
+     * The response body, written into pooled buffers that are handed to the
+     * connection as they fill up. In chunked mode every buffer becomes one
+     * chunk: its size line goes into the room left in front of the data and
+     * the line break behind it, so a chunk is sent from a single buffer.
+     */
+    private final class ResponseStream extends OutputStream {
+        private final ByteBuffer[] single = new ByteBuffer[1];
+        private ByteBuffer current;
+        private boolean started;
+        private boolean chunked;
+        /** Whether the body ends when the connection closes, for HTTP/1.0 clients. */
+        private boolean untilClose;
+        /** Bytes the fixed-length body still needs, or -1 if it has no fixed length. */
+        private long remaining = -1;
+        private boolean closed;
+
+        /** Queues the head; sent at once unless a fixed-length body can go along with it. */
+        synchronized void start(byte[] head, long length, boolean chunked) throws IOException {
+            started = true;
+            writeRaw(head, 0, head.length);
+            if (length > 0) {
+                remaining = length;
+                return;
+            }
+            emit(false);
+            this.chunked = chunked;
+            untilClose = length == 0 && !chunked;
+            if (length < 0) {
+                // No body: the response is complete
+                closed = true;
+                connection.complete();
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) throws IOException {
+            if (!started) {
+                throw new IOException("Response headers not sent yet");
+            }
+            if (closed) {
+                throw new IOException("Response body is closed");
+            }
+            if (remaining >= 0) {
+                if (len > remaining) {
+                    throw new IOException("Too many bytes to write to the response body");
+                }
+                remaining -= len;
+            } else if (!chunked && !untilClose) {
+                throw new IOException("The response has no body");
+            }
+            writeRaw(b, off, len);
+        }
+
+        private void writeRaw(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                ByteBuffer buffer = buffer();
+                int n = Math.min(len, buffer.remaining());
+                buffer.put(b, off, n);
+                off += n;
+                len -= n;
+                if (!buffer.hasRemaining()) {
+                    emit(false);
+                }
+            }
+        }
+
+        private ByteBuffer buffer() {
+            if (current == null) {
+                current = connection.buffers().acquire();
+                if (chunked) {
+                    current.position(CHUNK_HEADER);
+                    current.limit(current.capacity() - CHUNK_TRAILER);
+                }
+            }
+            return current;
+        }
+
+        @Override
+        public synchronized void flush() throws IOException {
+            if (started && !closed && current != null) {
+                emit(false);
+            }
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            if (!started) {
+                closed = true;
+                connection.abort();
+                return;
+            }
+            closed = true;
+            if (remaining > 0) {
+                connection.abort();
+                throw new IOException("Insufficient bytes written to the response body");
+            }
+            emit(true);
+            connection.complete();
+        }
+
+        /** Passes the current buffer on to the connection. */
+        private void emit(boolean last) throws IOException {
+            ByteBuffer buffer = current;
+            current = null;
+            if (!chunked) {
+                if (buffer != null) {
+                    buffer.flip();
+                    send(buffer);
+                }
+                return;
+            }
+            if (buffer == null) {
+                if (!last) {
+                    return;
+                }
+                buffer = connection.buffers().acquire();
+                buffer.position(CHUNK_HEADER);
+            }
+            int size = buffer.position() - CHUNK_HEADER;
+            if (size == 0 && !last) {
+                connection.buffers().release(buffer);
+                return;
+            }
+            buffer.limit(buffer.capacity());
+            int start = CHUNK_HEADER;
+            if (size > 0) {
+                buffer.put(CRLF);
+                byte[] sizeLine = (Integer.toHexString(size) + "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+                start -= sizeLine.length;
+                for (int i = 0; i < sizeLine.length; i++) {
+                    buffer.put(start + i, sizeLine[i]);
+                }
+            }
+            if (last) {
+                buffer.put(LAST_CHUNK);
+            }
+            buffer.limit(buffer.position());
+            buffer.position(start);
+            send(buffer);
+        }
+
+        private void send(ByteBuffer buffer) throws IOException {
+            single[0] = buffer;
+            try {
+                connection.send(single, 1, true);
+            } finally {
+                single[0] = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,845 @@
+package com.example.mcp;
+
+import com.sun.net.httpserver.Authenticator;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HTTP/1.1 transport on a single selector thread.
+ *
+ * <p>The selector thread accepts connections, reads requests and writes
+ * responses; only the handlers run on the executor. A connection holds no
+ * thread while it waits for a request, and holds a read buffer only while
+ * it has unparsed bytes, so idle keep-alive connections cost little more
+ * than their socket. Requests are parsed from pooled direct buffers, and
+ * the body is handed to the handler once it has been read in full.</p>
+ *
+ * <p>Requests on one connection are handled one at a time, in order.
+ * Pipelined requests stay in the read buffer until the response before them
+ * is complete, which keeps the responses in request order. Responses are
+ * written into pooled direct buffers and queued on the connection. A
+ * handler thread writes straight to the socket while nothing is queued.
+ * Otherwise the selector thread drains the queue with gathering writes. A
+ * handler that gets more than {@link #MAX_QUEUED_BYTES} ahead of a slow
+ * client waits until the client catches up.</p>
+ */
+class NioHttpTransport implements HttpTransport {
+    /** Bytes a connection may have queued for the client before writing handlers wait. */
+    static final int MAX_QUEUED_BYTES = 256 * 1024;
+    static final long IDLE_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+    /** Buffers kept for reuse; enough for a few hundred busy connections. */
+    private static final int POOLED_BUFFERS = 1024;
+    private static final int MAX_GATHER = 64;
+    /** Bodies are read into arrays, which cannot be larger. */
+    private static final long MAX_BODY_ARRAY = Integer.MAX_VALUE - 8;
+
+    private final ServerSocketChannel serverChannel;
+    private final InetSocketAddress address;
+    private final Selector selector;
+    private final Executor executor;
+    /** The executor created for a {@code null} one, shut down on stop. */
+    private final ExecutorService ownExecutor;
+    private final BufferPool buffers = new BufferPool(BufferPool.DEFAULT_BUFFER_SIZE, POOLED_BUFFERS);
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    /** Contexts, longest path first. */
+    private volatile List<NioContext> contexts = List.of();
+    private final AtomicInteger activeExchanges = new AtomicInteger();
+    private final ByteBuffer[] gather = new ByteBuffer[MAX_GATHER];
+    private final Thread selectorThread;
+    private volatile boolean running;
+    private volatile long maxRequestBytes = JsonRpcRequestParser.DEFAULT_MAX_REQUEST_BYTES;
+    private long lastIdleCheck = System.nanoTime();
+
+    /**
+     * @param executor runs the handlers; {@code null} runs them one at a time on a single thread
+     */
+    NioHttpTransport(InetSocketAddress address, Executor executor) throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        serverChannel.bind(address, 1024);
+        serverChannel.configureBlocking(false);
+        this.address = (InetSocketAddress) serverChannel.getLocalAddress();
+        selector = Selector.open();
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        if (executor == null) {
+            ownExecutor = Executors.newSingleThreadExecutor(new ExecutionMode.NamedThreadFactory("mcp-nio-handler-"));
+            this.executor = ownExecutor;
+        } else {
+            ownExecutor = null;
+            this.executor = executor;
+        }
+        selectorThread = new ExecutionMode.NamedThreadFactory("mcp-nio-selector-").newThread(this::run);
+        // Like the JDK server's dispatcher, keeps the process alive while the server runs
+        selectorThread.setDaemon(false);
+    }
+
+    @Override
+    public synchronized void createContext(String path, HttpHandler handler) {
+        List<NioContext> updated = new ArrayList<>(contexts);
+        updated.removeIf(context -> context.getPath().equals(path));
+        updated.add(new NioContext(path, handler));
+        updated.sort(Comparator.comparingInt((NioContext context) -> context.getPath().length()).reversed());
+        contexts = List.copyOf(updated);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        selectorThread.start();
+    }
+
+    @Override
+    public void stop(int delay) {
+        execute(() -> {
+            try {
+                serverChannel.close();
+            } catch (IOException e) {
+                // Closing anyway
+            }
+        });
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(delay);
+        while (activeExchanges.get() > 0 && System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        running = false;
+        selector.wakeup();
+        if (selectorThread.getState() == Thread.State.NEW) {
+            closeAll(); // Never started
+        } else {
+            try {
+                selectorThread.join(TimeUnit.SECONDS.toMillis(Math.max(delay, 1)));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (ownExecutor != null) {
+            ownExecutor.shutdown();
+        }
+    }
+
+    @Override
+    public InetSocketAddress getAddress() {
+        return address;
+    }
+
+    @Override
+    public void setMaxRequestBytes(long maxRequestBytes) {
+        this.maxRequestBytes = maxRequestBytes;
+    }
+
+    BufferPool buffers() {
+        return buffers;
+    }
+
+    /** Runs a task on the selector thread. */
+    void execute(Runnable task) {
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                selector.select(this::ready, 1000);
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) {
+                        System.err.println("HTTP selector task failed: " + e);
+                    }
+                }
+                long now = System.nanoTime();
+                if (now - lastIdleCheck > TimeUnit.SECONDS.toNanos(1)) {
+                    lastIdleCheck = now;
+                    closeIdle(now);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("HTTP selector failed: " + e.getMessage());
+        } finally {
+            closeAll();
+        }
+    }
+
+    private void ready(SelectionKey key) {
+        if (key.attachment() == null) {
+            accept();
+            return;
+        }
+        Connection connection = (Connection) key.attachment();
+        try {
+            if (key.isReadable()) {
+                connection.read();
+            }
+            if (key.isValid() && key.isWritable()) {
+                connection.write();
+            }
+        } catch (IOException | CancelledKeyException e) {
+            connection.close();
+        } catch (RuntimeException e) {
+            System.err.println("Closing connection after an internal error: " + e);
+            connection.close();
+        }
+    }
+
+    private void accept() {
+        while (true) {
+            SocketChannel channel;
+            try {
+                channel = serverChannel.accept();
+                if (channel == null) {
+                    return;
+                }
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            } catch (IOException e) {
+                return; // Typically out of file descriptors; try again on the next select
+            }
+            Connection connection = new Connection(channel);
+            try {
+                connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            } catch (IOException e) {
+                connection.close();
+            }
+        }
+    }
+
+    private void closeIdle(long now) {
+        for (SelectionKey key : selector.keys()) {
+            Object attachment = key.attachment();
+            if (attachment instanceof Connection) {
+                Connection connection = (Connection) attachment;
+                if (connection.exchange == null && now - connection.lastActive > IDLE_TIMEOUT_NANOS) {
+                    connection.close();
+                }
+            }
+        }
+    }
+
+    private void closeAll() {
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof Connection) {
+                ((Connection) key.attachment()).close();
+            }
+        }
+        try {
+            serverChannel.close();
+            selector.close();
+        } catch (IOException e) {
+            // Nothing left to release
+        }
+    }
+
+    private NioContext findContext(String path) {
+        for (NioContext context : contexts) {
+            if (path.startsWith(context.getPath())) {
+                return context;
+            }
+        }
+        return null;
+    }
+
+    private enum State { HEADERS, BODY, CHUNK_SIZE, CHUNK_DATA, CHUNK_END, TRAILERS, ACTIVE, CLOSING }
+
+    /**
+     * One client connection. Reading and parsing happen on the selector
+     * thread only; the outbound queue is shared with the handler threads and
+     * guarded by the connection's monitor.
+     */
+    final class Connection {
+        private final SocketChannel channel;
+        private SelectionKey key;
+        /** Unparsed bytes in write mode, or {@code null} when there are none. */
+        private ByteBuffer in;
+        private State state = State.HEADERS;
+        private long lastActive = System.nanoTime();
+
+        // The request being read
+        private String method;
+        private URI uri;
+        private String protocol;
+        private Headers requestHeaders;
+        private byte[] body;
+        private int bodyLength;
+        private long chunkRemaining;
+        private boolean closeAfterResponse;
+        /** The exchange being handled; {@code null} between requests. */
+        private NioHttpExchange exchange;
+
+        // Guarded by this
+        private final ArrayDeque<ByteBuffer> outbound = new ArrayDeque<>();
+        private long queued;
+        private boolean writeInterest;
+        private boolean closed;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        InetSocketAddress remoteAddress() {
+            try {
+                return (InetSocketAddress) channel.getRemoteAddress();
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        InetSocketAddress localAddress() {
+            try {
+                return (InetSocketAddress) channel.getLocalAddress();
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        BufferPool buffers() {
+            return buffers;
+        }
+
+        // --- Selector thread ---
+
+        void read() throws IOException {
+            if (in == null) {
+                in = buffers.acquire();
+            }
+            int n = channel.read(in);
+            if (n < 0) {
+                close();
+                return;
+            }
+            lastActive = System.nanoTime();
+            parse();
+        }
+
+        /** Parses buffered bytes until a request is complete or more bytes are needed. */
+        private void parse() {
+            while (in != null && state != State.ACTIVE && state != State.CLOSING) {
+                in.flip();
+                boolean progress;
+                try {
+                    progress = step();
+                } catch (HttpError e) {
+                    in.compact();
+                    reject(e.status, e.getMessage());
+                    break;
+                }
+                if (in == null) {
+                    break; // A rejected or undispatchable request closed the connection
+                }
+                in.compact();
+                if (!progress) {
+                    if (!in.hasRemaining()) {
+                        if (state == State.HEADERS) {
+                            reject(431, "Request Header Fields Too Large");
+                        } else {
+                            reject(400, "Bad Request"); // A chunk size line longer than a buffer
+                        }
+                    }
+                    break;
+                }
+            }
+            if (in != null && in.position() == 0) {
+                buffers.release(in);
+                in = null;
+            }
+            if (key.isValid()) {
+                // Stop reading once pipelined requests fill the buffer; resumed when the exchange completes
+                boolean full = in != null && !in.hasRemaining();
+                int ops = key.interestOps();
+                key.interestOps(full ? ops & ~SelectionKey.OP_READ : ops | SelectionKey.OP_READ);
+            }
+        }
+
+        /** Consumes what it can of the buffer in read mode; returns whether it got anywhere. */
+        private boolean step() throws HttpError {
+            switch (state) {
+                case HEADERS:
+                    return readHeaders();
+                case BODY: {
+                    int n = Math.min(in.remaining(), body.length - bodyLength);
+                    in.get(body, bodyLength, n);
+                    bodyLength += n;
+                    if (bodyLength == body.length) {
+                        dispatch();
+                    }
+                    return n > 0 || state == State.ACTIVE;
+                }
+                case CHUNK_SIZE: {
+                    String line = readLine();
+                    if (line == null) {
+                        return false;
+                    }
+                    int semicolon = line.indexOf(';');
+                    long size;
+                    try {
+                        size = Long.parseLong((semicolon < 0 ? line : line.substring(0, semicolon)).trim(), 16);
+                    } catch (NumberFormatException e) {
+                        throw new HttpError(400, "Bad Request");
+                    }
+                    if (size < 0 || bodyLength + size > Math.min(maxRequestBytes, MAX_BODY_ARRAY)) {
+                        throw new HttpError(413, "Payload Too Large");
+                    }
+                    if (size == 0) {
+                        state = State.TRAILERS;
+                    } else {
+                        if (bodyLength + size > body.length) {
+                            body = Arrays.copyOf(body, (int) Math.min(Math.min(maxRequestBytes, MAX_BODY_ARRAY),
+                                    Math.max(bodyLength + size, body.length * 2L)));
+                        }
+                        chunkRemaining = size;
+                        state = State.CHUNK_DATA;
+                    }
+                    return true;
+                }
+                case CHUNK_DATA: {
+                    int n = (int) Math.min(in.remaining(), chunkRemaining);
+                    in.get(body, bodyLength, n);
+                    bodyLength += n;
+                    chunkRemaining -= n;
+                    if (chunkRemaining == 0) {
+                        state = State.CHUNK_END;
+                    }
+                    return n > 0;
+                }
+                case CHUNK_END: {
+                    String line = readLine();
+                    if (line == null) {
+                        return false;
+                    }
+                    if (!line.isEmpty()) {
+                        throw new HttpError(400, "Bad Request");
+                    }
+                    state = State.CHUNK_SIZE;
+                    return true;
+                }
+                case TRAILERS: {
+                    String line = readLine();
+                    if (line == null) {
+                        return false;
+                    }
+                    if (line.isEmpty()) {
+                        body = Arrays.copyOf(body, bodyLength);
+                        dispatch();
+                    }
+                    return true;
+                }
+                default:
+                    return false;
+            }
+        }
+
+        /** Parses the request line and headers once the blank line ending them has arrived. */
+        private boolean readHeaders() throws HttpError {
+            int start = in.position();
+            int end = -1;
+            int lineStart = start;
+            for (int i = start; i < in.limit(); i++) {
+                if (in.get(i) == '\n') {
+                    int length = i - lineStart;
+                    if (length > 0 && in.get(i - 1) == '\r') {
+                        length--;
+                    }
+                    if (length == 0) {
+                        if (lineStart == start) {
+                            // Blank lines before the request line are ignored
+                            start = i + 1;
+                        } else {
+                            end = i + 1;
+                            break;
+                        }
+                    }
+                    lineStart = i + 1;
+                }
+            }
+            if (end < 0) {
+                in.position(start);
+                return false;
+            }
+            byte[] head = new byte[end - start];
+            in.position(start);
+            in.get(head);
+            String[] lines = new String(head, StandardCharsets.ISO_8859_1).split("\r?\n");
+
+            String[] requestLine = lines[0].split(" ");
+            if (requestLine.length != 3) {
+                throw new HttpError(400, "Bad Request");
+            }
+            method = requestLine[0];
+            protocol = requestLine[2];
+            if (!protocol.startsWith("HTTP/1.")) {
+                throw new HttpError(505, "HTTP Version Not Supported");
+            }
+            try {
+                uri = new URI(requestLine[1]);
+            } catch (URISyntaxException e) {
+                throw new HttpError(400, "Bad Request");
+            }
+            requestHeaders = new Headers();
+            for (int i = 1; i < lines.length; i++) {
+                int colon = lines[i].indexOf(':');
+                if (colon <= 0) {
+                    throw new HttpError(400, "Bad Request");
+                }
+                requestHeaders.add(lines[i].substring(0, colon).trim(), lines[i].substring(colon + 1).trim());
+            }
+
+            String connection = requestHeaders.getFirst("Connection");
+            closeAfterResponse = protocol.equals("HTTP/1.0")
+                    || (connection != null && connection.toLowerCase(Locale.ROOT).contains("close"));
+            String transferEncoding = requestHeaders.getFirst("Transfer-Encoding");
+            String contentLength = requestHeaders.getFirst("Content-Length");
+            bodyLength = 0;
+            if (transferEncoding != null && transferEncoding.toLowerCase(Locale.ROOT).contains("chunked")) {
+                body = new byte[(int) Math.max(0, Math.min(maxRequestBytes, 1024))];
+                state = State.CHUNK_SIZE;
+            } else if (contentLength != null) {
+                long length;
+                try {
+                    length = Long.parseLong(contentLength.trim());
+                } catch (NumberFormatException e) {
+                    throw new HttpError(400, "Bad Request");
+                }
+                if (length < 0) {
+                    throw new HttpError(400, "Bad Request");
+                }
+                if (length > Math.min(maxRequestBytes, MAX_BODY_ARRAY)) {
+                    throw new HttpError(413, "Payload Too Large");
+                }
+                body = new byte[(int) length];
+                state = State.BODY;
+            } else {
+                body = new byte[0];
+            }
+            if (state == State.HEADERS || (state == State.BODY && body.length == 0)) {
+                dispatch();
+            } else if ("100-continue".equalsIgnoreCase(requestHeaders.getFirst("Expect"))) {
+                sendNow(ascii("HTTP/1.1 100 Continue\r\n\r\n"));
+            }
+            return true;
+        }
+
+        /** Returns the next line without its line break, or {@code null} if it has not fully arrived. */
+        private String readLine() {
+            for (int i = in.position(); i < in.limit(); i++) {
+                if (in.get(i) == '\n') {
+                    byte[] line = new byte[i - in.position()];
+                    in.get(line);
+                    in.get(); // The line feed
+                    int length = line.length > 0 && line[line.length - 1] == '\r' ? line.length - 1 : line.length;
+                    return new String(line, 0, length, StandardCharsets.ISO_8859_1);
+                }
+            }
+            return null;
+        }
+
+        /** Hands the complete request to its handler. */
+        private void dispatch() {
+            state = State.ACTIVE;
+            NioContext context = findContext(uri.getPath() == null ? "/" : uri.getPath());
+            if (context == null) {
+                reject(404, "Not Found");
+                return;
+            }
+            NioHttpExchange started = new NioHttpExchange(this, context, method, uri, protocol, requestHeaders, body,
+                    closeAfterResponse);
+            exchange = started;
+            body = null;
+            activeExchanges.incrementAndGet();
+            try {
+                executor.execute(() -> {
+                    try {
+                        context.getHandler().handle(started);
+                    } catch (Throwable e) {
+                        // Like the JDK server: a handler that fails leaves nothing sensible to send
+                        abort();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                close();
+            }
+        }
+
+        /** Answers the request being read with an error and closes the connection. */
+        private void reject(int status, String reason) {
+            state = State.CLOSING;
+            closeAfterResponse = true;
+            sendNow(ascii("HTTP/1.1 " + status + " " + reason + "\r\nContent-Length: 0\r\nConnection: close\r\n\r\n"));
+            closeIfFlushed();
+        }
+
+        /** Queues bytes from the selector thread, which never waits for the client. */
+        private void sendNow(ByteBuffer buffer) {
+            try {
+                send(new ByteBuffer[] {buffer}, 1, false);
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        void write() throws IOException {
+            synchronized (this) {
+                int count = 0;
+                for (ByteBuffer buffer : outbound) {
+                    gather[count++] = buffer;
+                    if (count == MAX_GATHER) {
+                        break;
+                    }
+                }
+                long written = channel.write(gather, 0, count);
+                Arrays.fill(gather, 0, count, null);
+                queued -= written;
+                while (!outbound.isEmpty() && !outbound.peek().hasRemaining()) {
+                    buffers.release(outbound.poll());
+                }
+                if (outbound.isEmpty()) {
+                    writeInterest = false;
+                    key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+                }
+                notifyAll();
+            }
+            closeIfFlushed();
+        }
+
+        /** Continues with the next request once the response to the current one is complete. */
+        private void responseDone() {
+            if (exchange == null) {
+                return;
+            }
+            exchange = null;
+            activeExchanges.decrementAndGet();
+            lastActive = System.nanoTime();
+            if (closeAfterResponse) {
+                state = State.CLOSING;
+                closeIfFlushed();
+                return;
+            }
+            state = State.HEADERS;
+            if (key.isValid()) {
+                key.interestOps(key.interestOps() | SelectionKey.OP_READ);
+                parse();
+            }
+        }
+
+        private void closeIfFlushed() {
+            boolean flushed;
+            synchronized (this) {
+                flushed = outbound.isEmpty();
+            }
+            if (state == State.CLOSING && flushed) {
+                close();
+            }
+        }
+
+        void close() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                for (ByteBuffer buffer : outbound) {
+                    buffers.release(buffer);
+                }
+                outbound.clear();
+                queued = 0;
+                notifyAll();
+            }
+            if (exchange != null) {
+                exchange = null;
+                activeExchanges.decrementAndGet();
+            }
+            if (in != null) {
+                buffers.release(in);
+                in = null;
+            }
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Already gone
+            }
+        }
+
+        // --- Handler threads ---
+
+        /**
+         * Sends buffers in order, writing them to the socket right away if
+         * nothing is queued before them. Written buffers go back to the pool.
+         *
+         * @param mayWait whether to wait while the client is too far behind
+         * @throws IOException if the connection is closed
+         */
+        void send(ByteBuffer[] data, int count, boolean mayWait) throws IOException {
+            boolean wakeSelector = false;
+            synchronized (this) {
+                while (mayWait && queued > MAX_QUEUED_BYTES && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted while waiting for the client", e);
+                    }
+                }
+                if (closed) {
+                    for (int i = 0; i < count; i++) {
+                        buffers.release(data[i]);
+                    }
+                    throw new IOException("Connection closed");
+                }
+                if (outbound.isEmpty()) {
+                    try {
+                        channel.write(data, 0, count);
+                    } catch (IOException e) {
+                        for (int i = 0; i < count; i++) {
+                            buffers.release(data[i]);
+                        }
+                        closeLater();
+                        throw e;
+                    }
+                }
+                for (int i = 0; i < count; i++) {
+                    if (data[i].hasRemaining()) {
+                        outbound.add(data[i]);
+                        queued += data[i].remaining();
+                    } else {
+                        buffers.release(data[i]);
+                    }
+                }
+                if (!outbound.isEmpty() && !writeInterest) {
+                    writeInterest = true;
+                    wakeSelector = true;
+                }
+            }
+            if (wakeSelector) {
+                if (Thread.currentThread() == selectorThread) {
+                    key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                } else {
+                    execute(() -> {
+                        if (key.isValid()) {
+                            key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                        }
+                    });
+                }
+            }
+        }
+
+        /** Called once the whole response has been passed to {@link #send}. */
+        void complete() {
+            execute(this::responseDone);
+        }
+
+        /** Closes the connection from any thread. */
+        void abort() {
+            execute(this::close);
+        }
+
+        private void closeLater() {
+            execute(this::close);
+        }
+    }
+
+    private static ByteBuffer ascii(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    /** A request that cannot be handled, answered with a bodyless error status. */
+    private static final class HttpError extends Exception {
+        final int status;
+
+        HttpError(int status, String reason) {
+            super(reason, null, false, false);
+            this.status = status;
+        }
+    }
+
+    /** Handler registration; filters and authenticators are not supported. */
+    static final class NioContext extends HttpContext {
+        private final String path;
+        private HttpHandler handler;
+        private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+        private final List<Filter> filters = new ArrayList<>();
+
+        NioContext(String path, HttpHandler handler) {
+            this.path = path;
+            this.handler = handler;
+        }
+
+        @Override
+        public HttpHandler getHandler() {
+            return handler;
+        }
+
+        @Override
+        public void setHandler(HttpHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public String getPath() {
+            return path;
+        }
+
+        @Override
+        public HttpServer getServer() {
+            return null;
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+
+        @Override
+        public List<Filter> getFilters() {
+            return filters;
+        }
+
+        @Override
+        public Authenticator setAuthenticator(Authenticator auth) {
+            throw new UnsupportedOperationException("Authenticators are not supported by the NIO transport");
+        }
+
+        @Override
+        public Authenticator getAuthenticator() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.mcp;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Typed parameter schema of a JSON-RPC method. The schema is compiled once
+ * into a name-to-slot table and a bit mask of required slots, so reading a
+ * params object is a single streaming pass that validates as it goes and
+ * reports problems through {@link ParamValues#getError()} rather than
+ * exceptions.
+ */
+public class ParamSchema {
+    private final ParamSpec[] specs;
+    private final Map<String, Integer> slots = new HashMap<>();
+    private final long requiredMask;
+
+    public ParamSchema(ParamSpec... specs) {
+        if (specs.length > Long.SIZE) {
+            throw new IllegalArgumentException("At most " + Long.SIZE + " parameters are supported");
+        }
+        this.specs = specs.clone();
+        long mask = 0;
+        for (int i = 0; i < specs.length; i++) {
+            if (slots.put(specs[i].getName(), i) != null) {
+                throw new IllegalArgumentException("Duplicate parameter: " + specs[i].getName());
+            }
+            if (specs[i].isRequired()) {
+                mask |= 1L << i;
+            }
+        }
+        this.requiredMask = mask;
+    }
+
+    /** Returns the parameter declarations in slot order. */
+    public List<ParamSpec> getParams() {
+        return Collections.unmodifiableList(Arrays.asList(specs));
+    }
+
+    /** Returns the values for a call without a params object. */
+    ParamValues empty() {
+        ParamValues values = new ParamValues(specs.length);
+        checkRequired(values);
+        return values;
+    }
+
+    /**
+     * Reads a params object from the reader, which must be positioned at its
+     * opening brace. Unknown members are skipped and {@code null} members are
+     * treated as absent.
+     */
+    ParamValues read(JsonReader reader) throws IOException {
+        ParamValues values = new ParamValues(specs.length);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            Integer slot = slots.get(name);
+            if (slot == null) {
+                if (name.equals("_meta") && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    readMeta(reader, values);
+                } else {
+                    reader.skipValue();
+                }
+                continue;
+            }
+            JsonToken token = reader.peek();
+            if (token == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            ParamSpec spec = specs[slot];
+            switch (spec.getType()) {
+                case INTEGER:
+                    if (token != JsonToken.NUMBER) {
+                        reader.skipValue();
+                        values.fail(typeError(spec));
+                        break;
+                    }
+                    long number;
+                    try {
+                        number = reader.nextLong();
+                    } catch (NumberFormatException e) {
+                        // Not a long, so fractional or out of range; the reader still holds the literal
+                        BigDecimal value = new BigDecimal(reader.nextString());
+                        values.fail(value.stripTrailingZeros().scale() > 0 ? typeError(spec) : rangeError(spec));
+                        break;
+                    }
+                    if (number < spec.getMin() || number > spec.getMax()) {
+                        values.fail(rangeError(spec));
+                    } else {
+                        values.setLong(slot, number);
+                    }
+                    break;
+                case BOOLEAN:
+                    if (token != JsonToken.BOOLEAN) {
+                        reader.skipValue();
+                        values.fail(typeError(spec));
+                        break;
+                    }
+                    values.setLong(slot, reader.nextBoolean() ? 1 : 0);
+                    break;
+                case ARRAY:
+                    if (token != JsonToken.BEGIN_ARRAY) {
+                        reader.skipValue();
+                        values.fail(typeError(spec));
+                        break;
+                    }
+                    readArray(reader, spec, slot, values);
+                    break;
+                case STRING:
+                default:
+                    if (token != JsonToken.STRING) {
+                        reader.skipValue();
+                        values.fail(typeError(spec));
+                        break;
+                    }
+                    values.setString(slot, reader.nextString());
+                    break;
+            }
+        }
+        reader.endObject();
+        checkRequired(values);
+        return values;
+    }
+
+    /**
+     * Reads an array of objects with the item schema of the parameter. The
+     * first invalid item fails the whole params object.
+     */
+    private static void readArray(JsonReader reader, ParamSpec spec, int slot, ParamValues values) throws IOException {
+        List<ParamValues> items = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            if (items.size() == spec.getMax()) {
+                values.fail("Parameter '" + spec.getName() + "' must have at most " + spec.getMax() + " items.");
+                reader.skipValue();
+                continue;
+            }
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                values.fail("Parameter '" + spec.getName() + "' must be an array of objects.");
+                reader.skipValue();
+                continue;
+            }
+            ParamValues item = spec.getItems().read(reader);
+            if (item.getError() != null) {
+                values.fail("Item " + items.size() + " of parameter '" + spec.getName() + "': " + item.getError());
+            }
+            items.add(item);
+        }
+        reader.endArray();
+        values.setArray(slot, items);
+    }
+
+    /** Reads the MCP {@code _meta} object, keeping only the progress token. */
+    private static void readMeta(JsonReader reader, ParamValues values) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("progressToken")) {
+                JsonToken token = reader.peek();
+                if (token == JsonToken.STRING) {
+                    values.setProgressToken(reader.nextString());
+                    continue;
+                } else if (token == JsonToken.NUMBER) {
+                    values.setProgressToken(JsonRpcRequestParser.parseNumber(reader.nextString()));
+                    continue;
+                }
+            }
+            reader.skipValue();
+        }
+        reader.endObject();
+    }
+
+    private void checkRequired(ParamValues values) {
+        long missing = requiredMask & ~values.presentMask();
+        if (missing != 0) {
+            values.fail("Missing required parameter '" + specs[Long.numberOfTrailingZeros(missing)].getName() + "'.");
+        }
+    }
+
+    private static String typeError(ParamSpec spec) {
+        return "Parameter '" + spec.getName() + "' must be of type " + spec.getType().getJsonName() + ".";
+    }
+
+    private static String rangeError(ParamSpec spec) {
+        return "Parameter '" + spec.getName() + "' must be between " + spec.getMin() + " and " + spec.getMax() + ".";
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.mcp;
+
+/**
+ * Declaration of a single named JSON-RPC parameter.
+ */
+public class ParamSpec {
+
+    /** JSON types a parameter can be bound to. */
+    public enum Type {
+        INTEGER("integer"),
+        STRING("string"),
+        BOOLEAN("boolean"),
+        ARRAY("array");
+
+        private final String jsonName;
+
+        Type(String jsonName) {
+            this.jsonName = jsonName;
+        }
+
+        /** Returns the JSON Schema name of this type. */
+        public String getJsonName() {
+            return jsonName;
+        }
+    }
+
+    private final String name;
+    private final String description;
+    private final Type type;
+    private final boolean required;
+    private final long min;
+    private final long max;
+    private final ParamSchema items;
+
+    private ParamSpec(String name, String description, Type type, boolean required, long min, long max) {
+        this(name, description, type, required, min, max, null);
+    }
+
+    private ParamSpec(String name, String description, Type type, boolean required, long min, long max,
+            ParamSchema items) {
+        this.name = name;
+        this.description = description;
+        this.type = type;
+        this.required = required;
+        this.min = min;
+        this.max = max;
+        this.items = items;
+    }
+
+    /** A required integer parameter restricted to {@code [min, max]}. */
+    public static ParamSpec integer(String name, String description, long min, long max) {
+        return new ParamSpec(name, description, Type.INTEGER, true, min, max);
+    }
+
+    /** An optional integer parameter restricted to {@code [min, max]}. */
+    public static ParamSpec optionalInteger(String name, String description, long min, long max) {
+        return new ParamSpec(name, description, Type.INTEGER, false, min, max);
+    }
+
+    /** A required string parameter. */
+    public static ParamSpec string(String name, String description) {
+        return new ParamSpec(name, description, Type.STRING, true, 0, 0);
+    }
+
+    /** An optional string parameter. */
+    public static ParamSpec optionalString(String name, String description) {
+        return new ParamSpec(name, description, Type.STRING, false, 0, 0);
+    }
+
+    /** An optional boolean parameter. */
+    public static ParamSpec optionalBoolean(String name, String description) {
+        return new ParamSpec(name, description, Type.BOOLEAN, false, 0, 0);
+    }
+
+    /**
+     * A required array parameter of at most {@code maxItems} objects, each
+     * read with the {@code items} schema.
+     */
+    public static ParamSpec array(String name, String description, ParamSchema items, int maxItems) {
+        return new ParamSpec(name, description, Type.ARRAY, true, 0, maxItems, items);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public boolean isRequired() {
+        return required;
+    }
+
+    /** Inclusive lower bound of an {@link Type#INTEGER} parameter. */
+    public long getMin() {
+        return min;
+    }
+
+    /**
+     * Inclusive upper bound of an {@link Type#INTEGER} parameter, or the
+     * maximum number of items of an {@link Type#ARRAY} parameter.
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /** Schema of the items of an {@link Type#ARRAY} parameter. */
+    public ParamSchema getItems() {
+        return items;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.mcp;
+
+import java.util.List;
+
+/**
+ * Parameter values read for one call, stored by slot in primitive arrays so
+ * that numeric parameters are never boxed. Slots are the positions of the
+ * parameters in their {@link ParamSchema}.
+ */
+public class ParamValues {
+    private final long[] numbers;
+    private final String[] strings;
+    private List<ParamValues>[] arrays;
+    private long present;
+    private String error;
+    private Object progressToken;
+
+    ParamValues(int size) {
+        this.numbers = new long[size];
+        this.strings = new String[size];
+    }
+
+    /** Returns whether a value was supplied for the slot. */
+    public boolean has(int slot) {
+        return (present & (1L << slot)) != 0;
+    }
+
+    public int getInt(int slot) {
+        return (int) numbers[slot];
+    }
+
+    public int getInt(int slot, int defaultValue) {
+        return has(slot) ? (int) numbers[slot] : defaultValue;
+    }
+
+    public long getLong(int slot) {
+        return numbers[slot];
+    }
+
+    public boolean getBoolean(int slot, boolean defaultValue) {
+        return has(slot) ? numbers[slot] != 0 : defaultValue;
+    }
+
+    public String getString(int slot) {
+        return strings[slot];
+    }
+
+    /** Returns the items of an array parameter. */
+    public List<ParamValues> getArray(int slot) {
+        return arrays == null ? null : arrays[slot];
+    }
+
+    /** Returns the validation error, or {@code null} if the values are valid. */
+    public String getError() {
+        return error;
+    }
+
+    /** Returns {@code _meta.progressToken} of the params object, or {@code null}. */
+    public Object getProgressToken() {
+        return progressToken;
+    }
+
+    long presentMask() {
+        return present;
+    }
+
+    void setLong(int slot, long value) {
+        numbers[slot] = value;
+        present |= 1L << slot;
+    }
+
+    void setString(int slot, String value) {
+        strings[slot] = value;
+        present |= 1L << slot;
+    }
+
+    @SuppressWarnings("unchecked")
+    void setArray(int slot, List<ParamValues> items) {
+        if (arrays == null) {
+            arrays = (List<ParamValues>[]) new List<?>[strings.length];
+        }
+        arrays[slot] = items;
+        present |= 1L << slot;
+    }
+
+    void setProgressToken(Object progressToken) {
+        this.progressToken = progressToken;
+    }
+
+    /** Records the first validation error; later ones are ignored. */
+    void fail(String message) {
+        if (error == null) {
+            error = message;
+        }
+    }
+}
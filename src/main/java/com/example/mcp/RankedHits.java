@@ -0,0 +1,99 @@
+package com.example.mcp;
+
+import java.util.Arrays;
+
+/**
+ * All matches of a query, ranked lazily. The matches are heapified once in
+ * O(n) and then extracted in place, heapsort style: every extraction moves
+ * the next best hit behind the shrinking heap, so the ranked prefix is kept
+ * and any page can be served again without re-running or re-sorting the
+ * query. Only as many hits as have been requested are ever ordered.
+ */
+class RankedHits implements InvertedIndex.HitCollector {
+    private int[] docs;
+    private float[] scores;
+    private int total;
+    private int heapSize = -1;
+
+    RankedHits() {
+        this.docs = new int[16];
+        this.scores = new float[16];
+    }
+
+    @Override
+    public void collect(int doc, float score) {
+        if (total == docs.length) {
+            docs = Arrays.copyOf(docs, total * 2);
+            scores = Arrays.copyOf(scores, total * 2);
+        }
+        docs[total] = doc;
+        scores[total] = score;
+        total++;
+    }
+
+    /** Returns the number of matching documents. */
+    int total() {
+        return total;
+    }
+
+    /**
+     * Makes sure the first {@code count} hits are ranked.
+     *
+     * @return the number of hits available, at most {@code count}
+     */
+    synchronized int rank(int count) {
+        if (heapSize < 0) {
+            heapSize = total;
+            for (int i = (heapSize >>> 1) - 1; i >= 0; i--) {
+                siftDown(i);
+            }
+        }
+        int wanted = Math.min(count, total);
+        while (total - heapSize < wanted) {
+            heapSize--;
+            swap(0, heapSize);
+            siftDown(0);
+        }
+        return wanted;
+    }
+
+    /** Returns the document at the given rank; the rank must have been {@link #rank ranked}. */
+    int doc(int rank) {
+        return docs[total - 1 - rank];
+    }
+
+    /** Returns the score at the given rank; the rank must have been {@link #rank ranked}. */
+    float score(int rank) {
+        return scores[total - 1 - rank];
+    }
+
+    /** Returns whether hit a ranks above hit b: higher score first, then lower document. */
+    private boolean better(int a, int b) {
+        return scores[a] > scores[b] || (scores[a] == scores[b] && docs[a] < docs[b]);
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= heapSize) {
+                return;
+            }
+            int right = left + 1;
+            int best = right < heapSize && better(right, left) ? right : left;
+            if (!better(best, i)) {
+                return;
+            }
+            swap(i, best);
+            i = best;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int d = docs[a];
+        docs[a] = docs[b];
+        docs[b] = d;
+        float s = scores[a];
+        scores[a] = scores[b];
+        scores[b] = s;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.mcp;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Per-call context handed to {@link MethodHandler}s. It lets a handler push
+ * {@code notifications/progress} messages when the client asked for them
+ * with {@code params._meta.progressToken} and the transport can deliver
+ * server-initiated messages (the SSE transport can, plain POST cannot).
+ */
+public class RequestContext {
+    /** Context of calls without progress reporting. */
+    static final RequestContext NONE = new RequestContext(null, null);
+
+    private final Object progressToken;
+    private final Consumer<JsonRpcNotification> notifier;
+
+    RequestContext(Object progressToken, Consumer<JsonRpcNotification> notifier) {
+        this.progressToken = progressToken;
+        this.notifier = notifier;
+    }
+
+    /** Returns whether progress notifications will reach the client. */
+    public boolean isProgressRequested() {
+        return progressToken != null && notifier != null;
+    }
+
+    /**
+     * Reports progress of the call. Does nothing unless
+     * {@link #isProgressRequested()}.
+     *
+     * @param total   the total amount of work, or {@code null} if unknown
+     * @param message an optional human readable message
+     */
+    public void reportProgress(double progress, Double total, String message) {
+        if (!isProgressRequested()) {
+            return;
+        }
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("progressToken", progressToken);
+        params.put("progress", progress);
+        if (total != null) {
+            params.put("total", total);
+        }
+        if (message != null) {
+            params.put("message", message);
+        }
+        notifier.accept(new JsonRpcNotification("notifications/progress", params));
+    }
+}
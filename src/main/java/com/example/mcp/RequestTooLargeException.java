@@ -0,0 +1,19 @@
+package com.example.mcp;
+
+import java.io.IOException;
+
+/**
+ * Thrown while reading a request body that exceeds the configured maximum size.
+ */
+public class RequestTooLargeException extends IOException {
+    private final long limit;
+
+    public RequestTooLargeException(long limit) {
+        super("Request body exceeds " + limit + " bytes");
+        this.limit = limit;
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+}
@@ -0,0 +1,202 @@
+package com.example.mcp;
+
+import com.sun.net.httpserver.HttpExchange;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Body of an HTTP response whose length is not known up front. Writes are
+ * buffered until the buffer would overflow; a body that fits is sent with a
+ * {@code Content-Length} when the stream is closed. A larger body commits
+ * the response as chunked at that point, and everything written afterwards
+ * goes out in chunks of about the buffer size, so the first bytes are sent
+ * while the rest is still being encoded and the body is never held in
+ * memory as a whole.
+ *
+ * <p>With a {@link ContentCoding}, a body that reaches the compression
+ * threshold is compressed from then on, including the part buffered so far.
+ * The compressed bytes take the same way, so a body that shrinks into the
+ * buffer still gets a {@code Content-Length}. Smaller bodies are sent as
+ * they are, since compressing them costs more time than it saves bytes.</p>
+ */
+class ResponseBodyStream extends OutputStream {
+    static final int DEFAULT_BUFFER_SIZE = 16 * 1024;
+    /** Size from which a body is compressed when the client accepts it. */
+    static final int DEFAULT_COMPRESSION_THRESHOLD = 1024;
+
+    private final HttpExchange exchange;
+    private final int status;
+    private final byte[] buffer;
+    private int count;
+    /** Bytes passed on to the chunked body. */
+    private long sent;
+    /** The chunked body once the response is committed, otherwise {@code null}. */
+    private OutputStream body;
+    /** Whether sending the headers was attempted, even for a body that fit in the buffer. */
+    private boolean committed;
+    private boolean closed;
+    private final ContentCoding coding;
+    private final int compressionThreshold;
+    /** Receives the body once compression has started, otherwise {@code null}. */
+    private ContentCoding.CompressingStream compressor;
+    /** Where the compressor writes to: the buffered or chunked body. */
+    private final OutputStream encoded = new OutputStream() {
+        @Override
+        public void write(int b) throws IOException {
+            writeEncoded(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            writeEncoded(b, off, len);
+        }
+    };
+
+    ResponseBodyStream(HttpExchange exchange, int status) {
+        this(exchange, status, DEFAULT_BUFFER_SIZE);
+    }
+
+    ResponseBodyStream(HttpExchange exchange, int status, int bufferSize) {
+        this(exchange, status, bufferSize, null, -1);
+    }
+
+    /**
+     * @param coding               the coding the client accepts, or {@code null} to never compress
+     * @param compressionThreshold size from which the body is compressed, at most the buffer
+     *                             size; negative to never compress
+     */
+    ResponseBodyStream(HttpExchange exchange, int status, ContentCoding coding, int compressionThreshold) {
+        this(exchange, status, DEFAULT_BUFFER_SIZE, coding, compressionThreshold);
+    }
+
+    ResponseBodyStream(HttpExchange exchange, int status, int bufferSize, ContentCoding coding, int compressionThreshold) {
+        this.exchange = exchange;
+        this.status = status;
+        this.buffer = new byte[bufferSize];
+        this.coding = compressionThreshold < 0 ? null : coding;
+        this.compressionThreshold = Math.min(compressionThreshold, bufferSize);
+    }
+
+    /** Returns whether the body is being compressed. */
+    boolean isCompressed() {
+        return compressor != null;
+    }
+
+    /** Returns whether the headers have been sent, after which the status can no longer change. */
+    boolean isCommitted() {
+        return committed;
+    }
+
+    /** Returns the number of body bytes written so far, after compression. */
+    long size() {
+        return sent + count;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (compressor == null && coding != null && count + 1 >= compressionThreshold) {
+            startCompression();
+        }
+        if (compressor != null) {
+            compressor.write(b);
+        } else {
+            writeEncoded(b);
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (compressor == null && coding != null && count + len >= compressionThreshold) {
+            startCompression();
+        }
+        if (compressor != null) {
+            compressor.write(b, off, len);
+        } else {
+            writeEncoded(b, off, len);
+        }
+    }
+
+    private void writeEncoded(int b) throws IOException {
+        if (body == null && count == buffer.length) {
+            commit();
+        }
+        if (body != null) {
+            body.write(b);
+            sent++;
+        } else {
+            buffer[count++] = (byte) b;
+        }
+    }
+
+    private void writeEncoded(byte[] b, int off, int len) throws IOException {
+        if (body == null && len > buffer.length - count) {
+            commit();
+        }
+        if (body != null) {
+            body.write(b, off, len);
+            sent += len;
+        } else {
+            System.arraycopy(b, off, buffer, count, len);
+            count += len;
+        }
+    }
+
+    /** Sends what has been written so far once the response is committed; does nothing before. */
+    @Override
+    public void flush() throws IOException {
+        if (compressor != null) {
+            compressor.flush(); // Only passes on what the deflater has output so far
+        }
+        if (body != null) {
+            body.flush();
+        }
+    }
+
+    /** Sends the rest of the body and ends the response. */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (compressor != null) {
+            compressor.close();
+        }
+        if (body != null) {
+            body.close();
+            return;
+        }
+        sendHeaders(count == 0 ? -1 : count);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(buffer, 0, count);
+        }
+    }
+
+    /** Compresses the buffered bytes and everything written after them. */
+    private void startCompression() throws IOException {
+        byte[] pending = Arrays.copyOf(buffer, count); // The compressed bytes go into the buffer
+        count = 0;
+        compressor = coding.open(encoded);
+        compressor.write(pending);
+    }
+
+    private void commit() throws IOException {
+        sendHeaders(0);
+        body = new BufferedOutputStream(exchange.getResponseBody(), buffer.length);
+        body.write(buffer, 0, count);
+        sent = count;
+        count = 0;
+    }
+
+    private void sendHeaders(long length) throws IOException {
+        if (compressor != null) {
+            // Only set now, so an error response sent instead of this body is not marked as compressed
+            exchange.getResponseHeaders().set("Content-Encoding", coding.token());
+        }
+        // Set first: if sending fails, the headers may be out and no other response can follow
+        committed = true;
+        exchange.sendResponseHeaders(status, length);
+    }
+}
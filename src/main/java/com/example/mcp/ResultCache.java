@@ -0,0 +1,191 @@
+package com.example.mcp;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size-bounded cache of encoded method results using W-TinyLFU.
+ *
+ * <p>New entries go to a small LRU window holding about 1% of the byte
+ * budget, which absorbs bursts of one-off keys. An entry pushed out of the
+ * window only enters the main LRU area if the {@link FrequencySketch}
+ * rates it more popular than the entry the main area would have to evict,
+ * so a scan of unique queries cannot flush the hot ones. Every lookup, hit
+ * or miss, counts towards a key's popularity.</p>
+ *
+ * <p>Entries carry the index generation they were computed on and an
+ * expiry time. A lookup with a newer generation is a miss, so content
+ * changes invalidate cached results without walking the cache.</p>
+ */
+class ResultCache {
+    static final long DEFAULT_MAX_BYTES = 16L << 20;
+    static final long DEFAULT_TTL_MILLIS = 60_000;
+    /** Bookkeeping per entry, on top of the key and value. */
+    private static final int ENTRY_OVERHEAD = 96;
+
+    private final long maxBytes;
+    private final long windowBytes;
+    private final long ttlMillis;
+    private final FrequencySketch sketch;
+    private final LinkedHashMap<String, Entry> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Entry> main = new LinkedHashMap<>(16, 0.75f, true);
+    private long windowSize;
+    private long mainSize;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long rejections;
+
+    private static final class Entry {
+        final String key;
+        final byte[] value;
+        final long generation;
+        final long expiresAt;
+        final int weight;
+
+        Entry(String key, byte[] value, long generation, long expiresAt) {
+            this.key = key;
+            this.value = value;
+            this.generation = generation;
+            this.expiresAt = expiresAt;
+            this.weight = ENTRY_OVERHEAD + 2 * key.length() + value.length;
+        }
+    }
+
+    /** Hit and miss counts and the current size of a cache. */
+    static final class Stats {
+        final long hits;
+        final long misses;
+        final long evictions;
+        final long rejections;
+        final int entries;
+        final long bytes;
+        final long maxBytes;
+
+        Stats(long hits, long misses, long evictions, long rejections, int entries, long bytes, long maxBytes) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.rejections = rejections;
+            this.entries = entries;
+            this.bytes = bytes;
+            this.maxBytes = maxBytes;
+        }
+
+        double hitRate() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("hits", hits);
+            map.put("misses", misses);
+            map.put("hitRate", hitRate());
+            map.put("evictions", evictions);
+            map.put("rejections", rejections);
+            map.put("entries", entries);
+            map.put("bytes", bytes);
+            map.put("maxBytes", maxBytes);
+            return map;
+        }
+    }
+
+    ResultCache() {
+        this(DEFAULT_MAX_BYTES, DEFAULT_TTL_MILLIS);
+    }
+
+    ResultCache(long maxBytes, long ttlMillis) {
+        this.maxBytes = maxBytes;
+        this.windowBytes = Math.max(1, maxBytes / 100);
+        this.ttlMillis = ttlMillis;
+        this.sketch = new FrequencySketch((int) Math.min(1 << 20, Math.max(64, maxBytes / 1024)));
+    }
+
+    /**
+     * Returns the cached value for the key if it was computed on the given
+     * index generation and has not expired, or {@code null}.
+     */
+    synchronized byte[] get(String key, long generation) {
+        sketch.increment(key.hashCode());
+        Entry entry = window.get(key);
+        boolean inWindow = entry != null;
+        if (entry == null) {
+            entry = main.get(key);
+        }
+        if (entry != null && (entry.generation != generation || entry.expiresAt < System.currentTimeMillis())) {
+            remove(entry, inWindow);
+            entry = null;
+        }
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    /** Caches a value computed on the given index generation. */
+    synchronized void put(String key, long generation, byte[] value) {
+        Entry entry = new Entry(key, value, generation, System.currentTimeMillis() + ttlMillis);
+        if (entry.weight > maxBytes - windowBytes) {
+            rejections++;
+            return;
+        }
+        Entry old = window.remove(key);
+        if (old != null) {
+            windowSize -= old.weight;
+        }
+        old = main.remove(key);
+        if (old != null) {
+            mainSize -= old.weight;
+        }
+        window.put(key, entry);
+        windowSize += entry.weight;
+        while (windowSize > windowBytes && window.size() > 1) {
+            Iterator<Entry> it = window.values().iterator();
+            Entry candidate = it.next();
+            it.remove();
+            windowSize -= candidate.weight;
+            admit(candidate);
+        }
+    }
+
+    /** Moves an entry evicted from the window into the main area if it is popular enough. */
+    private void admit(Entry candidate) {
+        long budget = maxBytes - windowBytes;
+        if (mainSize + candidate.weight > budget) {
+            int candidateFrequency = sketch.frequency(candidate.key.hashCode());
+            Iterator<Entry> it = main.values().iterator();
+            Entry victim = it.hasNext() ? it.next() : null;
+            if (victim != null && candidateFrequency <= sketch.frequency(victim.key.hashCode())) {
+                rejections++;
+                return;
+            }
+            while (mainSize + candidate.weight > budget && it.hasNext()) {
+                Entry evicted = victim != null ? victim : it.next();
+                victim = null;
+                it.remove();
+                mainSize -= evicted.weight;
+                evictions++;
+            }
+        }
+        main.put(candidate.key, candidate);
+        mainSize += candidate.weight;
+    }
+
+    private void remove(Entry entry, boolean inWindow) {
+        if (inWindow) {
+            window.remove(entry.key);
+            windowSize -= entry.weight;
+        } else {
+            main.remove(entry.key);
+            mainSize -= entry.weight;
+        }
+    }
+
+    synchronized Stats stats() {
+        return new Stats(hits, misses, evictions, rejections, window.size() + main.size(), windowSize + mainSize, maxBytes);
+    }
+}
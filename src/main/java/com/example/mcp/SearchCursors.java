@@ -0,0 +1,206 @@
+package com.example.mcp;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Saved search state behind the opaque {@code cursor} of
+ * {@code searchContent}. A cursor names a saved {@link RankedHits} and an
+ * offset into it, so following a cursor resumes the ranking where the last
+ * page stopped and re-sending the same cursor returns the same page again.
+ * The store is bounded: the least recently used state is dropped when it is
+ * full and unused state expires after a while.
+ *
+ * <p>The state of a first page is saved under an id derived from the query
+ * and the index generation, keyed with a secret of this store. As long as
+ * the index has not changed, a cursor whose state was dropped can therefore
+ * be {@link #restore restored} by ranking the query again, which keeps the
+ * cursors of cached first pages valid for as long as the pages are.</p>
+ *
+ * <p>A first page is found with a top-{@code k} search, so its state is
+ * saved without a ranking; all matches are only ranked when the cursor is
+ * first followed.</p>
+ */
+class SearchCursors {
+    static final int DEFAULT_CAPACITY = 1024;
+    static final long DEFAULT_TTL_MILLIS = 5 * 60 * 1000L;
+
+    /** A saved query together with its lazily ranked matches. */
+    static final class State {
+        final String query;
+        final boolean fuzzy;
+        final InvertedIndex index;
+        private RankedHits hits;
+        long lastUsed;
+
+        State(String query, InvertedIndex index, RankedHits hits) {
+            this(query, false, index, hits);
+        }
+
+        State(String query, boolean fuzzy, InvertedIndex index, RankedHits hits) {
+            this.query = query;
+            this.fuzzy = fuzzy;
+            this.index = index;
+            this.hits = hits;
+        }
+
+        /** Returns the matches, running the query on the index if they are not known yet. */
+        synchronized RankedHits hits() {
+            if (hits == null) {
+                hits = index.rank(query, fuzzy);
+            }
+            return hits;
+        }
+    }
+
+    /** A resolved cursor: the saved state and the rank of the next result. */
+    static final class Position {
+        final String id;
+        final State state;
+        final int offset;
+
+        Position(String id, State state, int offset) {
+            this.id = id;
+            this.state = state;
+            this.offset = offset;
+        }
+    }
+
+    private final SecureRandom random = new SecureRandom();
+    private final Mac mac;
+    private final int capacity;
+    private final long ttlMillis;
+    private final LinkedHashMap<String, State> states;
+
+    SearchCursors() {
+        this(DEFAULT_CAPACITY, DEFAULT_TTL_MILLIS);
+    }
+
+    SearchCursors(int capacity, long ttlMillis) {
+        this.capacity = capacity;
+        this.ttlMillis = ttlMillis;
+        this.states = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, State> eldest) {
+                return size() > SearchCursors.this.capacity;
+            }
+        };
+        byte[] key = new byte[32];
+        random.nextBytes(key);
+        try {
+            mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e); // Every JDK has HmacSHA256
+        }
+    }
+
+    /**
+     * Returns the id for the state of a normalized query ranked on the given
+     * index generation.
+     */
+    synchronized String id(String query, boolean fuzzy, long generation) {
+        byte[] digest = mac.doFinal((generation + ":" + fuzzy + ":" + query).getBytes(StandardCharsets.UTF_8));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(Arrays.copyOf(digest, 12));
+    }
+
+    /** Saves the state under a random id and returns the id. */
+    synchronized String save(State state) {
+        byte[] bytes = new byte[12];
+        random.nextBytes(bytes);
+        String id = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        save(id, state);
+        return id;
+    }
+
+    /** Saves the state under the given id, replacing any state saved under it. */
+    synchronized void save(String id, State state) {
+        expire(System.currentTimeMillis());
+        state.lastUsed = System.currentTimeMillis();
+        states.put(id, state);
+    }
+
+    /**
+     * Resolves a cursor, or returns {@code null} if it is malformed, expired
+     * or was evicted.
+     */
+    synchronized Position resolve(String cursor) {
+        long now = System.currentTimeMillis();
+        expire(now);
+        Position decoded = decode(cursor);
+        if (decoded == null) {
+            return null;
+        }
+        State state = states.get(decoded.id);
+        if (state == null) {
+            return null;
+        }
+        state.lastUsed = now;
+        return new Position(decoded.id, state, decoded.offset);
+    }
+
+    /**
+     * Resolves a cursor whose state was dropped by saving the normalized
+     * query on the index again. Returns {@code null} unless the cursor is
+     * one this store handed out for the first page of that query on the
+     * same index generation, so the ranking is the one the cursor was
+     * created with.
+     */
+    Position restore(String cursor, String query, boolean fuzzy, InvertedIndex index) {
+        Position decoded = decode(cursor);
+        if (decoded == null || !decoded.id.equals(id(query, fuzzy, index.generation()))) {
+            return null;
+        }
+        State state = new State(query, fuzzy, index, null);
+        save(decoded.id, state);
+        return new Position(decoded.id, state, decoded.offset);
+    }
+
+    /** Encodes the cursor for the page starting at {@code offset}. */
+    static String encode(String id, int offset) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((id + ":" + offset).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Splits a cursor into its id and offset, or returns {@code null} if it is malformed. */
+    private static Position decode(String cursor) {
+        String decoded;
+        try {
+            decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        int colon = decoded.indexOf(':');
+        if (colon < 0) {
+            return null;
+        }
+        int offset;
+        try {
+            offset = Integer.parseInt(decoded.substring(colon + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return offset < 0 ? null : new Position(decoded.substring(0, colon), null, offset);
+    }
+
+    /** Returns the number of saved states. */
+    synchronized int size() {
+        return states.size();
+    }
+
+    /** Access order puts the least recently used state first. */
+    private void expire(long now) {
+        Iterator<State> it = states.values().iterator();
+        while (it.hasNext() && now - it.next().lastUsed > ttlMillis) {
+            it.remove();
+        }
+    }
+}
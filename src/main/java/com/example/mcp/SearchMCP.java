@@ -1,39 +1,292 @@
 package com.example.mcp;
 
+import com.google.gson.Gson;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
 
 /**
- * Very small MCP providing search results for demonstration purposes.
+ * Small MCP providing full-text search over a set of documents. Documents are
+ * held in an {@link InvertedIndex}, either built in memory or mapped from a
+ * segment file, and ranked with BM25.
  */
-public class SearchMCP {
+public class SearchMCP implements McpTool {
 
-    private final List<SearchResult> fixtures = new ArrayList<>();
-    private final Map<String, SearchResult> fetchFixtures = new HashMap<>();
+    /** Number of results returned when no limit is given. */
+    public static final int DEFAULT_LIMIT = 10;
 
+    /** Largest page size accepted by {@code searchContent}. */
+    public static final int MAX_LIMIT = 100;
+
+    /** Parameters of the {@code searchContent} JSON-RPC method. */
+    public record SearchContentParams(String query, int limit, String cursor, boolean fuzzy) {
+        public SearchContentParams(String query) {
+            this(query, DEFAULT_LIMIT, null, false);
+        }
+    }
+
+    /** Parameters of the {@code suggestContent} JSON-RPC method. */
+    public record SuggestContentParams(String prefix, int limit, boolean fuzzy) {
+    }
+
+    /** Parameters of the {@code fetchContent} JSON-RPC method. */
+    public record FetchContentParams(String id) {
+    }
+
+    /** Parameters of the {@code indexContent} JSON-RPC method. */
+    public record IndexContentParams(String id, String title, String text, String url) {
+    }
+
+    /** Parameters of the {@code deleteContent} JSON-RPC method. */
+    public record DeleteContentParams(String id) {
+    }
+
+    private final IndexWriter writer;
+    private final SearchCursors cursors = new SearchCursors();
+    private final ResultCache cache = new ResultCache();
+    private final Gson gson = new Gson();
+
+    /** Creates a search MCP over the demo fixtures. */
     public SearchMCP() {
-        SearchResult r = new SearchResult("1", "Time Report Overview",
-                "Overview of the TimeReport MCP demo.", null);
-        fixtures.add(r);
-        fetchFixtures.put(r.getId(), r);
+        this(List.of(new SearchResult("1", "Time Report Overview",
+                "Overview of the TimeReport MCP demo.", null)));
+    }
+
+    /** Creates a search MCP over the given documents. */
+    public SearchMCP(List<SearchResult> documents) {
+        this.writer = new IndexWriter(InvertedIndex.build(documents));
     }
 
     /**
-     * Returns search results for the given query. The implementation simply
-     * returns the fixture list when the query is not blank and contains either
-     * 'time' or 'report'. Otherwise an empty list is returned.
+     * Creates a search MCP over a segment file written by
+     * {@link SegmentWriter}. The file is memory-mapped rather than loaded,
+     * so this returns quickly regardless of the corpus size.
+     */
+    public SearchMCP(Path segmentFile) throws IOException {
+        this.writer = new IndexWriter(InvertedIndex.open(segmentFile));
+    }
+
+    @Override
+    public void registerMethods(ToolRegistry registry) {
+        registry.register(new MethodSpec<>("searchContent",
+                "Searches for content based on a query string.",
+                new ParamSchema(
+                        ParamSpec.string("query", "The search query."),
+                        ParamSpec.optionalInteger("limit", "Maximum number of results per page.", 1, MAX_LIMIT),
+                        ParamSpec.optionalString("cursor", "Opaque cursor from a previous page's nextCursor."),
+                        ParamSpec.optionalBoolean("fuzzy", "Also match terms with one or two typos.")),
+                v -> new SearchContentParams(v.getString(0), v.getInt(1, DEFAULT_LIMIT), v.getString(2), v.getBoolean(3, false)),
+                (params, context) -> {
+                    if (params.cursor() == null) {
+                        String key = "searchContent\0" + params.limit() + "\0" + params.fuzzy() + "\0" + normalize(params.query());
+                        return cached(key, () -> search(params.query(), params.limit(), null, params.fuzzy()));
+                    }
+                    try {
+                        return search(params.query(), params.limit(), params.cursor(), params.fuzzy());
+                    } catch (IllegalArgumentException e) {
+                        throw new JsonRpcException(JsonRpcErrorCodes.INVALID_PARAMS, e.getMessage(), params.cursor());
+                    }
+                }));
+        registry.register(new MethodSpec<>("suggestContent",
+                "Suggests completions for the last, partially typed term of a query.",
+                new ParamSchema(
+                        ParamSpec.string("prefix", "The text typed so far."),
+                        ParamSpec.optionalInteger("limit", "Maximum number of suggestions.", 1, MAX_LIMIT),
+                        ParamSpec.optionalBoolean("fuzzy", "Also suggest terms close to a misspelled last term.")),
+                v -> new SuggestContentParams(v.getString(0), v.getInt(1, DEFAULT_LIMIT), v.getBoolean(2, false)),
+                (params, context) -> Map.of("suggestions", suggest(params.prefix(), params.limit(), params.fuzzy()))));
+        registry.register(new MethodSpec<>("fetchContent",
+                "Fetches a specific content item by its ID.",
+                new ParamSchema(ParamSpec.string("id", "The ID of the content to fetch.")),
+                v -> new FetchContentParams(v.getString(0)),
+                (params, context) -> cached("fetchContent\0" + params.id(), () -> fetch(params.id()))));
+        registry.register(new MethodSpec<>("indexContent",
+                "Adds a content item, replacing any item with the same ID.",
+                new ParamSchema(
+                        ParamSpec.string("id", "The ID of the content."),
+                        ParamSpec.string("title", "The title of the content."),
+                        ParamSpec.string("text", "The text of the content."),
+                        ParamSpec.optionalString("url", "A URL for the content.")),
+                v -> new IndexContentParams(v.getString(0), v.getString(1), v.getString(2), v.getString(3)),
+                (params, context) -> Map.of("id", params.id(), "replaced",
+                        index(new SearchResult(params.id(), params.title(), params.text(), params.url())))));
+        registry.register(new MethodSpec<>("deleteContent",
+                "Deletes a content item by its ID.",
+                new ParamSchema(ParamSpec.string("id", "The ID of the content to delete.")),
+                v -> new DeleteContentParams(v.getString(0)),
+                (params, context) -> Map.of("id", params.id(), "deleted", delete(params.id()))));
+        registry.register(new MethodSpec<>("getSearchCacheStats",
+                "Returns hit and miss counts of the search result cache.",
+                new ParamSchema(),
+                v -> null,
+                (params, context) -> cache.stats().toMap()));
+    }
+
+    /**
+     * Returns the encoded result for the key from the cache, or computes,
+     * encodes and caches it. Entries are tagged with the index generation
+     * read before computing, so a result computed on a newer snapshot is at
+     * worst invalidated early, never served stale.
+     */
+    private EncodedJson cached(String key, Supplier<Object> compute) {
+        long generation = writer.snapshot().generation();
+        byte[] bytes = cache.get(key, generation);
+        if (bytes == null) {
+            bytes = gson.toJson(compute.get()).getBytes(StandardCharsets.UTF_8);
+            cache.put(key, generation, bytes);
+        }
+        return new EncodedJson(bytes);
+    }
+
+    /**
+     * Returns the query as the index sees it: its distinct terms in order.
+     * Queries differing only in case, punctuation or repeated terms rank
+     * identically and share cache entries and cursors.
+     */
+    static String normalize(String query) {
+        return String.join(" ", new LinkedHashSet<>(Tokenizer.tokenize(query)));
+    }
+
+    /**
+     * Returns the {@value #DEFAULT_LIMIT} best results for the given query.
+     *
+     * @see #search(String, int)
      */
     public List<SearchResult> search(String query) {
+        return search(query, DEFAULT_LIMIT);
+    }
+
+    /**
+     * Returns up to {@code limit} results for the given query, best first.
+     * A document matches if its title or text contains any of the query
+     * terms; each result carries its BM25 score. A {@code null} or blank
+     * query matches nothing.
+     */
+    public List<SearchResult> search(String query, int limit) {
         if (query == null) {
             return new ArrayList<>();
         }
-        String q = query.toLowerCase();
-        if (q.contains("time") || q.contains("report")) {
-            return new ArrayList<>(fixtures);
+        InvertedIndex index = writer.snapshot();
+        InvertedIndex.Hits hits = index.search(query, limit);
+        List<SearchResult> results = new ArrayList<>(hits.size);
+        for (int i = 0; i < hits.size; i++) {
+            results.add(index.document(hits.docs[i]).withScore(hits.scores[i]));
+        }
+        return results;
+    }
+
+    /**
+     * Returns one page of results for the given query. Without a cursor the
+     * first page is returned, found like {@link #search(String, int)}; if
+     * there are more than {@code limit} matches, the query is saved and a
+     * cursor to the next page is handed out. Following that cursor ranks all
+     * matches once and keeps the ranking, so later pages continue it instead
+     * of running the query again.
+     *
+     * @param cursor a {@link SearchPage#getNextCursor() nextCursor} of an
+     *               earlier page for the same query, or {@code null}
+     * @throws IllegalArgumentException if the cursor is unknown, expired or
+     *                                  belongs to a different query
+     */
+    public SearchPage search(String query, int limit, String cursor) {
+        return search(query, limit, cursor, false);
+    }
+
+    /**
+     * Returns one page of results for the given query, optionally matching
+     * query terms fuzzily.
+     *
+     * @see #search(String, int, String)
+     * @see InvertedIndex#search(String, int, boolean)
+     */
+    public SearchPage search(String query, int limit, String cursor, boolean fuzzy) {
+        if (query == null) {
+            return new SearchPage(new ArrayList<>(), null);
+        }
+        if (cursor == null) {
+            InvertedIndex index = writer.snapshot();
+            int k = Math.min(Math.max(0, limit), index.size());
+            // One more than the page tells whether there is a next page
+            InvertedIndex.Hits hits = index.search(query, k + 1, fuzzy);
+            List<SearchResult> results = new ArrayList<>(Math.min(k, hits.size));
+            for (int i = 0; i < hits.size && i < k; i++) {
+                results.add(index.document(hits.docs[i]).withScore(hits.scores[i]));
+            }
+            String nextCursor = null;
+            if (hits.size > k) {
+                String normalized = normalize(query);
+                String id = cursors.id(normalized, fuzzy, index.generation());
+                cursors.save(id, new SearchCursors.State(normalized, fuzzy, index, null));
+                nextCursor = SearchCursors.encode(id, k);
+            }
+            return new SearchPage(results, nextCursor);
+        }
+
+        SearchCursors.Position position = cursors.resolve(cursor);
+        if (position == null) {
+            position = cursors.restore(cursor, normalize(query), fuzzy, writer.snapshot());
         }
-        return new ArrayList<>();
+        if (position == null) {
+            throw new IllegalArgumentException("Unknown or expired cursor.");
+        }
+        if (!position.state.query.equals(normalize(query)) || position.state.fuzzy != fuzzy) {
+            throw new IllegalArgumentException("Cursor belongs to a different query.");
+        }
+        RankedHits hits = position.state.hits();
+        int offset = position.offset;
+        if (offset > hits.total()) {
+            throw new IllegalArgumentException("Unknown or expired cursor.");
+        }
+        int end = hits.rank(offset + Math.max(0, limit));
+        List<SearchResult> results = new ArrayList<>(Math.max(0, end - offset));
+        for (int rank = offset; rank < end; rank++) {
+            results.add(position.state.index.document(hits.doc(rank)).withScore(hits.score(rank)));
+        }
+        String nextCursor = null;
+        if (end < hits.total()) {
+            nextCursor = SearchCursors.encode(position.id, end);
+        }
+        return new SearchPage(results, nextCursor);
+    }
+
+    /**
+     * Suggests completions for the last term of a partially typed query,
+     * most frequent first. With {@code fuzzy} set, terms within one or two
+     * edits of the last term follow the completions, so that misspelled
+     * input still gets suggestions. Input ending with a separator has no
+     * partial term and gets no suggestions.
+     */
+    public List<Suggestion> suggest(String prefix, int limit, boolean fuzzy) {
+        List<Suggestion> suggestions = new ArrayList<>();
+        if (prefix == null) {
+            return suggestions;
+        }
+        int start = Tokenizer.lastTokenStart(prefix);
+        String partial = prefix.substring(start).toLowerCase(Locale.ROOT);
+        if (partial.isEmpty() || limit <= 0) {
+            return suggestions;
+        }
+        InvertedIndex index = writer.snapshot();
+        Set<String> seen = new HashSet<>();
+        List<TermDictionary.Term> terms = new ArrayList<>(index.complete(partial, limit));
+        if (fuzzy && terms.size() < limit) {
+            terms.addAll(index.fuzzy(partial));
+        }
+        for (TermDictionary.Term term : terms) {
+            if (suggestions.size() < limit && seen.add(term.text)) {
+                suggestions.add(new Suggestion(term.text, prefix.substring(0, start) + term.text, term.docFreq));
+            }
+        }
+        return suggestions;
     }
 
     /**
@@ -43,6 +296,41 @@ public class SearchMCP {
         if (id == null) {
             return null;
         }
-        return fetchFixtures.get(id);
+        return writer.snapshot().get(id);
+    }
+
+    /**
+     * Adds a document, or replaces the document with the same id. The
+     * document is searchable when this method returns; searches running
+     * concurrently are not blocked and see either the old or the new
+     * content.
+     *
+     * @return whether a document was replaced
+     */
+    public boolean index(SearchResult document) {
+        return writer.add(List.of(document)) > 0;
+    }
+
+    /**
+     * Adds or replaces several documents at once, publishing them together.
+     *
+     * @return the number of documents that were replaced
+     */
+    public int index(Collection<SearchResult> documents) {
+        return writer.add(documents);
+    }
+
+    /**
+     * Deletes the document with the given id.
+     *
+     * @return whether a document was deleted
+     */
+    public boolean delete(String id) {
+        return id != null && writer.delete(List.of(id)) > 0;
+    }
+
+    /** Returns the number of searchable documents. */
+    public int size() {
+        return writer.snapshot().size();
     }
 }
@@ -0,0 +1,25 @@
+package com.example.mcp;
+
+import java.util.List;
+
+/**
+ * One page of {@code searchContent} results. {@code nextCursor} is only set
+ * when there are more results.
+ */
+public class SearchPage {
+    private final List<SearchResult> results;
+    private final String nextCursor;
+
+    public SearchPage(List<SearchResult> results, String nextCursor) {
+        this.results = results;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<SearchResult> getResults() {
+        return results;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
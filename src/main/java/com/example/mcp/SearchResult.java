@@ -11,17 +11,28 @@ public class SearchResult {
     private final String text;
     private final String url;
     private final Map<String, String> metadata;
+    private final Double score; // Relevance score of a search hit, null otherwise
 
     public SearchResult(String id, String title, String text, String url) {
         this(id, title, text, url, null);
     }
 
     public SearchResult(String id, String title, String text, String url, Map<String, String> metadata) {
+        this(id, title, text, url, metadata, null);
+    }
+
+    private SearchResult(String id, String title, String text, String url, Map<String, String> metadata, Double score) {
         this.id = id;
         this.title = title;
         this.text = text;
         this.url = url;
         this.metadata = metadata;
+        this.score = score;
+    }
+
+    /** Returns a copy of this result carrying the given relevance score. */
+    public SearchResult withScore(double score) {
+        return new SearchResult(id, title, text, url, metadata, score);
     }
 
     public String getId() {
@@ -43,4 +54,9 @@ public class SearchResult {
     public Map<String, String> getMetadata() {
         return metadata;
     }
+
+    /** Returns the relevance score, or {@code null} if this is not a search hit. */
+    public Double getScore() {
+        return score;
+    }
 }
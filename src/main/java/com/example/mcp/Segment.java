@@ -0,0 +1,112 @@
+package com.example.mcp;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Storage behind an {@link InvertedIndex}: the stored documents, a postings
+ * list per term and the BM25 length normalization of every document. A
+ * segment is immutable once built. {@link HeapSegment} keeps everything in
+ * Java arrays, {@link MappedSegment} reads a segment file through a memory
+ * mapping.
+ */
+interface Segment {
+
+    /** Returns the number of documents. */
+    int size();
+
+    /** Returns the stored document with the given number. */
+    SearchResult document(int doc);
+
+    /** Returns the number of the document with the given id, or {@code -1}. */
+    int find(String id);
+
+    /** Returns the postings of a term, or {@code null} if no document contains it. */
+    Postings postings(String term);
+
+    /**
+     * Returns the precomputed {@code K1 * (1 - B + B * length / avgLength)}
+     * of every document, indexed by document number.
+     */
+    FloatBuffer lengthNorms();
+
+    /** Returns the term dictionary, built on first use. */
+    TermDictionary terms();
+
+    /**
+     * Postings of one term: ascending document numbers and the term frequency
+     * in each, stored as two runs of {@code size} ints in a shared buffer.
+     */
+    final class Postings {
+        /** Number of postings summarized by one entry of {@link #blockMaxima}. */
+        static final int BLOCK = 128;
+
+        private final IntBuffer data;
+        private final int docsStart;
+        private final int freqsStart;
+        final int size;
+        private volatile float[] blockMaxima;
+
+        Postings(IntBuffer data, int docsStart, int freqsStart, int size) {
+            this.data = data;
+            this.docsStart = docsStart;
+            this.freqsStart = freqsStart;
+            this.size = size;
+        }
+
+        int doc(int i) {
+            return data.get(docsStart + i);
+        }
+
+        int freq(int i) {
+            return data.get(freqsStart + i);
+        }
+
+        /**
+         * Returns the first position at or after {@code from} whose document
+         * is at least {@code target}, or {@link #size} if there is none.
+         */
+        int advance(int from, int target) {
+            int low = from;
+            int high = from;
+            int step = 1;
+            while (high < size && doc(high) < target) {
+                low = high + 1;
+                high += step;
+                step <<= 1;
+            }
+            high = Math.min(high, size);
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (doc(mid) < target) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Returns the largest {@code tf / (tf + norm)} of every block of
+         * {@link #BLOCK} postings, the most a posting in the block can add to
+         * a BM25 score per unit of term weight. Computed on first use from
+         * the segment's length norms and kept with the postings.
+         */
+        float[] blockMaxima(FloatBuffer lengthNorms) {
+            float[] maxima = blockMaxima;
+            if (maxima == null) {
+                maxima = new float[(size + BLOCK - 1) / BLOCK];
+                for (int i = 0; i < size; i++) {
+                    int tf = freq(i);
+                    float ratio = tf / (tf + lengthNorms.get(doc(i)));
+                    if (ratio > maxima[i / BLOCK]) {
+                        maxima[i / BLOCK] = ratio;
+                    }
+                }
+                blockMaxima = maxima;
+            }
+            return maxima;
+        }
+    }
+}
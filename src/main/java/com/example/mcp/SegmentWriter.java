@@ -0,0 +1,351 @@
+package com.example.mcp;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Writes a segment file that can be opened with {@link MappedSegment}.
+ * Documents are inverted in memory while their stored form is spooled to a
+ * temporary file, so building a segment needs heap for the postings only,
+ * not for the document texts. {@link #finish()} writes the segment next to
+ * its target and moves it into place, so readers never see a partial file.
+ *
+ * <p>Usage: {@code java com.example.mcp.SegmentWriter <documents-dir> <segment-file>}</p>
+ */
+public class SegmentWriter implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path target;
+    private final Path spoolFile;
+    private final FileChannel spool;
+    private final Output spoolOut;
+    private final InvertedIndex.Builder builder = new InvertedIndex.Builder();
+    private final Map<String, Integer> docsById = new HashMap<>();
+    private int[] docOffsets = new int[16];
+    private boolean finished;
+
+    /** Creates a writer for the given segment file. */
+    public SegmentWriter(Path target) throws IOException {
+        this.target = target.toAbsolutePath();
+        this.spoolFile = Files.createTempFile(this.target.getParent(), this.target.getFileName().toString(), ".docs");
+        this.spool = FileChannel.open(spoolFile, StandardOpenOption.WRITE, StandardOpenOption.READ);
+        this.spoolOut = new Output(spool);
+    }
+
+    /**
+     * Adds a document. A later document with the same id replaces the earlier
+     * one for {@code fetchContent}, but both remain searchable.
+     */
+    public void add(SearchResult document) throws IOException {
+        int doc = builder.size();
+        if (doc + 1 == docOffsets.length) {
+            docOffsets = Arrays.copyOf(docOffsets, docOffsets.length * 2);
+        }
+        docOffsets[doc] = checkedSize(spoolOut.position(), "stored documents");
+        spoolOut.putString(document.getId());
+        spoolOut.putString(document.getTitle());
+        spoolOut.putString(document.getText());
+        spoolOut.putString(document.getUrl());
+        Map<String, String> metadata = document.getMetadata();
+        spoolOut.putInt(metadata == null ? -1 : metadata.size());
+        if (metadata != null) {
+            for (Map.Entry<String, String> e : metadata.entrySet()) {
+                spoolOut.putString(e.getKey());
+                spoolOut.putString(e.getValue());
+            }
+        }
+        builder.invert(document);
+        docsById.put(document.getId(), doc);
+    }
+
+    /**
+     * Adds every document below a directory, in path order. A {@code .json}
+     * file holds one document object or an array of them, in the format
+     * returned by {@code fetchContent}. A {@code .txt} or {@code .md} file is
+     * one document whose id is its relative path, whose title is its first
+     * non-blank line and whose text is the whole file. Other and hidden files
+     * are skipped.
+     *
+     * @return the number of documents added
+     */
+    public int addDirectory(Path dir) throws IOException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(dir)) {
+            files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        Gson gson = new Gson();
+        int added = 0;
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            String lower = name.toLowerCase(Locale.ROOT);
+            String relative = dir.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+            if (name.startsWith(".")) {
+                continue;
+            }
+            if (lower.endsWith(".json")) {
+                JsonElement json;
+                try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    json = JsonParser.parseReader(reader);
+                } catch (RuntimeException e) {
+                    throw new IOException("Invalid document file " + file + ": " + e.getMessage(), e);
+                }
+                List<JsonElement> elements = new ArrayList<>();
+                if (json.isJsonArray()) {
+                    json.getAsJsonArray().forEach(elements::add);
+                } else {
+                    elements.add(json);
+                }
+                for (int i = 0; i < elements.size(); i++) {
+                    SearchResult parsed = gson.fromJson(elements.get(i), SearchResult.class);
+                    String id = parsed.getId() != null ? parsed.getId() : relative + "#" + i;
+                    add(new SearchResult(id, parsed.getTitle(), parsed.getText(), parsed.getUrl(), parsed.getMetadata()));
+                    added++;
+                }
+            } else if (lower.endsWith(".txt") || lower.endsWith(".md")) {
+                String text = Files.readString(file, StandardCharsets.UTF_8);
+                add(new SearchResult(relative, title(text, name), text, file.toUri().toString()));
+                added++;
+            }
+        }
+        return added;
+    }
+
+    private static String title(String text, String fallback) {
+        for (String line : text.split("\n")) {
+            String title = line.replaceFirst("^#+", "").trim();
+            if (!title.isEmpty()) {
+                return title;
+            }
+        }
+        return fallback;
+    }
+
+    /** Returns the number of documents added so far. */
+    public int size() {
+        return builder.size();
+    }
+
+    /** Writes the segment file and moves it into place. */
+    public void finish() throws IOException {
+        if (finished) {
+            throw new IllegalStateException("Segment already written");
+        }
+        finished = true;
+        int docCount = builder.size();
+        docOffsets[docCount] = checkedSize(spoolOut.position(), "stored documents");
+        spoolOut.flush();
+
+        // Terms and ids in unsigned UTF-8 byte order, as MappedSegment searches them
+        List<Map.Entry<byte[], InvertedIndex.PostingsBuilder>> terms = new ArrayList<>(builder.postings().size());
+        for (Map.Entry<String, InvertedIndex.PostingsBuilder> e : builder.postings().entrySet()) {
+            terms.add(Map.entry(e.getKey().getBytes(StandardCharsets.UTF_8), e.getValue()));
+        }
+        terms.sort((a, b) -> Arrays.compareUnsigned(a.getKey(), b.getKey()));
+        List<Map.Entry<byte[], Integer>> ids = new ArrayList<>(docsById.size());
+        for (Map.Entry<String, Integer> e : docsById.entrySet()) {
+            ids.add(Map.entry(e.getKey().getBytes(StandardCharsets.UTF_8), e.getValue()));
+        }
+        ids.sort((a, b) -> Arrays.compareUnsigned(a.getKey(), b.getKey()));
+
+        // Not createTempFile: the segment is meant to be shared, so it keeps the default permissions
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                Output out = new Output(channel);
+                long[] offsets = new long[8];
+                out.skip(MappedSegment.HEADER_BYTES);
+
+                offsets[0] = out.position();
+                for (float norm : builder.lengthNorms()) {
+                    out.putFloat(norm);
+                }
+                offsets[1] = out.alignedPosition();
+                int termBytesStart = 0;
+                int postingsStart = 0;
+                for (Map.Entry<byte[], InvertedIndex.PostingsBuilder> e : terms) {
+                    int docFreq = e.getValue().size();
+                    out.putInt(termBytesStart);
+                    out.putInt(e.getKey().length);
+                    out.putInt(docFreq);
+                    out.putInt(postingsStart);
+                    termBytesStart = checkedSize((long) termBytesStart + e.getKey().length, "terms");
+                    postingsStart = checkedSize(postingsStart + 2L * docFreq, "postings");
+                }
+                offsets[2] = out.alignedPosition();
+                for (Map.Entry<byte[], InvertedIndex.PostingsBuilder> e : terms) {
+                    out.put(e.getKey());
+                }
+                offsets[3] = out.alignedPosition();
+                checkedSize(4L * postingsStart, "postings");
+                for (Map.Entry<byte[], InvertedIndex.PostingsBuilder> e : terms) {
+                    InvertedIndex.PostingsBuilder p = e.getValue();
+                    for (int i = 0; i < p.size(); i++) {
+                        out.putInt(p.doc(i));
+                    }
+                    for (int i = 0; i < p.size(); i++) {
+                        out.putInt(p.freq(i));
+                    }
+                }
+                offsets[4] = out.alignedPosition();
+                for (int i = 0; i <= docCount; i++) {
+                    out.putInt(docOffsets[i]);
+                }
+                offsets[5] = out.alignedPosition();
+                for (Map.Entry<byte[], Integer> e : ids) {
+                    out.putInt(e.getValue());
+                }
+                offsets[6] = out.alignedPosition();
+                out.flush();
+                channel.position(offsets[6]);
+                long copied = 0;
+                long length = spool.size();
+                while (copied < length) {
+                    copied += spool.transferTo(copied, length - copied, channel);
+                }
+                offsets[7] = offsets[6] + length;
+
+                ByteBuffer header = ByteBuffer.allocate(MappedSegment.HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                header.putLong(MappedSegment.MAGIC);
+                header.putInt(MappedSegment.VERSION);
+                header.putInt(docCount);
+                header.putInt(ids.size());
+                header.putInt(terms.size());
+                for (long offset : offsets) {
+                    header.putLong(offset);
+                }
+                header.flip();
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+                channel.force(true);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static int checkedSize(long size, String section) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Segment section '" + section + "' exceeds 2 GiB; split the corpus into smaller segments");
+        }
+        return (int) size;
+    }
+
+    /** Deletes the spool file. A segment that was not finished is discarded. */
+    @Override
+    public void close() throws IOException {
+        try {
+            spool.close();
+        } finally {
+            Files.deleteIfExists(spoolFile);
+        }
+    }
+
+    /** Buffered little endian writer over a file channel. */
+    private static final class Output {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private long written;
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        long position() {
+            return written + buffer.position();
+        }
+
+        /** Pads to the next 8 byte boundary and returns the new position. */
+        long alignedPosition() throws IOException {
+            while ((position() & 7) != 0) {
+                ensure(1);
+                buffer.put((byte) 0);
+            }
+            return position();
+        }
+
+        void skip(int bytes) throws IOException {
+            put(new byte[bytes]);
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void putFloat(float value) throws IOException {
+            ensure(4);
+            buffer.putFloat(value);
+        }
+
+        void put(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                ensure(1);
+                int n = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, n);
+                offset += n;
+            }
+        }
+
+        void putString(String value) throws IOException {
+            if (value == null) {
+                putInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            put(bytes);
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer, written);
+            }
+            buffer.clear();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: SegmentWriter <documents-dir> <segment-file>");
+            System.exit(2);
+        }
+        long start = System.nanoTime();
+        try (SegmentWriter writer = new SegmentWriter(Paths.get(args[1]))) {
+            int count = writer.addDirectory(Paths.get(args[0]));
+            writer.finish();
+            System.out.printf("Wrote %d documents to %s in %d ms%n", count, args[1], (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.mcp;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request metrics of a server: latency histograms, call and error counts
+ * and in-flight gauges per JSON-RPC method, counts per error code, and the
+ * HTTP requests with their body sizes.
+ *
+ * <p>Recording never takes a lock: counters are {@link LongAdder}s and
+ * histograms {@link LatencyHistogram}s of atomic counters, so a call costs
+ * two clock reads and a handful of uncontended atomic increments. In-flight
+ * gauges are the difference of the started and finished counts. Every
+ * histogram is kept since startup and over a sliding window of the last
+ * one to two minutes, so a latency regression shows up in the recent
+ * percentiles even after a long uptime.</p>
+ */
+class ServerMetrics {
+    /** Stands in for method names that are not in the dispatch table, which clients choose freely. */
+    static final String UNKNOWN_METHOD = "(unknown)";
+    static final long WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final long startNanos = System.nanoTime();
+    private final Map<String, MethodStats> methods = new ConcurrentHashMap<>();
+    private final Map<Integer, LongAdder> errors = new ConcurrentHashMap<>();
+    private final Timer http = new Timer();
+    private final LongAdder requestBytes = new LongAdder();
+    private final LongAdder responseBytes = new LongAdder();
+
+    /**
+     * Returns the statistics of a method.
+     *
+     * @param name a method in the dispatch table, or {@code null} for any other name
+     */
+    MethodStats method(String name) {
+        return methods.computeIfAbsent(name == null ? UNKNOWN_METHOD : name, key -> new MethodStats());
+    }
+
+    /** Counts a JSON-RPC error response. */
+    void error(int code) {
+        errors.computeIfAbsent(code, key -> new LongAdder()).increment();
+    }
+
+    /** Marks the start of an HTTP request; returns the start time to pass to {@link #httpFinished}. */
+    long httpStarted() {
+        return http.start();
+    }
+
+    /** Records a finished HTTP request with the sizes of its bodies. */
+    void httpFinished(long start, long requestBytes, long responseBytes) {
+        http.stop(start);
+        this.requestBytes.add(requestBytes);
+        this.responseBytes.add(responseBytes);
+    }
+
+    /** Returns the metrics as nested maps, for JSON. Latencies are in milliseconds. */
+    Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("uptimeSeconds", TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startNanos));
+        Map<String, Object> httpMap = http.toMap();
+        httpMap.put("requestBytes", requestBytes.sum());
+        httpMap.put("responseBytes", responseBytes.sum());
+        map.put("http", httpMap);
+        Map<String, Long> errorMap = new TreeMap<>();
+        errors.forEach((code, count) -> errorMap.put(code.toString(), count.sum()));
+        map.put("errors", errorMap);
+        Map<String, Object> methodMap = new TreeMap<>();
+        methods.forEach((name, stats) -> methodMap.put(name, stats.toMap()));
+        map.put("methods", methodMap);
+        return map;
+    }
+
+    /** Call statistics of one JSON-RPC method. */
+    static final class MethodStats {
+        private final Timer timer = new Timer();
+        private final LongAdder errors = new LongAdder();
+
+        /** Marks the start of a call; returns the start time to pass to {@link #stop}. */
+        long start() {
+            return timer.start();
+        }
+
+        /** Records a finished call. */
+        void stop(long start, boolean error) {
+            timer.stop(start);
+            if (error) {
+                errors.increment();
+            }
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> map = timer.toMap();
+            map.put("errors", errors.sum());
+            return map;
+        }
+    }
+
+    /**
+     * Counts, in-flight gauge and latencies of an operation. The recent
+     * latencies rotate between two histograms, one per minute: the current
+     * one and the one before, which is reported together with it.
+     */
+    static final class Timer {
+        private final LongAdder started = new LongAdder();
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LatencyHistogram total = new LatencyHistogram();
+        private final LatencyHistogram[] windows = {new LatencyHistogram(), new LatencyHistogram()};
+        /** The window number each histogram of {@link #windows} currently holds. */
+        private final AtomicLongArray windowNumbers = new AtomicLongArray(2);
+
+        long start() {
+            started.increment();
+            return System.nanoTime();
+        }
+
+        void stop(long start) {
+            long end = System.nanoTime();
+            long nanos = end - start;
+            count.increment();
+            totalNanos.add(nanos);
+            total.record(nanos);
+            window(end).record(nanos);
+        }
+
+        /** Returns the histogram of the window the time falls in, clearing it if it held an older window. */
+        private LatencyHistogram window(long nanoTime) {
+            long number = nanoTime / WINDOW_NANOS;
+            int slot = (int) (number & 1);
+            long held = windowNumbers.get(slot);
+            if (held != number && windowNumbers.compareAndSet(slot, held, number)) {
+                windows[slot].reset();
+            }
+            return windows[slot];
+        }
+
+        Map<String, Object> toMap() {
+            // Started ones first: a call starting and finishing in between then cannot show up as in flight
+            long starts = started.sum();
+            long calls = count.sum();
+            long inFlight = Math.max(0, starts - calls);
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("count", calls);
+            map.put("inFlight", inFlight);
+            map.put("meanMs", calls == 0 ? 0.0 : totalNanos.sum() / (double) calls / 1e6);
+            map.put("latency", percentiles(total));
+            LatencyHistogram recent = new LatencyHistogram();
+            long number = System.nanoTime() / WINDOW_NANOS;
+            for (int slot = 0; slot < 2; slot++) {
+                long held = windowNumbers.get(slot);
+                if (held == number || held == number - 1) {
+                    recent.add(windows[slot]);
+                }
+            }
+            map.put("recentLatency", percentiles(recent));
+            return map;
+        }
+
+        private static Map<String, Object> percentiles(LatencyHistogram histogram) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("count", histogram.count());
+            map.put("p50Ms", histogram.percentileMillis(50));
+            map.put("p90Ms", histogram.percentileMillis(90));
+            map.put("p99Ms", histogram.percentileMillis(99));
+            map.put("p999Ms", histogram.percentileMillis(99.9));
+            map.put("maxMs", histogram.max() / 1e6);
+            return map;
+        }
+    }
+}
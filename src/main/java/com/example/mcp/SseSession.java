@@ -0,0 +1,83 @@
+package com.example.mcp;
+
+import com.sun.net.httpserver.HttpExchange;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A client connected to the streaming {@code GET /sse} endpoint. Messages are
+ * written as {@code text/event-stream} frames on the chunked response body,
+ * which stays open until the client disconnects or the server stops.
+ *
+ * <p>Writes are serialized so that handler threads can push messages to the
+ * same session concurrently.</p>
+ */
+class SseSession {
+    private final String id;
+    private final HttpExchange exchange;
+    private final OutputStream out;
+    private volatile boolean closed;
+
+    SseSession(String id, HttpExchange exchange) {
+        this.id = id;
+        this.exchange = exchange;
+        this.out = exchange.getResponseBody();
+    }
+
+    String getId() {
+        return id;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Sends a single event frame and flushes it to the client.
+     *
+     * @param event the event name, or {@code null} for the default {@code message} type
+     * @param data  the event payload; multi-line data is split into several {@code data:} lines
+     */
+    synchronized void send(String event, String data) throws IOException {
+        StringBuilder frame = new StringBuilder(data.length() + 32);
+        if (event != null) {
+            frame.append("event: ").append(event).append('\n');
+        }
+        int start = 0;
+        int newline;
+        while ((newline = data.indexOf('\n', start)) >= 0) {
+            frame.append("data: ").append(data, start, newline).append('\n');
+            start = newline + 1;
+        }
+        frame.append("data: ").append(data, start, data.length()).append("\n\n");
+        write(frame.toString());
+    }
+
+    /** Sends an SSE comment line, used as a keep-alive heartbeat. */
+    synchronized void comment(String text) throws IOException {
+        write(": " + text + "\n\n");
+    }
+
+    private void write(String frame) throws IOException {
+        if (closed) {
+            throw new IOException("SSE session " + id + " is closed");
+        }
+        try {
+            out.write(frame.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /** Ends the event stream and releases the underlying exchange. */
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        exchange.close();
+    }
+}
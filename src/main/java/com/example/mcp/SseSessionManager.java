@@ -0,0 +1,93 @@
+package com.example.mcp;
+
+import com.sun.net.httpserver.HttpExchange;
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps track of the open {@link SseSession}s of the HTTP+SSE transport.
+ *
+ * <p>A client opens the event stream with {@code GET /sse}. The first event,
+ * {@code endpoint}, tells it where to POST its JSON-RPC messages; responses
+ * to those messages are then pushed as {@code message} events on the stream.
+ * Idle streams receive a periodic comment so that proxies keep them open and
+ * disconnected clients are noticed.</p>
+ */
+class SseSessionManager {
+    static final long HEARTBEAT_INTERVAL_SECONDS = 15;
+
+    private final String messagePath;
+    private final Map<String, SseSession> sessions = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService heartbeat;
+
+    /**
+     * @param messagePath path of the companion POST endpoint, announced to each new session
+     */
+    SseSessionManager(String messagePath) {
+        this.messagePath = messagePath;
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(new ExecutionMode.NamedThreadFactory("mcp-sse-heartbeat-"));
+        heartbeat.scheduleAtFixedRate(this::sendHeartbeats, HEARTBEAT_INTERVAL_SECONDS, HEARTBEAT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Turns the exchange into a long-lived event stream and registers it as a
+     * new session. The exchange is left open when this method returns.
+     */
+    SseSession open(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0); // chunked, no fixed length
+
+        SseSession session = new SseSession(UUID.randomUUID().toString(), exchange);
+        sessions.put(session.getId(), session);
+        try {
+            session.send("endpoint", messagePath + "?sessionId=" + session.getId());
+        } catch (IOException e) {
+            sessions.remove(session.getId());
+            throw e;
+        }
+        return session;
+    }
+
+    /** Returns the open session with the given id, or {@code null}. */
+    SseSession get(String sessionId) {
+        if (sessionId == null) {
+            return null;
+        }
+        SseSession session = sessions.get(sessionId);
+        if (session != null && session.isClosed()) {
+            sessions.remove(sessionId, session);
+            return null;
+        }
+        return session;
+    }
+
+    /** Returns the number of open sessions. */
+    int size() {
+        return sessions.size();
+    }
+
+    /** Closes every session and stops the heartbeat. */
+    void closeAll() {
+        heartbeat.shutdownNow();
+        for (SseSession session : sessions.values()) {
+            session.close();
+        }
+        sessions.clear();
+    }
+
+    private void sendHeartbeats() {
+        for (SseSession session : sessions.values()) {
+            try {
+                session.comment("ping");
+            } catch (IOException e) {
+                sessions.remove(session.getId(), session);
+            }
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.mcp;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Serves JSON-RPC over a pair of streams, usually standard input and output
+ * of a server launched as a subprocess by its client. Every line read is one
+ * message, a request or a batch. Messages are dispatched concurrently on the
+ * executor, and their responses are written one per line as soon as they are
+ * ready, so they may come back in a different order than the requests went
+ * out; clients match them by {@code id}.
+ *
+ * <p>A single writer thread owns the output. Handlers encode their responses
+ * and progress notifications themselves and hand the lines to it through a
+ * queue; it flushes once the queue is drained, so a burst of responses goes
+ * out in one write.</p>
+ */
+class StdioTransport {
+    static final int DEFAULT_MAX_IN_FLIGHT = 256;
+
+    /** Queued after the last response to stop the writer. */
+    private static final String END = new String();
+
+    private final JsonRpcDispatcher dispatcher;
+    private final Executor executor;
+    private final InputStream in;
+    private final byte[] buffer = new byte[64 * 1024];
+    private int position;
+    private int filled;
+    private final Writer out;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final BlockingQueue<String> outbound = new LinkedBlockingQueue<>();
+    private final Gson gson = new GsonBuilder().create();
+    private volatile boolean outputFailed;
+
+    StdioTransport(JsonRpcDispatcher dispatcher, Executor executor, InputStream in, OutputStream out) {
+        this(dispatcher, executor, in, out, DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    /**
+     * @param executor    runs the messages, or {@code null} to handle them one at a time on the reading thread
+     * @param maxInFlight number of messages handled at once; reading pauses while that many are pending
+     */
+    StdioTransport(JsonRpcDispatcher dispatcher, Executor executor, InputStream in, OutputStream out, int maxInFlight) {
+        this.dispatcher = dispatcher;
+        this.executor = executor;
+        this.in = in;
+        this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * Serves messages until the input ends, then waits for the pending ones
+     * and returns once their responses are written. The output is flushed
+     * but not closed.
+     */
+    void run() throws IOException, InterruptedException {
+        Thread writer = new Thread(this::writeLoop, "mcp-stdio-writer");
+        writer.setDaemon(true);
+        writer.start();
+        try {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            boolean more = true;
+            while (more) {
+                line.reset();
+                long size = readLine(line);
+                more = size >= 0;
+                if (size > dispatcher.getMaxRequestBytes()) {
+                    // The id cannot be known without reading the whole line
+                    RequestTooLargeException e = new RequestTooLargeException(dispatcher.getMaxRequestBytes());
+                    dispatcher.getMetrics().error(JsonRpcErrorCodes.INVALID_REQUEST);
+                    send(new JsonRpcResponse(new JsonRpcErrorObject(JsonRpcErrorCodes.INVALID_REQUEST, e.getMessage() + ".", null), null));
+                } else if (size > 0) {
+                    byte[] message = line.toByteArray();
+                    if (!isBlank(message)) {
+                        submit(message);
+                    }
+                }
+            }
+        } finally {
+            inFlight.acquire(maxInFlight);
+            outbound.add(END);
+            writer.join();
+        }
+    }
+
+    private void submit(byte[] message) throws InterruptedException {
+        inFlight.acquire();
+        Runnable task = () -> {
+            try {
+                handle(message);
+            } finally {
+                inFlight.release();
+            }
+        };
+        if (executor == null) {
+            task.run();
+            return;
+        }
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.run();
+        }
+    }
+
+    private void handle(byte[] message) {
+        Object payload;
+        try {
+            payload = dispatcher.dispatch(dispatcher.parse(new ByteArrayInputStream(message)), this::send);
+        } catch (Exception e) {
+            dispatcher.getAccessLog().error("Internal server error", e);
+            dispatcher.getMetrics().error(JsonRpcErrorCodes.INTERNAL_ERROR);
+            payload = new JsonRpcResponse(new JsonRpcErrorObject(JsonRpcErrorCodes.INTERNAL_ERROR, "Internal server error: " + e.getMessage(), e.getClass().getName()), null);
+        }
+        if (payload != null) {
+            send(payload);
+        }
+    }
+
+    /**
+     * Encodes a response or notification and queues it for the writer. It is
+     * dropped once the output has failed.
+     */
+    private void send(Object message) {
+        if (outputFailed) {
+            return;
+        }
+        String json;
+        try {
+            json = gson.toJson(message);
+        } catch (RuntimeException e) {
+            dispatcher.getAccessLog().error("Encoding a response failed", e);
+            Object id = message instanceof JsonRpcResponse ? ((JsonRpcResponse) message).getId() : null;
+            json = gson.toJson(new JsonRpcResponse(new JsonRpcErrorObject(JsonRpcErrorCodes.INTERNAL_ERROR,
+                    "Internal server error: " + e.getMessage(), e.getClass().getName()), id));
+        }
+        outbound.add(json);
+    }
+
+    private void writeLoop() {
+        try {
+            while (true) {
+                String line = outbound.take();
+                while (line != null) {
+                    if (line == END) {
+                        out.flush();
+                        return;
+                    }
+                    // Compact JSON has no line breaks, not even inside strings
+                    out.write(line);
+                    out.write('\n');
+                    line = outbound.poll();
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            outputFailed = true;
+            outbound.clear();
+            dispatcher.getAccessLog().error("Writing to the client failed, dropping further responses", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Reads a line into {@code line}, without its line break. Beyond the
+     * request limit the rest of the line is skipped rather than buffered.
+     *
+     * @return the length of the line, or {@code -1} at the end of the input
+     */
+    private long readLine(ByteArrayOutputStream line) throws IOException {
+        long max = dispatcher.getMaxRequestBytes();
+        long size = 0;
+        while (true) {
+            if (position == filled) {
+                int n = in.read(buffer);
+                if (n < 0) {
+                    return size == 0 ? -1 : size;
+                }
+                position = 0;
+                filled = n;
+            }
+            int start = position;
+            while (position < filled && buffer[position] != '\n') {
+                position++;
+            }
+            int n = position - start;
+            if (size <= max) {
+                line.write(buffer, start, (int) Math.min(n, max + 1 - size));
+            }
+            size += n;
+            if (position < filled) {
+                position++; // the line break
+                return size;
+            }
+        }
+    }
+
+    private static boolean isBlank(byte[] line) {
+        for (byte b : line) {
+            if (b != ' ' && b != '\t' && b != '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
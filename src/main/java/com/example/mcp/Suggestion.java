@@ -0,0 +1,31 @@
+package com.example.mcp;
+
+/**
+ * An autocomplete suggestion returned by {@code suggestContent}.
+ */
+public class Suggestion {
+    private final String term;
+    private final String text;
+    private final int docFreq;
+
+    public Suggestion(String term, String text, int docFreq) {
+        this.term = term;
+        this.text = text;
+        this.docFreq = docFreq;
+    }
+
+    /** Returns the suggested term. */
+    public String getTerm() {
+        return term;
+    }
+
+    /** Returns the input text with its last, partial term replaced by the suggestion. */
+    public String getText() {
+        return text;
+    }
+
+    /** Returns the number of documents containing the term. */
+    public int getDocFreq() {
+        return docFreq;
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.mcp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorted term dictionary of a {@link Segment} supporting autocomplete and
+ * fuzzy lookups without scanning the vocabulary.
+ *
+ * <p>Completions of a prefix form a contiguous range of the sorted terms,
+ * found by binary search. The most frequent terms of that range are taken
+ * from a max segment tree over the document frequencies, costing
+ * {@code O(k log n)} for {@code k} completions however many terms share the
+ * prefix.</p>
+ *
+ * <p>Fuzzy lookups treat the sorted terms as an implicit trie: the terms
+ * sharing a prefix form a range, split by binary search on the next
+ * character. The trie is walked depth first while computing one row of the
+ * Levenshtein table per character, and a branch is abandoned as soon as
+ * every cell of its row exceeds the edit limit. The work depends on how
+ * many prefixes lie within the edit limit of the query, which levels off as
+ * the vocabulary grows, rather than on the number of terms. As in most
+ * spell checkers, the first character of a fuzzy match has to be right.</p>
+ */
+class TermDictionary {
+    /** Maximum number of terms a fuzzy query term expands to. */
+    static final int MAX_EXPANSIONS = 16;
+
+    /**
+     * Number of leading characters a fuzzy match must share with the query.
+     * Within two edits nearly every short prefix is a match, so without a
+     * fixed prefix the top of the trie would be walked almost completely.
+     */
+    static final int FUZZY_PREFIX_LENGTH = 1;
+
+    private final String[] terms;
+    private final int[] docFreqs;
+    /** Max segment tree over {@link #docFreqs}; leaves at {@code n + i}, values are term ordinals. */
+    private final int[] maxTree;
+
+    /** A term of the dictionary with its document frequency and distance from a lookup. */
+    static final class Term {
+        final String text;
+        final int docFreq;
+        final int edits;
+
+        Term(String text, int docFreq, int edits) {
+            this.text = text;
+            this.docFreq = docFreq;
+            this.edits = edits;
+        }
+    }
+
+    private TermDictionary(String[] terms, int[] docFreqs) {
+        this.terms = terms;
+        this.docFreqs = docFreqs;
+        int n = terms.length;
+        this.maxTree = new int[2 * n];
+        for (int i = 0; i < n; i++) {
+            maxTree[n + i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            maxTree[i] = better(maxTree[2 * i], maxTree[2 * i + 1]);
+        }
+    }
+
+    /**
+     * Builds a dictionary. The terms need not be sorted; the arrays are
+     * taken over.
+     */
+    static TermDictionary build(String[] terms, int[] docFreqs) {
+        boolean sorted = true;
+        for (int i = 1; i < terms.length && sorted; i++) {
+            sorted = terms[i - 1].compareTo(terms[i]) < 0;
+        }
+        if (sorted) {
+            // Segment files store their terms in code point order, which is usually String order too
+            return new TermDictionary(terms, docFreqs);
+        }
+        Integer[] order = new Integer[terms.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> terms[a].compareTo(terms[b]));
+        String[] sortedTerms = new String[terms.length];
+        int[] sortedFreqs = new int[terms.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedTerms[i] = terms[order[i]];
+            sortedFreqs[i] = docFreqs[order[i]];
+        }
+        return new TermDictionary(sortedTerms, sortedFreqs);
+    }
+
+    int size() {
+        return terms.length;
+    }
+
+    /**
+     * Returns the number of edits tolerated for a term of the given length:
+     * none below three characters, one up to five, two from six on.
+     */
+    static int maxEdits(int length) {
+        return length < 3 ? 0 : length < 6 ? 1 : 2;
+    }
+
+    /**
+     * Returns up to {@code k} terms starting with {@code prefix}, most
+     * frequent first.
+     */
+    List<Term> complete(String prefix, int k) {
+        int lo = lowerBound(prefix);
+        int hi = lo;
+        int step = 1;
+        // Gallop, then binary search, for the end of the range of terms with the prefix
+        while (hi + step <= terms.length && terms[hi + step - 1].startsWith(prefix)) {
+            hi += step;
+            step <<= 1;
+        }
+        int end = Math.min(terms.length, hi + step);
+        while (hi < end) {
+            int mid = (hi + end) >>> 1;
+            if (terms[mid].startsWith(prefix)) {
+                hi = mid + 1;
+            } else {
+                end = mid;
+            }
+        }
+
+        List<Term> result = new ArrayList<>(Math.min(k, hi - lo));
+        PriorityQueue<int[]> ranges = new PriorityQueue<>((a, b) -> a[2] == b[2] ? 0 : better(a[2], b[2]) == a[2] ? -1 : 1);
+        if (lo < hi) {
+            ranges.add(new int[] {lo, hi, rangeMax(lo, hi)});
+        }
+        while (result.size() < k && !ranges.isEmpty()) {
+            int[] range = ranges.poll();
+            int best = range[2];
+            result.add(new Term(terms[best], docFreqs[best], 0));
+            if (range[0] < best) {
+                ranges.add(new int[] {range[0], best, rangeMax(range[0], best)});
+            }
+            if (best + 1 < range[1]) {
+                ranges.add(new int[] {best + 1, range[1], rangeMax(best + 1, range[1])});
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the terms within {@code maxEdits} edits of {@code term} that
+     * start with the same {@value #FUZZY_PREFIX_LENGTH} character,
+     * closest first and then most frequent first, at most
+     * {@value #MAX_EXPANSIONS}.
+     */
+    List<Term> fuzzy(String term, int maxEdits) {
+        List<Term> result = new ArrayList<>();
+        int m = term.length();
+        // One Levenshtein row per trie depth; a term is at most m + maxEdits long
+        int[][] rows = new int[m + maxEdits + 2][m + 1];
+        for (int j = 0; j <= m; j++) {
+            rows[0][j] = j;
+        }
+        walk(0, terms.length, 0, rows, term, maxEdits, result);
+        result.sort((a, b) -> a.edits != b.edits ? Integer.compare(a.edits, b.edits) : Integer.compare(b.docFreq, a.docFreq));
+        return result.size() > MAX_EXPANSIONS ? new ArrayList<>(result.subList(0, MAX_EXPANSIONS)) : result;
+    }
+
+    /**
+     * Visits the trie node of the terms in {@code [lo, hi)}, which share
+     * their first {@code depth} characters; {@code rows[depth]} holds the
+     * distances from that prefix to every prefix of the query.
+     */
+    private void walk(int lo, int hi, int depth, int[][] rows, String term, int maxEdits, List<Term> out) {
+        int m = term.length();
+        int[] row = rows[depth];
+        int i = lo;
+        if (i < hi && terms[i].length() == depth) {
+            if (row[m] <= maxEdits) {
+                out.add(new Term(terms[i], docFreqs[i], row[m]));
+            }
+            i++;
+        }
+        if (depth + 1 >= rows.length) {
+            return;
+        }
+        int[] next = rows[depth + 1];
+        while (i < hi) {
+            char c = terms[i].charAt(depth);
+            int end = childEnd(i, hi, depth, c);
+            if (depth < FUZZY_PREFIX_LENGTH && (depth >= m || c != term.charAt(depth))) {
+                i = end;
+                continue;
+            }
+            next[0] = row[0] + 1;
+            int min = next[0];
+            for (int j = 1; j <= m; j++) {
+                int cost = term.charAt(j - 1) == c ? 0 : 1;
+                next[j] = Math.min(row[j - 1] + cost, Math.min(row[j], next[j - 1]) + 1);
+                min = Math.min(min, next[j]);
+            }
+            if (min <= maxEdits) {
+                walk(i, end, depth + 1, rows, term, maxEdits, out);
+            }
+            i = end;
+        }
+    }
+
+    /** Returns the end of the run of terms in {@code [lo, hi)} with {@code c} at {@code depth}. */
+    private int childEnd(int lo, int hi, int depth, char c) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (terms[mid].charAt(depth) <= c) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private int lowerBound(String key) {
+        int lo = 0;
+        int hi = terms.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (terms[mid].compareTo(key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** Returns the ordinal with the highest document frequency in {@code [lo, hi)}. */
+    private int rangeMax(int lo, int hi) {
+        int n = terms.length;
+        int best = -1;
+        for (int l = lo + n, r = hi + n; l < r; l >>= 1, r >>= 1) {
+            if ((l & 1) == 1) {
+                best = better(best, maxTree[l++]);
+            }
+            if ((r & 1) == 1) {
+                best = better(best, maxTree[--r]);
+            }
+        }
+        return best;
+    }
+
+    /** Higher document frequency wins, then the lower ordinal. */
+    private int better(int a, int b) {
+        if (a < 0) {
+            return b;
+        }
+        if (b < 0) {
+            return a;
+        }
+        return docFreqs[a] > docFreqs[b] || (docFreqs[a] == docFreqs[b] && a < b) ? a : b;
+    }
+}
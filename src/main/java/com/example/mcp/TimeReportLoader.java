@@ -0,0 +1,508 @@
+package com.example.mcp;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk loads time entries from CSV or NDJSON exports into a
+ * {@link TimeReportStore}.
+ *
+ * <p>The file is memory-mapped and cut into chunks at line boundaries. The
+ * chunks are parsed in parallel on a fork-join pool, each into a
+ * {@link TimeReportStore.Batch}, and the batches are added to the store in
+ * file order as they complete, so the store's lock is taken once per chunk
+ * rather than once per entry. At most two chunks per worker are in flight,
+ * which bounds the memory used for parsed entries whatever the file size.</p>
+ *
+ * <p>A CSV file starts with a header naming its columns: {@code signature},
+ * {@code hours} and either {@code year} and {@code month} or {@code date}
+ * ({@code YYYY-MM} or {@code YYYY-MM-DD}); other columns are ignored.
+ * Fields may be quoted, but not span lines. An NDJSON file holds one JSON
+ * object per line with the same members. Hours are whole numbers. Lines
+ * that cannot be read are skipped and counted.</p>
+ */
+public class TimeReportLoader {
+    static final int DEFAULT_CHUNK_SIZE = 4 << 20;
+    /** Lines longer than this are not looked for beyond the end of a chunk. */
+    private static final int MAX_LINE_LENGTH = 64 * 1024;
+
+    /** Receives progress after every chunk added to the store. */
+    public interface Progress {
+        void report(LoadResult progress);
+    }
+
+    /** Counts of a finished or ongoing load. */
+    public static final class LoadResult {
+        private final long bytes;
+        private final long totalBytes;
+        private final long records;
+        private final long skipped;
+        private final String firstError;
+        private final long elapsedNanos;
+
+        LoadResult(long bytes, long totalBytes, long records, long skipped, String firstError, long elapsedNanos) {
+            this.bytes = bytes;
+            this.totalBytes = totalBytes;
+            this.records = records;
+            this.skipped = skipped;
+            this.firstError = firstError;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /** Returns the number of bytes read so far. */
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getTotalBytes() {
+            return totalBytes;
+        }
+
+        /** Returns the number of entries added to the store. */
+        public long getRecords() {
+            return records;
+        }
+
+        /** Returns the number of lines that could not be read. */
+        public long getSkipped() {
+            return skipped;
+        }
+
+        /** Returns a description of the first skipped line, or {@code null}. */
+        public String getFirstError() {
+            return firstError;
+        }
+
+        public long getElapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+        }
+
+        public double getRecordsPerSecond() {
+            return elapsedNanos == 0 ? 0 : records * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%d records (%d skipped) in %d ms, %.0f records/s",
+                    records, skipped, getElapsedMillis(), getRecordsPerSecond());
+        }
+    }
+
+    /** Where parsed batches are added. */
+    private interface Sink {
+        void addAll(TimeReportStore.Batch batch) throws IOException;
+    }
+
+    private final Sink sink;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+
+    /** Creates a loader adding to a store, parsing on the common fork-join pool. */
+    TimeReportLoader(TimeReportStore store) {
+        this(store::addAll, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    /** Creates a loader adding through a write-ahead log, parsing on the common fork-join pool. */
+    TimeReportLoader(TimeReportLog log) {
+        this(log::addAll, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+    TimeReportLoader(TimeReportStore store, ForkJoinPool pool, int chunkSize) {
+        this(store::addAll, pool, chunkSize);
+    }
+
+    private TimeReportLoader(Sink sink, ForkJoinPool pool, int chunkSize) {
+        this.sink = sink;
+        this.pool = pool;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Loads a file, choosing the format by its extension: {@code .csv},
+     * or {@code .ndjson} and {@code .jsonl}.
+     *
+     * @param progress receives progress after every chunk, or {@code null}
+     * @throws IllegalArgumentException if the format or the CSV header is not supported
+     * @throws IOException if the file cannot be read or has a line longer than
+     *         64 KiB; the chunks before that line have been added
+     */
+    public LoadResult load(Path file, Progress progress) throws IOException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        boolean csv;
+        if (name.endsWith(".csv")) {
+            csv = true;
+        } else if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+            csv = false;
+        } else {
+            throw new IllegalArgumentException("Unsupported file type: " + file);
+        }
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long length = channel.size();
+            long offset = 0;
+            int[] columns = null;
+            if (csv) {
+                // The header is read here, and the first chunk starts after it
+                MappedByteBuffer head = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(length, MAX_LINE_LENGTH));
+                int end = lineEnd(head, 0, head.limit());
+                CsvLine header = new CsvLine();
+                header.split(head, 0, end);
+                columns = csvColumns(header);
+                offset = Math.min(length, end + 1L);
+            }
+
+            long dataStart = offset;
+            int parallelism = Math.max(1, pool.getParallelism());
+            Deque<ForkJoinTask<Chunk>> inFlight = new ArrayDeque<>();
+            Deque<Long> inFlightEnds = new ArrayDeque<>();
+            long records = 0;
+            long skipped = 0;
+            long lines = csv ? 1 : 0;
+            String firstError = null;
+            while (offset < length || !inFlight.isEmpty()) {
+                while (offset < length && inFlight.size() < 2 * parallelism) {
+                    long chunkEnd = Math.min(length, offset + chunkSize);
+                    long mapEnd = Math.min(length, chunkEnd + MAX_LINE_LENGTH);
+                    // Later chunks are mapped from the byte before them to tell
+                    // whether they start with a line or in the middle of one
+                    boolean first = offset == dataStart;
+                    long mapStart = first ? offset : offset - 1;
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+                    int[] chunkColumns = columns;
+                    int limit = (int) (chunkEnd - mapStart);
+                    boolean atEnd = mapEnd == length;
+                    inFlight.add(pool.submit(() -> parse(buffer, first, limit, atEnd, chunkColumns)));
+                    inFlightEnds.add(chunkEnd);
+                    offset = chunkEnd;
+                }
+                Chunk chunk = inFlight.poll().join();
+                long done = inFlightEnds.poll();
+                if (chunk.error != null) {
+                    throw new IOException(chunk.error);
+                }
+                sink.addAll(chunk.batch);
+                records += chunk.batch.size();
+                skipped += chunk.skipped;
+                if (firstError == null && chunk.firstError != null) {
+                    firstError = "line " + (lines + chunk.firstErrorLine) + ": " + chunk.firstError;
+                }
+                lines += chunk.lines;
+                if (progress != null) {
+                    progress.report(new LoadResult(done, length, records, skipped, firstError, System.nanoTime() - start));
+                }
+            }
+            return new LoadResult(length, length, records, skipped, firstError, System.nanoTime() - start);
+        }
+    }
+
+    /** Entries and counts parsed from one chunk. */
+    private static final class Chunk {
+        final TimeReportStore.Batch batch = new TimeReportStore.Batch();
+        int lines;
+        int skipped;
+        String firstError;
+        int firstErrorLine;
+        String error;
+
+        void skip(String message) {
+            if (firstError == null) {
+                firstError = message;
+                firstErrorLine = lines;
+            }
+            skipped++;
+        }
+    }
+
+    /**
+     * Parses the lines starting before {@code limit} in the buffer, reading
+     * the last of them past it. Unless this is the first chunk, the buffer
+     * starts with the last byte of the previous chunk, and everything up to
+     * the first newline belongs to a line the previous chunk has read.
+     *
+     * @param atEnd   whether the buffer ends at the end of the file
+     * @param columns the CSV column of signature, year, month, date and hours, or {@code null} for NDJSON
+     */
+    private static Chunk parse(MappedByteBuffer buffer, boolean first, int limit, boolean atEnd, int[] columns) {
+        Chunk chunk = new Chunk();
+        CsvLine line = columns == null ? null : new CsvLine();
+        int end = buffer.limit();
+        int position = first ? 0 : lineEnd(buffer, 0, end) + 1;
+        while (position < limit) {
+            int lineEnd = lineEnd(buffer, position, end);
+            if (lineEnd == end && !atEnd) {
+                chunk.error = "Line longer than " + MAX_LINE_LENGTH + " bytes";
+                return chunk;
+            }
+            chunk.lines++;
+            int contentEnd = lineEnd > position && buffer.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+            if (contentEnd > position) {
+                try {
+                    if (columns != null) {
+                        line.split(buffer, position, contentEnd);
+                        parseCsv(line, columns, chunk.batch);
+                    } else {
+                        parseJson(new String(bytes(buffer, position, contentEnd), StandardCharsets.UTF_8), chunk.batch);
+                    }
+                } catch (IllegalArgumentException | IOException | IllegalStateException e) {
+                    chunk.skip(e.getMessage());
+                }
+            }
+            position = lineEnd + 1;
+        }
+        return chunk;
+    }
+
+    /** Returns the position of the next newline at or after {@code from}, or {@code end}. */
+    private static int lineEnd(MappedByteBuffer buffer, int from, int end) {
+        for (int i = from; i < end; i++) {
+            if (buffer.get(i) == '\n') {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private static byte[] bytes(MappedByteBuffer buffer, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        buffer.get(from, bytes);
+        return bytes;
+    }
+
+    private static final int SIGNATURE = 0;
+    private static final int YEAR = 1;
+    private static final int MONTH = 2;
+    private static final int DATE = 3;
+    private static final int HOURS = 4;
+
+    /** Maps the header fields to the column of each known field, -1 if absent. */
+    private static int[] csvColumns(CsvLine header) {
+        int[] columns = {-1, -1, -1, -1, -1};
+        String[] names = {"signature", "year", "month", "date", "hours"};
+        List<String> fields = new ArrayList<>();
+        for (int i = 0; i < header.count; i++) {
+            String field = header.string(i).strip().toLowerCase(Locale.ROOT);
+            fields.add(field);
+            for (int k = 0; k < names.length; k++) {
+                if (field.equals(names[k])) {
+                    columns[k] = i;
+                }
+            }
+        }
+        if (columns[SIGNATURE] < 0 || columns[HOURS] < 0
+                || (columns[DATE] < 0 && (columns[YEAR] < 0 || columns[MONTH] < 0))) {
+            throw new IllegalArgumentException("CSV header must name signature, hours and either date or year and month: "
+                    + fields);
+        }
+        return columns;
+    }
+
+    private static void parseCsv(CsvLine line, int[] columns, TimeReportStore.Batch batch) {
+        String signature = line.string(columns[SIGNATURE]);
+        int hours = line.integer(columns[HOURS], "hours");
+        if (columns[DATE] >= 0) {
+            int date = columns[DATE];
+            int from = date < line.count ? line.starts[date] : 0;
+            int length = date < line.count ? line.ends[date] - from : 0;
+            if (length < 7 || line.buffer.get(from + 4) != '-'
+                    || (length > 7 && line.buffer.get(from + 7) != '-')) {
+                addDated(batch, signature, line.string(date), hours);
+            } else {
+                add(batch, signature, line.number(from, from + 4, "date"), line.number(from + 5, from + 7, "date"), hours);
+            }
+        } else {
+            add(batch, signature, line.integer(columns[YEAR], "year"), line.integer(columns[MONTH], "month"), hours);
+        }
+    }
+
+    private static void parseJson(String line, TimeReportStore.Batch batch) throws IOException {
+        String signature = null;
+        String date = null;
+        int year = -1;
+        int month = -1;
+        Integer hours = null;
+        JsonReader reader = new JsonReader(new StringReader(line));
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (reader.peek() == JsonToken.NULL) {
+                reader.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "signature":
+                    signature = reader.nextString();
+                    break;
+                case "date":
+                    date = reader.nextString();
+                    break;
+                case "year":
+                    year = reader.nextInt();
+                    break;
+                case "month":
+                    month = reader.nextInt();
+                    break;
+                case "hours":
+                    hours = reader.nextInt();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (hours == null) {
+            throw new IllegalArgumentException("Missing hours");
+        }
+        if (date != null) {
+            addDated(batch, signature, date, hours);
+        } else {
+            add(batch, signature, year, month, hours);
+        }
+    }
+
+    /** Adds an entry dated {@code YYYY-MM} or {@code YYYY-MM-DD}. */
+    private static void addDated(TimeReportStore.Batch batch, String signature, String date, int hours) {
+        date = date.strip();
+        if (date.length() < 7 || date.charAt(4) != '-' || (date.length() > 7 && date.charAt(7) != '-')) {
+            throw new IllegalArgumentException("Invalid date '" + date + "'");
+        }
+        add(batch, signature, parseInt(date.substring(0, 4), "date"), parseInt(date.substring(5, 7), "date"), hours);
+    }
+
+    private static void add(TimeReportStore.Batch batch, String signature, int year, int month, int hours) {
+        if (signature == null || signature.isEmpty()) {
+            throw new IllegalArgumentException("Missing signature");
+        }
+        if (year < 1 || year > 9999 || month < 1 || month > 12) {
+            throw new IllegalArgumentException("Invalid year or month " + year + "-" + month);
+        }
+        batch.add(signature, year, month, hours);
+    }
+
+    private static int parseInt(String value, String field) {
+        try {
+            return Integer.parseInt(value.strip());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + field + " '" + value + "'");
+        }
+    }
+
+    /**
+     * The field positions of a CSV line, reused for every line of a chunk.
+     * Fields are only decoded when asked for, and numbers are parsed
+     * straight from the bytes, so a line costs one string, its signature.
+     */
+    private static final class CsvLine {
+        MappedByteBuffer buffer;
+        int[] starts = new int[8];
+        int[] ends = new int[8];
+        /** Bit {@code i} is set if field {@code i} contains doubled quotes. */
+        long escaped;
+        int count;
+
+        /** Finds the fields of the line; quoted fields exclude their quotes. */
+        void split(MappedByteBuffer buffer, int from, int to) {
+            this.buffer = buffer;
+            count = 0;
+            escaped = 0;
+            int i = from;
+            while (true) {
+                if (count == starts.length) {
+                    starts = Arrays.copyOf(starts, count * 2);
+                    ends = Arrays.copyOf(ends, count * 2);
+                }
+                if (i < to && buffer.get(i) == '"') {
+                    starts[count] = ++i;
+                    while (true) {
+                        if (i >= to) {
+                            throw new IllegalArgumentException("Unterminated quoted field");
+                        }
+                        if (buffer.get(i) == '"') {
+                            if (i + 1 < to && buffer.get(i + 1) == '"') {
+                                if (count < Long.SIZE) {
+                                    escaped |= 1L << count;
+                                }
+                                i += 2;
+                                continue;
+                            }
+                            break;
+                        }
+                        i++;
+                    }
+                    ends[count++] = i++;
+                } else {
+                    starts[count] = i;
+                    while (i < to && buffer.get(i) != ',') {
+                        i++;
+                    }
+                    ends[count++] = i;
+                }
+                if (i >= to) {
+                    return;
+                }
+                if (buffer.get(i) != ',') {
+                    throw new IllegalArgumentException("Expected ',' after quoted field");
+                }
+                i++;
+            }
+        }
+
+        String string(int column) {
+            check(column);
+            String value = new String(bytes(buffer, starts[column], ends[column]), StandardCharsets.UTF_8);
+            return column < Long.SIZE && (escaped & (1L << column)) == 0 ? value : value.replace("\"\"", "\"");
+        }
+
+        int integer(int column, String field) {
+            check(column);
+            return number(starts[column], ends[column], field);
+        }
+
+        /** Parses an optionally signed decimal number between spaces. */
+        int number(int from, int to, String field) {
+            while (from < to && buffer.get(from) == ' ') {
+                from++;
+            }
+            while (to > from && buffer.get(to - 1) == ' ') {
+                to--;
+            }
+            boolean negative = from < to && buffer.get(from) == '-';
+            int i = negative || (from < to && buffer.get(from) == '+') ? from + 1 : from;
+            if (i == to || to - i > 9) {
+                // Empty, or possibly too large for a quick parse
+                return parseInt(new String(bytes(buffer, from, to), StandardCharsets.UTF_8), field);
+            }
+            int value = 0;
+            for (; i < to; i++) {
+                int digit = buffer.get(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    throw new IllegalArgumentException("Invalid " + field + " '"
+                            + new String(bytes(buffer, from, to), StandardCharsets.UTF_8) + "'");
+                }
+                value = value * 10 + digit;
+            }
+            return negative ? -value : value;
+        }
+
+        private void check(int column) {
+            if (column >= count) {
+                throw new IllegalArgumentException("Expected at least " + (column + 1) + " fields, got " + count);
+            }
+        }
+    }
+}
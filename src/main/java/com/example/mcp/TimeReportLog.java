@@ -0,0 +1,526 @@
+package com.example.mcp;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Makes the writes to a {@link TimeReportStore} durable with a write-ahead
+ * log and snapshots in a data directory.
+ *
+ * <p>Every write is appended to the current log file as a checksummed frame
+ * and applied to the store once the frame is on disk. Writers arriving while
+ * the log is being forced queue their frames, and the next force covers all
+ * of them, so concurrent writers share one {@code fsync} instead of paying
+ * for one each. Frames are applied in the order they were logged, the order
+ * replay applies them in, so a write that failed because a total would
+ * overflow fails the same way on replay and every other write succeeds
+ * again.</p>
+ *
+ * <p>When the log has grown past a threshold, a snapshot of the store is
+ * written in the background: the log is rolled over to a new generation,
+ * the entries are copied while writers are briefly held back, and
+ * {@code snapshot-N.bin} is written and moved into place. It holds
+ * everything logged before generation {@code N}, so older logs and
+ * snapshots are deleted afterwards. {@link #open} loads the newest snapshot
+ * and replays the logs from its generation on; a torn frame at the end of a
+ * log, left by a crash during a write, ends that log's replay. A data
+ * directory must only be opened by one log at a time.</p>
+ */
+class TimeReportLog implements Closeable {
+    static final long DEFAULT_SNAPSHOT_BYTES = 64L << 20;
+    private static final long SNAPSHOT_MAGIC = 0x3130504E53525454L;
+    private static final int VERSION = 1;
+    private static final String LOG_PREFIX = "log-";
+    private static final String LOG_SUFFIX = ".wal";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+
+    private final Path dir;
+    private final TimeReportStore store;
+    private final long snapshotBytes;
+    private final long replayed;
+    /** Held shared from appending a write until it is applied, exclusively to roll the log. */
+    private final ReentrantReadWriteLock rollLock = new ReentrantReadWriteLock();
+    private final Object snapshotLock = new Object();
+    private final ExecutorService snapshotter = Executors.newSingleThreadExecutor(
+            new ExecutionMode.NamedThreadFactory("time-report-snapshot-"));
+
+    // Group commit state, guarded by lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushed = lock.newCondition();
+    private final Condition appliedCondition = lock.newCondition();
+    private FileChannel log;
+    private long generation;
+    private long logSize;
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private long appended;
+    private long durable;
+    /** Sequence number of the last frame applied to the store. */
+    private long applied;
+    private boolean flushing;
+    private IOException failure;
+    private boolean snapshotScheduled;
+    private boolean closed;
+
+    private TimeReportLog(Path dir, TimeReportStore store, long snapshotBytes, long generation, long replayed)
+            throws IOException {
+        this.dir = dir;
+        this.store = store;
+        this.snapshotBytes = snapshotBytes;
+        this.generation = generation;
+        this.replayed = replayed;
+        this.log = openLog(generation);
+    }
+
+    /**
+     * Loads the data directory into an empty store and starts a new log
+     * generation for further writes.
+     */
+    static TimeReportLog open(Path dir, TimeReportStore store) throws IOException {
+        return open(dir, store, DEFAULT_SNAPSHOT_BYTES);
+    }
+
+    /**
+     * Loads the data directory into an empty store and starts a new log
+     * generation for further writes.
+     *
+     * @param snapshotBytes the log size after which a snapshot is written
+     */
+    static TimeReportLog open(Path dir, TimeReportStore store, long snapshotBytes) throws IOException {
+        Files.createDirectories(dir);
+        long snapshotGeneration = -1;
+        for (long g : generations(dir, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX, true)) {
+            try {
+                readSnapshot(dir.resolve(SNAPSHOT_PREFIX + g + SNAPSHOT_SUFFIX), store);
+                snapshotGeneration = g;
+                break;
+            } catch (IOException e) {
+                System.err.println("Skipping unreadable snapshot " + g + ": " + e.getMessage());
+                if (store.signatureCount() > 0) {
+                    throw new IOException("Snapshot " + g + " was partly loaded", e);
+                }
+            }
+        }
+        long lastGeneration = Math.max(snapshotGeneration, 0);
+        long replayed = 0;
+        for (long g : generations(dir, LOG_PREFIX, LOG_SUFFIX, false)) {
+            if (g >= snapshotGeneration) {
+                replayed += replay(dir.resolve(LOG_PREFIX + g + LOG_SUFFIX), store);
+            }
+            lastGeneration = Math.max(lastGeneration, g);
+        }
+        return new TimeReportLog(dir, store, snapshotBytes, lastGeneration + 1, replayed);
+    }
+
+    /** Returns the number of entries replayed from logs by {@link #open}. */
+    long replayed() {
+        return replayed;
+    }
+
+    /**
+     * Adds hours to the store once they are logged.
+     *
+     * @throws IOException if the log cannot be written
+     * @throws ArithmeticException if the total overflows an {@code int}
+     */
+    void add(String signature, int year, int month, int hours) throws IOException {
+        TimeReportStore.Batch batch = new TimeReportStore.Batch();
+        batch.add(signature, year, month, hours);
+        addAll(batch);
+    }
+
+    /**
+     * Adds a batch to the store once it is logged.
+     *
+     * @throws IOException if the log cannot be written
+     * @throws ArithmeticException if a total overflows an {@code int}
+     */
+    void addAll(TimeReportStore.Batch batch) throws IOException {
+        append(batch, false);
+    }
+
+    /**
+     * Records a batch in the store with {@link TimeReportStore#record(TimeReportStore.Batch)}
+     * once it is logged, so concurrent writers share the log's {@code fsync}
+     * and do not contend on the store's lock.
+     *
+     * @throws IOException if the log cannot be written
+     * @throws ArithmeticException if a total would overflow an {@code int}
+     */
+    void record(TimeReportStore.Batch batch) throws IOException {
+        append(batch, true);
+    }
+
+    private void append(TimeReportStore.Batch batch, boolean record) throws IOException {
+        if (batch.size() == 0) {
+            return;
+        }
+        byte[] frame = frame(batch);
+        boolean snapshot;
+        rollLock.readLock().lock();
+        try {
+            long sequence;
+            lock.lock();
+            try {
+                if (closed) {
+                    throw new IOException("The time report log is closed");
+                }
+                pending.write(frame);
+                sequence = ++appended;
+            } finally {
+                lock.unlock();
+            }
+            IOException notLogged = null;
+            try {
+                awaitDurable(sequence);
+            } catch (IOException e) {
+                notLogged = e;
+            }
+            awaitTurn(sequence);
+            try {
+                if (notLogged != null) {
+                    throw notLogged;
+                }
+                if (record) {
+                    store.record(batch);
+                } else {
+                    store.addAll(batch);
+                }
+            } finally {
+                lock.lock();
+                try {
+                    applied = sequence;
+                    appliedCondition.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+            lock.lock();
+            try {
+                snapshot = logSize > snapshotBytes && !snapshotScheduled && !closed;
+                if (snapshot) {
+                    snapshotScheduled = true;
+                }
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            rollLock.readLock().unlock();
+        }
+        if (snapshot) {
+            try {
+                snapshotter.execute(() -> {
+                    try {
+                        snapshot();
+                    } catch (IOException e) {
+                        System.err.println("Time report snapshot failed: " + e.getMessage());
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Closed meanwhile; close() writes the snapshot
+            }
+        }
+    }
+
+    /**
+     * Waits until the frames logged before the given sequence number have
+     * been applied, or given up on after a failure.
+     */
+    private void awaitTurn(long sequence) {
+        lock.lock();
+        try {
+            while (applied < sequence - 1) {
+                appliedCondition.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until the frame with the given sequence number is on disk. The
+     * first waiter writes and forces everything pending; the others wait for
+     * it and find their frames written along with it.
+     */
+    private void awaitDurable(long sequence) throws IOException {
+        lock.lock();
+        try {
+            while (durable < sequence) {
+                if (failure != null) {
+                    throw new IOException("The time report log failed", failure);
+                }
+                if (flushing) {
+                    flushed.awaitUninterruptibly();
+                    continue;
+                }
+                flushing = true;
+                ByteBuffer data = ByteBuffer.wrap(pending.toByteArray());
+                pending = new ByteArrayOutputStream();
+                long target = appended;
+                FileChannel channel = log;
+                IOException error = null;
+                lock.unlock();
+                try {
+                    while (data.hasRemaining()) {
+                        channel.write(data);
+                    }
+                    channel.force(false);
+                } catch (IOException e) {
+                    error = e;
+                } finally {
+                    lock.lock();
+                }
+                flushing = false;
+                if (error != null) {
+                    failure = error;
+                } else {
+                    durable = target;
+                    logSize += data.limit();
+                }
+                flushed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Writes a snapshot of the store and deletes the logs and snapshots it
+     * replaces. Writers wait only while the log is rolled over and the
+     * entries are copied, not while the snapshot is written.
+     */
+    void snapshot() throws IOException {
+        synchronized (snapshotLock) {
+            byte[] image;
+            long snapshotGeneration;
+            rollLock.writeLock().lock();
+            try {
+                // Every logged write has been applied, and none is in flight
+                lock.lock();
+                try {
+                    snapshotScheduled = false;
+                    if (failure != null) {
+                        throw new IOException("The time report log failed", failure);
+                    }
+                    FileChannel next = openLog(generation + 1);
+                    log.close();
+                    log = next;
+                    generation++;
+                    logSize = 0;
+                    snapshotGeneration = generation;
+                } finally {
+                    lock.unlock();
+                }
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                store.write(new DataOutputStream(bytes));
+                image = bytes.toByteArray();
+            } finally {
+                rollLock.writeLock().unlock();
+            }
+
+            writeSnapshot(snapshotGeneration, image);
+            for (long g : generations(dir, LOG_PREFIX, LOG_SUFFIX, false)) {
+                if (g < snapshotGeneration) {
+                    Files.deleteIfExists(dir.resolve(LOG_PREFIX + g + LOG_SUFFIX));
+                }
+            }
+            for (long g : generations(dir, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX, false)) {
+                if (g < snapshotGeneration) {
+                    Files.deleteIfExists(dir.resolve(SNAPSHOT_PREFIX + g + SNAPSHOT_SUFFIX));
+                }
+            }
+        }
+    }
+
+    /** Writes a final snapshot and closes the log. Later writes fail. */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        snapshotter.shutdown();
+        try {
+            snapshot();
+        } finally {
+            lock.lock();
+            try {
+                log.close();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private FileChannel openLog(long generation) throws IOException {
+        return FileChannel.open(dir.resolve(LOG_PREFIX + generation + LOG_SUFFIX),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Encodes a batch as a log frame: its length and CRC-32, then the
+     * number of entries and each entry's signature, month index and hours.
+     */
+    private static byte[] frame(TimeReportStore.Batch batch) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + batch.size() * 16);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0);
+        out.writeInt(0);
+        out.writeInt(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            out.writeUTF(batch.signature(i));
+            out.writeInt(batch.month(i));
+            out.writeInt(batch.hours(i));
+        }
+        byte[] frame = bytes.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(frame, 8, frame.length - 8);
+        ByteBuffer.wrap(frame).putInt(frame.length - 8).putInt((int) crc.getValue());
+        return frame;
+    }
+
+    /** Applies the frames of a log to the store; returns the number of entries. */
+    private static long replay(Path file, TimeReportStore store) throws IOException {
+        long entries = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    return entries;
+                }
+                byte[] payload;
+                int checksum;
+                try {
+                    checksum = in.readInt();
+                    if (length < 4) {
+                        throw new EOFException();
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    System.err.println("Ignoring incomplete frame at the end of " + file.getFileName());
+                    return entries;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    System.err.println("Ignoring corrupt frame and the rest of " + file.getFileName());
+                    return entries;
+                }
+                DataInputStream frame = new DataInputStream(new ByteArrayInputStream(payload));
+                TimeReportStore.Batch batch = new TimeReportStore.Batch();
+                int count = frame.readInt();
+                for (int i = 0; i < count; i++) {
+                    String signature = frame.readUTF();
+                    int monthIndex = frame.readInt();
+                    batch.add(signature, monthIndex / 12, monthIndex % 12 + 1, frame.readInt());
+                }
+                try {
+                    store.addAll(batch);
+                    entries += count;
+                } catch (ArithmeticException e) {
+                    // The write failed the same way when it was made
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a snapshot file: magic number, version, length and CRC-32 of
+     * the entries, then the entries as written by {@link TimeReportStore#write}.
+     */
+    private void writeSnapshot(long generation, byte[] image) throws IOException {
+        Path target = dir.resolve(SNAPSHOT_PREFIX + generation + SNAPSHOT_SUFFIX);
+        Path temp = dir.resolve(target.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        crc.update(image);
+        ByteBuffer header = ByteBuffer.allocate(24)
+                .putLong(SNAPSHOT_MAGIC).putInt(VERSION).putInt(image.length).putLong(crc.getValue());
+        header.flip();
+        try (FileChannel channel = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer body = ByteBuffer.wrap(image);
+            while (header.hasRemaining() || body.hasRemaining()) {
+                channel.write(new ByteBuffer[] {header, body});
+            }
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        try (FileChannel directory = FileChannel.open(dir, StandardOpenOption.READ)) {
+            directory.force(true);
+        } catch (IOException e) {
+            // Not every platform can sync a directory; the move is atomic regardless
+        }
+    }
+
+    private static void readSnapshot(Path file, TimeReportStore store) throws IOException {
+        try (InputStream stream = Files.newInputStream(file)) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+            if (in.readLong() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a time report snapshot");
+            }
+            if (in.readInt() != VERSION) {
+                throw new IOException("Unsupported snapshot version");
+            }
+            byte[] image = new byte[in.readInt()];
+            long checksum = in.readLong();
+            in.readFully(image);
+            CRC32 crc = new CRC32();
+            crc.update(image);
+            if (crc.getValue() != checksum) {
+                throw new IOException("Checksum mismatch");
+            }
+            store.read(new DataInputStream(new ByteArrayInputStream(image)));
+        }
+    }
+
+    /** Returns the generations of the files with the prefix and suffix, in ascending or descending order. */
+    private static List<Long> generations(Path dir, String prefix, String suffix, boolean descending) throws IOException {
+        List<Long> generations = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(file -> {
+                String name = file.getFileName().toString();
+                if (name.startsWith(prefix) && name.endsWith(suffix)) {
+                    try {
+                        generations.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())));
+                    } catch (NumberFormatException e) {
+                        // Not one of ours
+                    }
+                }
+            });
+        }
+        generations.sort(descending ? Comparator.reverseOrder() : Comparator.naturalOrder());
+        return generations;
+    }
+}
@@ -1,23 +1,122 @@
 package com.example.mcp;
 
-import java.time.YearMonth;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 /**
  * Simple implementation of a model context protocol (MCP) for time report statistics.
  */
-public class TimeReportMCP {
+public class TimeReportMCP implements McpTool {
 
-    private final Map<YearMonth, List<TimeReportEntry>> data = new HashMap<>();
+    /** Parameters of the {@code getTimeReportStats} JSON-RPC method. */
+    public record GetTimeReportStatsParams(int year, int month) {
+    }
+
+    /** Parameters of the {@code getTimeReportTotals} JSON-RPC method. */
+    public record GetTimeReportTotalsParams(int fromYear, int fromMonth, int toYear, int toMonth,
+            String signatures, String groupBy) {
+    }
+
+    /** Parameters of the {@code recordTimeEntry} JSON-RPC method. */
+    public record RecordTimeEntryParams(String signature, int year, int month, int hours) {
+    }
+
+    /** Most hours one entry may add or, if negative, take back: a 31-day month. */
+    static final int MAX_ENTRY_HOURS = 744;
+    /** Most entries one {@code recordTimeEntries} call may carry. */
+    static final int MAX_BATCH_ENTRIES = 10_000;
+
+    private static final ParamSchema ENTRY_SCHEMA = new ParamSchema(
+            ParamSpec.string("signature", "The signature reporting the hours."),
+            ParamSpec.integer("year", "The year of the hours.", 1, 9999),
+            ParamSpec.integer("month", "The month of the hours (1-12).", 1, 12),
+            ParamSpec.integer("hours", "The hours to add; negative to correct earlier entries.",
+                    -MAX_ENTRY_HOURS, MAX_ENTRY_HOURS));
+
+    private final TimeReportStore store;
+    private final TimeReportLog log;
 
     public TimeReportMCP() {
+        this(new TimeReportStore());
         // load fixtures
-        List<TimeReportEntry> entries = new ArrayList<>();
-        entries.add(new TimeReportEntry("NH", 80));
-        data.put(YearMonth.of(2025, 5), entries);
+        store.add("NH", 2025, 5, 80);
+    }
+
+    /** Creates a time report MCP serving the hours of the given store. */
+    TimeReportMCP(TimeReportStore store) {
+        this(store, null);
+    }
+
+    /**
+     * Creates a time report MCP serving the hours of the given store and
+     * recording new hours through the log, unless it is {@code null}.
+     */
+    TimeReportMCP(TimeReportStore store, TimeReportLog log) {
+        this.store = store;
+        this.log = log;
+    }
+
+    @Override
+    public void registerMethods(ToolRegistry registry) {
+        registry.register(new MethodSpec<>("getTimeReportStats",
+                "Fetches time report statistics for a given year and month.",
+                new ParamSchema(
+                        ParamSpec.integer("year", "The year for the report.", 1, 9999),
+                        ParamSpec.integer("month", "The month for the report (1-12).", 1, 12)),
+                v -> new GetTimeReportStatsParams(v.getInt(0), v.getInt(1)),
+                (params, context) -> store.month(params.year(), params.month())));
+        registry.register(new MethodSpec<>("getTimeReportTotals",
+                "Sums reported hours over a range of months, optionally per signature, month, quarter or year.",
+                new ParamSchema(
+                        ParamSpec.integer("fromYear", "The first year of the range.", 1, 9999),
+                        ParamSpec.integer("fromMonth", "The first month of the range (1-12).", 1, 12),
+                        ParamSpec.integer("toYear", "The last year of the range.", 1, 9999),
+                        ParamSpec.integer("toMonth", "The last month of the range (1-12), inclusive.", 1, 12),
+                        ParamSpec.optionalString("signatures", "Comma-separated signatures to include; all if omitted."),
+                        ParamSpec.optionalString("groupBy", "Comma-separated grouping: signature and/or one of month, quarter, year.")),
+                v -> new GetTimeReportTotalsParams(v.getInt(0), v.getInt(1), v.getInt(2), v.getInt(3), v.getString(4), v.getString(5)),
+                (params, context) -> {
+                    try {
+                        return getTimeReportTotals(params.fromYear(), params.fromMonth(), params.toYear(), params.toMonth(),
+                                params.signatures(), params.groupBy());
+                    } catch (IllegalArgumentException e) {
+                        throw new JsonRpcException(JsonRpcErrorCodes.INVALID_PARAMS, e.getMessage());
+                    }
+                }));
+        registry.register(new MethodSpec<>("recordTimeEntry",
+                "Adds hours reported by a signature in a given year and month.",
+                ENTRY_SCHEMA,
+                v -> new RecordTimeEntryParams(v.getString(0), v.getInt(1), v.getInt(2), v.getInt(3)),
+                (params, context) -> {
+                    try {
+                        recordTimeEntry(params.signature(), params.year(), params.month(), params.hours());
+                    } catch (ArithmeticException e) {
+                        throw overflow();
+                    }
+                    return Map.of("recorded", 1);
+                }));
+        registry.register(new MethodSpec<>("recordTimeEntries",
+                "Adds a batch of reported hours; readers see either all of them or none.",
+                new ParamSchema(ParamSpec.array("entries",
+                        "The entries, each with signature, year, month and hours.", ENTRY_SCHEMA, MAX_BATCH_ENTRIES)),
+                v -> {
+                    TimeReportStore.Batch batch = new TimeReportStore.Batch();
+                    for (ParamValues entry : v.getArray(0)) {
+                        batch.add(entry.getString(0), entry.getInt(1), entry.getInt(2), entry.getInt(3));
+                    }
+                    return batch;
+                },
+                (batch, context) -> {
+                    try {
+                        record(batch);
+                    } catch (ArithmeticException e) {
+                        throw overflow();
+                    }
+                    return Map.of("recorded", batch.size());
+                }));
     }
 
     /**
@@ -28,6 +127,89 @@ public class TimeReportMCP {
      * @return list of time report entries
      */
     public List<TimeReportEntry> getTimeReportStats(int year, int month) {
-        return data.getOrDefault(YearMonth.of(year, month), new ArrayList<>());
+        return store.month(year, month).toList();
+    }
+
+    /**
+     * Returns the hours reported from {@code fromYear-fromMonth} to
+     * {@code toYear-toMonth}, both inclusive, summed per group.
+     *
+     * @param signatures comma-separated signatures to include, or {@code null} for all
+     * @param groupBy    comma-separated grouping, {@code signature} and/or one of
+     *                   {@code month}, {@code quarter} and {@code year}; {@code null}
+     *                   for a single total
+     * @return the totals of the groups that have hours, or the single total
+     * @throws IllegalArgumentException if the range is empty or the grouping is invalid
+     */
+    public List<TimeReportTotal> getTimeReportTotals(int fromYear, int fromMonth, int toYear, int toMonth,
+            String signatures, String groupBy) {
+        int from = TimeReportStore.monthIndex(fromYear, fromMonth);
+        int to = TimeReportStore.monthIndex(toYear, toMonth);
+        if (from > to) {
+            throw new IllegalArgumentException("The range must not end before it starts.");
+        }
+        boolean bySignature = false;
+        TimeReportStore.Period period = null;
+        for (String item : split(groupBy)) {
+            String group = item.toLowerCase(Locale.ROOT);
+            if (group.equals("signature")) {
+                bySignature = true;
+                continue;
+            }
+            TimeReportStore.Period groupPeriod;
+            try {
+                groupPeriod = TimeReportStore.Period.valueOf(group.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown grouping '" + group + "'.");
+            }
+            if (period != null && period != groupPeriod) {
+                throw new IllegalArgumentException("Results can be grouped by only one of month, quarter and year.");
+            }
+            period = groupPeriod;
+        }
+        return store.totals(from, to, signatures == null ? null : split(signatures), bySignature, period);
+    }
+
+    /**
+     * Adds hours reported by a signature in the given month. Many threads
+     * may record at once; with a log, the call returns once the hours are
+     * durable.
+     *
+     * @throws IOException if the hours cannot be logged
+     * @throws ArithmeticException if the total would overflow an {@code int}; the hours are not recorded then
+     */
+    public void recordTimeEntry(String signature, int year, int month, int hours) throws IOException {
+        if (log == null) {
+            store.record(signature, year, month, hours);
+        } else {
+            TimeReportStore.Batch batch = new TimeReportStore.Batch();
+            batch.add(signature, year, month, hours);
+            log.record(batch);
+        }
+    }
+
+    private void record(TimeReportStore.Batch batch) throws IOException {
+        if (log == null) {
+            store.record(batch);
+        } else {
+            log.record(batch);
+        }
+    }
+
+    private static JsonRpcException overflow() {
+        return new JsonRpcException(JsonRpcErrorCodes.INVALID_PARAMS,
+                "The hours would overflow a total; nothing was recorded.");
+    }
+
+    private static List<String> split(String list) {
+        List<String> items = new ArrayList<>();
+        if (list != null) {
+            for (String item : list.split(",")) {
+                if (!item.isBlank()) {
+                    items.add(item.strip());
+                }
+            }
+        }
+        return items;
     }
 }
@@ -2,23 +2,32 @@ package com.example.mcp;
 
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
-import com.sun.net.httpserver.HttpServer;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.JsonSyntaxException;
 import com.example.mcp.JsonRpcRequest;
 import com.example.mcp.JsonRpcResponse;
 import com.example.mcp.JsonRpcErrorObject;
 import com.example.mcp.JsonRpcErrorCodes;
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.InetSocketAddress;
 import java.net.URI;
+import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -29,11 +38,15 @@ import java.util.stream.Stream;
 public class TimeReportMCPServer {
 
     private static final String BASE_PATH = "/sse";
+    private static final String MESSAGE_PATH = BASE_PATH + "/message";
 
-    private final HttpServer server;
-    // These fields are kept as they are passed to MainSsePostHandler.
-    private final TimeReportMCP mcp;
-    private final SearchMCP searchMcp;
+    private final HttpTransport server;
+    private final ExecutionMode executionMode;
+    private final TransportMode transportMode;
+    private final ExecutorService executor;
+    private final SseSessionManager sseSessions;
+    private final JsonRpcDispatcher dispatcher;
+    private final MainSsePostHandler mainHandler;
 
     /**
      * Creates a new server bound to the given port using a default
@@ -56,22 +69,130 @@ public class TimeReportMCPServer {
     }
 
     /**
-     * Creates a new server bound to the given port using the provided MCPs.
+     * Creates a new server bound to the given port using the provided MCPs and
+     * the {@linkplain ExecutionMode#defaultMode() default execution mode}.
      */
     public TimeReportMCPServer(TimeReportMCP mcp, SearchMCP searchMcp, int port) throws IOException {
-        this.mcp = mcp;
-        this.searchMcp = searchMcp;
+        this(mcp, searchMcp, port, ExecutionMode.defaultMode(), ExecutionMode.defaultPoolSize());
+    }
+
+    /**
+     * Creates a new server bound to the given port using the provided MCPs.
+     *
+     * @param mode     how request handlers are executed
+     * @param poolSize number of worker threads when {@code mode} is {@link ExecutionMode#POOLED}
+     */
+    public TimeReportMCPServer(TimeReportMCP mcp, SearchMCP searchMcp, int port,
+                               ExecutionMode mode, int poolSize) throws IOException {
+        this(mcp, searchMcp, port, mode, poolSize, TransportMode.JDK);
+    }
+
+    /**
+     * Creates a new server bound to the given port using the provided MCPs.
+     *
+     * @param mode      how request handlers are executed
+     * @param poolSize  number of worker threads when {@code mode} is {@link ExecutionMode#POOLED}
+     * @param transport the HTTP engine serving the endpoints
+     */
+    public TimeReportMCPServer(TimeReportMCP mcp, SearchMCP searchMcp, int port,
+                               ExecutionMode mode, int poolSize, TransportMode transport) throws IOException {
+        this(new ToolRegistry().register(mcp).register(searchMcp), port, mode, poolSize, transport);
+    }
 
-        server = HttpServer.create(new InetSocketAddress(port), 0);
+    /**
+     * Creates a new server bound to the given port serving the methods of the
+     * given registry. The registry is snapshotted, so tools registered later
+     * are not served.
+     *
+     * @param mode     how request handlers are executed
+     * @param poolSize number of worker threads when {@code mode} is {@link ExecutionMode#POOLED}
+     */
+    public TimeReportMCPServer(ToolRegistry tools, int port, ExecutionMode mode, int poolSize) throws IOException {
+        this(tools, port, mode, poolSize, TransportMode.JDK);
+    }
+
+    /**
+     * Creates a new server bound to the given port serving the methods of the
+     * given registry over the given transport.
+     *
+     * @param mode      how request handlers are executed
+     * @param poolSize  number of worker threads when {@code mode} is {@link ExecutionMode#POOLED}
+     * @param transport the HTTP engine serving the endpoints
+     */
+    public TimeReportMCPServer(ToolRegistry tools, int port, ExecutionMode mode, int poolSize,
+                               TransportMode transport) throws IOException {
+        this.executionMode = mode;
+        this.transportMode = transport;
+
+        executor = mode.newExecutor(poolSize);
+        // A null executor keeps the legacy behaviour of handling requests one at a time
+        server = transport.create(new InetSocketAddress(port), executor);
+
+        dispatcher = newDispatcher(tools, executor);
+        ServerMetrics metrics = dispatcher.getMetrics();
 
         // Path for manifest, e.g., /sse/.well-known/mcp.json
-        // (ManifestHandler was updated in a previous subtask to reflect the single /sse endpoint)
+        // Generated once from the same method specs the dispatcher serves
+        McpManifest manifest = McpManifest.build(dispatcher.getMethods().values(), BASE_PATH, MESSAGE_PATH);
         server.createContext(BASE_PATH + "/.well-known/mcp.json",
-                new LoggingHandler(new ManifestHandler()));
+                new LoggingHandler(new ManifestHandler(manifest), dispatcher));
+
+        // Request metrics for monitoring, e.g., /sse/metrics
+        server.createContext(BASE_PATH + "/metrics",
+                new LoggingHandler(new MetricsHandler(metrics), dispatcher));
+
+        sseSessions = new SseSessionManager(MESSAGE_PATH);
 
-        // Main tool invocation endpoint, e.g., /sse (handles POST)
+        // Main tool invocation endpoint, e.g., /sse (POST for request/response, GET for the event stream)
+        mainHandler = new MainSsePostHandler(dispatcher, sseSessions);
         server.createContext(BASE_PATH, // BASE_PATH is typically "/sse"
-                new LoggingHandler(new MainSsePostHandler(mcp, searchMcp)));
+                new LoggingHandler(mainHandler, dispatcher));
+
+        // Companion message endpoint of the SSE transport, e.g., /sse/message?sessionId=...
+        server.createContext(MESSAGE_PATH,
+                new LoggingHandler(new SseMessageHandler(dispatcher, sseSessions), dispatcher));
+    }
+
+    /**
+     * Creates the dispatcher for the methods of the registry. The dispatch
+     * table is fixed at this point; the server adds its own statistics to the
+     * registered tools.
+     */
+    static JsonRpcDispatcher newDispatcher(ToolRegistry tools, Executor executor) {
+        ServerMetrics metrics = new ServerMetrics();
+        Map<String, MethodSpec<?>> methods = new LinkedHashMap<>(tools.snapshot());
+        methods.putIfAbsent("getServerStats", new MethodSpec<>("getServerStats",
+                "Returns request counts, error counts and latency percentiles per method, and HTTP traffic of the server.",
+                new ParamSchema(),
+                v -> null,
+                (params, context) -> metrics.toMap()));
+        return new JsonRpcDispatcher(Collections.unmodifiableMap(methods), executor, metrics);
+    }
+
+    /**
+     * Serves the methods of the registry over a pair of streams instead of
+     * HTTP, one JSON-RPC message per line, until the input ends. Requests run
+     * concurrently and responses are written as they complete, in any order.
+     *
+     * @param accessLog receives the errors; closed before returning
+     * @see StdioTransport
+     */
+    static void serveStdio(ToolRegistry tools, ExecutionMode mode, int poolSize, long maxRequestBytes,
+                           AccessLog accessLog, InputStream in, OutputStream out) throws IOException {
+        ExecutorService executor = mode.newExecutor(poolSize);
+        JsonRpcDispatcher dispatcher = newDispatcher(tools, executor);
+        dispatcher.setMaxRequestBytes(maxRequestBytes);
+        dispatcher.setAccessLog(accessLog);
+        try {
+            new StdioTransport(dispatcher, executor, in, out).run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
+            }
+            closeAccessLog(accessLog);
+        }
     }
 
     /** Starts the server. */
@@ -81,7 +202,68 @@ public class TimeReportMCPServer {
 
     /** Stops the server after the given delay. */
     public void stop(int delay) {
+        sseSessions.closeAll(); // open event streams would otherwise hold up the shutdown
         server.stop(delay);
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(Math.max(delay, 1), TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        closeAccessLog(dispatcher.getAccessLog());
+    }
+
+    /**
+     * Replaces the access log. Without one, only failed requests and errors
+     * are logged, to standard error. The previous log is closed; the new one
+     * is closed when the server stops.
+     */
+    void setAccessLog(AccessLog accessLog) {
+        AccessLog previous = dispatcher.getAccessLog();
+        dispatcher.setAccessLog(accessLog);
+        closeAccessLog(previous);
+    }
+
+    private static void closeAccessLog(AccessLog accessLog) {
+        if (accessLog == AccessLog.standardError()) {
+            return; // Shared by every dispatcher without a log of its own
+        }
+        try {
+            accessLog.close();
+        } catch (IOException e) {
+            System.err.println("Closing the access log failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Sets the maximum size of a JSON-RPC request body. Larger requests are
+     * rejected with {@code 413 Payload Too Large} while they are being read.
+     * Defaults to 1 MiB.
+     */
+    public void setMaxRequestBytes(long maxRequestBytes) {
+        dispatcher.setMaxRequestBytes(maxRequestBytes);
+        server.setMaxRequestBytes(maxRequestBytes);
+    }
+
+    /**
+     * Sets the size from which JSON-RPC responses are compressed for clients
+     * that accept gzip or deflate, up to 16 KiB; a negative size turns
+     * compression off. Defaults to 1 KiB.
+     */
+    public void setCompressionThreshold(int compressionThreshold) {
+        mainHandler.compressionThreshold = compressionThreshold;
+    }
+
+    /** Returns the execution mode requests are handled with. */
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    /** Returns the HTTP engine the endpoints are served by. */
+    public TransportMode getTransportMode() {
+        return transportMode;
     }
 
     /** Returns the port the server is bound to. */
@@ -89,80 +271,124 @@ public class TimeReportMCPServer {
         return server.getAddress().getPort();
     }
 
-    /** Simple handler that logs inbound requests before delegating. */
+    /**
+     * Handler that writes an access log entry for every request it delegates,
+     * once the delegate returns. The bodies are wrapped to count their bytes.
+     * For an event stream the entry is written when the stream opens.
+     */
     static class LoggingHandler implements HttpHandler {
         private final HttpHandler delegate;
+        private final JsonRpcDispatcher dispatcher;
 
-        LoggingHandler(HttpHandler delegate) {
+        /**
+         * @param dispatcher whose access log the entries are written to
+         */
+        LoggingHandler(HttpHandler delegate, JsonRpcDispatcher dispatcher) {
             this.delegate = delegate;
+            this.dispatcher = dispatcher;
         }
 
         @Override
         public void handle(HttpExchange exchange) throws IOException {
-            String method = exchange.getRequestMethod();
-            URI uri = exchange.getRequestURI();
-            System.out.println("[DEBUG] Received " + method + " " + uri);
-            delegate.handle(exchange);
+            long start = System.nanoTime();
+            // Counts only; the handlers enforce their own limits
+            LimitedInputStream in = new LimitedInputStream(exchange.getRequestBody(), Long.MAX_VALUE);
+            CountingOutputStream out = new CountingOutputStream(exchange.getResponseBody());
+            exchange.setStreams(in, out);
+            Throwable error = null;
+            try {
+                delegate.handle(exchange);
+            } catch (IOException | RuntimeException e) {
+                error = e;
+                throw e;
+            } finally {
+                dispatcher.getAccessLog().request(exchange, start, in.count(), out.count(), error);
+            }
         }
     }
 
-    /** Handler returning a simple manifest describing available endpoints. */
+    /**
+     * Handler returning the manifest describing available endpoints. The
+     * manifest is pre-encoded, so a request costs a header lookup and a copy;
+     * conditional requests carrying the current entity tag get a bodyless
+     * {@code 304 Not Modified}.
+     */
     static class ManifestHandler implements HttpHandler {
+        static final String CACHE_CONTROL = "public, max-age=300";
+
+        private final McpManifest manifest;
+
+        ManifestHandler(McpManifest manifest) {
+            this.manifest = manifest;
+        }
+
         @Override
         public void handle(HttpExchange exchange) throws IOException {
-            if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+            String method = exchange.getRequestMethod();
+            boolean head = "HEAD".equalsIgnoreCase(method);
+            if (!head && !"GET".equalsIgnoreCase(method)) {
                 exchange.sendResponseHeaders(405, -1);
+                exchange.close();
+                return;
+            }
+
+            boolean gzip = acceptsGzip(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+            exchange.getResponseHeaders().set("ETag", gzip ? manifest.getGzipEtag() : manifest.getEtag());
+            exchange.getResponseHeaders().set("Cache-Control", CACHE_CONTROL);
+            exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+            if (manifest.matches(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
                 return;
             }
 
-            String json = "{" +
-                "\"version\": \"1.2\"," +
-                "\"description\": \"MCP service manifest defining JSON-RPC 2.0 methods.\"," +
-                "\"service_endpoint\": {" +
-                    "\"path\": \"" + BASE_PATH + "\"," +
-                    "\"protocol\": \"json-rpc-2.0\"," +
-                    "\"http_method\": \"POST\"" +
-                "}," +
-                "\"methods\": [" +
-                    "{" +
-                        "\"name\": \"getTimeReportStats\"," +
-                        "\"description\": \"Fetches time report statistics for a given year and month.\"," +
-                        "\"params_schema\": {" + // Renamed from parameters_schema for consistency with example, though task said "parameters_schema"
-                            "\"type\": \"object\"," +
-                            "\"properties\": {" +
-                                "\"year\": {\"type\": \"integer\", \"description\": \"The year for the report.\"}," +
-                                "\"month\": {\"type\": \"integer\", \"description\": \"The month for the report (1-12).\"}" +
-                            "}," +
-                            "\"required\": [\"year\", \"month\"]" +
-                        "}" +
-                    "}," +
-                    "{" +
-                        "\"name\": \"searchContent\"," +
-                        "\"description\": \"Searches for content based on a query string.\"," +
-                        "\"params_schema\": {" +
-                            "\"type\": \"object\"," +
-                            "\"properties\": {" +
-                                "\"query\": {\"type\": \"string\", \"description\": \"The search query.\"}" +
-                            "}," +
-                            "\"required\": [\"query\"]" +
-                        "}" +
-                    "}," +
-                    "{" +
-                        "\"name\": \"fetchContent\"," +
-                        "\"description\": \"Fetches a specific content item by its ID.\"," +
-                        "\"params_schema\": {" +
-                            "\"type\": \"object\"," +
-                            "\"properties\": {" +
-                                "\"id\": {\"type\": \"string\", \"description\": \"The ID of the content to fetch.\"}" +
-                            "}," +
-                            "\"required\": [\"id\"]" +
-                        "}" +
-                    "}" +
-                "]" +
-            "}";
-
-            byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
-            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            byte[] bytes = manifest.getJson();
+            if (gzip) {
+                bytes = manifest.getGzip();
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            if (head) {
+                exchange.getResponseHeaders().set("Content-Length", Integer.toString(bytes.length));
+                exchange.sendResponseHeaders(200, -1);
+                exchange.close();
+                return;
+            }
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(bytes);
+            }
+        }
+
+        /** Returns whether an {@code Accept-Encoding} value allows gzip (with a non-zero quality). */
+        static boolean acceptsGzip(String acceptEncoding) {
+            return ContentCoding.quality(acceptEncoding, "gzip") > 0;
+        }
+    }
+
+    /**
+     * Handler returning the request metrics of the server as JSON, the same
+     * as the {@code getServerStats} method, for monitoring systems that poll
+     * over plain HTTP.
+     */
+    static class MetricsHandler implements HttpHandler {
+        private final ServerMetrics metrics;
+        private final Gson gson = new GsonBuilder().create();
+
+        MetricsHandler(ServerMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                exchange.close();
+                return;
+            }
+            byte[] bytes = gson.toJson(metrics.toMap()).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.getResponseHeaders().set("Cache-Control", "no-store");
             exchange.sendResponseHeaders(200, bytes.length);
             try (OutputStream os = exchange.getResponseBody()) {
                 os.write(bytes);
@@ -171,155 +397,124 @@ public class TimeReportMCPServer {
     }
 
     static class MainSsePostHandler implements HttpHandler {
-        private final TimeReportMCP timeReportMcp;
-        private final SearchMCP searchMcp;
+        private final JsonRpcDispatcher dispatcher;
+        private final SseSessionManager sseSessions;
         private final Gson gson;
+        volatile int compressionThreshold = ResponseBodyStream.DEFAULT_COMPRESSION_THRESHOLD;
 
-        MainSsePostHandler(TimeReportMCP timeReportMcp, SearchMCP searchMcp) {
-            this.timeReportMcp = timeReportMcp;
-            this.searchMcp = searchMcp;
+        MainSsePostHandler(JsonRpcDispatcher dispatcher, SseSessionManager sseSessions) {
+            this.dispatcher = dispatcher;
+            this.sseSessions = sseSessions;
             this.gson = new GsonBuilder().create();
         }
 
         @Override
         public void handle(HttpExchange exchange) throws IOException {
+            if ("GET".equalsIgnoreCase(exchange.getRequestMethod())) {
+                sseSessions.open(exchange);
+                return;
+            }
             if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
-                sendHttpErrorResponse(exchange, 405, "Method Not Allowed. Only POST is supported for JSON-RPC.");
+                sendHttpErrorResponse(exchange, 405, "Method Not Allowed. Use POST for JSON-RPC or GET to open an event stream.");
                 return;
             }
 
-            Object requestId = null;
-
+            ServerMetrics metrics = dispatcher.getMetrics();
+            long start = metrics.httpStarted();
+            // Only counts the bytes; the dispatcher enforces the size limit
+            LimitedInputStream requestBodyStream = new LimitedInputStream(exchange.getRequestBody(), Long.MAX_VALUE);
+            long responseBytes = 0;
             try {
-                String requestBodyString;
-                try (InputStream requestBodyStream = exchange.getRequestBody()) {
-                    requestBodyString = new String(requestBodyStream.readAllBytes(), StandardCharsets.UTF_8);
-                } catch (IOException e) {
-                    System.err.println("Error reading request body: " + e.getMessage());
-                    JsonRpcErrorObject error = new JsonRpcErrorObject(JsonRpcErrorCodes.PARSE_ERROR, "Failed to read request body.", e.getMessage());
-                    sendJsonRpcErrorResponse(exchange, error, null);
-                    return;
-                }
-
-                if (requestBodyString.isEmpty()) {
-                    JsonRpcErrorObject error = new JsonRpcErrorObject(JsonRpcErrorCodes.INVALID_REQUEST, "Request body is empty.", null);
-                    sendJsonRpcErrorResponse(exchange, error, null);
+                Object payload;
+                try (InputStream in = requestBodyStream) {
+                    payload = dispatcher.handle(in);
+                } catch (RequestTooLargeException e) {
+                    responseBytes = sendHttpErrorResponse(exchange, 413, "Payload Too Large. " + e.getMessage() + ".");
                     return;
                 }
-
-                JsonRpcRequest jsonRpcRequest;
-                try {
-                    jsonRpcRequest = gson.fromJson(requestBodyString, JsonRpcRequest.class);
-                    if (jsonRpcRequest != null) {
-                        requestId = jsonRpcRequest.getId();
-                    } else {
-                        JsonRpcErrorObject error = new JsonRpcErrorObject(JsonRpcErrorCodes.PARSE_ERROR, "Parse error: Malformed JSON or input was 'null'.", requestBodyString);
-                        sendJsonRpcErrorResponse(exchange, error, null);
-                        return;
-                    }
-                } catch (JsonSyntaxException e) {
-                    JsonRpcErrorObject error = new JsonRpcErrorObject(JsonRpcErrorCodes.PARSE_ERROR, "Parse error: " + e.getMessage(), requestBodyString);
-                    sendJsonRpcErrorResponse(exchange, error, null);
-                    return;
-                }
-
-                if (jsonRpcRequest.getJsonrpc() == null || !jsonRpcRequest.getJsonrpc().equals("2.0")) {
-                    JsonRpcErrorObject error = new JsonRpcErrorObject(JsonRpcErrorCodes.INVALID_REQUEST, "'jsonrpc' version must be '2.0'.", jsonRpcRequest.getJsonrpc());
-                    sendJsonRpcErrorResponse(exchange, error, requestId);
-                    return;
+                if (payload == null) {
+                    sendNoContent(exchange); // Notifications only
+                } else {
+                    responseBytes = streamJson(exchange, payload);
                 }
 
-                if (jsonRpcRequest.getMethod() == null || jsonRpcRequest.getMethod().trim().isEmpty()) {
-                    JsonRpcErrorObject error = new JsonRpcErrorObject(JsonRpcErrorCodes.INVALID_REQUEST, "'method' must be provided.", jsonRpcRequest.getMethod());
-                    sendJsonRpcErrorResponse(exchange, error, requestId);
-                    return;
-                }
+            } catch (Exception e) {
+                dispatcher.getAccessLog().error("Internal server error", e);
+                JsonRpcErrorObject error = new JsonRpcErrorObject(JsonRpcErrorCodes.INTERNAL_ERROR, "Internal server error: " + e.getMessage(), e.getClass().getName());
+                metrics.error(error.getCode());
+                responseBytes = sendJsonRpcErrorResponse(exchange, error, null);
+            } finally {
+                metrics.httpFinished(start, requestBodyStream.count(), responseBytes);
+            }
+        }
 
-                String methodName = jsonRpcRequest.getMethod();
-                Object paramsObject = jsonRpcRequest.getParams();
-                Map<String, Object> paramsMap = null;
+        private int sendJsonRpcSuccessResponse(HttpExchange exchange, JsonRpcResponse response) throws IOException {
+            return sendJson(exchange, gson.toJson(response));
+        }
 
-                if (paramsObject == null) {
-                    paramsMap = Map.of();
-                } else if (paramsObject instanceof Map) {
-                    paramsMap = (Map<String, Object>) paramsObject;
+        /**
+         * Encodes the payload straight into the response body. Results are
+         * written as Gson produces them, a month report from its columns and
+         * a cached result as its bytes, so a large response is sent in chunks
+         * while it is being encoded instead of being built in memory first.
+         * If encoding fails before anything was sent, the exception is
+         * thrown for an error response; afterwards the response is cut off.
+         * Large responses are compressed if the client accepts it.
+         *
+         * @return the number of body bytes written, after compression
+         */
+        private long streamJson(HttpExchange exchange, Object payload) throws IOException {
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+            ContentCoding coding = ContentCoding.negotiate(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+            ResponseBodyStream body = new ResponseBodyStream(exchange, 200, coding, compressionThreshold);
+            try {
+                if (payload instanceof JsonRpcResponse
+                        && ((JsonRpcResponse) payload).getResult() instanceof EncodedJson) {
+                    // Cached result: write the encoded bytes inside the envelope
+                    JsonRpcResponse response = (JsonRpcResponse) payload;
+                    ((EncodedJson) response.getResult()).writeEnvelope(body, gson.toJson(response.getId()));
                 } else {
-                    JsonRpcErrorObject error = new JsonRpcErrorObject(JsonRpcErrorCodes.INVALID_PARAMS, "Invalid params: Parameters must be a JSON object or null.", paramsObject.getClass().getName());
-                    sendJsonRpcErrorResponse(exchange, error, requestId);
-                    return;
+                    // OutputStreamWriter allocates for every string written to it; JsonWriter writes many small ones
+                    Writer writer = new BufferedWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8));
+                    gson.toJson(payload, writer);
+                    writer.flush();
                 }
-
-                Object resultPayload;
-                try {
-                    switch (methodName) {
-                        case "getTimeReportStats":
-                            if (!paramsMap.containsKey("year") || !paramsMap.containsKey("month")) {
-                                JsonRpcErrorObject error = new JsonRpcErrorObject(JsonRpcErrorCodes.INVALID_PARAMS, "Missing 'year' or 'month' parameter for getTimeReportStats.", paramsMap);
-                                sendJsonRpcErrorResponse(exchange, error, requestId);
-                                return;
-                            }
-                            int year = ((Number) paramsMap.get("year")).intValue();
-                            int month = ((Number) paramsMap.get("month")).intValue();
-                            resultPayload = timeReportMcp.getTimeReportStats(year, month);
-                            break;
-                        case "searchContent":
-                            if (!paramsMap.containsKey("query")) {
-                                JsonRpcErrorObject error = new JsonRpcErrorObject(JsonRpcErrorCodes.INVALID_PARAMS, "Missing 'query' parameter for searchContent.", paramsMap);
-                                sendJsonRpcErrorResponse(exchange, error, requestId);
-                                return;
-                            }
-                            String query = (String) paramsMap.get("query");
-                            resultPayload = Map.of("results", searchMcp.search(query));
-                            break;
-                        case "fetchContent":
-                            if (!paramsMap.containsKey("id")) {
-                                JsonRpcErrorObject error = new JsonRpcErrorObject(JsonRpcErrorCodes.INVALID_PARAMS, "Missing 'id' parameter for fetchContent.", paramsMap);
-                                sendJsonRpcErrorResponse(exchange, error, requestId);
-                                return;
-                            }
-                            String id = (String) paramsMap.get("id");
-                            resultPayload = searchMcp.fetch(id);
-                            break;
-                        default:
-                            JsonRpcErrorObject error = new JsonRpcErrorObject(JsonRpcErrorCodes.METHOD_NOT_FOUND, "Method not found: " + methodName, methodName);
-                            sendJsonRpcErrorResponse(exchange, error, requestId);
-                            return;
-                    }
-                } catch (ClassCastException | NullPointerException e) {
-                    JsonRpcErrorObject error = new JsonRpcErrorObject(JsonRpcErrorCodes.INVALID_PARAMS, "Invalid parameter type or structure: " + e.getMessage(), paramsMap);
-                    sendJsonRpcErrorResponse(exchange, error, requestId);
-                    return;
+                body.close();
+            } catch (IOException | RuntimeException e) {
+                if (!body.isCommitted()) {
+                    throw e;
                 }
-
-                if (requestId != null) {
-                    JsonRpcResponse response = new JsonRpcResponse(resultPayload, requestId);
-                    sendJsonRpcSuccessResponse(exchange, response);
-                }
-
-            } catch (Exception e) {
-                System.err.println("Internal server error: " + e.getMessage());
-                e.printStackTrace();
-                JsonRpcErrorObject error = new JsonRpcErrorObject(JsonRpcErrorCodes.INTERNAL_ERROR, "Internal server error: " + e.getMessage(), e.getClass().getName());
-                sendJsonRpcErrorResponse(exchange, error, requestId);
+                dispatcher.getAccessLog().error("Response to " + exchange.getRemoteAddress() + " cut off", e);
+                exchange.close();
             }
+            return body.size();
+        }
+
+        private int sendJson(HttpExchange exchange, String jsonResponseString) throws IOException {
+            return sendJson(exchange, jsonResponseString.getBytes(StandardCharsets.UTF_8));
         }
 
-        private void sendJsonRpcSuccessResponse(HttpExchange exchange, JsonRpcResponse response) throws IOException {
-            String jsonResponseString = gson.toJson(response);
+        private int sendJson(HttpExchange exchange, byte[] bytes) throws IOException {
             exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
-            byte[] bytes = jsonResponseString.getBytes(StandardCharsets.UTF_8);
             exchange.sendResponseHeaders(200, bytes.length);
             try (OutputStream os = exchange.getResponseBody()) {
                 os.write(bytes);
             }
+            return bytes.length;
         }
 
-        private void sendJsonRpcErrorResponse(HttpExchange exchange, JsonRpcErrorObject error, Object id) throws IOException {
+        private int sendJsonRpcErrorResponse(HttpExchange exchange, JsonRpcErrorObject error, Object id) throws IOException {
             JsonRpcResponse response = new JsonRpcResponse(error, id);
-            sendJsonRpcSuccessResponse(exchange, response); // JSON-RPC errors are still sent with HTTP 200
+            return sendJsonRpcSuccessResponse(exchange, response); // JSON-RPC errors are still sent with HTTP 200
+        }
+
+        private void sendNoContent(HttpExchange exchange) throws IOException {
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
         }
 
-        private void sendHttpErrorResponse(HttpExchange exchange, int statusCode, String errorMessage) throws IOException {
+        private int sendHttpErrorResponse(HttpExchange exchange, int statusCode, String errorMessage) throws IOException {
             Map<String, String> errorPayload = Map.of("error", errorMessage, "note", "This is an HTTP-level error, not a JSON-RPC structured error.");
             String jsonResponse = gson.toJson(errorPayload);
             exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
@@ -328,20 +523,226 @@ public class TimeReportMCPServer {
             try (OutputStream os = exchange.getResponseBody()) {
                 os.write(bytes);
             }
+            return bytes.length;
+        }
+    }
+
+    /**
+     * Receives the client-to-server messages of an SSE session. The POST is
+     * acknowledged with {@code 202 Accepted} right away and the JSON-RPC
+     * response is pushed on the session's event stream once it is ready.
+     */
+    static class SseMessageHandler implements HttpHandler {
+        private final JsonRpcDispatcher dispatcher;
+        private final SseSessionManager sseSessions;
+        private final Gson gson;
+
+        SseMessageHandler(JsonRpcDispatcher dispatcher, SseSessionManager sseSessions) {
+            this.dispatcher = dispatcher;
+            this.sseSessions = sseSessions;
+            this.gson = new GsonBuilder().create();
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                exchange.close();
+                return;
+            }
+            SseSession session = sseSessions.get(queryParameter(exchange.getRequestURI(), "sessionId"));
+            if (session == null) {
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+                return;
+            }
+
+            JsonRpcMessage message;
+            try (InputStream requestBodyStream = exchange.getRequestBody()) {
+                message = dispatcher.parse(requestBodyStream);
+            } catch (RequestTooLargeException e) {
+                exchange.sendResponseHeaders(413, -1);
+                exchange.close();
+                return;
+            }
+            exchange.sendResponseHeaders(202, -1);
+            exchange.close();
+
+            Object payload;
+            try {
+                payload = dispatcher.dispatch(message, notification -> {
+                    try {
+                        session.send("message", gson.toJson(notification));
+                    } catch (IOException e) {
+                        // The client is gone; the response below will be dropped as well
+                    }
+                });
+            } catch (Exception e) {
+                dispatcher.getAccessLog().error("Internal server error", e);
+                payload = new JsonRpcResponse(new JsonRpcErrorObject(JsonRpcErrorCodes.INTERNAL_ERROR, "Internal server error: " + e.getMessage(), e.getClass().getName()), null);
+            }
+            if (payload != null) {
+                try {
+                    session.send("message", gson.toJson(payload));
+                } catch (IOException e) {
+                    dispatcher.getAccessLog().error("Dropping response for closed SSE session " + session.getId(), e);
+                }
+            }
+        }
+    }
+
+    /** Returns the first value of a query parameter, or {@code null} if absent. */
+    static String queryParameter(URI uri, String name) {
+        String query = uri.getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            if (key.equals(name)) {
+                return eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            }
         }
+        return null;
     }
 
-    /** Simple main entry point starting the server on a port. */
+    /**
+     * Simple main entry point starting the server on a port.
+     *
+     * <p>Usage: {@code [port] [--executor=virtual|pooled|single] [--pool-size=N] [--transport=jdk|nio] [--max-request-bytes=N]
+     * [--segment=FILE] [--data-dir=DIR] [--time-entries=FILE]... [--access-log=FILE|-] [--access-log-sample=RATE]
+     * [--compression-threshold=BYTES] [--stdio]}</p>
+     *
+     * <p>The access log goes to standard output unless {@code --access-log}
+     * names a file. With {@code --stdio} no port is opened: JSON-RPC messages
+     * are read from standard input and answered on standard output, one per
+     * line, and the access log goes to standard error instead.</p>
+     */
     public static void main(String[] args) throws IOException {
         int port = 8080;
-        if (args.length > 0) {
-            try {
-                port = Integer.parseInt(args[0]);
-            } catch (NumberFormatException e) {
-                System.err.println("Invalid port specified, using default 8080");
+        ExecutionMode mode = ExecutionMode.defaultMode();
+        int poolSize = ExecutionMode.defaultPoolSize();
+        TransportMode transport = TransportMode.JDK;
+        long maxRequestBytes = JsonRpcRequestParser.DEFAULT_MAX_REQUEST_BYTES;
+        String segmentFile = null;
+        List<String> timeEntryFiles = new ArrayList<>();
+        String dataDir = null;
+        String accessLogFile = "-";
+        double accessLogSample = 1;
+        int compressionThreshold = ResponseBodyStream.DEFAULT_COMPRESSION_THRESHOLD;
+        boolean stdio = false;
+        for (String arg : args) {
+            if (arg.equals("--stdio")) {
+                stdio = true;
+            } else if (arg.startsWith("--executor=")) {
+                try {
+                    mode = ExecutionMode.parse(arg.substring("--executor=".length()));
+                } catch (IllegalArgumentException e) {
+                    System.err.println("Invalid executor specified, using " + mode);
+                }
+            } else if (arg.startsWith("--pool-size=")) {
+                try {
+                    poolSize = Integer.parseInt(arg.substring("--pool-size=".length()));
+                } catch (NumberFormatException e) {
+                    System.err.println("Invalid pool size specified, using " + poolSize);
+                }
+            } else if (arg.startsWith("--transport=")) {
+                try {
+                    transport = TransportMode.parse(arg.substring("--transport=".length()));
+                } catch (IllegalArgumentException e) {
+                    System.err.println("Invalid transport specified, using " + transport);
+                }
+            } else if (arg.startsWith("--max-request-bytes=")) {
+                try {
+                    maxRequestBytes = Long.parseLong(arg.substring("--max-request-bytes=".length()));
+                } catch (NumberFormatException e) {
+                    System.err.println("Invalid maximum request size specified, using " + maxRequestBytes);
+                }
+            } else if (arg.startsWith("--compression-threshold=")) {
+                try {
+                    compressionThreshold = Integer.parseInt(arg.substring("--compression-threshold=".length()));
+                } catch (NumberFormatException e) {
+                    System.err.println("Invalid compression threshold specified, using " + compressionThreshold);
+                }
+            } else if (arg.startsWith("--segment=")) {
+                segmentFile = arg.substring("--segment=".length());
+            } else if (arg.startsWith("--data-dir=")) {
+                dataDir = arg.substring("--data-dir=".length());
+            } else if (arg.startsWith("--time-entries=")) {
+                timeEntryFiles.add(arg.substring("--time-entries=".length()));
+            } else if (arg.startsWith("--access-log=")) {
+                accessLogFile = arg.substring("--access-log=".length());
+            } else if (arg.startsWith("--access-log-sample=")) {
+                try {
+                    double rate = Double.parseDouble(arg.substring("--access-log-sample=".length()));
+                    if (!(rate >= 0 && rate <= 1)) {
+                        throw new NumberFormatException();
+                    }
+                    accessLogSample = rate;
+                } catch (NumberFormatException e) {
+                    System.err.println("Invalid access log sample rate specified, using " + accessLogSample);
+                }
+            } else {
+                try {
+                    port = Integer.parseInt(arg);
+                } catch (NumberFormatException e) {
+                    System.err.println("Invalid port specified, using default 8080");
+                }
+            }
+        }
+        SearchMCP searchMcp = segmentFile == null ? new SearchMCP() : new SearchMCP(Paths.get(segmentFile));
+        TimeReportMCP timeReportMcp;
+        if (timeEntryFiles.isEmpty() && dataDir == null) {
+            timeReportMcp = new TimeReportMCP();
+        } else {
+            TimeReportStore store = new TimeReportStore();
+            TimeReportLoader loader = new TimeReportLoader(store);
+            TimeReportLog log = null;
+            if (dataDir != null) {
+                long start = System.nanoTime();
+                TimeReportLog opened = TimeReportLog.open(Paths.get(dataDir), store);
+                System.err.printf("Opened %s: %d entries, %d replayed from the log, in %d ms%n", dataDir, store.size(),
+                        opened.replayed(), (System.nanoTime() - start) / 1_000_000);
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try {
+                        opened.close();
+                    } catch (IOException e) {
+                        System.err.println("Closing the time report log failed: " + e.getMessage());
+                    }
+                }));
+                loader = new TimeReportLoader(opened);
+                log = opened;
+            }
+            for (String file : timeEntryFiles) {
+                TimeReportLoader.LoadResult result = loader.load(Paths.get(file), progress -> System.err.printf(
+                        "Loading %s: %d%%, %s%n", file, progress.getBytes() * 100 / Math.max(1, progress.getTotalBytes()), progress));
+                System.err.println("Loaded " + file + ": " + result);
+                if (result.getFirstError() != null) {
+                    System.err.println("First skipped " + result.getFirstError());
+                }
             }
+            timeReportMcp = new TimeReportMCP(store, log);
+        }
+        AccessLog accessLog;
+        if (!accessLogFile.equals("-")) {
+            accessLog = AccessLog.open(Paths.get(accessLogFile), accessLogSample);
+        } else if (stdio) {
+            accessLog = AccessLog.stderr(accessLogSample); // Standard output carries the protocol
+        } else {
+            accessLog = AccessLog.stdout(accessLogSample);
+        }
+        if (stdio) {
+            serveStdio(new ToolRegistry().register(timeReportMcp).register(searchMcp), mode, poolSize, maxRequestBytes,
+                    accessLog, System.in, System.out);
+            return;
         }
-        TimeReportMCPServer server = new TimeReportMCPServer(port);
+        TimeReportMCPServer server = new TimeReportMCPServer(timeReportMcp, searchMcp, port, mode, poolSize, transport);
+        server.setMaxRequestBytes(maxRequestBytes);
+        server.setCompressionThreshold(compressionThreshold);
+        server.setAccessLog(accessLog);
+        // Writes out the entries still buffered
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> closeAccessLog(accessLog)));
         server.start();
     }
 }
@@ -0,0 +1,796 @@
+package com.example.mcp;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Columnar store of reported hours per signature and month.
+ *
+ * <p>Signatures are dictionary-encoded to dense {@code int} ids, so each
+ * distinct signature string is kept once. Hours are partitioned by month;
+ * a partition holds two parallel primitive columns, the signature ids in
+ * ascending order and their hours, so an entry costs eight bytes instead
+ * of a {@link TimeReportEntry}, its signature string and a list slot.
+ * Adding hours to a signature and month that already has an entry adds up
+ * the two.</p>
+ *
+ * <p>For totals over month ranges the store keeps {@link FenwickTree}
+ * prefix sums by month, one over all signatures and one per signature,
+ * updated on every write. A total over any range of months, however many
+ * years it spans, costs {@code O(log months)} instead of a scan of the
+ * entries.</p>
+ *
+ * <p>Single writes from many threads go through {@link #record}, which does
+ * not take the store's lock. Like the cells of a
+ * {@link java.util.concurrent.atomic.LongAdder}, the writes are spread over
+ * stripes by thread, each a small {@link Batch} with a lock of its own, and
+ * folded into the columns by whichever reader or writer needs them: every
+ * read first merges the stripes, and a writer merges its stripe once it is
+ * full. Readers therefore see every write that completed before they
+ * started, and each {@code record} call whole or not at all.</p>
+ *
+ * <p>A merge cannot report a total overflowing to the writer, which has
+ * returned by then, so writers check for overflow before they record. The
+ * store keeps a bound on the largest total and the magnitude of the hours
+ * still in the stripes; while the two add up to less than an {@code int}
+ * can hold, no total can overflow. Past that, which takes totals in the
+ * billions, a writer merges the stripes and adds its hours under the
+ * store's lock, where the overflow is exact and rejected.</p>
+ */
+class TimeReportStore {
+    /** Recorded entries a stripe holds before its writer merges it into the columns. */
+    static final int STRIPE_CAPACITY = 4096;
+
+    private final SignatureDictionary signatures = new SignatureDictionary();
+    /** Partitions by month index, starting at {@link #firstMonth}; {@code null} for empty months. */
+    private Partition[] partitions = new Partition[0];
+    private int firstMonth;
+    private int size;
+    private final FenwickTree totals = new FenwickTree();
+    private FenwickTree[] signatureTotals = new FenwickTree[16];
+    private final Stripe[] stripes;
+    /** Magnitude the largest total in the columns ever had; written under the store's lock. */
+    private volatile long largestTotal;
+    /** Magnitude of the hours counted into stripes and not merged yet. */
+    private final LongAdder pendingHours = new LongAdder();
+
+    TimeReportStore() {
+        this(2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /** Creates a store recording into at least the given number of stripes. */
+    TimeReportStore(int stripes) {
+        this.stripes = new Stripe[Integer.highestOneBit(Math.max(1, stripes - 1)) << 1];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new Stripe();
+        }
+    }
+
+    /** Time periods totals can be grouped by. */
+    enum Period {
+        MONTH, QUARTER, YEAR
+    }
+
+    /**
+     * Returns the months since year 0 of the given month, the key of the
+     * month partitions.
+     */
+    static int monthIndex(int year, int month) {
+        return year * 12 + month - 1;
+    }
+
+    /**
+     * Adds hours reported by a signature in the given month.
+     *
+     * @throws ArithmeticException if the total overflows an {@code int}
+     */
+    synchronized void add(String signature, int year, int month, int hours) {
+        int id = signatures.id(signature);
+        int monthIndex = monthIndex(year, month);
+        Partition partition = partition(monthIndex, true);
+        if (partition.add(id, hours)) {
+            size++;
+        }
+        largestTotal = Math.max(largestTotal, partition.largest);
+        totals.add(monthIndex, hours);
+        signatureTotals(id).add(monthIndex, hours);
+    }
+
+    /**
+     * Adds all entries of a batch. The entries are grouped by month and
+     * signature first, so each month partition is rebuilt in one merge and
+     * each prefix sum updated once per signature and month, however many
+     * entries the batch has for it. Either all entries are added or, if a
+     * total would overflow, none.
+     *
+     * @throws ArithmeticException if a total overflows an {@code int}
+     */
+    synchronized void addAll(Batch batch) {
+        if (batch.size == 0) {
+            return;
+        }
+        int[] ids = new int[batch.names.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = signatures.id(batch.names.get(i));
+        }
+        // Counting sort by month; within a month, entries are packed as
+        // signature id and hours into one long and sorted by id
+        int minMonth = Integer.MAX_VALUE;
+        int maxMonth = Integer.MIN_VALUE;
+        for (int i = 0; i < batch.size; i++) {
+            minMonth = Math.min(minMonth, batch.months[i]);
+            maxMonth = Math.max(maxMonth, batch.months[i]);
+        }
+        int[] starts = new int[maxMonth - minMonth + 2];
+        for (int i = 0; i < batch.size; i++) {
+            starts[batch.months[i] - minMonth + 1]++;
+        }
+        for (int m = 1; m < starts.length; m++) {
+            starts[m] += starts[m - 1];
+        }
+        long[] packed = new long[batch.size];
+        int[] next = Arrays.copyOf(starts, starts.length - 1);
+        for (int i = 0; i < batch.size; i++) {
+            packed[next[batch.months[i] - minMonth]++] = (long) ids[batch.signatures[i]] << 32 | (batch.hours[i] & 0xFFFFFFFFL);
+        }
+
+        // Merge every month into new columns before changing anything
+        List<Partition> merged = new ArrayList<>();
+        List<Integer> mergedMonths = new ArrayList<>();
+        for (int m = 0; m < starts.length - 1; m++) {
+            if (starts[m] == starts[m + 1]) {
+                continue;
+            }
+            Arrays.sort(packed, starts[m], starts[m + 1]);
+            Partition existing = partition(minMonth + m, false);
+            merged.add(Partition.merge(existing, packed, starts[m], starts[m + 1]));
+            mergedMonths.add(minMonth + m);
+        }
+
+        for (int i = 0; i < merged.size(); i++) {
+            int monthIndex = mergedMonths.get(i);
+            Partition partition = partition(monthIndex, true);
+            Partition update = merged.get(i);
+            size += update.size - partition.size;
+            partition.signatures = update.signatures;
+            partition.hours = update.hours;
+            partition.size = update.size;
+            partition.largest = update.largest;
+            largestTotal = Math.max(largestTotal, update.largest);
+        }
+        for (int m = 0; m < starts.length - 1; m++) {
+            int monthIndex = minMonth + m;
+            long total = 0;
+            for (int i = starts[m]; i < starts[m + 1]; ) {
+                int id = (int) (packed[i] >>> 32);
+                long sum = 0;
+                for (; i < starts[m + 1] && (int) (packed[i] >>> 32) == id; i++) {
+                    sum += (int) packed[i];
+                }
+                signatureTotals(id).add(monthIndex, sum);
+                total += sum;
+            }
+            if (starts[m] < starts[m + 1]) {
+                totals.add(monthIndex, total);
+            }
+        }
+    }
+
+    /**
+     * Records hours reported by a signature in the given month without
+     * taking the store's lock; readers see them from the next read on.
+     *
+     * @throws ArithmeticException if the total would overflow an {@code int}; nothing is recorded then
+     */
+    void record(String signature, int year, int month, int hours) {
+        if (!reserve(Math.abs((long) hours))) {
+            synchronized (this) {
+                flush();
+                add(signature, year, month, hours);
+            }
+            return;
+        }
+        Stripe stripe = stripe();
+        boolean full;
+        synchronized (stripe) {
+            stripe.batch.add(signature, year, month, hours);
+            stripe.pending = true;
+            full = stripe.batch.size >= STRIPE_CAPACITY;
+        }
+        if (full) {
+            synchronized (this) {
+                merge(stripe);
+            }
+        }
+    }
+
+    /**
+     * Records all entries of a batch like {@link #record(String, int, int, int)}.
+     * Readers see either all of them or none.
+     *
+     * @throws ArithmeticException if a total would overflow an {@code int}; nothing is recorded then
+     */
+    void record(Batch batch) {
+        if (batch.size == 0) {
+            return;
+        }
+        if (!reserve(batch.magnitude())) {
+            synchronized (this) {
+                flush();
+                addAll(batch);
+            }
+            return;
+        }
+        Stripe stripe = stripe();
+        boolean full;
+        synchronized (stripe) {
+            for (int i = 0; i < batch.size; i++) {
+                stripe.batch.add(batch.signature(i), batch.months[i], batch.hours[i]);
+            }
+            stripe.pending = true;
+            full = stripe.batch.size >= STRIPE_CAPACITY;
+        }
+        if (full) {
+            synchronized (this) {
+                merge(stripe);
+            }
+        }
+    }
+
+    /**
+     * Counts hours about to go into a stripe as pending, if no total can
+     * overflow with them. Of any writes that end up merged together, the
+     * last to check sees the hours of all the others, so it is the one that
+     * gets refused. Otherwise counts nothing and returns {@code false}.
+     */
+    private boolean reserve(long magnitude) {
+        pendingHours.add(magnitude);
+        // Merges raise the largest total before they lower the pending hours, so read in the other order
+        long pending = pendingHours.sum();
+        if (largestTotal + pending <= Integer.MAX_VALUE) {
+            return true;
+        }
+        pendingHours.add(-magnitude);
+        return false;
+    }
+
+    private Stripe stripe() {
+        long thread = Thread.currentThread().getId();
+        return stripes[(int) ((thread * 0x9E3779B97F4A7C15L) >>> 32) & (stripes.length - 1)];
+    }
+
+    /** Merges the entries recorded in all stripes. The caller holds the store's lock. */
+    private void flush() {
+        for (Stripe stripe : stripes) {
+            if (stripe.pending) {
+                merge(stripe);
+            }
+        }
+    }
+
+    /** Merges the entries recorded in a stripe. The caller holds the store's lock. */
+    private void merge(Stripe stripe) {
+        Batch batch;
+        synchronized (stripe) {
+            batch = stripe.batch;
+            stripe.batch = new Batch();
+            stripe.pending = false;
+        }
+        if (batch.size == 0) {
+            return;
+        }
+        // Cannot overflow: the writers reserved these hours against the largest total
+        addAll(batch);
+        pendingHours.add(-batch.magnitude());
+    }
+
+    private FenwickTree signatureTotals(int id) {
+        if (id >= signatureTotals.length) {
+            signatureTotals = Arrays.copyOf(signatureTotals, Math.max(id + 1, signatureTotals.length * 2));
+        }
+        if (signatureTotals[id] == null) {
+            signatureTotals[id] = new FenwickTree();
+        }
+        return signatureTotals[id];
+    }
+
+    /** Returns the entries of a month, ordered by when their signature was first seen. */
+    synchronized MonthReport month(int year, int month) {
+        flush();
+        Partition partition = partition(monthIndex(year, month), false);
+        if (partition == null) {
+            return MonthReport.EMPTY;
+        }
+        return new MonthReport(signatures.names,
+                Arrays.copyOf(partition.signatures, partition.size),
+                Arrays.copyOf(partition.hours, partition.size));
+    }
+
+    /**
+     * Returns the hours of the month indexes {@code fromMonth} to
+     * {@code toMonth}, both inclusive, summed by signature and/or period.
+     * Without either grouping the result is a single total. Groups without
+     * hours are left out; signatures are ordered by when they were first
+     * seen, and the periods of a signature chronologically.
+     *
+     * @param signatures  the signatures to include, or {@code null} for all
+     * @param bySignature whether to sum each signature separately
+     * @param period      the period to sum by, or {@code null} for the whole range
+     */
+    synchronized List<TimeReportTotal> totals(int fromMonth, int toMonth, Collection<String> signatures,
+            boolean bySignature, Period period) {
+        flush();
+        int[] ids;
+        if (signatures == null) {
+            ids = null;
+        } else {
+            ids = new int[signatures.size()];
+            int count = 0;
+            for (String signature : new LinkedHashSet<>(signatures)) {
+                int id = this.signatures.find(signature);
+                if (id >= 0) {
+                    ids[count++] = id;
+                }
+            }
+            ids = Arrays.copyOf(ids, count);
+        }
+        List<TimeReportTotal> result = new ArrayList<>();
+        if (bySignature) {
+            int count = ids == null ? this.signatures.size : ids.length;
+            for (int i = 0; i < count; i++) {
+                int id = ids == null ? i : ids[i];
+                addTotals(result, fromMonth, toMonth, signatureTotals[id], null, this.signatures.names[id], period);
+            }
+        } else {
+            addTotals(result, fromMonth, toMonth, ids == null ? totals : null, ids, null, period);
+        }
+        return result;
+    }
+
+    /**
+     * Adds a total per period of the range, summed from one tree or from the
+     * trees of the given signatures.
+     */
+    private void addTotals(List<TimeReportTotal> result, int fromMonth, int toMonth, FenwickTree tree, int[] ids,
+            String signature, Period period) {
+        for (int start = fromMonth; start <= toMonth; ) {
+            int end;
+            if (period == null) {
+                end = toMonth;
+            } else if (period == Period.MONTH) {
+                end = start;
+            } else if (period == Period.QUARTER) {
+                end = start - start % 3 + 2;
+            } else {
+                end = start - start % 12 + 11;
+            }
+            end = Math.min(end, toMonth);
+            long hours = 0;
+            if (tree != null) {
+                hours = tree.sum(start, end);
+            } else {
+                for (int id : ids) {
+                    hours += signatureTotals[id].sum(start, end);
+                }
+            }
+            if (hours != 0 || (period == null && signature == null)) {
+                int year = start / 12;
+                int monthOfYear = start % 12 + 1;
+                result.add(new TimeReportTotal(signature,
+                        period == null ? null : year,
+                        period == Period.QUARTER ? (monthOfYear + 2) / 3 : null,
+                        period == Period.MONTH ? monthOfYear : null,
+                        hours));
+            }
+            start = end + 1;
+        }
+    }
+
+    /**
+     * Writes the entries: the signature names in id order, then the
+     * non-empty months in order, each as its month index, its number of
+     * entries and its two columns.
+     */
+    synchronized void write(DataOutput out) throws IOException {
+        flush();
+        out.writeInt(signatures.size);
+        for (int i = 0; i < signatures.size; i++) {
+            out.writeUTF(signatures.names[i]);
+        }
+        int months = 0;
+        for (Partition partition : partitions) {
+            if (partition != null && partition.size > 0) {
+                months++;
+            }
+        }
+        out.writeInt(months);
+        for (int slot = 0; slot < partitions.length; slot++) {
+            Partition partition = partitions[slot];
+            if (partition == null || partition.size == 0) {
+                continue;
+            }
+            out.writeInt(firstMonth + slot);
+            out.writeInt(partition.size);
+            for (int i = 0; i < partition.size; i++) {
+                out.writeInt(partition.signatures[i]);
+            }
+            for (int i = 0; i < partition.size; i++) {
+                out.writeInt(partition.hours[i]);
+            }
+        }
+    }
+
+    /**
+     * Reads entries written by {@link #write} into an empty store.
+     *
+     * @throws IOException if the data is malformed
+     */
+    synchronized void read(DataInput in) throws IOException {
+        flush();
+        if (signatures.size > 0) {
+            throw new IllegalStateException("The store is not empty");
+        }
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            signatures.id(in.readUTF());
+        }
+        int months = in.readInt();
+        for (int m = 0; m < months; m++) {
+            int monthIndex = in.readInt();
+            int entries = in.readInt();
+            if (entries < 0 || entries > count || partition(monthIndex, false) != null) {
+                throw new IOException("Malformed month " + monthIndex);
+            }
+            Partition partition = partition(monthIndex, true);
+            partition.signatures = new int[Math.max(4, entries)];
+            partition.hours = new int[Math.max(4, entries)];
+            for (int i = 0; i < entries; i++) {
+                partition.signatures[i] = in.readInt();
+                if (partition.signatures[i] < 0 || partition.signatures[i] >= count
+                        || (i > 0 && partition.signatures[i] <= partition.signatures[i - 1])) {
+                    throw new IOException("Malformed month " + monthIndex);
+                }
+            }
+            long total = 0;
+            for (int i = 0; i < entries; i++) {
+                partition.hours[i] = in.readInt();
+                partition.largest = Math.max(partition.largest, Math.abs((long) partition.hours[i]));
+                signatureTotals(partition.signatures[i]).add(monthIndex, partition.hours[i]);
+                total += partition.hours[i];
+            }
+            partition.size = entries;
+            largestTotal = Math.max(largestTotal, partition.largest);
+            totals.add(monthIndex, total);
+            size += entries;
+        }
+    }
+
+    /** Returns the number of signature and month pairs with an entry. */
+    synchronized int size() {
+        flush();
+        return size;
+    }
+
+    /** Returns the number of distinct signatures. */
+    synchronized int signatureCount() {
+        flush();
+        return signatures.size;
+    }
+
+    private Partition partition(int monthIndex, boolean create) {
+        int slot = monthIndex - firstMonth;
+        if (slot >= 0 && slot < partitions.length && partitions[slot] != null) {
+            return partitions[slot];
+        }
+        if (!create) {
+            return null;
+        }
+        if (partitions.length == 0) {
+            partitions = new Partition[12];
+            firstMonth = monthIndex;
+            slot = 0;
+        } else if (slot < 0) {
+            // Grow towards earlier months
+            int grow = Math.max(-slot, partitions.length / 2);
+            Partition[] grown = new Partition[partitions.length + grow];
+            System.arraycopy(partitions, 0, grown, grow, partitions.length);
+            partitions = grown;
+            firstMonth -= grow;
+            slot += grow;
+        } else if (slot >= partitions.length) {
+            partitions = Arrays.copyOf(partitions, Math.max(slot + 1, partitions.length * 3 / 2));
+        }
+        return partitions[slot] = new Partition();
+    }
+
+    /** Assigns dense ids to signature strings. */
+    private static final class SignatureDictionary {
+        private final Map<String, Integer> ids = new HashMap<>();
+        /**
+         * Names by id. The array is only appended to or replaced by a larger
+         * copy, so a reference handed out keeps resolving the ids it knew.
+         */
+        private String[] names = new String[16];
+        private int size;
+
+        /** Returns the id of the signature, or -1 if it was never seen. */
+        int find(String signature) {
+            Integer id = ids.get(signature);
+            return id == null ? -1 : id;
+        }
+
+        int id(String signature) {
+            Integer id = ids.get(signature);
+            if (id != null) {
+                return id;
+            }
+            if (size == names.length) {
+                names = Arrays.copyOf(names, size * 2);
+            }
+            names[size] = signature;
+            ids.put(signature, size);
+            return size++;
+        }
+    }
+
+    /** The entries of one month as parallel columns, sorted by signature id. */
+    private static final class Partition {
+        int[] signatures = new int[4];
+        int[] hours = new int[4];
+        int size;
+        /** Magnitude the largest of the hours ever had. */
+        long largest;
+
+        /** Adds hours to a signature; returns whether it had no entry yet. */
+        boolean add(int signature, int hours) {
+            int i = Arrays.binarySearch(signatures, 0, size, signature);
+            if (i >= 0) {
+                this.hours[i] = Math.addExact(this.hours[i], hours);
+                largest = Math.max(largest, Math.abs((long) this.hours[i]));
+                return false;
+            }
+            i = -i - 1;
+            if (size == signatures.length) {
+                signatures = Arrays.copyOf(signatures, size * 2);
+                this.hours = Arrays.copyOf(this.hours, size * 2);
+            }
+            System.arraycopy(signatures, i, signatures, i + 1, size - i);
+            System.arraycopy(this.hours, i, this.hours, i + 1, size - i);
+            signatures[i] = signature;
+            this.hours[i] = hours;
+            largest = Math.max(largest, Math.abs((long) hours));
+            size++;
+            return true;
+        }
+
+        /**
+         * Returns new columns holding the entries of a partition, which may
+         * be {@code null}, plus the packed entries {@code from} to {@code to},
+         * sorted by signature id.
+         */
+        static Partition merge(Partition existing, long[] packed, int from, int to) {
+            int existingSize = existing == null ? 0 : existing.size;
+            Partition merged = new Partition();
+            merged.largest = existing == null ? 0 : existing.largest;
+            merged.signatures = new int[existingSize + to - from];
+            merged.hours = new int[existingSize + to - from];
+            int e = 0;
+            int n = 0;
+            int i = from;
+            while (e < existingSize || i < to) {
+                int id;
+                int hours;
+                if (i == to || (e < existingSize && existing.signatures[e] <= (int) (packed[i] >>> 32))) {
+                    id = existing.signatures[e];
+                    hours = existing.hours[e++];
+                } else {
+                    id = (int) (packed[i] >>> 32);
+                    hours = (int) packed[i++];
+                }
+                if (n > 0 && merged.signatures[n - 1] == id) {
+                    merged.hours[n - 1] = Math.addExact(merged.hours[n - 1], hours);
+                } else {
+                    merged.signatures[n] = id;
+                    merged.hours[n++] = hours;
+                }
+            }
+            for (int k = 0; k < n; k++) {
+                merged.largest = Math.max(merged.largest, Math.abs((long) merged.hours[k]));
+            }
+            merged.size = n;
+            return merged;
+        }
+    }
+
+    /**
+     * Entries collected without holding the store's lock, for example by a
+     * loader thread, and added in one call to {@link #addAll}. Signatures
+     * are dictionary-encoded per batch.
+     */
+    static final class Batch {
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> names = new ArrayList<>();
+        private int[] signatures = new int[64];
+        private int[] months = new int[64];
+        private int[] hours = new int[64];
+        private int size;
+
+        void add(String signature, int year, int month, int hours) {
+            add(signature, monthIndex(year, month), hours);
+        }
+
+        private void add(String signature, int monthIndex, int hours) {
+            Integer id = ids.get(signature);
+            if (id == null) {
+                id = names.size();
+                ids.put(signature, id);
+                names.add(signature);
+            }
+            if (size == signatures.length) {
+                signatures = Arrays.copyOf(signatures, size * 2);
+                months = Arrays.copyOf(months, size * 2);
+                this.hours = Arrays.copyOf(this.hours, size * 2);
+            }
+            signatures[size] = id;
+            months[size] = monthIndex;
+            this.hours[size] = hours;
+            size++;
+        }
+
+        int size() {
+            return size;
+        }
+
+        /** Returns the sum of the magnitudes of the hours. */
+        long magnitude() {
+            long magnitude = 0;
+            for (int i = 0; i < size; i++) {
+                magnitude += Math.abs((long) hours[i]);
+            }
+            return magnitude;
+        }
+
+        String signature(int i) {
+            return names.get(signatures[i]);
+        }
+
+        /** Returns the {@link TimeReportStore#monthIndex month index} of an entry. */
+        int month(int i) {
+            return months[i];
+        }
+
+        int hours(int i) {
+            return hours[i];
+        }
+    }
+
+    /** Entries recorded by the threads of one stripe and not merged yet, guarded by the stripe. */
+    private static final class Stripe {
+        Batch batch = new Batch();
+        /** Whether the batch may have entries; read without the lock to skip empty stripes. */
+        volatile boolean pending;
+    }
+
+    /**
+     * A copy of the entries of one month. Gson writes it as an array of
+     * {@code {"signature": ..., "hours": ...}} objects, the same JSON as a
+     * list of {@link TimeReportEntry}, straight from the columns.
+     */
+    @JsonAdapter(MonthReport.Adapter.class)
+    static final class MonthReport {
+        static final MonthReport EMPTY = new MonthReport(new String[0], new int[0], new int[0]);
+
+        private final String[] names;
+        private final int[] signatures;
+        private final int[] hours;
+
+        MonthReport(String[] names, int[] signatures, int[] hours) {
+            this.names = names;
+            this.signatures = signatures;
+            this.hours = hours;
+        }
+
+        int size() {
+            return signatures.length;
+        }
+
+        String signature(int i) {
+            return names[signatures[i]];
+        }
+
+        int hours(int i) {
+            return hours[i];
+        }
+
+        List<TimeReportEntry> toList() {
+            List<TimeReportEntry> entries = new ArrayList<>(size());
+            for (int i = 0; i < size(); i++) {
+                entries.add(new TimeReportEntry(signature(i), hours(i)));
+            }
+            return entries;
+        }
+
+        static final class Adapter extends TypeAdapter<MonthReport> {
+            @Override
+            public void write(JsonWriter out, MonthReport value) throws IOException {
+                if (value == null) {
+                    out.nullValue();
+                    return;
+                }
+                out.beginArray();
+                for (int i = 0; i < value.size(); i++) {
+                    out.beginObject();
+                    out.name("signature").value(value.signature(i));
+                    out.name("hours").value(value.hours(i));
+                    out.endObject();
+                }
+                out.endArray();
+            }
+
+            @Override
+            public MonthReport read(JsonReader in) throws IOException {
+                if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    return null;
+                }
+                Map<String, Integer> ids = new HashMap<>();
+                List<String> names = new ArrayList<>();
+                int[] signatures = new int[8];
+                int[] hours = new int[8];
+                int size = 0;
+                in.beginArray();
+                while (in.hasNext()) {
+                    String signature = null;
+                    int entryHours = 0;
+                    in.beginObject();
+                    while (in.hasNext()) {
+                        switch (in.nextName()) {
+                            case "signature":
+                                signature = in.nextString();
+                                break;
+                            case "hours":
+                                entryHours = in.nextInt();
+                                break;
+                            default:
+                                in.skipValue();
+                        }
+                    }
+                    in.endObject();
+                    if (signature == null) {
+                        throw new JsonParseException("Month report entry without a signature");
+                    }
+                    Integer id = ids.get(signature);
+                    if (id == null) {
+                        id = names.size();
+                        ids.put(signature, id);
+                        names.add(signature);
+                    }
+                    if (size == signatures.length) {
+                        signatures = Arrays.copyOf(signatures, size * 2);
+                        hours = Arrays.copyOf(hours, size * 2);
+                    }
+                    signatures[size] = id;
+                    hours[size] = entryHours;
+                    size++;
+                }
+                in.endArray();
+                return new MonthReport(names.toArray(new String[0]), Arrays.copyOf(signatures, size), Arrays.copyOf(hours, size));
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.mcp;
+
+/**
+ * Hours summed over one group of {@code getTimeReportTotals}. Only the
+ * fields the results are grouped by are set; the others are {@code null}
+ * and left out of the JSON.
+ */
+public class TimeReportTotal {
+    private final String signature;
+    private final Integer year;
+    private final Integer quarter;
+    private final Integer month;
+    private final long hours;
+
+    public TimeReportTotal(String signature, Integer year, Integer quarter, Integer month, long hours) {
+        this.signature = signature;
+        this.year = year;
+        this.quarter = quarter;
+        this.month = month;
+        this.hours = hours;
+    }
+
+    public String getSignature() {
+        return signature;
+    }
+
+    public Integer getYear() {
+        return year;
+    }
+
+    /** Returns the quarter of the year, 1 to 4. */
+    public Integer getQuarter() {
+        return quarter;
+    }
+
+    public Integer getMonth() {
+        return month;
+    }
+
+    public long getHours() {
+        return hours;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.mcp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits text into lower-cased terms at every character that is neither a
+ * letter nor a digit. The same tokenizer is used for documents and queries.
+ */
+class Tokenizer {
+    /** Longer tokens (base64 blobs and the like) are not indexed. */
+    static final int MAX_TOKEN_LENGTH = 64;
+
+    private Tokenizer() {
+    }
+
+    /** Returns the terms of the text in order of occurrence, including duplicates. */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int length = text.length();
+        int start = -1;
+        for (int i = 0; i <= length; i++) {
+            boolean partOfToken = i < length && Character.isLetterOrDigit(text.charAt(i));
+            if (partOfToken) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                if (i - start <= MAX_TOKEN_LENGTH) {
+                    tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                }
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Returns where the last token of the text starts, or the length of the
+     * text if it ends with a separator.
+     */
+    static int lastTokenStart(String text) {
+        int start = text.length();
+        while (start > 0 && Character.isLetterOrDigit(text.charAt(start - 1))) {
+            start--;
+        }
+        return start;
+    }
+}
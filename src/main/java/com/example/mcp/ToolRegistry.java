@@ -0,0 +1,37 @@
+package com.example.mcp;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Collects the {@link MethodSpec}s declared by {@link McpTool}s. The server
+ * takes an immutable snapshot of the registry at startup and uses it as its
+ * dispatch table and to generate the manifest.
+ */
+public class ToolRegistry {
+    private final Map<String, MethodSpec<?>> methods = new LinkedHashMap<>();
+
+    /**
+     * Registers a single method.
+     *
+     * @throws IllegalArgumentException if a method with the same name is already registered
+     */
+    public synchronized ToolRegistry register(MethodSpec<?> method) {
+        if (methods.putIfAbsent(method.getName(), method) != null) {
+            throw new IllegalArgumentException("Method already registered: " + method.getName());
+        }
+        return this;
+    }
+
+    /** Registers all methods of a tool. */
+    public ToolRegistry register(McpTool tool) {
+        tool.registerMethods(this);
+        return this;
+    }
+
+    /** Returns an immutable snapshot of the registered methods, in registration order. */
+    public synchronized Map<String, MethodSpec<?>> snapshot() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(methods));
+    }
+}
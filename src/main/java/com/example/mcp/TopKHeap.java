@@ -0,0 +1,110 @@
+package com.example.mcp;
+
+/**
+ * Bounded min-heap keeping the {@code k} best scoring documents seen so far,
+ * stored in primitive arrays. Ties are broken in favour of the lower document
+ * number so that rankings are deterministic.
+ */
+class TopKHeap {
+    private final float[] scores;
+    private final int[] docs;
+    private int size;
+
+    TopKHeap(int k) {
+        this.scores = new float[k];
+        this.docs = new int[k];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** Returns whether a document with the given score would currently enter the heap. */
+    boolean competitive(float score) {
+        return size < scores.length || score > scores[0];
+    }
+
+    /**
+     * Returns the score a later document has to beat to enter the heap, or
+     * negative infinity while the heap is not full.
+     */
+    float threshold() {
+        return size < scores.length ? Float.NEGATIVE_INFINITY : scores[0];
+    }
+
+    void offer(int doc, float score) {
+        if (scores.length == 0) {
+            return;
+        }
+        if (size < scores.length) {
+            scores[size] = score;
+            docs[size] = doc;
+            siftUp(size++);
+        } else if (worse(docs[0], scores[0], doc, score)) {
+            scores[0] = score;
+            docs[0] = doc;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Empties the heap into the given arrays, best document first.
+     *
+     * @return the number of documents written
+     */
+    int drainDescending(int[] outDocs, float[] outScores) {
+        int n = size;
+        for (int i = n - 1; i >= 0; i--) {
+            outDocs[i] = docs[0];
+            outScores[i] = scores[0];
+            size--;
+            if (size > 0) {
+                docs[0] = docs[size];
+                scores[0] = scores[size];
+                siftDown(0);
+            }
+        }
+        return n;
+    }
+
+    /** Returns whether (docA, scoreA) ranks below (docB, scoreB). */
+    private static boolean worse(int docA, float scoreA, int docB, float scoreB) {
+        return scoreA < scoreB || (scoreA == scoreB && docA > docB);
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!worse(docs[i], scores[i], docs[parent], scores[parent])) {
+                break;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                break;
+            }
+            int right = left + 1;
+            int smallest = right < size && worse(docs[right], scores[right], docs[left], scores[left]) ? right : left;
+            if (!worse(docs[smallest], scores[smallest], docs[i], scores[i])) {
+                break;
+            }
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        float s = scores[a];
+        scores[a] = scores[b];
+        scores[b] = s;
+        int d = docs[a];
+        docs[a] = docs[b];
+        docs[b] = d;
+    }
+}
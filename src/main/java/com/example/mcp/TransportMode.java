@@ -0,0 +1,44 @@
+package com.example.mcp;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+
+/**
+ * HTTP engine used by {@link TimeReportMCPServer}.
+ */
+public enum TransportMode {
+    /** The JDK's built-in {@code com.sun.net.httpserver.HttpServer}. */
+    JDK,
+    /**
+     * A selector-based engine: one thread multiplexes all connections, with
+     * HTTP/1.1 keep-alive and pipelining, pooled direct buffers and
+     * gathering writes. Idle connections hold no threads or buffers.
+     */
+    NIO;
+
+    /**
+     * Parses a transport name such as {@code "jdk"} or {@code "nio"}.
+     *
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    public static TransportMode parse(String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Creates the transport for this mode.
+     *
+     * @param executor runs the handlers; {@code null} runs them one at a time on a single thread
+     */
+    HttpTransport create(InetSocketAddress address, Executor executor) throws IOException {
+        switch (this) {
+            case NIO:
+                return new NioHttpTransport(address, executor);
+            case JDK:
+            default:
+                return new JdkHttpTransport(address, executor);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.mcp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link AccessLog}.
+ */
+public class AccessLogTest {
+
+    @Test
+    public void testRequestsAreSampledAndErrorsAlwaysLogged() throws Exception {
+        StringWriter everything = new StringWriter();
+        StringWriter none = new StringWriter();
+        TimeReportMCPServer server = new TimeReportMCPServer(0);
+        server.start();
+        try {
+            server.setAccessLog(new AccessLog(everything, 1));
+            post(server, "{\"jsonrpc\": \"2.0\", \"method\": \"getTimeReportStats\", \"params\": {\"year\": 2025, \"month\": 5}, \"id\": 1}");
+            // The entry is logged once the handler returns, after the response was sent
+            for (long deadline = System.currentTimeMillis() + 5000; everything.toString().isEmpty()
+                    && System.currentTimeMillis() < deadline; Thread.sleep(10)) {
+            }
+            server.setAccessLog(new AccessLog(none, 0));
+            post(server, "{\"jsonrpc\": \"2.0\", \"method\": \"getTimeReportStats\", \"params\": {\"year\": 2025, \"month\": 5}, \"id\": 2}");
+        } finally {
+            server.stop(0);
+        }
+
+        String[] lines = everything.toString().split("\n");
+        assertEquals(1, lines.length);
+        JsonObject entry = new Gson().fromJson(lines[0], JsonObject.class);
+        assertEquals("POST", entry.get("method").getAsString());
+        assertEquals("/sse", entry.get("path").getAsString());
+        assertEquals(200, entry.get("status").getAsInt());
+        assertTrue(entry.get("requestBytes").getAsLong() > 0);
+        assertTrue(entry.get("responseBytes").getAsLong() > 0);
+        assertTrue(entry.has("time"));
+        assertTrue(entry.has("durationMs"));
+        assertEquals("", none.toString());
+
+        StringWriter errors = new StringWriter();
+        AccessLog log = new AccessLog(errors, 0);
+        log.error("Internal server error", new IllegalStateException("broken"));
+        log.close();
+        entry = new Gson().fromJson(errors.toString().trim(), JsonObject.class);
+        assertEquals("Internal server error", entry.get("message").getAsString());
+        assertEquals("java.lang.IllegalStateException: broken", entry.get("error").getAsString());
+        assertTrue(entry.get("stackTrace").getAsString().contains("AccessLogTest"));
+    }
+
+    @Test
+    public void testFullBufferDropsEntriesWithoutBlocking() throws Exception {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        StringWriter output = new StringWriter();
+        Writer stalled = new Writer() {
+            @Override
+            public void write(char[] cbuf, int off, int len) throws IOException {
+                writing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                output.write(cbuf, off, len);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        // Unbuffered, so the first entry already stalls the writer
+        AccessLog log = new AccessLog(new BufferedWriter(stalled, 1), 1, 4);
+        log.error("first", null);
+        writing.await();
+        for (int i = 0; i < 100; i++) {
+            log.error("more", null);
+        }
+        assertTrue(log.dropped() >= 96, "dropped " + log.dropped());
+        release.countDown();
+        log.close();
+
+        String[] lines = output.toString().split("\n");
+        assertEquals(101 - log.dropped() + 1, lines.length);
+        JsonObject report = new Gson().fromJson(lines[lines.length - 1], JsonObject.class);
+        assertEquals(log.dropped(), report.get("dropped").getAsLong());
+    }
+
+    private static void post(TimeReportMCPServer server, String body) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL("http://localhost:" + server.getPort() + "/sse").openConnection();
+        conn.setRequestMethod("POST");
+        conn.setDoOutput(true);
+        try (OutputStream os = conn.getOutputStream()) {
+            os.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals(200, conn.getResponseCode());
+        conn.getInputStream().readAllBytes();
+    }
+}
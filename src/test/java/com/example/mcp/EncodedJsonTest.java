@@ -0,0 +1,31 @@
+package com.example.mcp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.google.gson.Gson;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+public class EncodedJsonTest {
+
+    @Test
+    public void testRoundTrip() {
+        Gson gson = new Gson();
+        EncodedJson json = new EncodedJson("{\"content\":[{\"type\":\"text\",\"text\":\"a\\\"b\"}],\"n\":1.5}".getBytes(StandardCharsets.UTF_8));
+        String written = gson.toJson(json);
+        assertEquals(json.toString(), written);
+        assertEquals(written, gson.fromJson(written, EncodedJson.class).toString());
+        // Whitespace is dropped on the way in
+        assertEquals("[1,{\"a\":null}]", gson.fromJson(" [ 1 , { \"a\" : null } ] ", EncodedJson.class).toString());
+        assertNull(gson.fromJson("null", EncodedJson.class));
+    }
+
+    @Test
+    public void testEnvelopeMatchesResponse() throws Exception {
+        EncodedJson json = new EncodedJson("{\"ok\":true}".getBytes(StandardCharsets.UTF_8));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        json.writeEnvelope(out, "7");
+        assertEquals(new Gson().toJson(new JsonRpcResponse(json, 7)), out.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.mcp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the {@link ExecutionMode} options of {@link TimeReportMCPServer}.
+ */
+public class ExecutionModeTest {
+
+    @Test
+    public void testParse() {
+        assertEquals(ExecutionMode.VIRTUAL, ExecutionMode.parse("virtual"));
+        assertEquals(ExecutionMode.POOLED, ExecutionMode.parse(" Pooled "));
+        assertEquals(ExecutionMode.SINGLE, ExecutionMode.parse("SINGLE"));
+        assertThrows(IllegalArgumentException.class, () -> ExecutionMode.parse("forked"));
+    }
+
+    @Test
+    public void testDefaultModeMatchesJdk() {
+        ExecutionMode expected = ExecutionMode.virtualThreadsSupported() ? ExecutionMode.VIRTUAL : ExecutionMode.POOLED;
+        assertEquals(expected, ExecutionMode.defaultMode());
+    }
+
+    @Test
+    public void testConcurrentRequestsInEveryMode() throws Exception {
+        for (ExecutionMode mode : ExecutionMode.values()) {
+            TimeReportMCPServer server = new TimeReportMCPServer(new TimeReportMCP(), new SearchMCP(), 0, mode, 4);
+            server.start();
+            ExecutorService clients = Executors.newFixedThreadPool(8);
+            try {
+                List<Callable<Integer>> calls = new ArrayList<>();
+                for (int i = 0; i < 32; i++) {
+                    calls.add(() -> post(server.getPort(),
+                            "{\"jsonrpc\":\"2.0\",\"method\":\"fetchContent\",\"params\":{\"id\":\"1\"},\"id\":1}"));
+                }
+                for (Future<Integer> f : clients.invokeAll(calls)) {
+                    assertEquals(200, f.get(), "mode " + mode);
+                }
+            } finally {
+                clients.shutdownNow();
+                server.stop(0);
+            }
+        }
+    }
+
+    private static int post(int port, String body) throws Exception {
+        HttpURLConnection conn = (HttpURLConnection) new URL("http://localhost:" + port + "/sse").openConnection();
+        conn.setRequestMethod("POST");
+        conn.setRequestProperty("Content-Type", "application/json; charset=utf-8");
+        conn.setDoOutput(true);
+        try (OutputStream os = conn.getOutputStream()) {
+            os.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        int code = conn.getResponseCode();
+        conn.getInputStream().readAllBytes();
+        return code;
+    }
+}
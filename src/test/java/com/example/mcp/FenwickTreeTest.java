@@ -0,0 +1,36 @@
+package com.example.mcp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link FenwickTree}.
+ */
+public class FenwickTreeTest {
+
+    @Test
+    public void testMatchesPlainSums() {
+        Random random = new Random(42);
+        long[] values = new long[400];
+        FenwickTree tree = new FenwickTree();
+        for (int i = 0; i < 2000; i++) {
+            // Values arrive in the middle first, so the tree grows in both directions
+            int position = 200 + (int) (random.nextGaussian() * 40 * Math.min(1.0, i / 500.0));
+            position = Math.max(0, Math.min(values.length - 1, position));
+            long delta = random.nextInt(100) - 20;
+            values[position] += delta;
+            tree.add(1000 + position, delta);
+            int from = random.nextInt(values.length);
+            int to = from + random.nextInt(values.length - from);
+            long expected = 0;
+            for (int p = from; p <= to; p++) {
+                expected += values[p];
+            }
+            assertEquals(expected, tree.sum(1000 + from, 1000 + to));
+        }
+        assertEquals(0, tree.sum(0, 999));
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.mcp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link IndexWriter} and incremental updates through {@link SearchMCP}.
+ */
+public class IndexWriterTest {
+
+    private static SearchResult doc(String id, String text) {
+        return new SearchResult(id, "title " + id, text, null);
+    }
+
+    @Test
+    public void testAddReplaceDelete() {
+        SearchMCP search = new SearchMCP(List.of(doc("a", "apple"), doc("b", "banana")));
+        assertFalse(search.index(doc("c", "cherry apple")));
+        assertEquals(3, search.size());
+        assertEquals(2, search.search("apple").size());
+
+        assertTrue(search.index(doc("a", "apricot")));
+        assertEquals(3, search.size());
+        assertEquals("apricot", search.fetch("a").getText());
+        assertEquals(List.of("c"), List.of(search.search("apple").get(0).getId()));
+        assertEquals(1, search.search("apple").size());
+
+        assertTrue(search.delete("b"));
+        assertFalse(search.delete("b"));
+        assertNull(search.fetch("b"));
+        assertTrue(search.search("banana").isEmpty());
+        assertEquals(2, search.size());
+    }
+
+    @Test
+    public void testSnapshotsAreIsolated() {
+        IndexWriter writer = new IndexWriter(InvertedIndex.build(List.of(doc("a", "apple"))));
+        InvertedIndex before = writer.snapshot();
+        writer.add(List.of(doc("b", "apple")));
+        writer.delete(List.of("a"));
+
+        assertEquals(1, before.search("apple", 10).size);
+        assertNotNull(before.get("a"));
+        assertNull(before.get("b"));
+
+        InvertedIndex after = writer.snapshot();
+        assertTrue(after.generation() > before.generation());
+        assertEquals(1, after.search("apple", 10).size);
+        assertEquals("b", after.document(after.search("apple", 10).docs[0]).getId());
+        writer.close();
+    }
+
+    @Test
+    public void testSmallSegmentsAreMerged() throws InterruptedException {
+        IndexWriter writer = new IndexWriter(InvertedIndex.build(List.of()));
+        for (int i = 0; i < 200; i++) {
+            writer.add(List.of(doc("d" + i, "common term" + i)));
+            if (i % 10 == 0) {
+                writer.delete(List.of("d" + (i / 2)));
+            }
+        }
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (IndexWriter.findMerge(writer.snapshot()) != null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        InvertedIndex index = writer.snapshot();
+        assertNull(IndexWriter.findMerge(index));
+        assertTrue(index.segments().length < 3 * IndexWriter.MERGE_FACTOR, "segments: " + index.segments().length);
+        assertEquals(180, index.size());
+        assertEquals(180, index.search("common", 1000).size);
+        for (int i = 0; i < 200; i++) {
+            boolean deleted = i % 5 == 0 && i < 100;
+            assertEquals(deleted, index.get("d" + i) == null, "d" + i);
+        }
+        writer.close();
+    }
+
+    @Test
+    public void testConcurrentReadersSeeConsistentSnapshots() throws Exception {
+        SearchMCP search = new SearchMCP(List.of());
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 2; r++) {
+            Thread reader = new Thread(() -> {
+                try {
+                    while (!done.get()) {
+                        // Every id is indexed with the same version in both fields,
+                        // so a hit must never mix the title of one version with the text of another
+                        for (SearchResult hit : search.search("shared", 50)) {
+                            assertEquals(hit.getTitle().substring("title ".length()), hit.getText().split(" ")[1]);
+                        }
+                    }
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+        for (int i = 0; i < 500; i++) {
+            String version = "v" + i;
+            search.index(new SearchResult("k" + (i % 20), "title " + version, "shared " + version, null));
+            if (i % 7 == 0) {
+                search.delete("k" + (i % 13));
+            }
+        }
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertNull(failure.get());
+        assertTrue(search.size() <= 20);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.mcp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for top-{@code k} search with skipping in {@link InvertedIndex}.
+ */
+public class InvertedIndexTest {
+
+    private static final String[] WORDS = {"alpha", "beta", "gamma", "delta", "epsilon", "zeta", "theta", "kappa"};
+
+    /** Draws words skewed towards the start of {@link #WORDS}, so a few are in most documents. */
+    private static String text(Random random, int words) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            double u = random.nextDouble();
+            text.append(WORDS[(int) (u * u * u * WORDS.length)]).append(' ');
+        }
+        return text.toString();
+    }
+
+    /** Asserts that the top-k search returns the first k hits of the full ranking. */
+    private static void assertSameAsFullRanking(InvertedIndex index, String query, int k, boolean fuzzy) {
+        InvertedIndex.Hits top = index.search(query, k, fuzzy);
+        RankedHits all = index.rank(query, fuzzy);
+        int n = all.rank(k);
+        assertEquals(n, top.size, query);
+        for (int i = 0; i < n; i++) {
+            assertEquals(all.doc(i), top.docs[i], query + " at " + i);
+            assertEquals(all.score(i), top.scores[i], query + " at " + i);
+        }
+    }
+
+    @Test
+    public void testTopKMatchesFullRanking() {
+        Random random = new Random(1);
+        List<SearchResult> documents = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            documents.add(new SearchResult("d" + i, text(random, 1 + random.nextInt(3)), text(random, 1 + random.nextInt(30)), null));
+        }
+        IndexWriter writer = new IndexWriter(InvertedIndex.build(documents));
+        // More segments, replaced documents and deletions
+        List<SearchResult> updates = new ArrayList<>();
+        List<String> deletions = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            updates.add(new SearchResult("d" + random.nextInt(4000), "", text(random, 1 + random.nextInt(30)), null));
+            deletions.add("d" + random.nextInt(4000));
+        }
+        writer.add(updates.subList(0, 150));
+        writer.delete(deletions);
+        writer.add(updates.subList(150, 300));
+        InvertedIndex index = writer.snapshot();
+
+        for (int q = 0; q < 200; q++) {
+            String query = text(random, 1 + random.nextInt(4));
+            for (int k : new int[] {1, 3, 10, 50}) {
+                assertSameAsFullRanking(index, query, k, false);
+            }
+        }
+        assertSameAsFullRanking(index, "alpah kapa", 10, true);
+        assertSameAsFullRanking(index, "nothing", 10, false);
+    }
+
+    @Test
+    public void testBlockMaxima() {
+        List<SearchResult> documents = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            documents.add(new SearchResult("d" + i, "", i == 200 ? "common common common common" : "common filler words", null));
+        }
+        Segment segment = InvertedIndex.build(documents).segments()[0];
+        Segment.Postings common = segment.postings("common");
+        float[] maxima = common.blockMaxima(segment.lengthNorms());
+        assertEquals(3, maxima.length);
+        // The one document with a high term frequency only raises the bound of its own block
+        assertTrue(maxima[1] > maxima[0]);
+        assertEquals(maxima[0], maxima[2]);
+        assertSame(maxima, common.blockMaxima(segment.lengthNorms()));
+        assertEquals(150, common.advance(0, 150));
+        assertEquals(150, common.advance(150, 150));
+        assertEquals(300, common.advance(10, 1000));
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.mcp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link JsonRpcRequestParser}.
+ */
+public class JsonRpcRequestParserTest {
+
+    private final JsonRpcRequestParser parser = new JsonRpcRequestParser(
+            new ToolRegistry().register(new TimeReportMCP()).register(new SearchMCP()).snapshot(), 1024);
+
+    private JsonRpcMessage parse(String body) throws Exception {
+        return parser.parse(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private JsonRpcRequest parseSingle(String body) throws Exception {
+        JsonRpcMessage message = parse(body);
+        assertNull(message.getError());
+        assertFalse(message.isBatch());
+        return message.getRequests().get(0);
+    }
+
+    @Test
+    public void testBindsTypedParams() throws Exception {
+        JsonRpcRequest request = parseSingle("{\"jsonrpc\":\"2.0\",\"method\":\"getTimeReportStats\",\"params\":{\"year\":2025,\"month\":5,\"extra\":[1,2]},\"id\":7}");
+        assertNull(request.getError());
+        assertEquals(new TimeReportMCP.GetTimeReportStatsParams(2025, 5), request.getParams());
+        assertEquals(7L, request.getId());
+        assertFalse(request.isNotification());
+    }
+
+    @Test
+    public void testParamsBeforeMethod() throws Exception {
+        JsonRpcRequest request = parseSingle("{\"params\":{\"query\":\"time\"},\"id\":\"a\",\"method\":\"searchContent\",\"jsonrpc\":\"2.0\"}");
+        assertNull(request.getError());
+        assertEquals(new SearchMCP.SearchContentParams("time"), request.getParams());
+    }
+
+    @Test
+    public void testValidationErrorsAreReportedAsInvalidParams() throws Exception {
+        String[] bodies = {
+            "{\"jsonrpc\":\"2.0\",\"method\":\"getTimeReportStats\",\"params\":{\"year\":2025},\"id\":1}",
+            "{\"jsonrpc\":\"2.0\",\"method\":\"getTimeReportStats\",\"params\":{\"year\":\"2025\",\"month\":5},\"id\":1}",
+            "{\"jsonrpc\":\"2.0\",\"method\":\"getTimeReportStats\",\"params\":{\"year\":2025,\"month\":13},\"id\":1}",
+            "{\"jsonrpc\":\"2.0\",\"method\":\"getTimeReportStats\",\"params\":{\"year\":2025,\"month\":5.5},\"id\":1}",
+            "{\"jsonrpc\":\"2.0\",\"method\":\"getTimeReportStats\",\"params\":{\"year\":2025,\"month\":1e30},\"id\":1}",
+            "{\"jsonrpc\":\"2.0\",\"method\":\"getTimeReportStats\",\"params\":{\"year\":2025,\"month\":99999999999999999999},\"id\":1}",
+            "{\"jsonrpc\":\"2.0\",\"method\":\"fetchContent\",\"params\":[\"1\"],\"id\":1}",
+            "{\"jsonrpc\":\"2.0\",\"method\":\"fetchContent\",\"id\":1}",
+        };
+        for (String body : bodies) {
+            JsonRpcRequest request = parseSingle(body);
+            assertNotNull(request.getError(), body);
+            assertEquals(JsonRpcErrorCodes.INVALID_PARAMS, request.getError().getCode(), body);
+        }
+    }
+
+    @Test
+    public void testIntegersKeepTheirPrecision() throws Exception {
+        JsonRpcRequestParser parser = new JsonRpcRequestParser(new ToolRegistry().register(new MethodSpec<>("big", "Returns a long.",
+                new ParamSchema(ParamSpec.integer("n", "A long.", 0, Long.MAX_VALUE)), v -> v.getLong(0), (n, context) -> n)).snapshot(), 1024);
+        String body = "{\"jsonrpc\":\"2.0\",\"method\":\"big\",\"params\":{\"n\":9007199254740993},\"id\":1}";
+        JsonRpcRequest request = parser.parse(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8))).getRequests().get(0);
+        assertNull(request.getError());
+        assertEquals(9007199254740993L, request.getParams());
+        // An integral value written as a decimal is still an integer
+        assertEquals(new TimeReportMCP.GetTimeReportStatsParams(2025, 5),
+                parseSingle("{\"jsonrpc\":\"2.0\",\"method\":\"getTimeReportStats\",\"params\":{\"year\":2025,\"month\":5.0},\"id\":1}").getParams());
+    }
+
+    @Test
+    public void testNumericProgressTokensAreKept() throws Exception {
+        String[] tokens = {"7", "1.5", "1e30", "99999999999999999999"};
+        Object[] expected = {7L, 1.5, 1e30, 1e20};
+        for (int i = 0; i < tokens.length; i++) {
+            JsonRpcRequest request = parseSingle("{\"jsonrpc\":\"2.0\",\"method\":\"fetchContent\",\"params\":{\"id\":\"1\",\"_meta\":{\"progressToken\":"
+                    + tokens[i] + "}},\"id\":1}");
+            assertNull(request.getError(), tokens[i]);
+            assertEquals(expected[i], request.getProgressToken(), tokens[i]);
+        }
+    }
+
+    @Test
+    public void testNotificationAndInvalidId() throws Exception {
+        assertTrue(parseSingle("{\"jsonrpc\":\"2.0\",\"method\":\"fetchContent\",\"params\":{\"id\":\"1\"}}").isNotification());
+        assertFalse(parseSingle("{\"jsonrpc\":\"2.0\",\"method\":\"fetchContent\",\"params\":{\"id\":\"1\"},\"id\":null}").isNotification());
+        JsonRpcRequest request = parseSingle("{\"jsonrpc\":\"2.0\",\"method\":\"fetchContent\",\"params\":{\"id\":\"1\"},\"id\":{}}");
+        assertEquals(JsonRpcErrorCodes.INVALID_REQUEST, request.getError().getCode());
+    }
+
+    @Test
+    public void testBodyLevelErrors() throws Exception {
+        assertEquals(JsonRpcErrorCodes.INVALID_REQUEST, parse("").getError().getCode());
+        assertEquals(JsonRpcErrorCodes.INVALID_REQUEST, parse("[]").getError().getCode());
+        assertEquals(JsonRpcErrorCodes.PARSE_ERROR, parse("null").getError().getCode());
+        assertEquals(JsonRpcErrorCodes.PARSE_ERROR, parse("{\"jsonrpc\":").getError().getCode());
+        assertEquals(JsonRpcErrorCodes.PARSE_ERROR, parse("{} {}").getError().getCode());
+    }
+
+    @Test
+    public void testBatchWithInvalidElement() throws Exception {
+        JsonRpcMessage message = parse("[1, {\"jsonrpc\":\"2.0\",\"method\":\"fetchContent\",\"params\":{\"id\":\"1\"},\"id\":2}]");
+        assertTrue(message.isBatch());
+        assertEquals(2, message.getRequests().size());
+        assertEquals(JsonRpcErrorCodes.INVALID_REQUEST, message.getRequests().get(0).getError().getCode());
+        assertNull(message.getRequests().get(1).getError());
+    }
+
+    @Test
+    public void testMaximumBodySize() {
+        String query = "x".repeat(2048);
+        assertThrows(RequestTooLargeException.class,
+                () -> parse("{\"jsonrpc\":\"2.0\",\"method\":\"searchContent\",\"params\":{\"query\":\"" + query + "\"},\"id\":1}"));
+    }
+}
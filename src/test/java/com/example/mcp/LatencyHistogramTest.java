@@ -0,0 +1,52 @@
+package com.example.mcp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBucketsCoverEveryValueWithinPrecision() {
+        Random random = new Random(3);
+        for (int i = 0; i < 100_000; i++) {
+            long value = (random.nextLong() >>> 1) >>> random.nextInt(63);
+            long highest = LatencyHistogram.highestValue(LatencyHistogram.bucket(value));
+            assertTrue(highest >= value, "bucket of " + value + " ends at " + highest);
+            assertTrue(highest - value <= Math.max(0, value / 64), "bucket of " + value + " ends at " + highest);
+        }
+        for (long value = 0; value < 4096; value++) {
+            if (value < 128) {
+                assertEquals(value, LatencyHistogram.bucket(value));
+            }
+            assertTrue(LatencyHistogram.bucket(value + 1) >= LatencyHistogram.bucket(value));
+        }
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.highestValue(LatencyHistogram.bucket(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void testPercentilesMatchSortedValues() {
+        Random random = new Random(5);
+        long[] values = new long[10_000];
+        LatencyHistogram histogram = new LatencyHistogram();
+        LatencyHistogram half = new LatencyHistogram();
+        for (int i = 0; i < values.length; i++) {
+            // Mostly around a millisecond with a long tail
+            values[i] = (long) (1_000_000 * Math.exp(random.nextGaussian()));
+            (i % 2 == 0 ? histogram : half).record(values[i]);
+        }
+        histogram.add(half);
+        Arrays.sort(values);
+        assertEquals(values.length, histogram.count());
+        for (double percentile : new double[] {0, 50, 90, 99, 99.9, 100}) {
+            long expected = values[Math.max(0, (int) Math.ceil(percentile / 100 * values.length) - 1)];
+            long actual = histogram.percentile(percentile);
+            assertTrue(actual >= expected && actual - expected <= expected / 64,
+                    "p" + percentile + ": expected " + expected + " but was " + actual);
+        }
+        assertEquals(histogram.percentile(100), histogram.max());
+        assertEquals(0, new LatencyHistogram().percentile(99));
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.mcp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for {@link SegmentWriter} and {@link MappedSegment}.
+ */
+public class MappedSegmentTest {
+
+    @TempDir
+    Path dir;
+
+    private static List<SearchResult> corpus() {
+        List<SearchResult> docs = new ArrayList<>();
+        docs.add(new SearchResult("a", "Monthly time report", "Hours per signature for one month.", null,
+                Map.of("owner", "NH")));
+        docs.add(new SearchResult("b", "Vacation policy", "Time off has to be reported in advance.", "https://example.com/b"));
+        docs.add(new SearchResult("c", "Expense report", "Receipts and travel expenses.", null));
+        docs.add(new SearchResult("ö", "Übersicht", "Zeitbericht für März", null));
+        for (int i = 0; i < 200; i++) {
+            docs.add(new SearchResult("doc-" + i, "doc " + i, "alpha ".repeat(1 + i % 13) + "beta " + i, null));
+        }
+        return docs;
+    }
+
+    private Path write(List<SearchResult> docs) throws IOException {
+        Path file = dir.resolve("corpus.seg");
+        try (SegmentWriter writer = new SegmentWriter(file)) {
+            for (SearchResult doc : docs) {
+                writer.add(doc);
+            }
+            writer.finish();
+        }
+        return file;
+    }
+
+    @Test
+    public void testMappedIndexRanksLikeHeapIndex() throws IOException {
+        List<SearchResult> docs = corpus();
+        InvertedIndex heap = InvertedIndex.build(docs);
+        InvertedIndex mapped = InvertedIndex.open(write(docs));
+        assertEquals(heap.size(), mapped.size());
+        for (String query : List.of("time report", "alpha", "beta 17", "März", "missing")) {
+            InvertedIndex.Hits expected = heap.search(query, 20);
+            InvertedIndex.Hits actual = mapped.search(query, 20);
+            assertEquals(expected.size, actual.size, query);
+            for (int i = 0; i < expected.size; i++) {
+                assertEquals(expected.docs[i], actual.docs[i], query);
+                assertEquals(expected.scores[i], actual.scores[i], 1e-6, query);
+            }
+        }
+    }
+
+    @Test
+    public void testStoredDocuments() throws IOException {
+        SearchMCP search = new SearchMCP(write(corpus()));
+        SearchResult a = search.fetch("a");
+        assertEquals("Monthly time report", a.getTitle());
+        assertEquals(Map.of("owner", "NH"), a.getMetadata());
+        assertNull(a.getUrl());
+        assertEquals("https://example.com/b", search.fetch("b").getUrl());
+        assertNull(search.fetch("b").getMetadata());
+        assertEquals("Übersicht", search.fetch("ö").getTitle());
+        assertEquals("doc 199", search.fetch("doc-199").getTitle());
+        assertNull(search.fetch("doc-200"));
+        assertEquals("a", search.search("monthly").get(0).getId());
+    }
+
+    @Test
+    public void testBuildFromDirectory() throws IOException {
+        Path docs = Files.createDirectories(dir.resolve("docs/guides"));
+        Files.writeString(docs.resolve("vacation.md"), "# Vacation\n\nBook time off early.\n", StandardCharsets.UTF_8);
+        Files.writeString(dir.resolve("docs/items.json"),
+                "[{\"id\":\"x1\",\"title\":\"Expenses\",\"text\":\"Travel receipts\"},{\"title\":\"Untitled\",\"text\":\"no id\"}]",
+                StandardCharsets.UTF_8);
+        Files.writeString(dir.resolve("docs/.hidden.txt"), "secret", StandardCharsets.UTF_8);
+        Files.write(dir.resolve("docs/image.png"), new byte[] {1, 2, 3});
+
+        Path file = dir.resolve("docs.seg");
+        try (SegmentWriter writer = new SegmentWriter(file)) {
+            assertEquals(3, writer.addDirectory(dir.resolve("docs")));
+            writer.finish();
+        }
+        SearchMCP search = new SearchMCP(file);
+        assertEquals("Vacation", search.fetch("guides/vacation.md").getTitle());
+        assertEquals("Expenses", search.fetch("x1").getTitle());
+        assertEquals("Untitled", search.fetch("items.json#1").getTitle());
+        assertTrue(search.search("secret").isEmpty());
+        assertEquals("x1", search.search("receipts").get(0).getId());
+    }
+
+    @Test
+    public void testEmptySegment() throws IOException {
+        SearchMCP search = new SearchMCP(write(List.of()));
+        assertTrue(search.search("anything").isEmpty());
+        assertNull(search.fetch("a"));
+    }
+
+    @Test
+    public void testRejectsOtherFiles() throws IOException {
+        Path file = dir.resolve("not-a-segment");
+        Files.writeString(file, "hello", StandardCharsets.UTF_8);
+        assertThrows(IOException.class, () -> MappedSegment.open(file));
+        Files.write(file, new byte[200]);
+        assertThrows(IOException.class, () -> MappedSegment.open(file));
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.mcp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.HttpURLConnection;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the {@link TransportMode#NIO} transport of {@link TimeReportMCPServer}.
+ */
+public class NioHttpTransportTest {
+
+    private TimeReportMCPServer server;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = new TimeReportMCPServer(new TimeReportMCP(), new SearchMCP(), 0,
+                ExecutionMode.POOLED, 4, TransportMode.NIO);
+        server.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testParse() {
+        assertEquals(TransportMode.NIO, TransportMode.parse(" nio "));
+        assertEquals(TransportMode.JDK, TransportMode.parse("JDK"));
+        assertThrows(IllegalArgumentException.class, () -> TransportMode.parse("netty"));
+    }
+
+    @Test
+    public void testPipelinedRequestsAreAnsweredInOrder() throws Exception {
+        try (Socket socket = new Socket("localhost", server.getPort())) {
+            StringBuilder requests = new StringBuilder();
+            for (int id = 1; id <= 3; id++) {
+                requests.append(post("{\"jsonrpc\":\"2.0\",\"method\":\"getTimeReportStats\",\"params\":{\"year\":2025,\"month\":5},\"id\":" + id + "}"));
+            }
+            // All three in one write; the last one also asks to close the connection
+            String all = requests.toString();
+            int last = all.lastIndexOf("Content-Length");
+            socket.getOutputStream().write((all.substring(0, last) + "Connection: close\r\n" + all.substring(last))
+                    .getBytes(StandardCharsets.UTF_8));
+
+            InputStream in = socket.getInputStream();
+            for (int id = 1; id <= 3; id++) {
+                String head = readHead(in);
+                assertTrue(head.startsWith("HTTP/1.1 200 OK\r\n"), head);
+                int length = Integer.parseInt(header(head, "Content-length"));
+                JsonObject response = new Gson().fromJson(new String(in.readNBytes(length), StandardCharsets.UTF_8), JsonObject.class);
+                assertEquals(id, response.get("id").getAsInt());
+                assertEquals(id == 3 ? "close" : null, header(head, "Connection"));
+            }
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    public void testChunkedRequestBody() throws Exception {
+        String body = "{\"jsonrpc\":\"2.0\",\"method\":\"fetchContent\",\"params\":{\"id\":\"1\"},\"id\":7}";
+        URL url = new URL("http://localhost:" + server.getPort() + "/sse");
+        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+        conn.setRequestMethod("POST");
+        conn.setDoOutput(true);
+        conn.setChunkedStreamingMode(16);
+        try (OutputStream os = conn.getOutputStream()) {
+            os.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals(200, conn.getResponseCode());
+        BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
+        JsonObject response = new Gson().fromJson(reader.lines().collect(Collectors.joining()), JsonObject.class);
+        assertEquals(7, response.get("id").getAsInt());
+        assertEquals("1", response.getAsJsonObject("result").get("id").getAsString());
+    }
+
+    @Test
+    public void testOversizedRequestIsRejectedBeforeItIsRead() throws Exception {
+        server.setMaxRequestBytes(100);
+        try (Socket socket = new Socket("localhost", server.getPort())) {
+            socket.getOutputStream().write(("POST /sse HTTP/1.1\r\nHost: localhost\r\nContent-Length: 101\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            InputStream in = socket.getInputStream();
+            String head = readHead(in);
+            assertTrue(head.startsWith("HTTP/1.1 413 "), head);
+            assertEquals(-1, in.read());
+        }
+    }
+
+    @Test
+    public void testUnknownPathIsNotFound() throws Exception {
+        PrintStream err = System.err;
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(log, true, StandardCharsets.UTF_8));
+        try {
+            HttpURLConnection conn = (HttpURLConnection) new URL("http://localhost:" + server.getPort() + "/other").openConnection();
+            assertEquals(404, conn.getResponseCode());
+            // The selector thread only gets to a second connection after it is done with the first
+            conn = (HttpURLConnection) new URL("http://localhost:" + server.getPort() + "/other").openConnection();
+            assertEquals(404, conn.getResponseCode());
+        } finally {
+            System.setErr(err);
+        }
+        assertFalse(log.toString(StandardCharsets.UTF_8).contains("internal error"), log.toString(StandardCharsets.UTF_8));
+    }
+
+    private static String post(String body) {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        return "POST /sse HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\nContent-Length: "
+                + bytes.length + "\r\n\r\n" + body;
+    }
+
+    /** Reads up to and including the blank line ending the response headers. */
+    private static String readHead(InputStream in) throws IOException {
+        StringBuilder head = new StringBuilder();
+        while (!head.toString().endsWith("\r\n\r\n")) {
+            int b = in.read();
+            if (b < 0) {
+                throw new IOException("Connection closed in the response head: " + head);
+            }
+            head.append((char) b);
+        }
+        return head.toString();
+    }
+
+    private static String header(String head, String name) {
+        for (String line : head.split("\r\n")) {
+            if (line.regionMatches(true, 0, name + ":", 0, name.length() + 1)) {
+                return line.substring(name.length() + 1).trim();
+            }
+        }
+        return null;
+    }
+}
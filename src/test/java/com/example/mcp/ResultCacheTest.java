@@ -0,0 +1,83 @@
+package com.example.mcp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link ResultCache}.
+ */
+public class ResultCacheTest {
+
+    private static byte[] value(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testHitMissAndGenerations() {
+        ResultCache cache = new ResultCache(1 << 20, 60_000);
+        assertNull(cache.get("q", 1));
+        cache.put("q", 1, value("[1]"));
+        assertArrayEquals(value("[1]"), cache.get("q", 1));
+        // A newer index generation invalidates the entry
+        assertNull(cache.get("q", 2));
+        assertNull(cache.get("q", 1));
+
+        ResultCache.Stats stats = cache.stats();
+        assertEquals(1, stats.hits);
+        assertEquals(3, stats.misses);
+        assertEquals(0, stats.entries);
+    }
+
+    @Test
+    public void testExpiry() {
+        ResultCache cache = new ResultCache(1 << 20, -1);
+        cache.put("q", 1, value("[1]"));
+        assertNull(cache.get("q", 1));
+    }
+
+    @Test
+    public void testSizeBound() {
+        ResultCache cache = new ResultCache(64 * 1024, 60_000);
+        byte[] kilobyte = new byte[1024];
+        for (int i = 0; i < 1000; i++) {
+            cache.put("k" + i, 1, kilobyte);
+        }
+        ResultCache.Stats stats = cache.stats();
+        assertTrue(stats.bytes <= 64 * 1024, "bytes: " + stats.bytes);
+        assertTrue(stats.entries > 0);
+        assertTrue(stats.evictions + stats.rejections > 0);
+    }
+
+    @Test
+    public void testHotKeysSurviveScan() {
+        ResultCache cache = new ResultCache(128 * 1024, 60_000);
+        byte[] kilobyte = new byte[1024];
+        for (int round = 0; round < 20; round++) {
+            for (int hot = 0; hot < 20; hot++) {
+                if (cache.get("hot" + hot, 1) == null) {
+                    cache.put("hot" + hot, 1, kilobyte);
+                }
+            }
+        }
+        // A stream of one-off keys, many times the cache size, while the hot
+        // keys keep being read; each hot key is read again only after more
+        // distinct keys than fit into the cache, so plain LRU would lose it
+        int hotMisses = 0;
+        for (int i = 0; i < 2000; i++) {
+            if (cache.get("scan" + i, 1) == null) {
+                cache.put("scan" + i, 1, kilobyte);
+            }
+            if (i % 5 == 0) {
+                String hot = "hot" + (i / 5) % 20;
+                if (cache.get(hot, 1) == null) {
+                    hotMisses++;
+                    cache.put(hot, 1, kilobyte);
+                }
+            }
+        }
+        assertEquals(0, hotMisses);
+    }
+}
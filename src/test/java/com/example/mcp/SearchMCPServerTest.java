@@ -154,4 +154,40 @@ public class SearchMCPServerTest {
         assertNull(jsonRpcResponse.getError()); // No JSON-RPC error for "not found" data
         assertNull(jsonRpcResponse.getResult()); // The result itself is null
     }
+
+    private String post(String body) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL("http://localhost:" + server.getPort() + "/sse").openConnection();
+        conn.setRequestMethod("POST");
+        conn.setRequestProperty("Content-Type", "application/json; charset=utf-8");
+        conn.setDoOutput(true);
+        try (OutputStream os = conn.getOutputStream()) {
+            os.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals(200, conn.getResponseCode());
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8))) {
+            return reader.lines().collect(Collectors.joining());
+        }
+    }
+
+    @Test
+    public void testRepeatedSearchIsServedFromCache() throws Exception {
+        String first = post("{\"jsonrpc\":\"2.0\",\"method\":\"searchContent\",\"params\":{\"query\":\"Time report\"},\"id\":1}");
+        String second = post("{\"jsonrpc\":\"2.0\",\"method\":\"searchContent\",\"params\":{\"query\":\"time, REPORT\"},\"id\":1}");
+        assertEquals(first, second);
+
+        String stats = post("{\"jsonrpc\":\"2.0\",\"method\":\"getSearchCacheStats\",\"id\":2}");
+        Map<?, ?> result = (Map<?, ?>) new Gson().fromJson(stats, Map.class).get("result");
+        assertEquals(1.0, result.get("hits"));
+        assertEquals(1.0, result.get("misses"));
+
+        // Indexing content invalidates the cached result
+        post("{\"jsonrpc\":\"2.0\",\"method\":\"indexContent\",\"params\":{\"id\":\"2\",\"title\":\"Time report guide\",\"text\":\"How to report time.\"},\"id\":3}");
+        String third = post("{\"jsonrpc\":\"2.0\",\"method\":\"searchContent\",\"params\":{\"query\":\"time report\"},\"id\":1}");
+        assertNotEquals(first, third);
+        assertTrue(third.contains("\"id\":\"2\""));
+
+        // Cached results are embedded verbatim in batch responses too
+        String batch = post("[{\"jsonrpc\":\"2.0\",\"method\":\"searchContent\",\"params\":{\"query\":\"time report\"},\"id\":1}]");
+        assertEquals("[" + third + "]", batch);
+    }
 }
@@ -0,0 +1,233 @@
+package com.example.mcp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParser;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class SearchMCPTest {
+
+    private static SearchMCP corpus() {
+        return new SearchMCP(List.of(
+                new SearchResult("a", "Monthly time report", "Hours per signature for one month.", null),
+                new SearchResult("b", "Vacation policy", "Time off has to be reported in advance.", null),
+                new SearchResult("c", "Expense report", "Receipts and travel expenses.", null),
+                new SearchResult("d", "Cafeteria menu", "Soup, salad and coffee.", null)));
+    }
+
+    @Test
+    public void testTokenizer() {
+        assertEquals(List.of("time", "report", "2025", "nh"), Tokenizer.tokenize("Time-Report (2025), NH!"));
+        assertTrue(Tokenizer.tokenize("  ...  ").isEmpty());
+        assertTrue(Tokenizer.tokenize(null).isEmpty());
+    }
+
+    @Test
+    public void testRankedResults() {
+        List<SearchResult> results = corpus().search("time report");
+        List<String> ids = new ArrayList<>();
+        for (SearchResult r : results) {
+            ids.add(r.getId());
+            assertNotNull(r.getScore());
+        }
+        // "a" matches both terms in the title, "b" and "c" one term each, "d" nothing
+        assertEquals("a", ids.get(0));
+        assertEquals(3, ids.size());
+        assertFalse(ids.contains("d"));
+        assertTrue(results.get(0).getScore() > results.get(1).getScore());
+    }
+
+    @Test
+    public void testLimitAndNoMatch() {
+        SearchMCP search = corpus();
+        assertEquals(1, search.search("time report", 1).size());
+        assertTrue(search.search("payroll").isEmpty());
+        assertTrue(search.search("").isEmpty());
+        assertTrue(search.search(null).isEmpty());
+    }
+
+    @Test
+    public void testFetchHasNoScore() {
+        SearchResult result = corpus().fetch("c");
+        assertEquals("Expense report", result.getTitle());
+        assertNull(result.getScore());
+        assertNull(corpus().fetch("missing"));
+    }
+
+    @Test
+    public void testTopKOverLargeCorpus() {
+        List<SearchResult> docs = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            // Term frequency of "alpha" grows with i, so the last documents rank best
+            docs.add(new SearchResult(Integer.toString(i), "doc " + i, "alpha ".repeat(1 + i % 50) + "beta", null));
+        }
+        List<SearchResult> results = new SearchMCP(docs).search("alpha", 5);
+        assertEquals(5, results.size());
+        for (int i = 1; i < results.size(); i++) {
+            assertTrue(results.get(i - 1).getScore() >= results.get(i).getScore());
+        }
+        assertEquals(49, Integer.parseInt(results.get(0).getId()) % 50);
+    }
+
+    @Test
+    public void testPagingWithCursor() {
+        List<SearchResult> docs = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            docs.add(new SearchResult(Integer.toString(i), "doc " + i, "alpha ".repeat(1 + i % 7), null));
+        }
+        SearchMCP search = new SearchMCP(docs);
+
+        List<String> ids = new ArrayList<>();
+        List<Integer> pageSizes = new ArrayList<>();
+        double lastScore = Double.MAX_VALUE;
+        String cursor = null;
+        do {
+            SearchPage page = search.search("alpha", 10, cursor);
+            pageSizes.add(page.getResults().size());
+            for (SearchResult r : page.getResults()) {
+                assertTrue(r.getScore() <= lastScore);
+                lastScore = r.getScore();
+                ids.add(r.getId());
+            }
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(List.of(10, 10, 5), pageSizes);
+        assertEquals(25, ids.stream().distinct().count());
+        // The unpaged search ranks the same way
+        List<String> topTen = new ArrayList<>();
+        for (SearchResult r : search.search("alpha", 10)) {
+            topTen.add(r.getId());
+        }
+        assertEquals(topTen, ids.subList(0, 10));
+    }
+
+    @Test
+    public void testCursorCanBeRepeated() {
+        List<SearchResult> docs = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            docs.add(new SearchResult(Integer.toString(i), "doc " + i, "alpha", null));
+        }
+        SearchMCP search = new SearchMCP(docs);
+        SearchPage first = search.search("alpha", 2, null);
+        SearchPage second = search.search("alpha", 2, first.getNextCursor());
+        SearchPage again = search.search("alpha", 2, first.getNextCursor());
+        assertEquals(second.getResults().get(0).getId(), again.getResults().get(0).getId());
+        assertEquals(second.getNextCursor(), again.getNextCursor());
+        assertNull(search.search("alpha", 10, null).getNextCursor());
+    }
+
+    @Test
+    public void testInvalidCursor() {
+        SearchMCP search = corpus();
+        assertThrows(IllegalArgumentException.class, () -> search.search("time", 10, "bm90LWEtY3Vyc29y"));
+        assertThrows(IllegalArgumentException.class, () -> search.search("time", 10, "%%%"));
+        String cursor = search.search("time report", 1, null).getNextCursor();
+        assertNotNull(cursor);
+        assertThrows(IllegalArgumentException.class, () -> search.search("report", 1, cursor));
+    }
+
+    @Test
+    public void testCursorStoreIsBounded() {
+        SearchCursors cursors = new SearchCursors(2, 60_000);
+        String first = cursors.save(new SearchCursors.State("a", null, new RankedHits()));
+        cursors.save(new SearchCursors.State("b", null, new RankedHits()));
+        cursors.save(new SearchCursors.State("c", null, new RankedHits()));
+        assertEquals(2, cursors.size());
+        assertNull(cursors.resolve(SearchCursors.encode(first, 0)));
+
+        SearchCursors expiring = new SearchCursors(2, -1);
+        String id = expiring.save(new SearchCursors.State("a", null, new RankedHits()));
+        assertNull(expiring.resolve(SearchCursors.encode(id, 0)));
+    }
+
+    @Test
+    public void testCachedPageCursorSurvivesEviction() throws Exception {
+        StringBuilder terms = new StringBuilder();
+        for (int i = 0; i <= SearchCursors.DEFAULT_CAPACITY; i++) {
+            terms.append(" t").append(i);
+        }
+        SearchMCP search = new SearchMCP(List.of(
+                new SearchResult("a", "first", terms.toString(), null),
+                new SearchResult("b", "second", terms + " t0", null)));
+        JsonRpcDispatcher dispatcher = new JsonRpcDispatcher(new ToolRegistry().register(search).snapshot(), null);
+        String page = call(dispatcher, "searchContent", "{\"query\":\"t0\",\"limit\":1}");
+        // Every other query saves cursor state, pushing out the one of the cached page
+        for (int i = 1; i <= SearchCursors.DEFAULT_CAPACITY; i++) {
+            call(dispatcher, "searchContent", "{\"query\":\"t" + i + "\",\"limit\":1}");
+        }
+        assertEquals(page, call(dispatcher, "searchContent", "{\"query\":\"t0\",\"limit\":1}"));
+        String cursor = JsonParser.parseString(page).getAsJsonObject().getAsJsonObject("result").get("nextCursor").getAsString();
+        SearchPage next = search.search("t0", 1, cursor);
+        assertEquals("a", next.getResults().get(0).getId());
+        assertNull(next.getNextCursor());
+
+
+        // Only first-page cursors of the same query on the same index are restored
+        SearchCursors cursors = new SearchCursors(1, 60_000);
+        IndexWriter writer = new IndexWriter(InvertedIndex.build(List.of(
+                new SearchResult("a", "first", "t0", null),
+                new SearchResult("b", "second", "t0 t0", null))));
+        InvertedIndex index = writer.snapshot();
+        String id = cursors.id("t0", false, index.generation());
+        cursors.save(id, new SearchCursors.State("t0", false, index, index.rank("t0", false)));
+        cursors.save(new SearchCursors.State("other", null, new RankedHits()));
+        String evicted = SearchCursors.encode(id, 1);
+        assertNull(cursors.resolve(evicted));
+        assertNull(cursors.restore(evicted, "t1", false, index));
+        assertNull(cursors.restore(evicted, "t0", true, index));
+        assertNull(cursors.restore(SearchCursors.encode("forged", 1), "t0", false, index));
+        writer.add(List.of(new SearchResult("c", "third", "t0", null)));
+        assertNull(cursors.restore(evicted, "t0", false, writer.snapshot()));
+        assertEquals(1, cursors.restore(evicted, "t0", false, index).offset);
+    }
+
+    @Test
+    public void testFuzzySearch() {
+        SearchMCP search = corpus();
+        assertTrue(search.search("vacaton", 10, null).getResults().isEmpty());
+        List<SearchResult> results = search.search("vacaton polcy", 10, null, true).getResults();
+        assertEquals("b", results.get(0).getId());
+        // An exact match outranks a fuzzy one
+        SearchMCP reports = new SearchMCP(List.of(
+                new SearchResult("x", "report", "", null),
+                new SearchResult("y", "reports", "", null)));
+        List<SearchResult> ranked = reports.search("report", 10, null, true).getResults();
+        assertEquals(List.of("x", "y"), List.of(ranked.get(0).getId(), ranked.get(1).getId()));
+        // A cursor remembers whether the search was fuzzy
+        String cursor = reports.search("report", 1, null, true).getNextCursor();
+        assertThrows(IllegalArgumentException.class, () -> reports.search("report", 1, cursor, false));
+    }
+
+    @Test
+    public void testSuggest() {
+        SearchMCP search = corpus();
+        search.index(new SearchResult("e", "Reporting", "Report of the monthly reports.", null));
+        List<Suggestion> suggestions = search.suggest("Monthly Rep", 10, false);
+        List<String> terms = new ArrayList<>();
+        for (Suggestion s : suggestions) {
+            terms.add(s.getTerm());
+        }
+        assertEquals("report", terms.get(0));
+        assertTrue(terms.containsAll(List.of("reported", "reporting", "reports")));
+        assertEquals("Monthly report", suggestions.get(0).getText());
+        assertEquals(3, suggestions.get(0).getDocFreq());
+
+        assertTrue(search.suggest("Monthly ", 10, false).isEmpty());
+        assertTrue(search.suggest("vacatoin", 10, false).isEmpty());
+        assertEquals("vacation", search.suggest("vacatoin", 10, true).get(0).getTerm());
+        assertEquals(1, search.suggest("re", 1, false).size());
+    }
+
+    private static String call(JsonRpcDispatcher dispatcher, String method, String params) throws Exception {
+        String body = "{\"jsonrpc\":\"2.0\",\"method\":\"" + method + "\",\"params\":" + params + ",\"id\":1}";
+        return new Gson().toJson(dispatcher.dispatch(
+                dispatcher.parse(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8))), n -> { }));
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.mcp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the HTTP+SSE transport on the {@code /sse} endpoint.
+ */
+public class SseTransportTest {
+
+    private TimeReportMCPServer server;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = new TimeReportMCPServer(0);
+        server.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testResponsesArePushedOnEventStream() throws Exception {
+        HttpURLConnection stream = (HttpURLConnection) new URL("http://localhost:" + server.getPort() + "/sse").openConnection();
+        stream.setRequestMethod("GET");
+        stream.setRequestProperty("Accept", "text/event-stream");
+        assertEquals(200, stream.getResponseCode());
+        assertTrue(stream.getContentType().startsWith("text/event-stream"));
+
+        try (BufferedReader events = new BufferedReader(new InputStreamReader(stream.getInputStream(), StandardCharsets.UTF_8))) {
+            String[] endpoint = readEvent(events);
+            assertEquals("endpoint", endpoint[0]);
+            assertTrue(endpoint[1].startsWith("/sse/message?sessionId="));
+
+            // Two messages over the same stream
+            assertEquals(202, post(endpoint[1],
+                    "{\"jsonrpc\": \"2.0\", \"method\": \"fetchContent\", \"params\": {\"id\": \"1\"}, \"id\": \"sse-1\"}"));
+            String[] first = readEvent(events);
+            assertEquals("message", first[0]);
+            JsonObject response = new Gson().fromJson(first[1], JsonObject.class);
+            assertEquals("sse-1", response.get("id").getAsString());
+            assertEquals("Time Report Overview", response.getAsJsonObject("result").get("title").getAsString());
+
+            assertEquals(202, post(endpoint[1],
+                    "[{\"jsonrpc\": \"2.0\", \"method\": \"getTimeReportStats\", \"params\": {\"year\": 2025, \"month\": 5}, \"id\": 7}]"));
+            String[] second = readEvent(events);
+            JsonArray batch = new Gson().fromJson(second[1], JsonArray.class);
+            assertEquals(1, batch.size());
+            assertEquals("NH", batch.get(0).getAsJsonObject().getAsJsonArray("result").get(0).getAsJsonObject().get("signature").getAsString());
+        }
+    }
+
+    @Test
+    public void testUnknownSessionIsRejected() throws Exception {
+        assertEquals(404, post("/sse/message?sessionId=does-not-exist",
+                "{\"jsonrpc\": \"2.0\", \"method\": \"fetchContent\", \"params\": {\"id\": \"1\"}, \"id\": 1}"));
+    }
+
+    /** Reads the next event, skipping comments, and returns its name and data. */
+    private static String[] readEvent(BufferedReader reader) throws IOException {
+        String event = "message";
+        StringBuilder data = new StringBuilder();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty()) {
+                if (data.length() > 0) {
+                    return new String[] {event, data.toString()};
+                }
+            } else if (line.startsWith("event: ")) {
+                event = line.substring("event: ".length());
+            } else if (line.startsWith("data: ")) {
+                data.append(line.substring("data: ".length()));
+            }
+        }
+        throw new IOException("Event stream closed");
+    }
+
+    private int post(String path, String body) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL("http://localhost:" + server.getPort() + path).openConnection();
+        conn.setRequestMethod("POST");
+        conn.setRequestProperty("Content-Type", "application/json; charset=utf-8");
+        conn.setDoOutput(true);
+        try (OutputStream os = conn.getOutputStream()) {
+            os.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        return conn.getResponseCode();
+    }
+}
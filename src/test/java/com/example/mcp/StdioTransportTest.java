@@ -0,0 +1,83 @@
+package com.example.mcp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for serving JSON-RPC over standard input and output with {@link StdioTransport}.
+ */
+public class StdioTransportTest {
+
+    @Test
+    public void testResponsesAreWrittenAsTheyComplete() throws Exception {
+        // Released once the response to "release" has been written, not merely computed
+        CountDownLatch released = new CountDownLatch(1);
+        ToolRegistry tools = new ToolRegistry()
+                .register(new MethodSpec<>("await", "Waits until the response to release is written.", new ParamSchema(), v -> null,
+                        (params, context) -> released.await(10, TimeUnit.SECONDS)))
+                .register(new MethodSpec<>("release", "Releases the waiting call.", new ParamSchema(), v -> null,
+                        (params, context) -> true))
+                .register(new ToolRegistryTest.EchoTool());
+        String input = "{\"jsonrpc\":\"2.0\",\"method\":\"await\",\"id\":1}\n"
+                + "\r\n"
+                + "{\"jsonrpc\":\"2.0\",\"method\":\"release\",\"id\":\"two\"}\r\n"
+                + "{\"jsonrpc\":\"2.0\",\"method\":\"echo\",\"params\":{\"text\":\"a\\nb\",\"times\":2,\"_meta\":{\"progressToken\":\"p\"}},\"id\":3}\n"
+                + "{\"jsonrpc\":\"2.0\",\"method\":\"echo\",\"params\":{\"text\":\"" + "x".repeat(300) + "\"},\"id\":4}\n"
+                + "{\"jsonrpc\":\"2.0\",\"method\":\"release\"}\n"
+                + "{\"jsonrpc\":\"2.0\",\"method\":\"release\",\"id\":5}"; // No line break at the end
+        ByteArrayOutputStream output = new ByteArrayOutputStream() {
+            @Override
+            public synchronized void write(byte[] b, int off, int len) {
+                super.write(b, off, len);
+                if (toString(StandardCharsets.UTF_8).contains("\"id\":\"two\"")) {
+                    released.countDown();
+                }
+            }
+        };
+        TimeReportMCPServer.serveStdio(tools, ExecutionMode.POOLED, 4, 200, new AccessLog(new StringWriter(), 0),
+                new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), output);
+
+        List<JsonObject> messages = new ArrayList<>();
+        for (String line : output.toString(StandardCharsets.UTF_8).split("\n")) {
+            messages.add(new Gson().fromJson(line, JsonObject.class));
+        }
+        List<String> ids = new ArrayList<>();
+        int progress = 0;
+        for (JsonObject message : messages) {
+            if (message.has("method")) {
+                assertEquals("notifications/progress", message.get("method").getAsString());
+                progress++;
+            } else {
+                ids.add(id(message));
+            }
+        }
+        assertEquals(2, progress);
+        // The notification gets no response; every other message gets exactly one
+        assertEquals(5, ids.size(), ids.toString());
+        assertTrue(ids.containsAll(Arrays.asList("1", "two", "3", null, "5")), ids.toString());
+        // The waiting call only finishes once the response to the release behind it is out
+        assertTrue(ids.indexOf("two") < ids.indexOf("1"), ids.toString());
+
+        JsonObject tooLarge = messages.stream().filter(m -> !m.has("method") && id(m) == null).findFirst().get();
+        assertEquals(JsonRpcErrorCodes.INVALID_REQUEST, tooLarge.getAsJsonObject("error").get("code").getAsInt());
+        JsonObject echo = messages.stream().filter(m -> "3".equals(id(m))).findFirst().get();
+        assertEquals("a\nba\nb", echo.get("result").getAsString());
+    }
+
+    /** Returns the id of a response; like the HTTP transport, Gson leaves out a null id. */
+    private static String id(JsonObject response) {
+        return response.has("id") && !response.get("id").isJsonNull() ? response.get("id").getAsString() : null;
+    }
+}
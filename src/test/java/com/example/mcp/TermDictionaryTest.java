@@ -0,0 +1,96 @@
+package com.example.mcp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link TermDictionary}.
+ */
+public class TermDictionaryTest {
+
+    private static int naiveDistance(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            d[i][0] = i;
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            d[0][j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                d[i][j] = Math.min(d[i - 1][j - 1] + cost, Math.min(d[i - 1][j], d[i][j - 1]) + 1);
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+
+    private static String randomWord(Random random, int maxLength) {
+        StringBuilder sb = new StringBuilder();
+        int length = 1 + random.nextInt(maxLength);
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('a' + random.nextInt(4)));
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testCompletionsByFrequency() {
+        TermDictionary dictionary = TermDictionary.build(
+                new String[] {"report", "repo", "reply", "rest", "apple", "re"},
+                new int[] {5, 9, 5, 1, 7, 2});
+        List<String> terms = new ArrayList<>();
+        for (TermDictionary.Term term : dictionary.complete("rep", 10)) {
+            terms.add(term.text);
+        }
+        // Equal frequencies keep dictionary order
+        assertEquals(List.of("repo", "reply", "report"), terms);
+        assertEquals(1, dictionary.complete("re", 1).size());
+        assertEquals("repo", dictionary.complete("re", 1).get(0).text);
+        assertTrue(dictionary.complete("x", 5).isEmpty());
+        assertTrue(dictionary.complete("zzz", 5).isEmpty());
+        assertEquals(6, dictionary.complete("", 10).size());
+    }
+
+    @Test
+    public void testFuzzyMatchesBruteForce() {
+        Random random = new Random(3);
+        Set<String> vocabulary = new HashSet<>();
+        while (vocabulary.size() < 2000) {
+            vocabulary.add(randomWord(random, 9));
+        }
+        String[] words = vocabulary.toArray(new String[0]);
+        int[] freqs = new int[words.length];
+        TermDictionary dictionary = TermDictionary.build(words.clone(), freqs);
+        assertTrue(TermDictionary.build(new String[0], new int[0]).fuzzy("abc", 1).isEmpty());
+        for (int i = 0; i < 200; i++) {
+            String query = randomWord(random, 9);
+            int maxEdits = TermDictionary.maxEdits(query.length());
+            Set<String> expected = new HashSet<>();
+            for (String word : words) {
+                if (naiveDistance(query, word) <= maxEdits && word.charAt(0) == query.charAt(0)) {
+                    expected.add(word);
+                }
+            }
+            Set<String> actual = new HashSet<>();
+            List<TermDictionary.Term> matches = dictionary.fuzzy(query, maxEdits);
+            for (TermDictionary.Term term : matches) {
+                assertEquals(naiveDistance(query, term.text), term.edits);
+                actual.add(term.text);
+            }
+            if (expected.size() <= TermDictionary.MAX_EXPANSIONS) {
+                assertEquals(expected, actual, query);
+            } else {
+                assertEquals(TermDictionary.MAX_EXPANSIONS, actual.size());
+                assertTrue(expected.containsAll(actual));
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.mcp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for {@link TimeReportLoader}.
+ */
+public class TimeReportLoaderTest {
+
+    @TempDir
+    Path dir;
+
+    private static long total(TimeReportStore store) {
+        return store.totals(0, Integer.MAX_VALUE - 1, null, false, null).get(0).getHours();
+    }
+
+    @Test
+    public void testCsvAcrossChunkBoundaries() throws Exception {
+        StringBuilder csv = new StringBuilder("id,\"Signature\",date,hours\r\n");
+        long expected = 0;
+        for (int i = 0; i < 500; i++) {
+            csv.append(i).append(",\"S").append(i % 7).append(i % 3 == 0 ? " \"\"x\"\"\"" : "\"")
+                    .append(",2025-").append(String.format("%02d", 1 + i % 12)).append("-15,").append(i % 9).append("\r\n");
+            expected += i % 9;
+        }
+        Path file = dir.resolve("entries.csv");
+        Files.writeString(file, csv, StandardCharsets.UTF_8);
+
+        // Every chunk size cuts lines at different places; all must load the same
+        for (int chunkSize : new int[] {1, 7, 64, 1 << 20}) {
+            TimeReportStore store = new TimeReportStore();
+            List<TimeReportLoader.LoadResult> progress = new ArrayList<>();
+            TimeReportLoader.LoadResult result = new TimeReportLoader(store, new ForkJoinPool(3), chunkSize)
+                    .load(file, progress::add);
+            assertEquals(500, result.getRecords(), "chunk size " + chunkSize);
+            assertEquals(0, result.getSkipped());
+            assertEquals(expected, total(store));
+            assertEquals(14, store.signatureCount());
+            assertEquals("S3 \"x\"", store.month(2025, 4).signature(1));
+            assertEquals(Files.size(file), progress.get(progress.size() - 1).getBytes());
+        }
+    }
+
+    @Test
+    public void testNdjsonAndSkippedLines() throws Exception {
+        Path file = dir.resolve("entries.ndjson");
+        Files.writeString(file, String.join("\n",
+                "{\"signature\": \"NH\", \"year\": 2025, \"month\": 5, \"hours\": 80}",
+                "{\"signature\": \"AB\", \"date\": \"2025-05\", \"hours\": 8, \"note\": [1, 2]}",
+                "",
+                "{\"signature\": \"AB\", \"year\": 2025, \"month\": 13, \"hours\": 8}",
+                "not json",
+                "{\"signature\": \"NH\", \"date\": \"2025-06-01\", \"hours\": 4}"), StandardCharsets.UTF_8);
+        TimeReportStore store = new TimeReportStore();
+        TimeReportLoader.LoadResult result = new TimeReportLoader(store).load(file, null);
+        assertEquals(3, result.getRecords());
+        assertEquals(2, result.getSkipped());
+        assertTrue(result.getFirstError().startsWith("line 4: "), result.getFirstError());
+        assertEquals(80, store.month(2025, 5).hours(0));
+        assertEquals(4, store.month(2025, 6).hours(0));
+    }
+
+    @Test
+    public void testCsvWithYearAndMonthColumns() throws Exception {
+        Path file = dir.resolve("entries.csv");
+        Files.writeString(file, String.join("\n",
+                "year,month,hours,signature,a,b,c,d,e,f,g,h,i",
+                "2025, 5 ,80,NH",
+                "2025,5,-2,NH",
+                "2025,5,7.5,NH",
+                "2025,5",
+                "2025,5,1,\"unterminated"), StandardCharsets.UTF_8);
+        TimeReportStore store = new TimeReportStore();
+        TimeReportLoader.LoadResult result = new TimeReportLoader(store).load(file, null);
+        assertEquals(2, result.getRecords());
+        assertEquals(3, result.getSkipped());
+        assertEquals("line 4: Invalid hours '7.5'", result.getFirstError());
+        assertEquals(78, store.month(2025, 5).hours(0));
+    }
+
+    @Test
+    public void testUnsupportedInput() throws Exception {
+        Path csv = dir.resolve("entries.csv");
+        Files.writeString(csv, "name,hours\nNH,80\n", StandardCharsets.UTF_8);
+        TimeReportLoader loader = new TimeReportLoader(new TimeReportStore());
+        assertThrows(IllegalArgumentException.class, () -> loader.load(csv, null));
+        assertThrows(IllegalArgumentException.class, () -> loader.load(dir.resolve("entries.xlsx"), null));
+    }
+
+    @Test
+    public void testBatchIsAddedCompletelyOrNotAtAll() {
+        TimeReportStore store = new TimeReportStore();
+        store.add("NH", 2025, 5, Integer.MAX_VALUE - 1);
+        TimeReportStore.Batch batch = new TimeReportStore.Batch();
+        batch.add("AB", 2025, 4, 3);
+        batch.add("NH", 2025, 5, 1);
+        batch.add("NH", 2025, 5, 1);
+        assertThrows(ArithmeticException.class, () -> store.addAll(batch));
+        assertEquals(1, store.size());
+        assertEquals(0, store.month(2025, 4).size());
+        assertEquals(Integer.MAX_VALUE - 1L, total(store));
+
+        TimeReportStore.Batch fits = new TimeReportStore.Batch();
+        fits.add("AB", 2025, 5, 3);
+        fits.add("NH", 2025, 5, 1);
+        fits.add("AB", 2025, 5, 3);
+        store.addAll(fits);
+        assertEquals(2, store.size());
+        assertEquals(Integer.MAX_VALUE, store.month(2025, 5).hours(0));
+        assertEquals(6, store.month(2025, 5).hours(1));
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.mcp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for {@link TimeReportLog}.
+ */
+public class TimeReportLogTest {
+
+    @TempDir
+    Path dir;
+
+    private static long total(TimeReportStore store) {
+        return store.totals(0, Integer.MAX_VALUE - 1, null, false, null).get(0).getHours();
+    }
+
+    private List<String> files() throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(f -> f.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    public void testReplayWithoutClose() throws Exception {
+        TimeReportStore store = new TimeReportStore();
+        TimeReportLog log = TimeReportLog.open(dir, store);
+        log.add("NH", 2025, 5, 80);
+        TimeReportStore.Batch batch = new TimeReportStore.Batch();
+        batch.add("AB", 2025, 5, 8);
+        batch.add("NH", 2025, 6, 4);
+        log.addAll(batch);
+        assertEquals(92, total(store));
+
+        // No close: the process is gone and only the log is left
+        TimeReportStore recovered = new TimeReportStore();
+        TimeReportLog reopened = TimeReportLog.open(dir, recovered);
+        assertEquals(3, reopened.replayed());
+        assertEquals(92, total(recovered));
+        assertEquals(80, recovered.month(2025, 5).hours(0));
+        reopened.close();
+        log.close();
+    }
+
+    @Test
+    public void testSnapshotReplacesLogs() throws Exception {
+        TimeReportStore store = new TimeReportStore();
+        TimeReportLog log = TimeReportLog.open(dir, store);
+        log.add("NH", 2025, 5, 80);
+        log.snapshot();
+        log.add("NH", 2025, 5, 1);
+        log.add("AB", 2024, 1, 2);
+        assertEquals(List.of("log-2.wal", "snapshot-2.bin"), files());
+
+        TimeReportStore recovered = new TimeReportStore();
+        TimeReportLog reopened = TimeReportLog.open(dir, recovered);
+        assertEquals(2, reopened.replayed());
+        assertEquals(81, recovered.month(2025, 5).hours(0));
+        assertEquals(83, total(recovered));
+        reopened.close();
+
+        // Closing wrote a snapshot of everything, so nothing is replayed
+        TimeReportStore again = new TimeReportStore();
+        TimeReportLog last = TimeReportLog.open(dir, again);
+        assertEquals(0, last.replayed());
+        assertEquals(83, total(again));
+        assertEquals(2, again.signatureCount());
+        last.close();
+        log.close();
+    }
+
+    @Test
+    public void testTornFrameIsIgnored() throws Exception {
+        TimeReportStore store = new TimeReportStore();
+        TimeReportLog log = TimeReportLog.open(dir, store);
+        log.add("NH", 2025, 5, 80);
+        log.add("NH", 2025, 5, 1);
+        Path file = dir.resolve("log-1.wal");
+        byte[] bytes = Files.readAllBytes(file);
+        // Cut the last frame short, as a crash in the middle of a write would
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+
+        TimeReportStore recovered = new TimeReportStore();
+        TimeReportLog reopened = TimeReportLog.open(dir, recovered);
+        assertEquals(1, reopened.replayed());
+        assertEquals(80, total(recovered));
+
+        // A corrupt frame ends the replay of its log too
+        reopened.add("AB", 2025, 5, 1);
+        Files.write(dir.resolve("log-2.wal"), new byte[] {0, 0, 0, 8, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12},
+                StandardOpenOption.APPEND);
+        TimeReportStore third = new TimeReportStore();
+        TimeReportLog thirdLog = TimeReportLog.open(dir, third);
+        assertEquals(2, thirdLog.replayed());
+        assertEquals(81, total(third));
+        thirdLog.close();
+        reopened.close();
+        log.close();
+    }
+
+    @Test
+    public void testOverflowingWritesFailAgainOnReplay() throws Exception {
+        TimeReportStore store = new TimeReportStore();
+        TimeReportLog log = TimeReportLog.open(dir, store);
+        log.add("NH", 2025, 5, Integer.MAX_VALUE - 5);
+        // Writers push the total up and down across the limit; which writes fail depends on their order
+        List<Thread> threads = new ArrayList<>();
+        long[] accepted = new long[16];
+        for (int t = 0; t < accepted.length; t++) {
+            int writer = t;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 200; i++) {
+                    int hours = (i + writer) % 2 == 0 ? 10 : -10;
+                    TimeReportStore.Batch batch = new TimeReportStore.Batch();
+                    batch.add("NH", 2025, 5, hours);
+                    try {
+                        log.record(batch);
+                        accepted[writer] += hours;
+                    } catch (ArithmeticException e) {
+                        // Rejected; must stay rejected after a restart
+                    } catch (Exception e) {
+                        throw new AssertionError(e);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long expected = Integer.MAX_VALUE - 5L + Arrays.stream(accepted).sum();
+        assertEquals(expected, store.month(2025, 5).hours(0));
+
+        // No close, so every write is replayed from the log
+        TimeReportStore recovered = new TimeReportStore();
+        TimeReportLog reopened = TimeReportLog.open(dir, recovered);
+        assertEquals(expected, recovered.month(2025, 5).hours(0));
+        reopened.close();
+        log.close();
+    }
+
+    @Test
+    public void testConcurrentWritersAndAutomaticSnapshots() throws Exception {
+        TimeReportStore store = new TimeReportStore();
+        TimeReportLog log = TimeReportLog.open(dir, store, 4096);
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> errors = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            String signature = "S" + t;
+            Thread thread = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 200; i++) {
+                        log.add(signature, 2025, 1 + i % 12, 1);
+                    }
+                } catch (Throwable e) {
+                    synchronized (errors) {
+                        errors.add(e);
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(List.of(), errors);
+        assertEquals(1600, total(store));
+        log.close();
+
+        TimeReportStore recovered = new TimeReportStore();
+        TimeReportLog reopened = TimeReportLog.open(dir, recovered);
+        assertEquals(1600, total(recovered));
+        assertEquals(96, recovered.size());
+        assertEquals(1, files().stream().filter(f -> f.startsWith("snapshot-")).count());
+        reopened.close();
+    }
+}
@@ -4,8 +4,11 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.StringWriter;
 import java.net.HttpURLConnection;
+import java.net.Socket;
 import java.net.URL;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
@@ -16,7 +19,11 @@ import com.example.mcp.JsonRpcResponse;
 // import com.example.mcp.TimeReportEntry; // Not strictly needed if asserting on Map structure
 import java.util.Map;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -126,6 +133,91 @@ public class TimeReportMCPServerTest {
         assertTrue(fetchRequiredParams.contains(gson.toJsonTree("id")));
     }
 
+    @Test
+    public void testManifestConditionalGet() throws Exception {
+        String url = "http://localhost:" + server.getPort() + "/sse/.well-known/mcp.json";
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        assertEquals(200, conn.getResponseCode());
+        String etag = conn.getHeaderField("ETag");
+        assertNotNull(etag);
+        assertTrue(conn.getHeaderField("Cache-Control").contains("max-age"));
+        conn.getInputStream().readAllBytes();
+
+        HttpURLConnection conditional = (HttpURLConnection) new URL(url).openConnection();
+        conditional.setRequestProperty("If-None-Match", etag);
+        assertEquals(304, conditional.getResponseCode());
+
+        HttpURLConnection stale = (HttpURLConnection) new URL(url).openConnection();
+        stale.setRequestProperty("If-None-Match", "\"stale\"");
+        assertEquals(200, stale.getResponseCode());
+    }
+
+    @Test
+    public void testManifestGzip() throws Exception {
+        String url = "http://localhost:" + server.getPort() + "/sse/.well-known/mcp.json";
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        conn.setRequestProperty("Accept-Encoding", "gzip");
+        assertEquals(200, conn.getResponseCode());
+        assertEquals("gzip", conn.getHeaderField("Content-Encoding"));
+        String gzipEtag = conn.getHeaderField("ETag");
+        String body;
+        try (InputStream in = new GZIPInputStream(conn.getInputStream())) {
+            body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        JsonObject manifestJson = new Gson().fromJson(body, JsonObject.class);
+        assertEquals(11, manifestJson.getAsJsonArray("methods").size());
+
+        // The plain manifest has a tag of its own, and either one revalidates
+        HttpURLConnection plain = (HttpURLConnection) new URL(url).openConnection();
+        plain.setRequestProperty("Accept-Encoding", "identity");
+        assertEquals(200, plain.getResponseCode());
+        String etag = plain.getHeaderField("ETag");
+        assertNotEquals(etag, gzipEtag);
+        plain.getInputStream().readAllBytes();
+        HttpURLConnection conditional = (HttpURLConnection) new URL(url).openConnection();
+        conditional.setRequestProperty("Accept-Encoding", "gzip");
+        conditional.setRequestProperty("If-None-Match", etag);
+        assertEquals(304, conditional.getResponseCode());
+        assertEquals(gzipEtag, conditional.getHeaderField("ETag"));
+    }
+
+    @Test
+    public void testLargeResponsesAreCompressed() throws Exception {
+        StringBuilder batch = new StringBuilder("[");
+        for (int i = 0; i < 300; i++) {
+            batch.append(i == 0 ? "" : ",").append("{\"jsonrpc\": \"2.0\", \"method\": \"getTimeReportStats\", \"params\": {\"year\": 2025, \"month\": 5}, \"id\": ").append(i).append("}");
+        }
+        batch.append("]");
+
+        HttpURLConnection gzip = postJson(batch.toString(), "deflate;q=0.5, gzip");
+        assertEquals(200, gzip.getResponseCode());
+        assertEquals("gzip", gzip.getHeaderField("Content-Encoding"));
+        assertEquals("Accept-Encoding", gzip.getHeaderField("Vary"));
+        try (InputStream in = new GZIPInputStream(gzip.getInputStream())) {
+            assertEquals(300, new Gson().fromJson(new String(in.readAllBytes(), StandardCharsets.UTF_8), JsonArray.class).size());
+        }
+
+        HttpURLConnection deflate = postJson(batch.toString(), "deflate");
+        assertEquals("deflate", deflate.getHeaderField("Content-Encoding"));
+        try (InputStream in = new InflaterInputStream(deflate.getInputStream())) {
+            assertEquals(300, new Gson().fromJson(new String(in.readAllBytes(), StandardCharsets.UTF_8), JsonArray.class).size());
+        }
+
+        // Refused codings and small responses are sent as they are
+        HttpURLConnection refused = postJson(batch.toString(), "gzip;q=0, identity");
+        assertNull(refused.getHeaderField("Content-Encoding"));
+        assertEquals(300, new Gson().fromJson(new String(refused.getInputStream().readAllBytes(), StandardCharsets.UTF_8), JsonArray.class).size());
+        HttpURLConnection small = postJson("{\"jsonrpc\": \"2.0\", \"method\": \"getTimeReportStats\", \"params\": {\"year\": 2025, \"month\": 5}, \"id\": 1}", "gzip");
+        assertEquals(200, small.getResponseCode());
+        assertNull(small.getHeaderField("Content-Encoding"));
+
+        assertEquals(ContentCoding.GZIP, ContentCoding.negotiate("*"));
+        assertEquals(ContentCoding.DEFLATE, ContentCoding.negotiate("GZIP;q=0.2, deflate;q=0.8"));
+        assertEquals(ContentCoding.GZIP, ContentCoding.negotiate("x-gzip"));
+        assertNull(ContentCoding.negotiate("br, *;q=0"));
+        assertNull(ContentCoding.negotiate(null));
+    }
+
     @Test
     public void testTimeReportStatsJsonRpc() throws Exception {
         String url = "http://localhost:" + server.getPort() + "/sse";
@@ -168,4 +260,214 @@ public class TimeReportMCPServerTest {
         // Gson deserializes numbers in Maps as Double by default
         assertEquals(80.0, entryMap.get("hours"));
     }
+
+    @Test
+    public void testBatchJsonRpc() throws Exception {
+        String requestBody = "[" +
+            "{\"jsonrpc\": \"2.0\", \"method\": \"getTimeReportStats\", \"params\": {\"year\": 2025, \"month\": 5}, \"id\": \"may\"}," +
+            "{\"jsonrpc\": \"2.0\", \"method\": \"getTimeReportStats\", \"params\": {\"year\": 2025, \"month\": 6}, \"id\": \"june\"}," +
+            "{\"jsonrpc\": \"2.0\", \"method\": \"fetchContent\", \"params\": {\"id\": \"1\"}}," +
+            "{\"jsonrpc\": \"2.0\", \"method\": \"noSuchMethod\", \"id\": \"missing\"}," +
+            "42" +
+        "]";
+        HttpURLConnection conn = postJson(requestBody);
+        assertEquals(200, conn.getResponseCode());
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
+        JsonArray responses = new Gson().fromJson(reader.lines().collect(Collectors.joining()), JsonArray.class);
+
+        // The notification is omitted; the remaining responses keep request order
+        assertEquals(4, responses.size());
+        assertEquals("may", responses.get(0).getAsJsonObject().get("id").getAsString());
+        assertEquals(1, responses.get(0).getAsJsonObject().getAsJsonArray("result").size());
+        assertEquals("june", responses.get(1).getAsJsonObject().get("id").getAsString());
+        assertTrue(responses.get(1).getAsJsonObject().getAsJsonArray("result").isEmpty());
+        assertEquals("missing", responses.get(2).getAsJsonObject().get("id").getAsString());
+        assertEquals(JsonRpcErrorCodes.METHOD_NOT_FOUND, responses.get(2).getAsJsonObject().getAsJsonObject("error").get("code").getAsInt());
+        assertEquals(JsonRpcErrorCodes.INVALID_REQUEST, responses.get(3).getAsJsonObject().getAsJsonObject("error").get("code").getAsInt());
+    }
+
+    @Test
+    public void testRecordTimeEntries() throws Exception {
+        String requestBody = "[" +
+            "{\"jsonrpc\": \"2.0\", \"method\": \"recordTimeEntry\", \"params\": {\"signature\": \"AB\", \"year\": 2025, \"month\": 5, \"hours\": 8}, \"id\": 1}," +
+            "{\"jsonrpc\": \"2.0\", \"method\": \"recordTimeEntries\", \"params\": {\"entries\": [" +
+                "{\"signature\": \"NH\", \"year\": 2025, \"month\": 5, \"hours\": -4}," +
+                "{\"signature\": \"AB\", \"year\": 2025, \"month\": 5, \"hours\": 2}]}, \"id\": 2}," +
+            "{\"jsonrpc\": \"2.0\", \"method\": \"recordTimeEntries\", \"params\": {\"entries\": [" +
+                "{\"signature\": \"AB\", \"year\": 2025, \"month\": 5, \"hours\": 2}," +
+                "{\"signature\": \"AB\", \"year\": 2025, \"month\": 5, \"hours\": 1000}]}, \"id\": 3}" +
+        "]";
+        HttpURLConnection conn = postJson(requestBody);
+        assertEquals(200, conn.getResponseCode());
+        BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
+        JsonArray responses = new Gson().fromJson(reader.lines().collect(Collectors.joining()), JsonArray.class);
+        assertEquals(1, responses.get(0).getAsJsonObject().getAsJsonObject("result").get("recorded").getAsInt());
+        assertEquals(2, responses.get(1).getAsJsonObject().getAsJsonObject("result").get("recorded").getAsInt());
+        // An invalid entry rejects the whole batch
+        JsonObject error = responses.get(2).getAsJsonObject().getAsJsonObject("error");
+        assertEquals(JsonRpcErrorCodes.INVALID_PARAMS, error.get("code").getAsInt());
+        assertEquals("Invalid params for recordTimeEntries: Item 1 of parameter 'entries': Parameter 'hours' must be between -744 and 744.", error.get("message").getAsString());
+
+        conn = postJson("{\"jsonrpc\": \"2.0\", \"method\": \"getTimeReportStats\", \"params\": {\"year\": 2025, \"month\": 5}, \"id\": 4}");
+        reader = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
+        JsonObject response = new Gson().fromJson(reader.lines().collect(Collectors.joining()), JsonObject.class);
+        assertEquals("[{\"signature\":\"NH\",\"hours\":76},{\"signature\":\"AB\",\"hours\":10}]", response.get("result").toString());
+    }
+
+    @Test
+    public void testLargeResultIsStreamedInChunks() throws Exception {
+        TimeReportStore store = new TimeReportStore();
+        TimeReportStore.Batch batch = new TimeReportStore.Batch();
+        for (int i = 0; i < 50_000; i++) {
+            batch.add("S" + i, 2025, 5, i % 100);
+        }
+        store.addAll(batch);
+        TimeReportMCPServer large = new TimeReportMCPServer(new TimeReportMCP(store), 0);
+        large.start();
+        try {
+            String url = "http://localhost:" + large.getPort() + "/sse";
+            HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+            conn.setRequestMethod("POST");
+            conn.setDoOutput(true);
+            try (OutputStream os = conn.getOutputStream()) {
+                os.write("{\"jsonrpc\":\"2.0\",\"method\":\"getTimeReportStats\",\"params\":{\"year\":2025,\"month\":5},\"id\":1}"
+                        .getBytes(StandardCharsets.UTF_8));
+            }
+            assertEquals(200, conn.getResponseCode());
+            assertEquals("chunked", conn.getHeaderField("Transfer-Encoding"));
+            assertNull(conn.getHeaderField("Content-Length"));
+            BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
+            JsonObject response = new Gson().fromJson(reader.lines().collect(Collectors.joining()), JsonObject.class);
+            JsonArray result = response.getAsJsonArray("result");
+            assertEquals(50_000, result.size());
+            assertEquals("S49999", result.get(49_999).getAsJsonObject().get("signature").getAsString());
+            assertEquals(99, result.get(49_999).getAsJsonObject().get("hours").getAsInt());
+            assertEquals(1, response.get("id").getAsInt());
+        } finally {
+            large.stop(0);
+        }
+
+        // A small response still has a length
+        HttpURLConnection conn = postJson("{\"jsonrpc\":\"2.0\",\"method\":\"getTimeReportStats\",\"params\":{\"year\":2025,\"month\":5},\"id\":1}");
+        assertEquals(200, conn.getResponseCode());
+        assertNull(conn.getHeaderField("Transfer-Encoding"));
+        assertEquals("{\"jsonrpc\":\"2.0\",\"result\":[{\"signature\":\"NH\",\"hours\":80}],\"id\":1}".length(),
+                conn.getContentLength());
+    }
+
+    @Test
+    public void testClientGoneBeforeTheBodyIsCutOff() throws Exception {
+        CountDownLatch disconnected = new CountDownLatch(1);
+        CountDownLatch answered = new CountDownLatch(1);
+        ToolRegistry tools = new ToolRegistry().register(new MethodSpec<>("slow", "Answers once the client is gone.",
+                new ParamSchema(), v -> null, (params, context) -> {
+                    disconnected.await(10, TimeUnit.SECONDS);
+                    answered.countDown();
+                    return "late";
+                }));
+        TimeReportMCPServer slow = new TimeReportMCPServer(tools, 0, ExecutionMode.POOLED, 2);
+        StringWriter log = new StringWriter();
+        slow.setAccessLog(new AccessLog(log, 0));
+        slow.start();
+        try {
+            String body = "{\"jsonrpc\":\"2.0\",\"method\":\"slow\",\"id\":1}";
+            try (Socket socket = new Socket("localhost", slow.getPort())) {
+                socket.setSoLinger(true, 0); // Reset the connection on close
+                socket.getOutputStream().write(("POST /sse HTTP/1.1\r\nHost: localhost\r\nContent-Length: " + body.length()
+                        + "\r\n\r\n" + body).getBytes(StandardCharsets.UTF_8));
+                socket.getOutputStream().flush();
+                Thread.sleep(200); // Let the handler start waiting
+            }
+            disconnected.countDown();
+            assertTrue(answered.await(10, TimeUnit.SECONDS));
+            Thread.sleep(200);
+        } finally {
+            slow.stop(0);
+        }
+        // The failed response is cut off, not followed by an error response on the same exchange
+        assertTrue(log.toString().contains("cut off"), log.toString());
+        assertFalse(log.toString().contains("Internal server error"), log.toString());
+    }
+
+    @Test
+    public void testEmptyBatchIsInvalidRequest() throws Exception {
+        HttpURLConnection conn = postJson("[]");
+        assertEquals(200, conn.getResponseCode());
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
+        JsonRpcResponse jsonRpcResponse = new Gson().fromJson(reader.lines().collect(Collectors.joining()), JsonRpcResponse.class);
+        assertNotNull(jsonRpcResponse.getError());
+        assertEquals(JsonRpcErrorCodes.INVALID_REQUEST, jsonRpcResponse.getError().getCode());
+    }
+
+    @Test
+    public void testNotificationOnlyBatchHasNoContent() throws Exception {
+        HttpURLConnection conn = postJson("[{\"jsonrpc\": \"2.0\", \"method\": \"fetchContent\", \"params\": {\"id\": \"1\"}}]");
+        assertEquals(204, conn.getResponseCode());
+    }
+
+    @Test
+    public void testServerStats() throws Exception {
+        postJson("{\"jsonrpc\": \"2.0\", \"method\": \"getTimeReportStats\", \"params\": {\"year\": 2025, \"month\": 5}, \"id\": 1}").getResponseCode();
+        postJson("[{\"jsonrpc\": \"2.0\", \"method\": \"getTimeReportStats\", \"params\": {\"year\": 2025, \"month\": 6}, \"id\": 2}," +
+                "{\"jsonrpc\": \"2.0\", \"method\": \"noSuchMethod\", \"id\": 3}]").getResponseCode();
+
+        HttpURLConnection conn = postJson("{\"jsonrpc\": \"2.0\", \"method\": \"getServerStats\", \"id\": 4}");
+        assertEquals(200, conn.getResponseCode());
+        BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
+        JsonObject result = new Gson().fromJson(reader.lines().collect(Collectors.joining()), JsonObject.class).getAsJsonObject("result");
+        JsonObject methods = result.getAsJsonObject("methods");
+        JsonObject stats = methods.getAsJsonObject("getTimeReportStats");
+        assertEquals(2, stats.get("count").getAsLong());
+        assertEquals(0, stats.get("inFlight").getAsLong());
+        assertEquals(0, stats.get("errors").getAsLong());
+        assertEquals(2, stats.getAsJsonObject("latency").get("count").getAsLong());
+        assertEquals(2, stats.getAsJsonObject("recentLatency").get("count").getAsLong());
+        assertTrue(stats.getAsJsonObject("latency").get("p99Ms").getAsDouble() > 0);
+        // Unknown names share one entry, so clients cannot grow the metrics
+        assertFalse(methods.has("noSuchMethod"));
+        assertEquals(1, methods.getAsJsonObject(ServerMetrics.UNKNOWN_METHOD).get("errors").getAsLong());
+        assertEquals(1, result.getAsJsonObject("errors").get(Integer.toString(JsonRpcErrorCodes.METHOD_NOT_FOUND)).getAsLong());
+        // The call asking for the statistics is still running
+        assertEquals(1, methods.getAsJsonObject("getServerStats").get("inFlight").getAsLong());
+
+        // The HTTP request is recorded after its response is sent
+        String url = "http://localhost:" + server.getPort() + "/sse/metrics";
+        JsonObject http = null;
+        for (long deadline = System.currentTimeMillis() + 5000; System.currentTimeMillis() < deadline; Thread.sleep(10)) {
+            conn = (HttpURLConnection) new URL(url).openConnection();
+            assertEquals(200, conn.getResponseCode());
+            assertEquals("no-store", conn.getHeaderField("Cache-Control"));
+            reader = new BufferedReader(new InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8));
+            http = new Gson().fromJson(reader.lines().collect(Collectors.joining()), JsonObject.class).getAsJsonObject("http");
+            if (http.get("count").getAsLong() == 3) {
+                break;
+            }
+        }
+        assertEquals(3, http.get("count").getAsLong());
+        assertEquals(0, http.get("inFlight").getAsLong());
+        assertTrue(http.get("requestBytes").getAsLong() > 200);
+        assertTrue(http.get("responseBytes").getAsLong() > 200);
+    }
+
+    private HttpURLConnection postJson(String requestBody) throws IOException {
+        return postJson(requestBody, null);
+    }
+
+    private HttpURLConnection postJson(String requestBody, String acceptEncoding) throws IOException {
+        String url = "http://localhost:" + server.getPort() + "/sse";
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        conn.setRequestMethod("POST");
+        conn.setRequestProperty("Content-Type", "application/json; charset=utf-8");
+        if (acceptEncoding != null) {
+            conn.setRequestProperty("Accept-Encoding", acceptEncoding);
+        }
+        conn.setDoOutput(true);
+        try (OutputStream os = conn.getOutputStream()) {
+            byte[] input = requestBody.getBytes(StandardCharsets.UTF_8);
+            os.write(input, 0, input.length);
+        }
+        return conn;
+    }
 }
@@ -2,6 +2,9 @@ package com.example.mcp;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import com.google.gson.Gson;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import org.junit.jupiter.api.Test;
@@ -17,4 +20,64 @@ public class TimeReportMCPTest {
         assertEquals("NH", entry.getSignature());
         assertEquals(80, entry.getHours());
     }
+
+    private static String totals(List<TimeReportTotal> totals) {
+        return new Gson().toJson(totals);
+    }
+
+    @Test
+    public void testTotals() {
+        TimeReportStore store = new TimeReportStore();
+        store.add("NH", 2024, 11, 10);
+        store.add("AB", 2024, 12, 5);
+        store.add("NH", 2025, 1, 20);
+        store.add("NH", 2025, 5, 80);
+        store.add("AB", 2025, 6, 1);
+        TimeReportMCP totals = new TimeReportMCP(store);
+
+        assertEquals("[{\"hours\":116}]", totals(totals.getTimeReportTotals(2000, 1, 2030, 12, null, null)));
+        assertEquals("[{\"hours\":0}]", totals(totals.getTimeReportTotals(2026, 1, 2030, 12, null, null)));
+        assertEquals("[{\"signature\":\"NH\",\"hours\":100},{\"signature\":\"AB\",\"hours\":1}]",
+                totals(totals.getTimeReportTotals(2025, 1, 2025, 12, null, "signature")));
+        assertEquals("[{\"year\":2024,\"hours\":15},{\"year\":2025,\"hours\":101}]",
+                totals(totals.getTimeReportTotals(2024, 1, 2025, 12, null, "year")));
+        assertEquals("[{\"year\":2024,\"quarter\":4,\"hours\":15},{\"year\":2025,\"quarter\":1,\"hours\":20},{\"year\":2025,\"quarter\":2,\"hours\":81}]",
+                totals(totals.getTimeReportTotals(2024, 1, 2025, 12, null, "quarter")));
+        assertEquals("[{\"signature\":\"AB\",\"year\":2024,\"month\":12,\"hours\":5},{\"signature\":\"AB\",\"year\":2025,\"month\":6,\"hours\":1}]",
+                totals(totals.getTimeReportTotals(2024, 1, 2025, 12, "AB, XY", "Signature,month")));
+        // The range cuts the first quarter and the signature filter applies without grouping by it
+        assertEquals("[{\"year\":2024,\"quarter\":4,\"hours\":5},{\"year\":2025,\"quarter\":2,\"hours\":1}]",
+                totals(totals.getTimeReportTotals(2024, 12, 2025, 12, "AB", "quarter")));
+
+        assertThrows(IllegalArgumentException.class, () -> totals.getTimeReportTotals(2025, 2, 2025, 1, null, null));
+        assertThrows(IllegalArgumentException.class, () -> totals.getTimeReportTotals(2025, 1, 2025, 2, null, "week"));
+        assertThrows(IllegalArgumentException.class, () -> totals.getTimeReportTotals(2025, 1, 2025, 2, null, "month,year"));
+    }
+
+    @Test
+    public void testRecordRejectsOverflowingEntries() throws Exception {
+        TimeReportStore store = new TimeReportStore(1);
+        store.add("NH", 2025, 5, Integer.MAX_VALUE - 1);
+        TimeReportMCP mcp = new TimeReportMCP(store);
+        JsonRpcDispatcher dispatcher = new JsonRpcDispatcher(new ToolRegistry().register(mcp).snapshot(), null);
+        assertNull(call(dispatcher, "recordTimeEntry", "{\"signature\":\"AB\",\"year\":2025,\"month\":5,\"hours\":3}").getError());
+        JsonRpcResponse overflow = call(dispatcher, "recordTimeEntry", "{\"signature\":\"NH\",\"year\":2025,\"month\":5,\"hours\":2}");
+        assertEquals(JsonRpcErrorCodes.INVALID_PARAMS, overflow.getError().getCode());
+        // A batch with one overflowing entry is rejected whole
+        JsonRpcResponse batch = call(dispatcher, "recordTimeEntries", "{\"entries\":["
+                + "{\"signature\":\"AB\",\"year\":2025,\"month\":5,\"hours\":4},"
+                + "{\"signature\":\"NH\",\"year\":2025,\"month\":5,\"hours\":1},"
+                + "{\"signature\":\"NH\",\"year\":2025,\"month\":5,\"hours\":1}]}");
+        assertEquals(JsonRpcErrorCodes.INVALID_PARAMS, batch.getError().getCode());
+        mcp.recordTimeEntry("NH", 2025, 5, 1);
+        TimeReportStore.MonthReport may = store.month(2025, 5);
+        assertEquals(Integer.MAX_VALUE, may.hours(0));
+        assertEquals(3, may.hours(1));
+    }
+
+    private static JsonRpcResponse call(JsonRpcDispatcher dispatcher, String method, String params) throws Exception {
+        String body = "{\"jsonrpc\":\"2.0\",\"method\":\"" + method + "\",\"params\":" + params + ",\"id\":1}";
+        return (JsonRpcResponse) dispatcher.dispatch(
+                dispatcher.parse(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8))), n -> { });
+    }
 }
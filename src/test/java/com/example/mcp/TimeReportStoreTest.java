@@ -0,0 +1,120 @@
+package com.example.mcp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.google.gson.Gson;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link TimeReportStore}.
+ */
+public class TimeReportStoreTest {
+
+    @Test
+    public void testAddsUpPerSignatureAndMonth() {
+        TimeReportStore store = new TimeReportStore();
+        store.add("NH", 2025, 5, 80);
+        store.add("AB", 2025, 5, 20);
+        store.add("NH", 2025, 5, 4);
+        store.add("AB", 2024, 12, 7);
+        store.add("CD", 2026, 1, 1);
+
+        TimeReportStore.MonthReport may = store.month(2025, 5);
+        assertEquals(2, may.size());
+        assertEquals("NH", may.signature(0));
+        assertEquals(84, may.hours(0));
+        assertEquals("AB", may.signature(1));
+        assertEquals(20, may.hours(1));
+        assertEquals(7, store.month(2024, 12).hours(0));
+        assertEquals(0, store.month(2025, 6).size());
+        assertEquals(0, store.month(1999, 1).size());
+        assertEquals(4, store.size());
+        assertEquals(3, store.signatureCount());
+        assertThrows(ArithmeticException.class, () -> store.add("CD", 2026, 1, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testMonthReportJsonMatchesEntryList() {
+        TimeReportStore store = new TimeReportStore();
+        store.add("NH", 2025, 5, 80);
+        store.add("A\"B", 2025, 5, 3);
+        Gson gson = new Gson();
+        TimeReportStore.MonthReport report = store.month(2025, 5);
+        assertEquals(gson.toJson(report.toList()), gson.toJson(report));
+        assertEquals("[]", gson.toJson(store.month(2025, 1)));
+        // As a JSON-RPC result the report is written through its adapter too
+        assertEquals("{\"jsonrpc\":\"2.0\",\"result\":[{\"signature\":\"NH\",\"hours\":80},{\"signature\":\"A\\\"B\",\"hours\":3}],\"id\":1}",
+                gson.toJson(new JsonRpcResponse(report, 1)));
+    }
+
+    @Test
+    public void testMonthReportJsonRoundTrip() {
+        TimeReportStore store = new TimeReportStore();
+        store.add("NH", 2025, 5, 80);
+        store.add("A\"B", 2025, 5, -3);
+        Gson gson = new Gson();
+        String json = gson.toJson(store.month(2025, 5));
+        TimeReportStore.MonthReport read = gson.fromJson(json, TimeReportStore.MonthReport.class);
+        assertEquals(2, read.size());
+        assertEquals("A\"B", read.signature(1));
+        assertEquals(-3, read.hours(1));
+        assertEquals(json, gson.toJson(read));
+        assertEquals(0, gson.fromJson("[]", TimeReportStore.MonthReport.class).size());
+        assertNull(gson.fromJson("null", TimeReportStore.MonthReport.class));
+    }
+
+    @Test
+    public void testConcurrentRecordsAreSeenWhole() throws Exception {
+        TimeReportStore store = new TimeReportStore(2);
+        int writers = 6;
+        int batches = 3000;
+        AtomicBoolean done = new AtomicBoolean();
+        List<String> violations = new ArrayList<>();
+        // Every batch adds an hour to January and to February of one signature,
+        // so a reader must never see the two months differ
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                for (TimeReportTotal total : store.totals(TimeReportStore.monthIndex(2025, 1),
+                        TimeReportStore.monthIndex(2025, 2), null, true, null)) {
+                    if (total.getHours() % 2 != 0) {
+                        violations.add(total.getSignature() + ": " + total.getHours());
+                    }
+                }
+            }
+        });
+        reader.start();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < writers; t++) {
+            String signature = "W" + t;
+            Thread writer = new Thread(() -> {
+                for (int i = 0; i < batches; i++) {
+                    TimeReportStore.Batch batch = new TimeReportStore.Batch();
+                    batch.add(signature, 2025, 1, 1);
+                    batch.add(signature, 2025, 2, 1);
+                    store.record(batch);
+                    store.record("ALL", 2025, 3, 1);
+                }
+            });
+            threads.add(writer);
+            writer.start();
+        }
+        for (Thread writer : threads) {
+            writer.join();
+        }
+        done.set(true);
+        reader.join();
+
+        assertEquals(List.of(), violations);
+        for (int t = 0; t < writers; t++) {
+            assertEquals(batches, store.month(2025, 1).hours(t));
+            assertEquals(batches, store.month(2025, 2).hours(t));
+        }
+        assertEquals(writers * batches, store.month(2025, 3).hours(0));
+        assertEquals(3 * writers * batches, store.totals(TimeReportStore.monthIndex(2025, 1),
+                TimeReportStore.monthIndex(2025, 12), null, false, null).get(0).getHours());
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.mcp;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link ToolRegistry} and dispatching to registered tools.
+ */
+public class ToolRegistryTest {
+
+    /** A tool that echoes its input and reports progress on the way. */
+    static class EchoTool implements McpTool {
+        record EchoParams(String text, int times) {
+        }
+
+        @Override
+        public void registerMethods(ToolRegistry registry) {
+            registry.register(new MethodSpec<>("echo", "Repeats a text.",
+                    new ParamSchema(
+                            ParamSpec.string("text", "The text to repeat."),
+                            ParamSpec.optionalInteger("times", "How often to repeat it.", 1, 10)),
+                    v -> new EchoParams(v.getString(0), v.getInt(1, 1)),
+                    (params, context) -> {
+                        StringBuilder sb = new StringBuilder();
+                        for (int i = 0; i < params.times(); i++) {
+                            sb.append(params.text());
+                            context.reportProgress(i + 1, (double) params.times(), null);
+                        }
+                        return sb.toString();
+                    }));
+        }
+    }
+
+    @Test
+    public void testDuplicateMethodIsRejected() {
+        ToolRegistry registry = new ToolRegistry().register(new SearchMCP());
+        assertThrows(IllegalArgumentException.class, () -> registry.register(new SearchMCP()));
+    }
+
+    @Test
+    public void testSnapshotKeepsRegistrationOrder() {
+        Map<String, MethodSpec<?>> methods = new ToolRegistry()
+                .register(new TimeReportMCP())
+                .register(new SearchMCP())
+                .register(new EchoTool())
+                .snapshot();
+        assertEquals(List.of("getTimeReportStats", "getTimeReportTotals", "recordTimeEntry", "recordTimeEntries", "searchContent", "suggestContent", "fetchContent", "indexContent", "deleteContent", "getSearchCacheStats", "echo"), new ArrayList<>(methods.keySet()));
+        assertThrows(UnsupportedOperationException.class, () -> methods.remove("echo"));
+    }
+
+    @Test
+    public void testDispatchToRegisteredToolWithProgress() throws Exception {
+        JsonRpcDispatcher dispatcher = new JsonRpcDispatcher(new ToolRegistry().register(new EchoTool()).snapshot(), null);
+        String body = "{\"jsonrpc\":\"2.0\",\"method\":\"echo\",\"params\":{\"text\":\"ab\",\"times\":3,\"_meta\":{\"progressToken\":\"p1\"}},\"id\":1}";
+        JsonRpcMessage message = dispatcher.parse(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        List<JsonRpcNotification> notifications = new ArrayList<>();
+        JsonRpcResponse response = (JsonRpcResponse) dispatcher.dispatch(message, notifications::add);
+
+        assertNull(response.getError());
+        assertEquals("ababab", response.getResult());
+        assertEquals(3, notifications.size());
+        assertEquals("notifications/progress", notifications.get(0).getMethod());
+        assertEquals("p1", ((Map<?, ?>) notifications.get(2).getParams()).get("progressToken"));
+        assertEquals(3.0, ((Map<?, ?>) notifications.get(2).getParams()).get("progress"));
+    }
+
+    @Test
+    public void testNoProgressWithoutToken() throws Exception {
+        JsonRpcDispatcher dispatcher = new JsonRpcDispatcher(new ToolRegistry().register(new EchoTool()).snapshot(), null);
+        String body = "{\"jsonrpc\":\"2.0\",\"method\":\"echo\",\"params\":{\"text\":\"ab\"},\"id\":1}";
+        List<JsonRpcNotification> notifications = new ArrayList<>();
+        JsonRpcResponse response = (JsonRpcResponse) dispatcher.dispatch(
+                dispatcher.parse(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8))), notifications::add);
+        assertEquals("ab", response.getResult());
+        assertTrue(notifications.isEmpty());
+    }
+}